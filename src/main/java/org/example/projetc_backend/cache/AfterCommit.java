@@ -0,0 +1,27 @@
+package org.example.projetc_backend.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tiện ích chạy một tác vụ (thường là vô hiệu hóa cache) sau khi giao dịch hiện tại commit,
+ * hoặc chạy ngay nếu không có giao dịch nào đang hoạt động.
+ * Tránh trường hợp request khác nạp lại giá trị cũ vào cache trước khi dữ liệu mới được ghi.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {}
+
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package org.example.projetc_backend.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Cache trong bộ nhớ có giới hạn kích thước, mỗi phần tử có thời điểm hết hạn riêng.
+ * Dùng ConcurrentHashMap nên an toàn khi truy cập đồng thời mà không cần khóa toàn cục.
+ * Khi đầy, các phần tử hết hạn bị dọn trước; nếu vẫn đầy thì loại bỏ một phần phần tử cũ bất kỳ.
+ */
+public class ExpiringCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAtMillis) {}
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Kích thước tối đa của cache phải lớn hơn 0.");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Lấy giá trị còn hiệu lực theo khóa.
+     * @return Giá trị đã lưu, hoặc null nếu không có hoặc đã hết hạn.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    /**
+     * Lưu giá trị đến thời điểm hết hạn cho trước (epoch millis).
+     */
+    public void put(K key, V value, long expiresAtMillis) {
+        if (key == null || value == null || expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            makeRoom();
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    public void invalidate(K key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Xóa mọi phần tử thỏa điều kiện (khóa, giá trị).
+     */
+    public void invalidateIf(BiPredicate<K, V> predicate) {
+        entries.entrySet().removeIf(e -> predicate.test(e.getKey(), e.getValue().value()));
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    private void makeRoom() {
+        long now = System.currentTimeMillis();
+        int before = entries.size();
+        entries.values().removeIf(e -> e.expiresAtMillis() <= now);
+        // Nếu không có phần tử nào hết hạn, loại bỏ khoảng 10% để tránh dọn dẹp ở mỗi lần put
+        if (entries.size() >= maxSize) {
+            int toRemove = Math.max(1, maxSize / 10);
+            Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+            while (toRemove-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+        evictions.add(Math.max(0, before - entries.size()));
+    }
+}
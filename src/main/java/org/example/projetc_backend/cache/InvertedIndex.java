@@ -0,0 +1,288 @@
+package org.example.projetc_backend.cache;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục ngược (inverted index) trong bộ nhớ cho tìm kiếm toàn văn, dùng chung cho bài học, từ vựng, câu hỏi...
+ * - Tách từ theo chữ/số Unicode; mỗi từ được lưu dưới dạng đã bỏ dấu (TextFolding.fold) để "tieng" khớp "tiếng",
+ *   kèm dạng có dấu khi khác dạng bỏ dấu để ưu tiên tài liệu khớp đúng dấu mà người dùng đã gõ ("cá" đứng trước "ca").
+ * - Từ điển sắp xếp (TreeMap) nên truy vấn tiền tố ("lis*" → listen, listening) chỉ duyệt đúng khoảng từ cần thiết.
+ * - Xếp hạng BM25 trên tần suất từ đã nhân trọng số trường (ví dụ: tiêu đề nặng hơn mô tả); mọi từ trong truy vấn đều
+ *   phải khớp (AND).
+ * Ghi (put/remove) và đọc (search) được bảo vệ bằng ReadWriteLock; chỉ mục chỉ giữ ID, không giữ nội dung tài liệu.
+ */
+public class InvertedIndex {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_TOKEN_LENGTH = 40;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Từ chỉ khớp nhờ mở rộng tiền tố được tính thấp hơn từ khớp trọn vẹn
+    private static final double PREFIX_FACTOR = 0.7;
+    // Thưởng cho tài liệu chứa đúng dạng có dấu của từ trong truy vấn
+    private static final double ACCENT_BONUS = 1.5;
+
+    /**
+     * Một trường văn bản của tài liệu và trọng số của nó.
+     */
+    public record Field(String text, double weight) {}
+
+    /**
+     * Một kết quả tìm kiếm: ID tài liệu và điểm liên quan.
+     */
+    public record Hit(Integer id, double score) {}
+
+    private record Document(Map<String, Double> terms, Map<String, Double> accentedTerms, double length) {}
+
+    private record QueryTerm(String folded, String accented, boolean prefix) {}
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Integer, Double>> postings = new TreeMap<>();
+    private final NavigableMap<String, Map<Integer, Double>> accentedPostings = new TreeMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final int maxExpansions;
+    private double totalLength;
+
+    /**
+     * @param maxExpansions Số từ tối đa mà một tiền tố được mở rộng thành (theo thứ tự từ điển).
+     */
+    public InvertedIndex(int maxExpansions) {
+        this.maxExpansions = maxExpansions;
+    }
+
+    /**
+     * Thêm hoặc thay thế tài liệu; tài liệu không có từ nào sẽ bị bỏ khỏi chỉ mục.
+     */
+    public void put(Integer id, Field... fields) {
+        Map<String, Double> terms = new HashMap<>();
+        Map<String, Double> accentedTerms = new HashMap<>();
+        double length = 0;
+        for (Field field : fields) {
+            if (field.text() == null || field.weight() <= 0) {
+                continue;
+            }
+            for (String token : tokenize(field.text())) {
+                String folded = TextFolding.fold(token);
+                terms.merge(folded, field.weight(), Double::sum);
+                if (!folded.equals(token)) {
+                    accentedTerms.merge(token, field.weight(), Double::sum);
+                }
+                length += field.weight();
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            if (terms.isEmpty()) {
+                return;
+            }
+            terms.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(id, weight));
+            accentedTerms.forEach((term, weight) -> accentedPostings.computeIfAbsent(term, t -> new HashMap<>()).put(id, weight));
+            documents.put(id, new Document(terms, accentedTerms, length));
+            totalLength += length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Integer id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm kiếm và xếp hạng.
+     * @param query Các từ cần tìm; từ kết thúc bằng "*" là truy vấn tiền tố.
+     * @param prefixLast Coi từ cuối cùng là tiền tố (tìm trong lúc gõ).
+     * @param limit Số kết quả tối đa.
+     * @return Kết quả theo điểm giảm dần (cùng điểm thì ID tăng dần); rỗng nếu truy vấn không có từ nào.
+     */
+    public List<Hit> search(String query, boolean prefixLast, int limit) {
+        List<QueryTerm> queryTerms = parse(query, prefixLast);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (documents.isEmpty()) {
+                return List.of();
+            }
+            double averageLength = totalLength / documents.size();
+            Map<Integer, Double> scores = null;
+            for (QueryTerm term : queryTerms) {
+                Map<Integer, Double> termScores = score(term, averageLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Giữ các tài liệu khớp mọi từ; duyệt trên tập nhỏ hơn
+                    Map<Integer, Double> small = scores.size() <= termScores.size() ? scores : termScores;
+                    Map<Integer, Double> large = small == scores ? termScores : scores;
+                    Map<Integer, Double> merged = new HashMap<>();
+                    small.forEach((id, score) -> {
+                        Double other = large.get(id);
+                        if (other != null) {
+                            merged.put(id, score + other);
+                        }
+                    });
+                    scores = merged;
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Điểm BM25 của một từ truy vấn cho từng tài liệu khớp; mỗi tài liệu lấy từ mở rộng có điểm cao nhất
+    private Map<Integer, Double> score(QueryTerm term, double averageLength) {
+        Map<Integer, Double> termScores = new HashMap<>();
+        for (Map.Entry<String, Map<Integer, Double>> entry : matching(postings, term.folded(), term.prefix())) {
+            double factor = entry.getKey().equals(term.folded()) ? 1.0 : PREFIX_FACTOR;
+            Map<Integer, Double> docs = entry.getValue();
+            double idf = Math.log(1 + (documents.size() - docs.size() + 0.5) / (docs.size() + 0.5));
+            docs.forEach((id, frequency) -> {
+                double norm = K1 * (1 - B + B * documents.get(id).length() / averageLength);
+                double score = factor * idf * frequency * (K1 + 1) / (frequency + norm);
+                termScores.merge(id, score, Math::max);
+            });
+        }
+        if (term.accented() != null && !termScores.isEmpty()) {
+            // Mỗi tài liệu được thưởng tối đa một lần cho một từ truy vấn, dù khớp nhiều từ mở rộng có dấu
+            Set<Integer> accentMatches = new HashSet<>();
+            for (Map.Entry<String, Map<Integer, Double>> entry : matching(accentedPostings, term.accented(), term.prefix())) {
+                accentMatches.addAll(entry.getValue().keySet());
+            }
+            for (Integer id : accentMatches) {
+                termScores.computeIfPresent(id, (key, score) -> score * ACCENT_BONUS);
+            }
+        }
+        return termScores;
+    }
+
+    private Collection<Map.Entry<String, Map<Integer, Double>>> matching(NavigableMap<String, Map<Integer, Double>> dictionary,
+                                                                        String term, boolean prefix) {
+        if (!prefix) {
+            Map<Integer, Double> docs = dictionary.get(term);
+            return docs != null ? List.of(Map.entry(term, docs)) : List.of();
+        }
+        List<Map.Entry<String, Map<Integer, Double>>> entries = new ArrayList<>();
+        for (Map.Entry<String, Map<Integer, Double>> entry
+                : dictionary.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            if (entries.size() >= maxExpansions) {
+                break;
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    private static List<Hit> top(Map<Integer, Double> scores, int limit) {
+        Comparator<Hit> ranking = Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::id);
+        // Heap kích thước limit, phần tử đầu là kết quả kém nhất đang giữ
+        PriorityQueue<Hit> heap = new PriorityQueue<>(ranking.reversed());
+        scores.forEach((id, score) -> {
+            Hit hit = new Hit(id, score);
+            if (heap.size() < limit) {
+                heap.add(hit);
+            } else if (ranking.compare(hit, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        });
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(ranking);
+        return hits;
+    }
+
+    private void removeLocked(Integer id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        document.terms().keySet().forEach(term -> removePosting(postings, term, id));
+        document.accentedTerms().keySet().forEach(term -> removePosting(accentedPostings, term, id));
+        totalLength -= document.length();
+    }
+
+    private static void removePosting(Map<String, Map<Integer, Double>> dictionary, String term, Integer id) {
+        Map<Integer, Double> docs = dictionary.get(term);
+        if (docs != null) {
+            docs.remove(id);
+            if (docs.isEmpty()) {
+                dictionary.remove(term);
+            }
+        }
+    }
+
+    private static List<QueryTerm> parse(String query, boolean prefixLast) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        String[] chunks = query.trim().split("\\s+");
+        for (int i = 0; i < chunks.length; i++) {
+            boolean prefix = chunks[i].endsWith("*") || (prefixLast && i == chunks.length - 1);
+            List<String> tokens = tokenize(chunks[i]);
+            for (int j = 0; j < tokens.size(); j++) {
+                String token = tokens.get(j);
+                String folded = TextFolding.fold(token);
+                terms.add(new QueryTerm(folded, folded.equals(token) ? null : token, prefix && j == tokens.size() - 1));
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Tách văn bản thành các từ viết thường (giữ dấu), bỏ dấu câu; từ quá dài bị cắt bớt.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        for (String token : NON_WORD.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,219 @@
+package org.example.projetc_backend.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.projetc_backend.dto.LessonPageResponse;
+import org.example.projetc_backend.dto.LessonResponse;
+import org.example.projetc_backend.entity.Lesson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache danh mục bài học đang hoạt động, có phiên bản.
+ * - Giữ một bản chụp bất biến (immutable) của mọi bài học chưa bị xóa mềm; lọc, sắp xếp và phân trang thực hiện
+ *   trong bộ nhớ trên bản chụp, kết quả từng trang được cache theo (phiên bản, tiêu chí tìm kiếm đã chuẩn hóa).
+ * - Mọi thay đổi bài học trong LessonService gọi invalidateAfterCommit(): tăng phiên bản, bỏ bản chụp và các trang cũ.
+ *   Bản chụp mang phiên bản lúc bắt đầu nạp và chỉ được dùng khi phiên bản đó còn là phiên bản hiện tại, nên một bản
+ *   chụp nạp xong sau khi bị vô hiệu hóa không bao giờ được phục vụ.
+ * - Khi chưa có bản chụp hợp lệ (khởi động nguội hoặc vừa bị vô hiệu hóa), một request dựng lại bản chụp; các request
+ *   đồng thời khác trả về null để LessonService truy vấn thẳng DB thay vì cùng dựng lại.
+ * - Bản chụp hết hạn sau ttl-seconds (để nhận thay đổi ghi thẳng vào DB): một request dựng lại, các request khác vẫn
+ *   dùng bản chụp cũ trong lúc chờ.
+ * Tìm theo tiêu đề không phân biệt hoa thường và dấu, giống collation *_ai_ci mặc định của MySQL.
+ */
+@Component
+public class LessonCatalogCache {
+    private static final Logger logger = LoggerFactory.getLogger(LessonCatalogCache.class);
+
+    private record Snapshot(long version, long expiresAt, List<LessonResponse> lessons, List<String> foldedTitles) {}
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ExpiringCache<String, LessonPageResponse> pages;
+    private final long ttlMillis;
+    private final int maxLessons;
+    private volatile Snapshot snapshot;
+    // Phiên bản mà danh mục vượt max-lessons: không dựng lại bản chụp cho đến lần thay đổi tiếp theo
+    private volatile long oversizedVersion = -1;
+
+    public LessonCatalogCache(MeterRegistry meterRegistry,
+                              @Value("${app.lesson-catalog.page-cache-size:5000}") int pageCacheSize,
+                              @Value("${app.lesson-catalog.ttl-seconds:3600}") long ttlSeconds,
+                              @Value("${app.lesson-catalog.max-lessons:20000}") int maxLessons) {
+        this.pages = new ExpiringCache<>(pageCacheSize);
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxLessons = maxLessons;
+        FunctionCounter.builder("app.lesson.catalog.hits", pages, ExpiringCache::hitCount).register(meterRegistry);
+        FunctionCounter.builder("app.lesson.catalog.misses", pages, ExpiringCache::missCount).register(meterRegistry);
+        Gauge.builder("app.lesson.catalog.version", version, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Vô hiệu hóa danh mục sau khi giao dịch hiện tại commit.
+     */
+    public void invalidateAfterCommit() {
+        AfterCommit.run(() -> {
+            version.incrementAndGet();
+            snapshot = null;
+            pages.clear();
+        });
+    }
+
+    /**
+     * @return Danh sách bài học đang hoạt động (bất biến, tăng dần theo lessonId), hoặc null nếu chưa có bản chụp
+     *         và request hiện tại nên đọc DB.
+     */
+    public List<LessonResponse> getActiveLessons(Supplier<List<LessonResponse>> loader) {
+        Snapshot current = currentSnapshot(loader);
+        return current != null ? current.lessons() : null;
+    }
+
+    /**
+     * Tìm một bài học đang hoạt động theo ID trên bản chụp (tìm nhị phân).
+     * @return Bài học, hoặc null nếu không có trong bản chụp (đã xóa mềm, không tồn tại hoặc chưa có bản chụp).
+     */
+    public LessonResponse findActiveLesson(Integer lessonId, Supplier<List<LessonResponse>> loader) {
+        Snapshot current = currentSnapshot(loader);
+        if (current == null || lessonId == null) {
+            return null;
+        }
+        List<LessonResponse> lessons = current.lessons();
+        int low = 0;
+        int high = lessons.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = lessons.get(mid).lessonId().compareTo(lessonId);
+            if (cmp == 0) {
+                return lessons.get(mid);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Tìm kiếm trên bản chụp.
+     * @return Trang kết quả, hoặc null nếu chưa có bản chụp và request hiện tại nên đọc DB.
+     */
+    public LessonPageResponse search(Query query, Supplier<List<LessonResponse>> loader) {
+        Snapshot current = currentSnapshot(loader);
+        if (current == null) {
+            return null;
+        }
+        String key = current.version() + "|" + query.cacheKey();
+        LessonPageResponse cached = pages.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String title = query.title() != null ? TextFolding.fold(query.title()) : null;
+        List<LessonResponse> lessons = current.lessons();
+        List<String> titles = current.foldedTitles();
+        List<LessonResponse> matches = new ArrayList<>();
+        for (int i = 0; i < lessons.size(); i++) {
+            LessonResponse lesson = lessons.get(i);
+            if ((title == null || titles.get(i).contains(title))
+                    && (query.level() == null || lesson.level() == query.level())
+                    && (query.skill() == null || lesson.skill() == query.skill())
+                    && (query.minPrice() == null || lesson.price().compareTo(query.minPrice()) >= 0)
+                    && (query.maxPrice() == null || lesson.price().compareTo(query.maxPrice()) <= 0)) {
+                matches.add(lesson);
+            }
+        }
+        // Bản chụp đã tăng dần theo lessonId; sort ổn định nên các phần tử bằng nhau giữ thứ tự lessonId
+        Comparator<LessonResponse> comparator = comparator(query.sortBy());
+        if (comparator != null) {
+            matches.sort(query.descending() ? comparator.reversed() : comparator);
+        } else if (query.descending()) {
+            Collections.reverse(matches);
+        }
+
+        int total = matches.size();
+        long from = (long) query.page() * query.size();
+        List<LessonResponse> content = from >= total
+                ? List.of()
+                : List.copyOf(matches.subList((int) from, (int) Math.min(from + query.size(), total)));
+        int totalPages = (int) Math.ceil((double) total / query.size());
+        LessonPageResponse response = new LessonPageResponse(content, total, totalPages, query.page(), query.size());
+        if (version.get() == current.version()) {
+            pages.put(key, response, System.currentTimeMillis() + ttlMillis);
+        }
+        return response;
+    }
+
+    private Snapshot currentSnapshot(Supplier<List<LessonResponse>> loader) {
+        Snapshot current = snapshot;
+        // Bản chụp của phiên bản cũ (nạp xong sau khi bị vô hiệu hóa) bị coi như không có
+        if (current != null && current.version() != version.get()) {
+            current = null;
+        }
+        if (current != null && current.expiresAt() > System.currentTimeMillis()) {
+            return current;
+        }
+        if (oversizedVersion == version.get() || !rebuilding.compareAndSet(false, true)) {
+            return current;
+        }
+        try {
+            long loadingVersion = version.get();
+            List<LessonResponse> lessons = loader.get().stream()
+                    .sorted(Comparator.comparing(LessonResponse::lessonId))
+                    .toList();
+            if (lessons.size() > maxLessons) {
+                logger.warn("Danh mục có {} bài học, vượt giới hạn {}: tìm kiếm sẽ đọc trực tiếp từ DB.", lessons.size(), maxLessons);
+                oversizedVersion = loadingVersion;
+                return null;
+            }
+            Snapshot rebuilt = new Snapshot(loadingVersion, System.currentTimeMillis() + ttlMillis, lessons,
+                    lessons.stream().map(lesson -> TextFolding.fold(lesson.title())).toList());
+            // Nếu có thay đổi trong lúc nạp, phiên bản của bản chụp đã cũ và lần đọc sau sẽ bỏ qua nó
+            snapshot = rebuilt;
+            return rebuilt;
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+
+    private static Comparator<LessonResponse> comparator(String sortBy) {
+        return switch (sortBy) {
+            case "title" -> Comparator.comparing((LessonResponse lesson) -> TextFolding.fold(lesson.title()));
+            case "price" -> Comparator.comparing(LessonResponse::price);
+            case "level" -> Comparator.comparing((LessonResponse lesson) -> lesson.level().name());
+            case "skill" -> Comparator.comparing((LessonResponse lesson) -> lesson.skill().name());
+            case "createdAt" -> Comparator.comparing(LessonResponse::createdAt,
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            default -> null; // lessonId: thứ tự sẵn có của bản chụp
+        };
+    }
+
+    /**
+     * Tiêu chí tìm kiếm đã chuẩn hóa (enum đã parse, sortBy đã kiểm tra), dùng làm khóa cache.
+     */
+    public record Query(String title, Lesson.Level level, Lesson.Skill skill, BigDecimal minPrice, BigDecimal maxPrice,
+                        int page, int size, String sortBy, boolean descending) {
+
+        String cacheKey() {
+            // Tiêu đề đặt cuối để ký tự "|" trong tiêu đề không làm trùng khóa
+            return level + "|" + skill + "|"
+                    + (minPrice != null ? minPrice.stripTrailingZeros().toPlainString() : "") + "|"
+                    + (maxPrice != null ? maxPrice.stripTrailingZeros().toPlainString() : "") + "|"
+                    + page + "|" + size + "|" + sortBy + "|" + (descending ? "DESC" : "ASC") + "|"
+                    + (title != null ? TextFolding.fold(title) : "");
+        }
+    }
+}
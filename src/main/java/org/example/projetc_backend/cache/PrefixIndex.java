@@ -0,0 +1,164 @@
+package org.example.projetc_backend.cache;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Chỉ mục tiền tố bất biến cho gợi ý tự động (autocomplete), trả về top-k theo một thứ hạng cố định.
+ * - Các khóa đã chuẩn hóa được sắp xếp trong một mảng: mọi khóa có chung tiền tố nằm liền nhau (tương đương các
+ *   lá của một trie đã làm phẳng), nên khoảng khớp được tìm bằng hai lần tìm nhị phân mà không cần nút trie.
+ * - Với tiền tố "nặng" (khoảng khớp lớn hơn scanLimit, ví dụ "a", "th"), top-k được tính sẵn khi dựng;
+ *   tiền tố khác chỉ quét tối đa scanLimit khóa. Nhờ vậy mỗi truy vấn tốn O(log n + scanLimit) bất kể dữ liệu.
+ * - Một chủ sở hữu (owner, ví dụ một từ vựng) có thể có nhiều khóa; kết quả không trùng owner.
+ * Thay đổi dữ liệu bằng cách dựng chỉ mục mới rồi thay tham chiếu (copy-on-write); truy vấn không cần khóa.
+ */
+public final class PrefixIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final String[] keys;
+    private final int[] owners;
+    private final int[] rank;
+    private final int[] ownerByRank;
+    private final int maxResults;
+    private final int scanLimit;
+    private final Map<String, int[]> heavyPrefixes = new HashMap<>();
+
+    /**
+     * @param keys Khóa đã chuẩn hóa (normalize), sắp xếp tăng dần.
+     * @param owners owners[i] là chỉ số owner của keys[i].
+     * @param rank Hoán vị 0..số owner-1; rank[owner] càng nhỏ thì owner càng được ưu tiên.
+     * @param maxResults Số kết quả tối đa của một truy vấn (k).
+     * @param scanLimit Số khóa tối đa được quét trực tiếp trong một truy vấn.
+     */
+    public PrefixIndex(String[] keys, int[] owners, int[] rank, int maxResults, int scanLimit) {
+        this.keys = keys;
+        this.owners = owners;
+        this.rank = rank;
+        this.ownerByRank = new int[rank.length];
+        for (int owner = 0; owner < rank.length; owner++) {
+            ownerByRank[rank[owner]] = owner;
+        }
+        this.maxResults = maxResults;
+        this.scanLimit = scanLimit;
+        precomputeHeavyPrefixes();
+    }
+
+    public int maxResults() {
+        return maxResults;
+    }
+
+    /**
+     * @param prefix Tiền tố đã chuẩn hóa (normalize).
+     * @return Chỉ số owner theo thứ tự: owner có khóa trùng khớp hoàn toàn trước, sau đó theo rank tăng dần.
+     */
+    public int[] search(String prefix, int limit) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        if (from >= to || limit <= 0) {
+            return new int[0];
+        }
+        limit = Math.min(limit, maxResults);
+        // Khóa bằng đúng tiền tố đứng đầu khoảng khớp
+        int exactEnd = from;
+        while (exactEnd < to && exactEnd - from < scanLimit && keys[exactEnd].equals(prefix)) {
+            exactEnd++;
+        }
+        int[] exact = top(from, exactEnd, limit);
+        int[] ranked = to - from > scanLimit ? heavyPrefixes.get(prefix) : top(from, to, limit);
+
+        int[] result = Arrays.copyOf(exact, limit);
+        int size = exact.length;
+        for (int i = 0; i < ranked.length && size < limit; i++) {
+            if (!contains(exact, ranked[i])) {
+                result[size++] = ranked[i];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Chuẩn hóa văn bản thành khóa: bỏ dấu, chữ thường, gộp dấu câu/khoảng trắng thành một khoảng trắng.
+     */
+    public static String normalize(String text) {
+        return SEPARATORS.matcher(TextFolding.fold(text)).replaceAll(" ").trim();
+    }
+
+    // Top count owner khác nhau trong keys[from, to) theo rank; giữ một mảng rank đã sắp kích thước count
+    private int[] top(int from, int to, int count) {
+        int[] best = new int[count];
+        int size = 0;
+        for (int i = from; i < to; i++) {
+            int r = rank[owners[i]];
+            if (size == count && r >= best[size - 1]) {
+                continue;
+            }
+            int position = Arrays.binarySearch(best, 0, size, r);
+            if (position >= 0) {
+                continue; // rank là hoán vị nên trùng rank nghĩa là trùng owner
+            }
+            position = -position - 1;
+            int moved = Math.min(size, count - 1) - position;
+            System.arraycopy(best, position, best, position + 1, moved);
+            best[position] = r;
+            size = Math.min(size + 1, count);
+        }
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = ownerByRank[best[i]];
+        }
+        return result;
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void precomputeHeavyPrefixes() {
+        // Duyệt theo độ dài tiền tố; dừng khi không còn nhóm khóa nào lớn hơn scanLimit
+        for (int length = 1; ; length++) {
+            boolean heavy = false;
+            int i = 0;
+            while (i < keys.length) {
+                if (keys[i].length() < length) {
+                    i++;
+                    continue;
+                }
+                String prefix = keys[i].substring(0, length);
+                int end = i + 1;
+                while (end < keys.length && keys[end].startsWith(prefix)) {
+                    end++;
+                }
+                if (end - i > scanLimit) {
+                    heavyPrefixes.put(prefix, top(i, end, maxResults));
+                    heavy = true;
+                }
+                i = end;
+            }
+            if (!heavy) {
+                return;
+            }
+        }
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.projetc_backend.cache;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hóa văn bản dùng chung cho các chỉ mục trong bộ nhớ (LessonCatalogCache, InvertedIndex, PrefixIndex),
+ * để mọi nơi so khớp không phân biệt hoa thường và dấu theo cùng một quy tắc, giống collation *_ai_ci của MySQL.
+ */
+public final class TextFolding {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    private TextFolding() {
+    }
+
+    /**
+     * Chuẩn hóa chuỗi để so khớp: bỏ dấu (kể cả đ/Đ) và chuyển về chữ thường.
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("")
+                .replace('đ', 'd').replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.projetc_backend.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Cache đọc xuyên (read-through) cho bản ghi User, tra cứu theo username hoặc userId.
+ * Giới hạn theo số phần tử và TTL; các thao tác ghi trong UserService/AuthService
+ * phải gọi evictAfterCommit để vô hiệu hóa chính xác người dùng đã thay đổi.
+ * Luôn trả về bản sao nên người gọi có thể thoải mái sửa đối tượng mà không làm hỏng cache.
+ * Bản ghi nạp từ DB chỉ được lưu nếu không có lần vô hiệu hóa nào của người dùng đó xen giữa lúc truy vấn và lúc lưu,
+ * để request đọc bản ghi cũ ngay trước khi giao dịch ghi commit không đưa bản ghi cũ trở lại cache sau evict.
+ */
+@Component
+public class UserCache {
+
+    // Số ngăn thế hệ; userId được chia vào các ngăn cố định nên bộ nhớ không tăng theo số người dùng
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserRepository userRepository;
+    private final ExpiringCache<String, User> byUsername;
+    private final ExpiringCache<Integer, User> byId;
+    private final long ttlMillis;
+    // Thế hệ theo người dùng, tăng ở mỗi lần evict; hai người dùng chung ngăn chỉ làm bỏ qua thêm một lần lưu
+    private final long[] generations = new long[GENERATION_STRIPES];
+    // Tổng số lần evict; dùng cho tra cứu theo username vì chưa biết userId trước khi truy vấn
+    private long evictions;
+
+    public UserCache(UserRepository userRepository, MeterRegistry meterRegistry,
+                     @Value("${app.user-cache.max-size:10000}") int maxSize,
+                     @Value("${app.user-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.byUsername = new ExpiringCache<>(maxSize);
+        this.byId = new ExpiringCache<>(maxSize);
+        this.ttlMillis = ttlSeconds * 1000;
+        registerMetrics(meterRegistry, "username", byUsername);
+        registerMetrics(meterRegistry, "id", byId);
+    }
+
+    public Optional<User> findByUsername(String username) {
+        User cached = byUsername.get(username);
+        if (cached == null) {
+            long stamp = evictionStamp();
+            Optional<User> loaded = userRepository.findByUsername(username);
+            loaded.ifPresent(user -> {
+                synchronized (this) {
+                    if (evictions == stamp) {
+                        store(user);
+                    }
+                }
+            });
+            return loaded;
+        }
+        return Optional.of(copyOf(cached));
+    }
+
+    public Optional<User> findById(Integer userId) {
+        User cached = byId.get(userId);
+        if (cached == null) {
+            long generation = generationOf(userId);
+            Optional<User> loaded = userRepository.findById(userId);
+            loaded.ifPresent(user -> {
+                synchronized (this) {
+                    if (generations[stripe(userId)] == generation) {
+                        store(user);
+                    }
+                }
+            });
+            return loaded;
+        }
+        return Optional.of(copyOf(cached));
+    }
+
+    /**
+     * Vô hiệu hóa mọi phần tử của người dùng (theo id và theo mọi username từng được cache)
+     * sau khi giao dịch hiện tại commit.
+     */
+    public void evictAfterCommit(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.run(() -> evict(userId));
+    }
+
+    private synchronized void evict(Integer userId) {
+        generations[stripe(userId)]++;
+        evictions++;
+        byId.invalidate(userId);
+        byUsername.invalidateIf((username, user) -> userId.equals(user.getUserId()));
+    }
+
+    private synchronized long generationOf(Integer userId) {
+        return generations[stripe(userId)];
+    }
+
+    private synchronized long evictionStamp() {
+        return evictions;
+    }
+
+    private static int stripe(Integer userId) {
+        return Math.floorMod(userId.hashCode(), GENERATION_STRIPES);
+    }
+
+    private void store(User user) {
+        long expiresAt = System.currentTimeMillis() + ttlMillis;
+        User snapshot = copyOf(user);
+        byUsername.put(snapshot.getUsername(), snapshot, expiresAt);
+        byId.put(snapshot.getUserId(), snapshot, expiresAt);
+    }
+
+    private static User copyOf(User source) {
+        User copy = new User();
+        copy.setUserId(source.getUserId());
+        copy.setUsername(source.getUsername());
+        copy.setEmail(source.getEmail());
+        copy.setPassword(source.getPassword());
+        copy.setFullName(source.getFullName());
+        copy.setAvatarUrl(source.getAvatarUrl());
+        copy.setCreatedAt(source.getCreatedAt());
+        copy.setRole(source.getRole());
+        copy.setTokenVersion(source.getTokenVersion());
+        return copy;
+    }
+
+    private static void registerMetrics(MeterRegistry registry, String key, ExpiringCache<?, ?> cache) {
+        FunctionCounter.builder("app.user.cache.hits", cache, ExpiringCache::hitCount)
+                .tag("key", key).register(registry);
+        FunctionCounter.builder("app.user.cache.misses", cache, ExpiringCache::missCount)
+                .tag("key", key).register(registry);
+        FunctionCounter.builder("app.user.cache.evictions", cache, ExpiringCache::evictionCount)
+                .tag("key", key).register(registry);
+        Gauge.builder("app.user.cache.size", cache, ExpiringCache::size)
+                .tag("key", key).register(registry);
+    }
+}
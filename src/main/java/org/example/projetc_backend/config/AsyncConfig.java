@@ -0,0 +1,95 @@
+package org.example.projetc_backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Cấu hình các thread pool riêng cho công việc nền, tách khỏi thread xử lý request của Tomcat.
+ * Mỗi pool đều giới hạn số thread và độ dài hàng đợi.
+ */
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+
+    /**
+     * Pool gửi email từ outbox. Khi hàng đợi đầy, tác vụ bị từ chối (AbortPolicy);
+     * các email chưa được nhận xử lý vẫn ở trạng thái PENDING và được lấy lại ở lần quét kế tiếp.
+     */
+    @Bean(name = "emailDeliveryExecutor")
+    public ThreadPoolTaskExecutor emailDeliveryExecutor(
+            @Value("${app.email.outbox.pool-size:2}") int poolSize,
+            @Value("${app.email.outbox.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("email-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool băm mật khẩu (BCrypt). Số thread mặc định bằng một nửa số lõi CPU để đợt đăng nhập dồn dập
+     * không chiếm hết CPU của các endpoint khác; hàng đợi đầy thì từ chối ngay (trả 503 cho client).
+     */
+    @Bean(name = "passwordHashingExecutor")
+    public ThreadPoolTaskExecutor passwordHashingExecutor(
+            @Value("${app.password-hashing.pool-size:0}") int poolSize,
+            @Value("${app.password-hashing.queue-capacity:64}") int queueCapacity) {
+        int threads = poolSize > 0 ? poolSize : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("pwd-hash-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool chạy song song các truy vấn đếm độc lập của trang thống kê.
+     * Số thread nhỏ để không chiếm hết connection pool; khi đầy thì chạy ngay trên thread gọi (CallerRunsPolicy).
+     */
+    @Bean(name = "statsQueryExecutor")
+    public ThreadPoolTaskExecutor statsQueryExecutor(
+            @Value("${app.stats.pool-size:4}") int poolSize,
+            @Value("${app.stats.queue-capacity:32}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stats-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool gọi cổng thanh toán (PayPal). Lời gọi từ xa chạy ở đây thay vì trên thread của Tomcat và ngoài transaction DB;
+     * hàng đợi ngắn và đầy thì từ chối ngay (503) để khi PayPal chậm, request mới không dồn ứ làm nghẽn cả hệ thống.
+     */
+    @Bean(name = "paymentGatewayExecutor")
+    public ThreadPoolTaskExecutor paymentGatewayExecutor(
+            @Value("${app.payment.gateway.pool-size:8}") int poolSize,
+            @Value("${app.payment.gateway.queue-capacity:16}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("payment-gw-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
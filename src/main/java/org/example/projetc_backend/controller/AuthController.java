@@ -4,6 +4,7 @@ import org.example.projetc_backend.dto.LoginRequest;
 import org.example.projetc_backend.dto.LoginResponse;
 import org.example.projetc_backend.dto.RegisterRequest;
 import org.example.projetc_backend.service.AuthService;
+import org.example.projetc_backend.service.ServiceBusyException;
 import org.springframework.http.HttpStatus; // Import HttpStatus
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -33,6 +34,8 @@ public class AuthController {
             return new ResponseEntity<>(response, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (ServiceBusyException e) {
+            throw e; // Để GlobalExceptionHandler trả về 503 kèm Retry-After
         } catch (Exception e) { // Bắt các ngoại lệ chung cho lỗi xác thực (ví dụ: BadCredentialsException)
             return new ResponseEntity<>(new LoginResponse("Xác thực thất bại: " + e.getMessage()), HttpStatus.UNAUTHORIZED);
         }
@@ -3,11 +3,14 @@ package org.example.projetc_backend.controller;
 import org.example.projetc_backend.dto.EnrollmentRequest;
 import org.example.projetc_backend.dto.EnrollmentResponse;
 import org.example.projetc_backend.dto.EnrollmentSearchRequest;
+import org.example.projetc_backend.security.UserPrincipal;
+import org.example.projetc_backend.service.EnrollmentEntitlementService;
 import org.example.projetc_backend.service.EnrollmentService;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
@@ -20,10 +23,14 @@ import java.util.List;
 @CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8000", "http://localhost:8080", "http://localhost:61299"})
 public class EnrollmentController {
 
+    private static final int MAX_OWNED_LESSON_IDS = 500;
+
     private final EnrollmentService enrollmentService;
+    private final EnrollmentEntitlementService enrollmentEntitlementService;
 
-    public EnrollmentController(EnrollmentService enrollmentService) {
+    public EnrollmentController(EnrollmentService enrollmentService, EnrollmentEntitlementService enrollmentEntitlementService) {
         this.enrollmentService = enrollmentService;
+        this.enrollmentEntitlementService = enrollmentEntitlementService;
     }
 
     /**
@@ -138,6 +145,31 @@ public class EnrollmentController {
         }
     }
 
+    /**
+     * Trong các bài học cho trước, trả về những bài mà người dùng hiện tại đã đăng ký.
+     * Dùng cho trang danh mục đánh dấu bài học đã sở hữu bằng một request (đọc từ chỉ mục quyền học trong bộ nhớ).
+     * @param lessonIds ID các bài học cần kiểm tra (tối đa 500).
+     * @return ResponseEntity với danh sách ID bài học đã đăng ký.
+     */
+    @GetMapping("/me/owned")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<List<Integer>> getOwnedLessonIds(
+            @RequestParam("lessonIds") List<Integer> lessonIds,
+            @AuthenticationPrincipal UserPrincipal principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Collections.emptyList());
+        }
+        if (lessonIds.size() > MAX_OWNED_LESSON_IDS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Collections.emptyList());
+        }
+        try {
+            return ResponseEntity.ok(List.copyOf(enrollmentEntitlementService.filterEnrolled(principal.getUserId(), lessonIds)));
+        } catch (Exception e) {
+            System.err.println("Error checking owned lessons: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
+        }
+    }
+
     /**
      * Tìm kiếm đăng ký với các tiêu chí và phân trang.
      * Chỉ ADMIN mới có quyền truy cập.
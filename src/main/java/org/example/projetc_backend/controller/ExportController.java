@@ -0,0 +1,121 @@
+package org.example.projetc_backend.controller;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.projetc_backend.dto.ExportCriteria;
+import org.example.projetc_backend.service.ExportService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/exports")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8000", "http://localhost:8080", "http://localhost:61299"})
+public class ExportController {
+
+    private final ExportService exportService;
+
+    public ExportController(ExportService exportService) {
+        this.exportService = exportService;
+    }
+
+    /**
+     * Xuất đơn hàng (mỗi dòng một đơn hàng, kèm số mục) dạng luồng.
+     * Endpoint Backend: GET /api/exports/orders?format=csv&gzip=true&minDate=2024-01-01T00:00:00&maxDate=2024-01-31T23:59:59
+     * Chỉ ADMIN mới có quyền. Các tham số lọc giống /api/orders/search.
+     */
+    @GetMapping("/orders")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime minDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime maxDate,
+            @RequestParam(required = false) BigDecimal minTotalAmount,
+            @RequestParam(required = false) BigDecimal maxTotalAmount,
+            @RequestParam(required = false) String username,
+            HttpServletResponse response) throws IOException {
+        stream(ExportService.Dataset.ORDERS, format, gzip,
+                new ExportCriteria(userId, status, minDate, maxDate, minTotalAmount, maxTotalAmount, username), response);
+    }
+
+    /**
+     * Xuất thanh toán dạng luồng.
+     * Endpoint Backend: GET /api/exports/payments?format=ndjson&status=COMPLETED&minDate=...&maxDate=...
+     * Chỉ ADMIN mới có quyền.
+     */
+    @GetMapping("/payments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportPayments(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime minDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime maxDate,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String username,
+            HttpServletResponse response) throws IOException {
+        stream(ExportService.Dataset.PAYMENTS, format, gzip,
+                new ExportCriteria(userId, status, minDate, maxDate, minAmount, maxAmount, username), response);
+    }
+
+    /**
+     * Xuất ghi danh (người dùng - bài học) dạng luồng.
+     * Endpoint Backend: GET /api/exports/enrollments?format=csv&minDate=...&maxDate=...
+     * Chỉ ADMIN mới có quyền.
+     */
+    @GetMapping("/enrollments")
+    @PreAuthorize("hasRole('ADMIN')")
+    public void exportEnrollments(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime minDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime maxDate,
+            @RequestParam(required = false) String username,
+            HttpServletResponse response) throws IOException {
+        stream(ExportService.Dataset.ENROLLMENTS, format, gzip,
+                new ExportCriteria(userId, null, minDate, maxDate, null, null, username), response);
+    }
+
+    // Ghi thẳng ra response trên luồng xử lý request (không dùng async dispatch), lỗi tham số được trả về trước khi ghi
+    private void stream(ExportService.Dataset dataset, String format, boolean gzip, ExportCriteria criteria,
+                        HttpServletResponse response) throws IOException {
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.parseFormat(format);
+            exportService.validate(dataset, criteria);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error exporting " + dataset + ": " + e.getMessage());
+            response.setStatus(HttpStatus.BAD_REQUEST.value());
+            return;
+        }
+        String fileName = dataset.name().toLowerCase() + "-" + LocalDate.now() + "." + exportFormat.extension() + (gzip ? ".gz" : "");
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(gzip ? "application/gzip" : exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        try {
+            exportService.export(dataset, criteria, exportFormat, gzip, response.getOutputStream());
+        } catch (IOException e) {
+            // Client ngắt kết nối giữa chừng: không còn gì để trả về
+            System.err.println("Export " + dataset + " aborted: " + e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error exporting " + dataset + ": " + e.getMessage());
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
+        }
+    }
+}
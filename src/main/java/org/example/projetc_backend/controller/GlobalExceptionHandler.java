@@ -5,6 +5,9 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.example.projetc_backend.dto.ErrorResponse;
+import org.example.projetc_backend.service.IdempotencyConflictException;
+import org.example.projetc_backend.service.ServiceBusyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -50,6 +53,32 @@ public class GlobalExceptionHandler {
                 .body(new ErrorResponse("Bạn không có quyền truy cập API này"));
     }
 
+    @ExceptionHandler(ServiceBusyException.class)
+    @Operation(summary = "Xử lý ngoại lệ quá tải", description = "Trả về 503 kèm header Retry-After khi tài nguyên giới hạn (ví dụ: pool băm mật khẩu) đang đầy")
+    @ApiResponses({
+            @ApiResponse(responseCode = "503", description = "Hệ thống đang quá tải, thử lại sau khoảng thời gian trong Retry-After")
+    })
+    public ResponseEntity<ErrorResponse> handleServiceBusyException(ServiceBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(new ErrorResponse(e.getMessage()));
+    }
+
+    @ExceptionHandler(IdempotencyConflictException.class)
+    @Operation(summary = "Xử lý ngoại lệ Idempotency-Key", description = "Trả về 409 (kèm Retry-After) khi request cùng khóa đang chạy, 422 khi khóa đã dùng cho request khác nội dung")
+    @ApiResponses({
+            @ApiResponse(responseCode = "409", description = "Request đầu tiên với cùng Idempotency-Key vẫn đang được xử lý"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key đã được dùng cho một request có nội dung khác")
+    })
+    public ResponseEntity<ErrorResponse> handleIdempotencyConflictException(IdempotencyConflictException e) {
+        if (e.isInProgress()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new ErrorResponse(e.getMessage()));
+        }
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(new ErrorResponse(e.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     @Operation(summary = "Xử lý ngoại lệ chung", description = "Xử lý tất cả các ngoại lệ không mong muốn và trả về phản hồi lỗi phù hợp")
     @ApiResponses({
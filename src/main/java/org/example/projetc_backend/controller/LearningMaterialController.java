@@ -126,4 +126,24 @@ public class LearningMaterialController {
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
         }
     }
+
+    /**
+     * Tìm kiếm toàn văn tài liệu học tập theo mô tả và transcript, xếp theo mức độ liên quan.
+     * Chỉ ADMIN mới có quyền.
+     * @param q Từ khóa (không phân biệt hoa thường và dấu; từ kết thúc bằng "*" là tiền tố, ví dụ "lis*").
+     * @param prefix Coi từ cuối cùng là tiền tố (dùng cho ô tìm kiếm gợi ý trong lúc gõ).
+     * @param limit Số kết quả tối đa (1..100).
+     * @return ResponseEntity với danh sách LearningMaterialResponse theo mức độ liên quan giảm dần.
+     */
+    @GetMapping("/text-search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<LearningMaterialResponse>> textSearchLearningMaterials(@RequestParam String q,
+                                                                                      @RequestParam(defaultValue = "false") boolean prefix,
+                                                                                      @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return new ResponseEntity<>(learningMaterialService.textSearchLearningMaterials(q, prefix, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
 }
\ No newline at end of file
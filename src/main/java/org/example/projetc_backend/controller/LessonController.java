@@ -137,4 +137,23 @@ public class LessonController {
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST); // Trả về 400 Bad Request
         }
     }
+
+    /**
+     * Tìm kiếm toàn văn bài học theo tiêu đề và mô tả, xếp theo mức độ liên quan.
+     * Có thể truy cập công khai.
+     * @param q Từ khóa (không phân biệt hoa thường và dấu; từ kết thúc bằng "*" là tiền tố, ví dụ "lis*").
+     * @param prefix Coi từ cuối cùng là tiền tố (dùng cho ô tìm kiếm gợi ý trong lúc gõ).
+     * @param limit Số kết quả tối đa (1..100).
+     * @return ResponseEntity với danh sách LessonResponse theo mức độ liên quan giảm dần.
+     */
+    @GetMapping("/text-search")
+    public ResponseEntity<List<LessonResponse>> textSearchLessons(@RequestParam String q,
+                                                                  @RequestParam(defaultValue = "false") boolean prefix,
+                                                                  @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return new ResponseEntity<>(lessonService.textSearchLessons(q, prefix, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
 }
\ No newline at end of file
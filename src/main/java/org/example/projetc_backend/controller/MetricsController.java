@@ -0,0 +1,72 @@
+package org.example.projetc_backend.controller;
+
+import org.example.projetc_backend.dto.MessageResponse;
+import org.example.projetc_backend.dto.MetricSeriesResponse;
+import org.example.projetc_backend.service.MetricsRollupService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+
+@RestController
+@RequestMapping("/api/metrics")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8000", "http://localhost:8080", "http://localhost:61299"})
+public class MetricsController {
+
+    private final MetricsRollupService metricsRollupService;
+
+    public MetricsController(MetricsRollupService metricsRollupService) {
+        this.metricsRollupService = metricsRollupService;
+    }
+
+    /**
+     * Endpoint lấy chuỗi thời gian của một số liệu (doanh thu, lượt đăng ký, lượt hoàn thành quiz).
+     * Endpoint Backend: GET /api/metrics/timeseries?metric=REVENUE&from=2024-01-01&to=2024-12-31&granularity=MONTH
+     * Chỉ ADMIN mới có quyền.
+     * @param metric REVENUE, SIGNUPS hoặc QUIZ_COMPLETIONS.
+     * @param from Ngày bắt đầu (yyyy-MM-dd).
+     * @param to Ngày kết thúc (yyyy-MM-dd), tính cả ngày này.
+     * @param granularity DAY (mặc định), WEEK hoặc MONTH.
+     * @return ResponseEntity chứa MetricSeriesResponse.
+     */
+    @GetMapping("/timeseries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MetricSeriesResponse> getTimeSeries(
+            @RequestParam String metric,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") String granularity) {
+        try {
+            return new ResponseEntity<>(metricsRollupService.getSeries(metric, from, to, granularity), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error fetching metric series: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            System.err.println("Error fetching metric series: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Endpoint tính lại số liệu theo ngày từ dữ liệu gốc (backfill lịch sử).
+     * Endpoint Backend: POST /api/metrics/backfill?from=2020-01-01&to=2024-12-31 (bỏ trống để tính lại toàn bộ)
+     * Chỉ ADMIN mới có quyền.
+     * @return ResponseEntity chứa thông báo số dòng đã ghi.
+     */
+    @PostMapping("/backfill")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MessageResponse> backfill(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            int written = metricsRollupService.backfill(from, to);
+            return new ResponseEntity<>(new MessageResponse("Đã tính lại " + written + " dòng số liệu theo ngày."), HttpStatus.OK);
+        } catch (Exception e) {
+            System.err.println("Error backfilling metrics: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
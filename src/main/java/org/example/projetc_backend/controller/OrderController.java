@@ -1,11 +1,20 @@
 package org.example.projetc_backend.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.example.projetc_backend.dto.BulkOrderRequest;
 import org.example.projetc_backend.dto.OrderRequest;
 import org.example.projetc_backend.dto.OrderResponse;
 import org.example.projetc_backend.dto.OrderSearchRequest; // <-- Rất quan trọng: Thêm import này
 import org.example.projetc_backend.entity.Order;
+import org.example.projetc_backend.service.IdempotencyConflictException;
+import org.example.projetc_backend.service.IdempotencyService;
 import org.example.projetc_backend.service.OrderService;
+import org.example.projetc_backend.service.ServiceBusyException;
 import org.springframework.data.domain.Page; // <-- Rất quan trọng: Thêm import này để xử lý kết quả phân trang
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -19,10 +28,14 @@ import java.util.List;
 @CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8000", "http://localhost:8080", "http://localhost:61299"})
 public class OrderController {
 
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService) {
         this.orderService = orderService;
+        this.idempotencyService = idempotencyService;
     }
 
     /**
@@ -33,19 +46,51 @@ public class OrderController {
      */
     @PostMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    public ResponseEntity<OrderResponse> createOrder(@Valid @RequestBody OrderRequest request) {
+    public ResponseEntity<OrderResponse> createOrder(
+            @Valid @RequestBody OrderRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         try {
-            OrderResponse newOrder = orderService.createOrder(request);
+            OrderResponse newOrder = idempotencyService.execute("order.create", idempotencyKey, request,
+                    new TypeReference<OrderResponse>() {}, () -> orderService.createOrder(request));
             return new ResponseEntity<>(newOrder, HttpStatus.CREATED);
         } catch (IllegalArgumentException e) {
             // Cung cấp thông báo lỗi rõ ràng hơn trong body
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (ServiceBusyException | IdempotencyConflictException e) {
+            throw e; // GlobalExceptionHandler trả về 503, hoặc 409/422 khi Idempotency-Key đang chạy hay bị dùng lại
         } catch (Exception e) {
             // Xử lý các lỗi không mong muốn khác
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
         }
     }
 
+    /**
+     * Tạo nhiều đơn hàng trong một lần gọi (mua khóa học cho cả lớp/doanh nghiệp).
+     * Endpoint Backend: POST /api/orders/bulk
+     * Chỉ ADMIN mới có quyền. Nếu một đơn hàng không hợp lệ thì không đơn nào được tạo.
+     * @param request DTO chứa danh sách đơn hàng.
+     * @return ResponseEntity với danh sách OrderResponse đã tạo.
+     */
+    @PostMapping("/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<OrderResponse>> createOrdersInBulk(
+            @Valid @RequestBody BulkOrderRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        try {
+            List<OrderResponse> newOrders = idempotencyService.execute("order.bulk", idempotencyKey, request,
+                    new TypeReference<List<OrderResponse>>() {}, () -> orderService.createOrdersInBulk(request));
+            return new ResponseEntity<>(newOrders, HttpStatus.CREATED);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error creating bulk orders: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (ServiceBusyException | IdempotencyConflictException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("Error creating bulk orders: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Lấy thông tin đơn hàng bằng ID.
      * Chỉ ADMIN mới có quyền truy cập mặc định.
@@ -77,6 +122,33 @@ public class OrderController {
         return new ResponseEntity<>(orders, HttpStatus.OK);
     }
 
+    /**
+     * Lấy một trang đơn hàng (nên dùng thay cho /all khi số đơn hàng lớn).
+     * Endpoint Backend: GET /api/orders/page?page=0&size=20&sortBy=orderDate&sortDir=DESC
+     * Chỉ ADMIN mới có quyền truy cập.
+     * @param page Số trang (mặc định 0).
+     * @param size Kích thước trang (mặc định 10, tối đa 100).
+     * @param sortBy Trường để sắp xếp (mặc định "orderId").
+     * @param sortDir Hướng sắp xếp (mặc định "ASC").
+     * @return ResponseEntity với Page<OrderResponse>.
+     */
+    @GetMapping("/page")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<OrderResponse>> getOrdersPage(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "orderId") String sortBy,
+            @RequestParam(defaultValue = "ASC") String sortDir) {
+        try {
+            Page<OrderResponse> orders = orderService.getOrders(toPageable(page, size, sortBy, sortDir));
+            return new ResponseEntity<>(orders, HttpStatus.OK);
+        } catch (IllegalArgumentException | PropertyReferenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Lấy tất cả các đơn hàng của một người dùng cụ thể.
      * Cả USER và ADMIN đều có quyền (USER chỉ xem được của chính mình, ADMIN xem được của bất kỳ ai).
@@ -94,6 +166,39 @@ public class OrderController {
         }
     }
 
+    /**
+     * Lấy một trang đơn hàng của một người dùng cụ thể.
+     * Endpoint Backend: GET /api/orders/user/{userId}/page?page=0&size=10&sortBy=orderDate&sortDir=DESC
+     * Cả USER và ADMIN đều có quyền (USER chỉ xem được của chính mình, ADMIN xem được của bất kỳ ai).
+     * @param userId ID của người dùng.
+     * @return ResponseEntity với Page<OrderResponse>.
+     */
+    @GetMapping("/user/{userId}/page")
+    @PreAuthorize("hasRole('ADMIN') or (hasRole('USER') and #userId == authentication.principal.id)")
+    public ResponseEntity<Page<OrderResponse>> getOrdersPageByUserId(
+            @PathVariable Integer userId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "orderId") String sortBy,
+            @RequestParam(defaultValue = "ASC") String sortDir) {
+        Pageable pageable;
+        try {
+            pageable = toPageable(page, size, sortBy, sortDir);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        try {
+            Page<OrderResponse> orders = orderService.getOrdersByUserId(userId, pageable);
+            return new ResponseEntity<>(orders, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (PropertyReferenceException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     /**
      * Tìm kiếm và phân trang đơn hàng với các tiêu chí tùy chọn.
      * Chỉ ADMIN mới có quyền truy cập.
@@ -162,4 +267,11 @@ public class OrderController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
         }
     }
+
+    private static Pageable toPageable(int page, int size, String sortBy, String sortDir) {
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Số trang không được âm và kích thước trang phải từ 1 đến " + MAX_PAGE_SIZE + ".");
+        }
+        return PageRequest.of(page, size, Sort.by(Sort.Direction.fromString(sortDir), sortBy));
+    }
 }
\ No newline at end of file
@@ -1,10 +1,13 @@
 package org.example.projetc_backend.controller;
 
-import com.paypal.base.rest.PayPalRESTException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import jakarta.validation.Valid;
+import org.example.projetc_backend.dto.PaymentReconciliationResponse;
 import org.example.projetc_backend.dto.PaymentRequest;
 import org.example.projetc_backend.dto.PaymentResponse;
 import org.example.projetc_backend.dto.PaymentSearchRequest;
+import org.example.projetc_backend.service.IdempotencyService;
+import org.example.projetc_backend.service.PaymentReconciliationService;
 import org.example.projetc_backend.service.PaymentService;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +17,7 @@ import org.springframework.web.servlet.view.RedirectView;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/payments")
@@ -21,24 +25,34 @@ import java.util.Map;
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final PaymentReconciliationService paymentReconciliationService;
+    private final IdempotencyService idempotencyService;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService, PaymentReconciliationService paymentReconciliationService,
+                             IdempotencyService idempotencyService) {
         this.paymentService = paymentService;
+        this.paymentReconciliationService = paymentReconciliationService;
+        this.idempotencyService = idempotencyService;
     }
 
     @PostMapping("/paypal/initiate")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<String> initiatePayPalPayment(@Valid @RequestBody PaymentRequest request) throws PayPalRESTException {
-        String approvalUrl = paymentService.initiatePayPalPayment(request);
-        return ResponseEntity.ok(approvalUrl);
+    public CompletableFuture<ResponseEntity<String>> initiatePayPalPayment(
+            @Valid @RequestBody PaymentRequest request,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.executeAsync("payment.initiate", idempotencyKey, request, new TypeReference<String>() {},
+                        () -> paymentService.initiatePayPalPayment(request), approvalUrl -> true)
+                .thenApply(ResponseEntity::ok);
     }
 
     @GetMapping("/paypal/complete")
-    public RedirectView completePayPalPayment(
+    public CompletableFuture<RedirectView> completePayPalPayment(
             @RequestParam("paymentId") String paymentId,
-            @RequestParam("PayerID") String payerId) throws PayPalRESTException {
-        Map<String, String> redirectInfo = paymentService.completePayPalPayment(paymentId, payerId);
-        return new RedirectView(redirectInfo.get("redirectUrl"));
+            @RequestParam("PayerID") String payerId) {
+        // PayPal paymentId là khóa idempotency tự nhiên: trình duyệt/ứng dụng gọi lại nhận cùng một redirect
+        return idempotencyService.executeAsync("payment.complete", paymentId, payerId, new TypeReference<Map<String, String>>() {},
+                        () -> paymentService.completePayPalPayment(paymentId, payerId), PaymentService::isFinalRedirect)
+                .thenApply(redirectInfo -> new RedirectView(redirectInfo.get("redirectUrl")));
     }
 
     @GetMapping("/paypal/cancel")
@@ -62,6 +76,14 @@ public class PaymentController {
         return ResponseEntity.ok(responses);
     }
 
+    // Chạy đối soát các thanh toán bị treo ngay lập tức; dryRun=true chỉ báo cáo, không thay đổi dữ liệu
+    @PostMapping("/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<PaymentReconciliationResponse> reconcilePayments(
+            @RequestParam(value = "dryRun", defaultValue = "true") boolean dryRun) {
+        return ResponseEntity.ok(paymentReconciliationService.reconcile(dryRun));
+    }
+
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<PaymentResponse> getPaymentById(@PathVariable Integer id) {
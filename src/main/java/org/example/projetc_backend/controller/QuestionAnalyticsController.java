@@ -0,0 +1,89 @@
+package org.example.projetc_backend.controller;
+
+import org.example.projetc_backend.dto.MessageResponse;
+import org.example.projetc_backend.dto.QuestionAnalyticsResponse;
+import org.example.projetc_backend.service.QuestionAnalyticsService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/question-analytics")
+@CrossOrigin(origins = {"http://localhost:4200", "http://localhost:8000", "http://localhost:8080", "http://localhost:61299"})
+public class QuestionAnalyticsController {
+
+    private final QuestionAnalyticsService questionAnalyticsService;
+
+    public QuestionAnalyticsController(QuestionAnalyticsService questionAnalyticsService) {
+        this.questionAnalyticsService = questionAnalyticsService;
+    }
+
+    /**
+     * Endpoint lấy độ khó, độ phân biệt và lượt chọn phương án của mọi câu hỏi trong một quiz.
+     * Endpoint Backend: GET /api/question-analytics/quiz/{quizId}
+     * Chỉ ADMIN mới có quyền.
+     * @param quizId ID của quiz.
+     * @return ResponseEntity chứa danh sách QuestionAnalyticsResponse.
+     */
+    @GetMapping("/quiz/{quizId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<QuestionAnalyticsResponse>> getQuizAnalytics(@PathVariable Integer quizId) {
+        try {
+            return new ResponseEntity<>(questionAnalyticsService.getQuizAnalytics(quizId), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error fetching question analytics: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            System.err.println("Error fetching question analytics: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Endpoint lấy các câu hỏi khó nhất (tỉ lệ trả lời đúng thấp nhất).
+     * Endpoint Backend: GET /api/question-analytics/hardest?limit=20&minAttempts=10
+     * Chỉ ADMIN mới có quyền.
+     * @return ResponseEntity chứa danh sách QuestionAnalyticsResponse.
+     */
+    @GetMapping("/hardest")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<QuestionAnalyticsResponse>> getHardestQuestions(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "10") long minAttempts) {
+        try {
+            return new ResponseEntity<>(questionAnalyticsService.getHardestQuestions(limit, minAttempts), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error fetching hardest questions: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            System.err.println("Error fetching hardest questions: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Endpoint tính lại phân tích câu hỏi ngay (không chờ job hằng đêm).
+     * Endpoint Backend: POST /api/question-analytics/recompute?quizId=1 (bỏ trống để tính lại mọi quiz)
+     * Chỉ ADMIN mới có quyền.
+     * @return ResponseEntity chứa thông báo kết quả.
+     */
+    @PostMapping("/recompute")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<MessageResponse> recompute(@RequestParam(required = false) Integer quizId) {
+        try {
+            if (quizId != null) {
+                questionAnalyticsService.flush();
+                questionAnalyticsService.recomputeQuiz(quizId);
+                return new ResponseEntity<>(new MessageResponse("Đã tính lại phân tích câu hỏi của quiz " + quizId + "."), HttpStatus.OK);
+            }
+            int count = questionAnalyticsService.recomputeAll();
+            return new ResponseEntity<>(new MessageResponse("Đã tính lại phân tích câu hỏi cho " + count + " quiz."), HttpStatus.OK);
+        } catch (Exception e) {
+            System.err.println("Error recomputing question analytics: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
@@ -92,6 +92,25 @@ public class QuestionController {
         }
     }
 
+    /**
+     * Tìm kiếm toàn văn câu hỏi theo nội dung, xếp theo mức độ liên quan.
+     * Chỉ ADMIN mới có quyền (theo SecurityConfig).
+     * @param q Từ khóa (không phân biệt hoa thường và dấu; từ kết thúc bằng "*" là tiền tố, ví dụ "lis*").
+     * @param prefix Coi từ cuối cùng là tiền tố (dùng cho ô tìm kiếm gợi ý trong lúc gõ).
+     * @param limit Số kết quả tối đa (1..100).
+     * @return ResponseEntity với danh sách QuestionResponse theo mức độ liên quan giảm dần.
+     */
+    @GetMapping("/text-search")
+    public ResponseEntity<List<QuestionResponse>> textSearchQuestions(@RequestParam String q,
+                                                                      @RequestParam(defaultValue = "false") boolean prefix,
+                                                                      @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return new ResponseEntity<>(questionService.textSearchQuestions(q, prefix, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
 
     /**
      * Cập nhật thông tin một câu hỏi.
@@ -4,7 +4,9 @@ import org.example.projetc_backend.dto.QuizResultRequest;
 import org.example.projetc_backend.dto.QuizResultResponse;
 import org.example.projetc_backend.dto.QuizResultSearchRequest; // Import DTO tìm kiếm
 import org.example.projetc_backend.dto.QuizResultPageResponse; // Import DTO phân trang
+import org.example.projetc_backend.dto.QuizScoreDistributionResponse;
 import org.example.projetc_backend.service.QuizResultService;
+import org.example.projetc_backend.service.QuizScoreHistogramService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,9 +22,11 @@ import java.util.List;
 public class QuizResultController {
 
     private final QuizResultService quizResultService;
+    private final QuizScoreHistogramService quizScoreHistogramService;
 
-    public QuizResultController(QuizResultService quizResultService) {
+    public QuizResultController(QuizResultService quizResultService, QuizScoreHistogramService quizScoreHistogramService) {
         this.quizResultService = quizResultService;
+        this.quizScoreHistogramService = quizScoreHistogramService;
     }
 
     /**
@@ -114,6 +118,26 @@ public class QuizResultController {
         }
     }
 
+    /**
+     * Lấy phân phối điểm của một bài quiz (số kết quả, trung bình, trung vị) và thứ hạng phần trăm của một điểm,
+     * ví dụ để hiển thị "bạn làm tốt hơn X% người học".
+     * Cả USER và ADMIN đều có quyền.
+     * @param quizId ID của bài quiz.
+     * @param score Điểm cần xếp hạng (tùy chọn).
+     * @return ResponseEntity với QuizScoreDistributionResponse.
+     */
+    @GetMapping("/quiz/{quizId}/distribution")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    public ResponseEntity<QuizScoreDistributionResponse> getScoreDistribution(@PathVariable Integer quizId,
+                                                                              @RequestParam(required = false) Integer score) {
+        try {
+            QuizScoreDistributionResponse response = quizScoreHistogramService.getDistribution(quizId, score);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
     /**
      * Tìm kiếm và phân trang kết quả bài kiểm tra dựa trên các tiêu chí tùy chọn.
      * Sử dụng @ModelAttribute để ánh xạ các RequestParam vào DTO.
@@ -5,10 +5,16 @@ import org.example.projetc_backend.dto.UserResponse;
 import org.example.projetc_backend.dto.UserSearchRequest;
 import org.example.projetc_backend.dto.UserPageResponse;
 import org.example.projetc_backend.dto.RegisterRequest;
+import org.example.projetc_backend.dto.UserImportResponse;
 import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.security.UserPrincipal;
 import org.example.projetc_backend.service.UserService;
 import org.example.projetc_backend.service.AuthService;
+import org.example.projetc_backend.service.UserImportService;
+import org.example.projetc_backend.service.ServiceBusyException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -17,6 +23,7 @@ import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,10 +34,12 @@ public class UserController {
 
     private final UserService userService;
     private final AuthService authService;
+    private final UserImportService userImportService;
 
-    public UserController(UserService userService, AuthService authService) {
+    public UserController(UserService userService, AuthService authService, UserImportService userImportService) {
         this.userService = userService;
         this.authService = authService;
+        this.userImportService = userImportService;
     }
 
     /**
@@ -64,8 +73,8 @@ public class UserController {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             Integer currentUserId = null;
-            if (authentication != null && authentication.getPrincipal() instanceof User) {
-                currentUserId = ((User) authentication.getPrincipal()).getUserId();
+            if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+                currentUserId = userPrincipal.getId();
             }
 
             if (!authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")) &&
@@ -99,8 +108,8 @@ public class UserController {
         try {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             Integer currentUserId = null;
-            if (authentication != null && authentication.getPrincipal() instanceof User) {
-                currentUserId = ((User) authentication.getPrincipal()).getUserId();
+            if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal userPrincipal) {
+                currentUserId = userPrincipal.getId();
             }
 
             if (!authentication.getAuthorities().stream().anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN")) &&
@@ -112,6 +121,8 @@ public class UserController {
             return new ResponseEntity<>(response, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (ServiceBusyException e) {
+            throw e; // Pool băm mật khẩu đầy: GlobalExceptionHandler trả về 503
         } catch (Exception e) {
             System.err.println("Error updating user: " + e.getMessage());
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
@@ -180,12 +191,40 @@ public class UserController {
         } catch (IllegalArgumentException e) {
             System.err.println("Error creating user by admin: " + e.getMessage());
             return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (ServiceBusyException e) {
+            throw e; // Pool băm mật khẩu đầy: GlobalExceptionHandler trả về 503
         } catch (Exception e) {
             System.err.println("An unexpected error occurred: " + e.getMessage());
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
 
+    /**
+     * Endpoint để ADMIN nhập người dùng hàng loạt (ví dụ khi một trường đối tác bắt đầu sử dụng).
+     * Endpoint Backend: POST /api/users/import
+     * Chấp nhận text/csv (có dòng tiêu đề username,email,password,fullName,role) hoặc application/json (mảng đối tượng).
+     * Chỉ ADMIN mới có quyền.
+     * @param contentType Content-Type của request, dùng để chọn định dạng.
+     * @param input Nội dung request, được đọc dạng luồng.
+     * @return ResponseEntity chứa UserImportResponse với kết quả của từng dòng (kể cả khi hệ thống bận giữa chừng,
+     *         các dòng chưa xử lý được báo FAILED).
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_JSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<UserImportResponse> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                          InputStream input) {
+        try {
+            UserImportResponse response = userImportService.importUsers(input, contentType);
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error importing users: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            System.err.println("Error importing users: " + e.getMessage());
+            return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     /**
      * Endpoint để lấy thông tin của người dùng hiện đang đăng nhập.
      * Yêu cầu người dùng phải được xác thực.
@@ -205,6 +244,12 @@ public class UserController {
         if (principal instanceof User) {
             User currentUser = (User) principal;
             return new ResponseEntity<>(mapToUserResponse(currentUser), HttpStatus.OK);
+        } else if (principal instanceof UserPrincipal userPrincipal) {
+            // Principal dựng từ JWT đã có sẵn userId, tra cứu theo khóa chính
+            return userService.findById(userPrincipal.getId())
+                    .map(this::mapToUserResponse)
+                    .map(userResponse -> new ResponseEntity<>(userResponse, HttpStatus.OK))
+                    .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
         } else if (principal instanceof org.springframework.security.core.userdetails.UserDetails) {
             String username = ((org.springframework.security.core.userdetails.UserDetails) principal).getUsername();
             return userService.findByUsername(username)
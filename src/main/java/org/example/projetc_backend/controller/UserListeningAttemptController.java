@@ -1,5 +1,6 @@
 package org.example.projetc_backend.controller;
 
+import org.example.projetc_backend.dto.CursorPageResponse;
 import org.example.projetc_backend.dto.UserListeningAttemptRequest;
 import org.example.projetc_backend.dto.UserListeningAttemptResponse;
 import org.example.projetc_backend.dto.UserListeningAttemptSearchRequest;
@@ -225,6 +226,66 @@ public class UserListeningAttemptController {
         }
     }
 
+    /**
+     * Tìm kiếm các lần thử nghe không cần OFFSET/COUNT(*), dùng cho bảng quản trị có nhiều bản ghi.
+     * Chế độ KEYSET (mặc định) đọc trang sau bằng nextCursor của trang trước; SLICE đọc theo số trang nhưng không đếm tổng.
+     * Chỉ ADMIN mới có quyền truy cập.
+     * @param minAccuracyScore Điểm chính xác tối thiểu (tùy chọn).
+     * @param maxAccuracyScore Điểm chính xác tối đa (tùy chọn).
+     * @param sortBy attemptDate (mặc định) hoặc attemptId.
+     * @param sortDir ASC hoặc DESC (mặc định).
+     * @param pagination KEYSET (mặc định) hoặc SLICE.
+     * @param cursor nextCursor của trang trước (KEYSET); bỏ trống để đọc trang đầu.
+     * @param page Số trang (chỉ dùng cho SLICE).
+     * @return ResponseEntity chứa CursorPageResponse của UserListeningAttemptResponse.
+     */
+    @GetMapping("/search/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageResponse<UserListeningAttemptResponse>> scrollListeningAttempts(
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) Integer practiceActivityId,
+            @RequestParam(required = false) Integer minAccuracyScore,
+            @RequestParam(required = false) Integer maxAccuracyScore,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortDir,
+            @RequestParam(required = false) String pagination,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            HttpServletRequest httpRequest) {
+        logger.info("Received GET request to /api/listening-attempts/search/scroll from IP: {}. Params: userId={}, practiceActivityId={}, sortBy={}, sortDir={}, pagination={}, page={}, size={}",
+                httpRequest.getRemoteAddr(), userId, practiceActivityId, sortBy, sortDir, pagination, page, size);
+        if (page < 0 || size < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        try {
+            UserListeningAttemptSearchRequest searchRequest = UserListeningAttemptSearchRequest.builder()
+                    .userId(userId)
+                    .practiceActivityId(practiceActivityId)
+                    .minAccuracyScore(minAccuracyScore)
+                    .maxAccuracyScore(maxAccuracyScore)
+                    .page(page)
+                    .size(size)
+                    .sortBy(sortBy)
+                    .sortDir(sortDir)
+                    .pagination(pagination)
+                    .cursor(cursor)
+                    .build();
+
+            CursorPageResponse<UserListeningAttemptResponse> response = userListeningAttemptService.scrollListeningAttempts(searchRequest);
+            logger.info("Successfully retrieved {} listening attempts (hasNext={}).", response.content().size(), response.hasNext());
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("400 Bad Request for GET /api/listening-attempts/search/scroll from IP: {}. Error: {}",
+                    httpRequest.getRemoteAddr(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            logger.error("500 Internal Server Error for GET /api/listening-attempts/search/scroll from IP: {}. Error: {}",
+                    httpRequest.getRemoteAddr(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
 
     /**
      * Xóa một lần thử nghe.
@@ -1,5 +1,6 @@
 package org.example.projetc_backend.controller;
 
+import org.example.projetc_backend.dto.CursorPageResponse;
 import org.example.projetc_backend.dto.UserSpeakingAttemptRequest;
 import org.example.projetc_backend.dto.UserSpeakingAttemptResponse;
 import org.example.projetc_backend.dto.UserSpeakingAttemptSearchRequest;
@@ -224,6 +225,66 @@ public class UserSpeakingAttemptController {
         }
     }
 
+    /**
+     * Tìm kiếm các lần thử nói không cần OFFSET/COUNT(*), dùng cho bảng quản trị có nhiều bản ghi.
+     * Chế độ KEYSET (mặc định) đọc trang sau bằng nextCursor của trang trước; SLICE đọc theo số trang nhưng không đếm tổng.
+     * Chỉ ADMIN mới có quyền truy cập.
+     * @param minOverallScore Điểm tổng thể tối thiểu (tùy chọn).
+     * @param maxOverallScore Điểm tổng thể tối đa (tùy chọn).
+     * @param sortBy attemptDate (mặc định) hoặc attemptId.
+     * @param sortDir ASC hoặc DESC (mặc định).
+     * @param pagination KEYSET (mặc định) hoặc SLICE.
+     * @param cursor nextCursor của trang trước (KEYSET); bỏ trống để đọc trang đầu.
+     * @param page Số trang (chỉ dùng cho SLICE).
+     * @return ResponseEntity chứa CursorPageResponse của UserSpeakingAttemptResponse.
+     */
+    @GetMapping("/search/scroll")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPageResponse<UserSpeakingAttemptResponse>> scrollSpeakingAttempts(
+            @RequestParam(required = false) Integer userId,
+            @RequestParam(required = false) Integer practiceActivityId,
+            @RequestParam(required = false) Integer minOverallScore,
+            @RequestParam(required = false) Integer maxOverallScore,
+            @RequestParam(required = false) String sortBy,
+            @RequestParam(required = false) String sortDir,
+            @RequestParam(required = false) String pagination,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            HttpServletRequest httpRequest) {
+        logger.info("Received GET request to /api/speaking-attempts/search/scroll from IP: {}. Params: userId={}, practiceActivityId={}, sortBy={}, sortDir={}, pagination={}, page={}, size={}",
+                httpRequest.getRemoteAddr(), userId, practiceActivityId, sortBy, sortDir, pagination, page, size);
+        if (page < 0 || size < 1) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        try {
+            UserSpeakingAttemptSearchRequest searchRequest = UserSpeakingAttemptSearchRequest.builder()
+                    .userId(userId)
+                    .practiceActivityId(practiceActivityId)
+                    .minOverallScore(minOverallScore)
+                    .maxOverallScore(maxOverallScore)
+                    .page(page)
+                    .size(size)
+                    .sortBy(sortBy)
+                    .sortDir(sortDir)
+                    .pagination(pagination)
+                    .cursor(cursor)
+                    .build();
+
+            CursorPageResponse<UserSpeakingAttemptResponse> response = userSpeakingAttemptService.scrollSpeakingAttempts(searchRequest);
+            logger.info("Successfully retrieved {} speaking attempts (hasNext={}).", response.content().size(), response.hasNext());
+            return new ResponseEntity<>(response, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            logger.warn("400 Bad Request for GET /api/speaking-attempts/search/scroll from IP: {}. Error: {}",
+                    httpRequest.getRemoteAddr(), e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            logger.error("500 Internal Server Error for GET /api/speaking-attempts/search/scroll from IP: {}. Error: {}",
+                    httpRequest.getRemoteAddr(), e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
 
     /**
      * Xóa một lần thử nói.
@@ -4,6 +4,8 @@ import org.example.projetc_backend.dto.VocabularyRequest;
 import org.example.projetc_backend.dto.VocabularyResponse;
 import org.example.projetc_backend.dto.VocabularySearchRequest;
 import org.example.projetc_backend.dto.VocabularyPageResponse;
+import org.example.projetc_backend.dto.VocabularySuggestionResponse;
+import org.example.projetc_backend.service.ServiceBusyException;
 import org.example.projetc_backend.service.VocabularyService;
 import org.springframework.data.domain.Page;
 import org.springframework.http.HttpStatus;
@@ -70,6 +72,40 @@ public class VocabularyController {
         }
     }
 
+    // Tìm kiếm toàn văn (từ, nghĩa, câu ví dụ) theo mức độ liên quan; từ kết thúc bằng "*" là tiền tố
+    @GetMapping("/text-search")
+    public ResponseEntity<List<VocabularyResponse>> textSearchVocabulary(@RequestParam String q,
+                                                                         @RequestParam(defaultValue = "false") boolean prefix,
+                                                                         @RequestParam(defaultValue = "20") int limit) {
+        try {
+            return new ResponseEntity<>(vocabularyService.textSearchVocabulary(q, prefix, limit), HttpStatus.OK);
+        } catch (ServiceBusyException e) {
+            throw e;
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            System.err.println("Error searching vocabulary: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // Gợi ý trong lúc gõ cho ô tra từ điển, phục vụ hoàn toàn từ bộ nhớ; rankBy = difficulty | frequency
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<VocabularySuggestionResponse>> autocomplete(@RequestParam(required = false) String q,
+                                                                           @RequestParam(defaultValue = "10") int limit,
+                                                                           @RequestParam(required = false) String rankBy) {
+        try {
+            return new ResponseEntity<>(vocabularyService.autocomplete(q, limit, rankBy), HttpStatus.OK);
+        } catch (ServiceBusyException e) {
+            throw e; // Chỉ mục gợi ý chưa dựng xong: GlobalExceptionHandler trả về 503
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        } catch (Exception e) {
+            System.err.println("Error autocompleting vocabulary: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
     @PutMapping("/{wordId}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<VocabularyResponse> updateVocabulary(@PathVariable Integer wordId,
@@ -0,0 +1,9 @@
+package org.example.projetc_backend.dto;
+
+public record AnswerPickResponse(
+        Integer answerId,
+        String answerText,
+        boolean isCorrect,
+        long pickCount,
+        Double pickRate // Tỉ lệ chọn trên tổng lượt trả lời câu hỏi
+) {}
@@ -0,0 +1,11 @@
+package org.example.projetc_backend.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import java.util.List;
+
+public record BulkOrderRequest(
+        @NotEmpty(message = "Bulk order must contain at least one order")
+        @Valid
+        List<OrderRequest> orders
+) {}
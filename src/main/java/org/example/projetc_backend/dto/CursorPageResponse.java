@@ -0,0 +1,14 @@
+package org.example.projetc_backend.dto;
+
+import java.util.List;
+
+/**
+ * Một trang kết quả phân trang SLICE/KEYSET (không có tổng số bản ghi).
+ * nextCursor là null khi hết dữ liệu hoặc ở chế độ SLICE.
+ */
+public record CursorPageResponse<T>(
+        List<T> content,
+        int pageSize,
+        boolean hasNext,
+        String nextCursor
+) {}
@@ -0,0 +1,18 @@
+package org.example.projetc_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Tiêu chí lọc cho các endpoint xuất dữ liệu (cùng ý nghĩa với tiêu chí của OrderService.searchOrders).
+ * minAmount/maxAmount áp dụng cho tổng tiền đơn hàng hoặc số tiền thanh toán; bị bỏ qua khi xuất ghi danh.
+ */
+public record ExportCriteria(
+        Integer userId,
+        String status,
+        LocalDateTime minDate,
+        LocalDateTime maxDate,
+        BigDecimal minAmount,
+        BigDecimal maxAmount,
+        String username
+) {}
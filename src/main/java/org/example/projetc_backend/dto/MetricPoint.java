@@ -0,0 +1,10 @@
+package org.example.projetc_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record MetricPoint(
+        LocalDate periodStart,
+        long count,
+        BigDecimal amount
+) {}
@@ -0,0 +1,12 @@
+package org.example.projetc_backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public record MetricSeriesResponse(
+        String metric,
+        String granularity,
+        LocalDate from,
+        LocalDate to,
+        List<MetricPoint> points
+) {}
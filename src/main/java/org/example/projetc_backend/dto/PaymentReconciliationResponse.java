@@ -0,0 +1,14 @@
+package org.example.projetc_backend.dto;
+
+import java.time.LocalDateTime;
+
+public record PaymentReconciliationResponse(
+        boolean dryRun,
+        LocalDateTime staleBefore,
+        int scanned,
+        int completed,
+        int failed,
+        int cancelled,
+        int unresolved,
+        int skipped
+) {}
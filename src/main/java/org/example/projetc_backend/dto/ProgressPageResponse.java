@@ -5,8 +5,10 @@ import java.util.List;
 
 public record ProgressPageResponse(
         List<ProgressResponse> content,
-        long totalElements,
-        int totalPages,
-        int currentPage,
-        int pageSize
+        long totalElements, // -1 ở chế độ SLICE/KEYSET (không chạy COUNT)
+        int totalPages, // -1 ở chế độ SLICE/KEYSET
+        int currentPage, // -1 ở chế độ KEYSET
+        int pageSize,
+        boolean hasNext,
+        String nextCursor
 ) {}
\ No newline at end of file
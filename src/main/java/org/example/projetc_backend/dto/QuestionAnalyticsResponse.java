@@ -0,0 +1,16 @@
+package org.example.projetc_backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record QuestionAnalyticsResponse(
+        Integer questionId,
+        Integer quizId,
+        String questionText,
+        long attempts,
+        long correctCount,
+        Double difficultyIndex,
+        Double discriminationIndex,
+        LocalDateTime computedAt,
+        List<AnswerPickResponse> answers
+) {}
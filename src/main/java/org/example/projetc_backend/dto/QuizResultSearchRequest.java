@@ -11,7 +11,9 @@ public record QuizResultSearchRequest(
         @Min(0) Integer page,
         @Min(1) Integer size,
         String sortBy, // Tên trường để sắp xếp (ví dụ: "completedAt", "score")
-        String sortDir // Hướng sắp xếp ("ASC" hoặc "DESC")
+        String sortDir, // Hướng sắp xếp ("ASC" hoặc "DESC")
+        String pagination, // OFFSET (mặc định), SLICE (không đếm tổng) hoặc KEYSET
+        String cursor // nextCursor của trang trước (KEYSET)
 ) {
     // Constructor Canonical để thiết lập giá trị mặc định nếu null/invalid
     public QuizResultSearchRequest {
@@ -0,0 +1,10 @@
+package org.example.projetc_backend.dto;
+
+public record QuizScoreDistributionResponse(
+        Integer quizId,
+        long totalResults,
+        Double mean,
+        Double median,
+        Integer score, // Điểm được yêu cầu xếp hạng (nếu có)
+        Double percentileRank // % kết quả có điểm thấp hơn score
+) {}
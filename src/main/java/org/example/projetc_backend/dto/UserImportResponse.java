@@ -0,0 +1,12 @@
+package org.example.projetc_backend.dto;
+
+import java.util.List;
+
+public record UserImportResponse(
+        int totalRows,
+        int createdCount,
+        int duplicateCount,
+        int invalidCount,
+        int failedCount,
+        List<UserImportRowResult> rows
+) {}
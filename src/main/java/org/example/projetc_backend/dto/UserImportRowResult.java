@@ -0,0 +1,12 @@
+package org.example.projetc_backend.dto;
+
+/**
+ * Kết quả nhập của một dòng: CREATED, DUPLICATE, INVALID hoặc FAILED.
+ */
+public record UserImportRowResult(
+        int row,
+        String username,
+        String email,
+        String status,
+        String message
+) {}
@@ -12,7 +12,9 @@ public record UserSearchRequest(
         @Min(0) Integer page,
         @Min(1) Integer size,
         String sortBy,
-        String sortDir
+        String sortDir,
+        String pagination, // OFFSET (mặc định), SLICE (không đếm tổng) hoặc KEYSET
+        String cursor // nextCursor của trang trước (KEYSET)
 ) {
     public UserSearchRequest {
         if (page == null || page < 0) page = 0;
@@ -14,5 +14,9 @@ public record UserWritingAttemptSearchRequest(
         @Min(value = 0, message = "Page number must be non-negative")
         int page,
         @Min(value = 1, message = "Page size must be at least 1")
-        int size
+        int size,
+        String sortBy,
+        String sortDir,
+        String pagination,
+        String cursor
 ) {}
\ No newline at end of file
@@ -0,0 +1,10 @@
+package org.example.projetc_backend.dto;
+
+import org.example.projetc_backend.entity.Vocabulary;
+
+public record VocabularySuggestionResponse(
+        Integer wordId,
+        String word,
+        String meaning,
+        Vocabulary.DifficultyLevel difficultyLevel
+) {}
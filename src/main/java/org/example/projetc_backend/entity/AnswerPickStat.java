@@ -0,0 +1,24 @@
+package org.example.projetc_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+/**
+ * Số lần một phương án trả lời (Answer) được người học chọn, dùng để tìm các phương án nhiễu được chọn nhiều.
+ */
+@Entity
+@Table(name = "Answer_Pick_Stats", indexes = {
+        @Index(name = "idx_answer_pick_stats_question_id", columnList = "question_id")
+})
+@Data
+public class AnswerPickStat {
+    @Id
+    @Column(name = "answer_id")
+    private Integer answerId;
+
+    @Column(name = "question_id", nullable = false)
+    private Integer questionId;
+
+    @Column(name = "pick_count", nullable = false)
+    private Long pickCount = 0L;
+}
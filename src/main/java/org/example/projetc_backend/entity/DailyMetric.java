@@ -0,0 +1,47 @@
+package org.example.projetc_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Số liệu tổng hợp theo ngày (doanh thu, lượt đăng ký, lượt hoàn thành quiz) cho biểu đồ chuỗi thời gian.
+ * Mỗi (metric, metric_date) có đúng một dòng; được cộng dồn khi có sự kiện và tính lại bởi job backfill.
+ */
+@Entity
+@Table(name = "Daily_Metrics", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_daily_metrics_metric_date", columnNames = {"metric", "metric_date"})
+})
+@Data
+public class DailyMetric {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long metricId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "metric", nullable = false, length = 30)
+    private Metric metric;
+
+    @Column(name = "metric_date", nullable = false)
+    private LocalDate metricDate;
+
+    // Số sự kiện trong ngày (số giao dịch, số người đăng ký, số lượt làm quiz)
+    @Column(name = "event_count", nullable = false)
+    private Long eventCount = 0L;
+
+    // Tổng tiền trong ngày; chỉ có ý nghĩa với REVENUE
+    @Column(name = "amount", nullable = false, precision = 14, scale = 2)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    // Thời điểm job backfill đọc bảng gốc để tính lại dòng này; giá trị cộng dồn ghi nhận trước mốc này đã nằm trong kết quả
+    @Column(name = "recomputed_at")
+    private LocalDateTime recomputedAt;
+
+    public enum Metric {
+        REVENUE,
+        SIGNUPS,
+        QUIZ_COMPLETIONS
+    }
+}
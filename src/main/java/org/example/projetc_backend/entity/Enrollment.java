@@ -5,7 +5,9 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Enrollments")
+@Table(name = "Enrollments", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_enrollments_user_lesson", columnNames = {"user_id", "lesson_id"})
+})
 @Data
 public class Enrollment {
     @Id
@@ -0,0 +1,43 @@
+package org.example.projetc_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả đã lưu của một request có Idempotency-Key (xem IdempotencyService).
+ * Khóa là băm của (phạm vi, người gọi, Idempotency-Key) nên có độ dài cố định.
+ */
+@Entity
+@Table(name = "Idempotency_Keys", indexes = {
+        @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key", length = 100)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private Status status;
+
+    // SHA-256 (hex) của nội dung request đầu tiên; request dùng lại khóa với nội dung khác bị từ chối
+    @Column(name = "request_hash", length = 64)
+    private String requestHash;
+
+    // Kết quả đã tuần tự hóa JSON (chỉ có khi COMPLETED)
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public enum Status {
+        IN_PROGRESS,
+        COMPLETED
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.projetc_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Mã OTP đặt lại mật khẩu, lưu riêng khỏi bảng Users.
+ * Mỗi email có tối đa một OTP còn hiệu lực (khóa duy nhất theo email); chỉ lưu hash SHA-256 của mã.
+ */
+@Entity
+@Table(name = "Password_Reset_Otps", indexes = {
+        @Index(name = "idx_password_reset_otps_expires_at", columnList = "expires_at")
+})
+@Data
+public class PasswordResetOtp {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer otpId;
+
+    @Column(name = "email", nullable = false, unique = true, length = 100)
+    private String email;
+
+    @Column(name = "otp_hash", nullable = false, length = 64)
+    private String otpHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Số lần nhập sai; vượt quá giới hạn thì OTP bị hủy
+    @Column(name = "failed_attempts", nullable = false)
+    private Integer failedAttempts = 0;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
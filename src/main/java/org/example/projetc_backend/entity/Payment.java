@@ -6,7 +6,10 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Payments")
+@Table(name = "Payments", indexes = {
+        // Bộ đối soát duyệt theo (status, payment_id)
+        @Index(name = "idx_payments_status", columnList = "status, payment_id")
+})
 @Data
 public class Payment {
     @Id
@@ -8,7 +8,10 @@ import lombok.AllArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Progress")
+@Table(name = "Progress", indexes = {
+        // Phân trang KEYSET theo thời điểm cập nhật
+        @Index(name = "idx_progress_last_updated", columnList = "last_updated, progress_id")
+})
 @Data
 @NoArgsConstructor // Cần cho JPA
 @AllArgsConstructor // Có thể hữu ích cho constructor đầy đủ
@@ -0,0 +1,41 @@
+package org.example.projetc_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Số liệu phân tích của một câu hỏi (một dòng cho mỗi câu hỏi).
+ * attempts/correctCount được cộng dồn khi người dùng nộp câu trả lời;
+ * difficultyIndex và discriminationIndex được job hằng đêm tính lại từ User_Answers.
+ */
+@Entity
+@Table(name = "Question_Stats", indexes = {
+        @Index(name = "idx_question_stats_quiz_id", columnList = "quiz_id")
+})
+@Data
+public class QuestionStat {
+    @Id
+    @Column(name = "question_id")
+    private Integer questionId;
+
+    @Column(name = "quiz_id", nullable = false)
+    private Integer quizId;
+
+    @Column(name = "attempts", nullable = false)
+    private Long attempts = 0L;
+
+    @Column(name = "correct_count", nullable = false)
+    private Long correctCount = 0L;
+
+    // Tỉ lệ trả lời đúng (0..1) tại lần tính hằng đêm; API trả độ khó tính từ attempts/correctCount hiện tại
+    @Column(name = "difficulty_index")
+    private Double difficultyIndex;
+
+    // Chênh lệch tỉ lệ đúng giữa nhóm 27% điểm cao nhất và 27% điểm thấp nhất (-1..1)
+    @Column(name = "discrimination_index")
+    private Double discriminationIndex;
+
+    @Column(name = "computed_at")
+    private LocalDateTime computedAt;
+}
@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "QuizResults")
+@Table(name = "QuizResults", indexes = {
+        // Phân trang KEYSET theo thời điểm hoàn thành
+        @Index(name = "idx_quiz_results_completed_at", columnList = "completed_at, result_id")
+})
 @Data
 public class QuizResult {
     @Id
@@ -0,0 +1,28 @@
+package org.example.projetc_backend.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+/**
+ * Bản chụp số liệu thống kê đã tính sẵn (một dòng duy nhất, id = 1), lưu dạng JSON.
+ * Giúp instance mới khởi động phục vụ /api/stats ngay mà không phải chạy lại các truy vấn đếm.
+ */
+@Entity
+@Table(name = "Stats_Snapshots")
+@Data
+public class StatsSnapshot {
+    public static final Integer SINGLETON_ID = 1;
+
+    @Id
+    private Integer snapshotId;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "etag", nullable = false, length = 64)
+    private String etag;
+
+    @Column(name = "computed_at", nullable = false)
+    private LocalDateTime computedAt;
+}
@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "Users")
+@Table(name = "Users", indexes = {
+        // Phân trang KEYSET theo ngày tạo tài khoản
+        @Index(name = "idx_users_created_at", columnList = "created_at, user_id")
+})
 @Data
 public class User {
     @Id
@@ -30,16 +33,14 @@ public class User {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
-    @Column(name = "otp_code", length = 6)
-    private String otpCode;
-
-    @Column(name = "otp_expiry")
-    private LocalDateTime otpExpiry;
-
     @Column(name = "role")
     @Enumerated(EnumType.STRING)
     private Role role = Role.ROLE_USER;
 
+    // Tăng mỗi khi đổi vai trò hoặc mật khẩu để thu hồi các JWT đã cấp trước đó
+    @Column(name = "token_version", nullable = false, columnDefinition = "INT NOT NULL DEFAULT 0")
+    private Integer tokenVersion = 0;
+
     public enum Role {
         ROLE_ADMIN, ROLE_USER
     }
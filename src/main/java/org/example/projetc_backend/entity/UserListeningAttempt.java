@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "UserListeningAttempts")
+@Table(name = "UserListeningAttempts", indexes = {
+        // Phân trang KEYSET theo ngày làm bài
+        @Index(name = "idx_listening_attempts_date", columnList = "attempt_date, attempt_id")
+})
 @Data
 public class UserListeningAttempt {
     @Id
@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "UserSpeakingAttempts")
+@Table(name = "UserSpeakingAttempts", indexes = {
+        // Phân trang KEYSET theo ngày làm bài
+        @Index(name = "idx_speaking_attempts_date", columnList = "attempt_date, attempt_id")
+})
 @Data
 public class UserSpeakingAttempt {
     @Id
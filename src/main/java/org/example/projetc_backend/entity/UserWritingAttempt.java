@@ -5,7 +5,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "UserWritingAttempts")
+@Table(name = "UserWritingAttempts", indexes = {
+        // Phân trang KEYSET theo ngày làm bài
+        @Index(name = "idx_writing_attempts_date", columnList = "attempt_date, attempt_id")
+})
 @Data
 public class UserWritingAttempt {
     @Id
@@ -0,0 +1,27 @@
+package org.example.projetc_backend.repository;
+
+import org.example.projetc_backend.entity.AnswerPickStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface AnswerPickStatRepository extends JpaRepository<AnswerPickStat, Integer> {
+
+    List<AnswerPickStat> findByQuestionIdIn(Collection<Integer> questionIds);
+
+    @Modifying
+    @Query("DELETE FROM AnswerPickStat a WHERE a.questionId IN :questionIds")
+    int deleteByQuestionIds(@Param("questionIds") Collection<Integer> questionIds);
+
+    // Cộng dồn số lần chọn của một phương án (tạo dòng nếu chưa có)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO answer_pick_stats (answer_id, question_id, pick_count) VALUES (:answerId, :questionId, :picks) " +
+            "ON DUPLICATE KEY UPDATE pick_count = pick_count + :picks", nativeQuery = true)
+    int addPicks(@Param("answerId") Integer answerId, @Param("questionId") Integer questionId, @Param("picks") long picks);
+}
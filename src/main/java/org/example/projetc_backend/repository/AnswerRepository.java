@@ -8,10 +8,13 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AnswerRepository extends JpaRepository<Answer, Integer> {
     List<Answer> findByQuestionQuestionIdAndIsDeletedFalse(Integer questionId);
+    List<Answer> findByQuestionQuizQuizIdAndIsDeletedFalse(Integer quizId);
+    List<Answer> findByQuestionQuestionIdIn(Collection<Integer> questionIds);
     List<Answer> findByQuestionQuestionIdAndIsActiveTrue(Integer questionId); // Giữ lại
     // Phương thức này có thể được sử dụng trong mapToQuestionResponse để chỉ lấy các lựa chọn cho người dùng cuối
     List<Answer> findByQuestionQuestionIdAndIsActiveTrueAndIsDeletedFalse(Integer questionId); // Đã có
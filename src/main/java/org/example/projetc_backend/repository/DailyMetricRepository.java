@@ -0,0 +1,37 @@
+package org.example.projetc_backend.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.projetc_backend.entity.DailyMetric;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface DailyMetricRepository extends JpaRepository<DailyMetric, Long> {
+
+    List<DailyMetric> findByMetricAndMetricDateBetweenOrderByMetricDate(DailyMetric.Metric metric, LocalDate from, LocalDate to);
+
+    // Khóa dòng của ngày khi ghi bộ đệm, để đọc mốc tính lại sau khi job backfill đang chạy (nếu có) commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT d FROM DailyMetric d WHERE d.metric = :metric AND d.metricDate = :day")
+    Optional<DailyMetric> findForUpdate(@Param("metric") DailyMetric.Metric metric, @Param("day") LocalDate day);
+
+    // Cộng dồn vào dòng của ngày (tạo mới nếu chưa có) trong một câu lệnh, dựa trên khóa duy nhất (metric, metric_date)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO daily_metrics (metric, metric_date, event_count, amount) VALUES (:metric, :day, :count, :amount) " +
+            "ON DUPLICATE KEY UPDATE event_count = event_count + :count, amount = amount + :amount", nativeQuery = true)
+    int addToDay(@Param("metric") String metric, @Param("day") LocalDate day,
+                 @Param("count") long count, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("DELETE FROM DailyMetric d WHERE d.metric = :metric AND d.metricDate >= :from AND d.metricDate <= :to")
+    int deleteRange(@Param("metric") DailyMetric.Metric metric, @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
@@ -0,0 +1,42 @@
+package org.example.projetc_backend.repository;
+
+import org.example.projetc_backend.entity.EmailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Chỉ lấy ID các email đến hạn gửi, theo thứ tự tạo
+    @Query("SELECT e.emailId FROM EmailOutbox e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.emailId")
+    List<Long> findDueIds(@Param("status") EmailOutbox.Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Nhận xử lý một email bằng cập nhật có điều kiện; trả về 1 nếu nhận thành công (an toàn khi chạy nhiều instance)
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = org.example.projetc_backend.entity.EmailOutbox.Status.SENDING, e.claimedAt = :now " +
+            "WHERE e.emailId = :emailId AND e.status = org.example.projetc_backend.entity.EmailOutbox.Status.PENDING")
+    int claim(@Param("emailId") Long emailId, @Param("now") LocalDateTime now);
+
+    // Trả các email bị kẹt ở SENDING quá lâu về PENDING để gửi lại
+    @Modifying
+    @Transactional
+    @Query("UPDATE EmailOutbox e SET e.status = org.example.projetc_backend.entity.EmailOutbox.Status.PENDING " +
+            "WHERE e.status = org.example.projetc_backend.entity.EmailOutbox.Status.SENDING AND e.claimedAt < :before")
+    int releaseStale(@Param("before") LocalDateTime before);
+
+    long countByStatus(EmailOutbox.Status status);
+
+    // Xóa các email đã kết thúc (SENT/FAILED) được tạo trước mốc thời gian
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailOutbox e WHERE e.status IN (org.example.projetc_backend.entity.EmailOutbox.Status.SENT, " +
+            "org.example.projetc_backend.entity.EmailOutbox.Status.FAILED) AND e.createdAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query; // Bổ sung
 import org.springframework.data.repository.query.Param; // Bổ sung
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +18,14 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Integer>
     List<Enrollment> findByLessonLessonId(Integer lessonId);
     List<Enrollment> findByUserUserId(Integer userId);
 
+    // Chỉ đọc ID bài học (không tải Enrollment đầy đủ) để dựng chỉ mục quyền học
+    @Query("SELECT e.lesson.lessonId FROM Enrollment e WHERE e.user.userId = :userId")
+    List<Integer> findLessonIdsByUserId(@Param("userId") Integer userId);
+
+    // Các bài học (trong danh sách) mà người dùng đã đăng ký, dùng cho đăng ký hàng loạt
+    @Query("SELECT e.lesson.lessonId FROM Enrollment e WHERE e.user.userId = :userId AND e.lesson.lessonId IN :lessonIds")
+    List<Integer> findEnrolledLessonIds(@Param("userId") Integer userId, @Param("lessonIds") Collection<Integer> lessonIds);
+
     @Query("SELECT e FROM Enrollment e WHERE " +
             "(:userId IS NULL OR e.user.userId = :userId) AND " +
             "(:lessonId IS NULL OR e.lesson.lessonId = :lessonId)")
@@ -0,0 +1,46 @@
+package org.example.projetc_backend.repository;
+
+import org.example.projetc_backend.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Nhận xử lý một khóa; trả về 1 nếu request hiện tại là request đầu tiên (an toàn khi chạy nhiều instance)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT IGNORE INTO idempotency_keys (idempotency_key, request_hash, status, created_at, expires_at) " +
+            "VALUES (:key, :requestHash, 'IN_PROGRESS', :now, :expiresAt)", nativeQuery = true)
+    int claim(@Param("key") String key, @Param("requestHash") String requestHash, @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = org.example.projetc_backend.entity.IdempotencyRecord.Status.COMPLETED, " +
+            "r.responseBody = :body WHERE r.idempotencyKey = :key")
+    int complete(@Param("key") String key, @Param("body") String body);
+
+    // Bỏ khóa đang xử lý khi request lỗi hoặc kết quả không được lưu, để lần thử lại chạy lại từ đầu
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key " +
+            "AND r.status = org.example.projetc_backend.entity.IdempotencyRecord.Status.IN_PROGRESS")
+    int release(@Param("key") String key);
+
+    // Xóa khóa đã hết hạn hoặc bị kẹt ở IN_PROGRESS (instance xử lý đã dừng đột ngột)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND (r.expiresAt < :now OR " +
+            "(r.status = org.example.projetc_backend.entity.IdempotencyRecord.Status.IN_PROGRESS AND r.createdAt < :staleBefore))")
+    int deleteIfStale(@Param("key") String key, @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,15 +1,19 @@
 package org.example.projetc_backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.projetc_backend.entity.LearningMaterial;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository; // Thêm import này
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository // Thêm annotation này
 public interface LearningMaterialRepository extends JpaRepository<LearningMaterial, Integer> {
@@ -26,4 +30,9 @@ public interface LearningMaterialRepository extends JpaRepository<LearningMateri
             @Param("materialType") LearningMaterial.MaterialType materialType,
             @Param("description") String description,
             Pageable pageable);
+
+    // Mô tả và transcript của tài liệu, đọc dạng luồng khi dựng chỉ mục tìm kiếm
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT m.materialId, m.description, m.transcriptText FROM LearningMaterial m")
+    Stream<Object[]> streamSearchableText();
 }
\ No newline at end of file
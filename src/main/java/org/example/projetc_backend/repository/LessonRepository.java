@@ -1,18 +1,22 @@
 package org.example.projetc_backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.projetc_backend.entity.Lesson;
 import org.example.projetc_backend.entity.Lesson.Level;
 import org.example.projetc_backend.entity.Lesson.Skill;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository; // Thêm import này
 
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository // Thêm annotation này
 public interface LessonRepository extends JpaRepository<Lesson, Integer> {
@@ -20,6 +24,13 @@ public interface LessonRepository extends JpaRepository<Lesson, Integer> {
 
     List<Lesson> findByIsDeletedFalse(); // Đổi tên cho rõ ràng hơn
 
+    // Phân phối cấp độ và kỹ năng cho trang thống kê: cặp [giá trị, count]
+    @Query("SELECT l.level, COUNT(l) FROM Lesson l GROUP BY l.level")
+    List<Object[]> countByLevelGrouped();
+
+    @Query("SELECT l.skill, COUNT(l) FROM Lesson l GROUP BY l.skill")
+    List<Object[]> countBySkillGrouped();
+
     @Query("SELECT l FROM Lesson l WHERE l.isDeleted = false AND " +
             "(:title IS NULL OR LOWER(l.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
             "(:level IS NULL OR l.level = :level) AND " +
@@ -34,4 +45,9 @@ public interface LessonRepository extends JpaRepository<Lesson, Integer> {
             @Param("maxPrice") BigDecimal maxPrice,
             Pageable pageable
     );
+
+    // Văn bản cần đánh chỉ mục của các bài học đang hoạt động, đọc dạng luồng khi dựng chỉ mục tìm kiếm
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT l.lessonId, l.title, l.description FROM Lesson l WHERE l.isDeleted = false")
+    Stream<Object[]> streamSearchableText();
 }
\ No newline at end of file
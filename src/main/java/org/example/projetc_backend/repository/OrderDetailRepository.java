@@ -9,6 +9,7 @@ import org.springframework.data.domain.Pageable; // Bổ sung
 import org.springframework.data.jpa.repository.Query; // Bổ sung
 import org.springframework.data.repository.query.Param; // Bổ sung
 import org.springframework.stereotype.Repository; // Thêm import này
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +19,10 @@ public interface OrderDetailRepository extends JpaRepository<OrderDetail, Intege
     List<OrderDetail> findByLesson(Lesson lesson);
     Optional<OrderDetail> findByOrderAndLesson(Order order, Lesson lesson);
 
+    // Chi tiết của nhiều đơn hàng cùng lúc, kèm bài học (một truy vấn cho cả trang đơn hàng)
+    @Query("SELECT od FROM OrderDetail od JOIN FETCH od.lesson WHERE od.order.orderId IN :orderIds ORDER BY od.orderDetailId")
+    List<OrderDetail> findWithLessonByOrderIds(@Param("orderIds") Collection<Integer> orderIds);
+
     @Query("SELECT od FROM OrderDetail od WHERE " +
             "(:orderId IS NULL OR od.order.orderId = :orderId) AND " +
             "(:lessonId IS NULL OR od.lesson.lessonId = :lessonId)")
@@ -4,6 +4,8 @@ import org.example.projetc_backend.entity.Order;
 import org.example.projetc_backend.entity.User;
 import org.springframework.data.domain.Page; // Bổ sung
 import org.springframework.data.domain.Pageable; // Bổ sung
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query; // Bổ sung
@@ -16,6 +18,25 @@ import java.util.List;
 @Repository // Thêm annotation này
 public interface OrderRepository extends JpaRepository<Order, Integer>, JpaSpecificationExecutor<Order> {
     List<Order> findByUser(User user);
+
+    // Các truy vấn phục vụ danh sách đơn hàng: tải kèm user và payment trong cùng câu truy vấn (tránh N+1);
+    // chi tiết đơn hàng được tải riêng một lần cho cả trang bằng OrderDetailRepository.findWithLessonByOrderIds.
+    @EntityGraph(attributePaths = {"user", "payment"})
+    List<Order> findAllByOrderByOrderIdAsc();
+
+    @EntityGraph(attributePaths = {"user", "payment"})
+    Page<Order> findAllBy(Pageable pageable);
+
+    @EntityGraph(attributePaths = {"user", "payment"})
+    List<Order> findAllByUserUserIdOrderByOrderIdAsc(Integer userId);
+
+    @EntityGraph(attributePaths = {"user", "payment"})
+    Page<Order> findAllByUserUserId(Integer userId, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"user", "payment"})
+    Page<Order> findAll(Specification<Order> spec, Pageable pageable);
+
     List<Order> findByStatus(Order.OrderStatus status);
     List<Order> findByUserAndOrderDateBetween(User user, LocalDateTime startDate, LocalDateTime endDate);
 
@@ -0,0 +1,28 @@
+package org.example.projetc_backend.repository;
+
+import jakarta.persistence.LockModeType;
+import org.example.projetc_backend.entity.PasswordResetOtp;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface PasswordResetOtpRepository extends JpaRepository<PasswordResetOtp, Integer> {
+    Optional<PasswordResetOtp> findByEmail(String email);
+
+    // Khóa dòng OTP khi kiểm tra, để các lần nhập đồng thời không ghi đè bộ đếm nhập sai của nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM PasswordResetOtp o WHERE o.email = :email")
+    Optional<PasswordResetOtp> findForUpdateByEmail(@Param("email") String email);
+
+    // Dọn các OTP đã hết hạn (dùng index trên expires_at)
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM PasswordResetOtp o WHERE o.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -5,7 +5,10 @@ import org.example.projetc_backend.entity.User;
 import org.example.projetc_backend.entity.Order;
 import org.springframework.data.domain.Page; // Bổ sung
 import org.springframework.data.domain.Pageable; // Bổ sung
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository; // Thêm import này
@@ -22,12 +25,41 @@ public interface PaymentRepository extends JpaRepository<Payment, Integer> {
     Optional<Payment> findByOrder(Order order);
     List<Payment> findByStatus(Payment.PaymentStatus status);
     Optional<Payment> findByTransactionId(String transactionId);
+
+    // Khóa dòng thanh toán khi ghi kết quả, để luồng hoàn tất và bộ đối soát không xử lý trùng một giao dịch
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.paymentId = :paymentId")
+    Optional<Payment> findForUpdateByPaymentId(@Param("paymentId") Integer paymentId);
+
+    // Đọc theo keyset (paymentId tăng dần) các thanh toán ở một trạng thái được tạo trước mốc thời gian cho trước
+    @Query("SELECT p FROM Payment p WHERE p.status = :status AND p.paymentDate < :before AND p.paymentId > :afterId " +
+            "ORDER BY p.paymentId ASC")
+    List<Payment> findByStatus(@Param("status") Payment.PaymentStatus status,
+                               @Param("before") LocalDateTime before,
+                               @Param("afterId") Integer afterId,
+                               Pageable pageable);
+
+    // Chuyển trạng thái có điều kiện (compare-and-set) để hai request cùng xử lý một giao dịch không chạy trùng
+    @Modifying
+    @Query("UPDATE Payment p SET p.status = :to WHERE p.paymentId = :paymentId AND p.status = :from")
+    int updateStatusIfCurrent(@Param("paymentId") Integer paymentId,
+                              @Param("from") Payment.PaymentStatus from,
+                              @Param("to") Payment.PaymentStatus to);
     List<Payment> findByUserAndPaymentDateBetween(User user, LocalDateTime startDate, LocalDateTime endDate);
     long countByUserAndStatus(User user, Payment.PaymentStatus status);
 
     @Query("SELECT SUM(p.amount) FROM Payment p WHERE p.user = :user AND p.status = :status")
     Optional<BigDecimal> sumAmountByUserAndStatus(@Param("user") User user, @Param("status") Payment.PaymentStatus status);
 
+    // Tổng hợp doanh thu theo ngày (chỉ thanh toán COMPLETED) cho bảng Daily_Metrics: [ngày, số giao dịch, tổng tiền]
+    @Query("SELECT CAST(p.paymentDate AS LocalDate), COUNT(p), SUM(p.amount) FROM Payment p " +
+            "WHERE p.status = org.example.projetc_backend.entity.Payment.PaymentStatus.COMPLETED " +
+            "AND p.paymentDate >= :from AND p.paymentDate < :to GROUP BY CAST(p.paymentDate AS LocalDate)")
+    List<Object[]> sumCompletedByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(p.paymentDate) FROM Payment p")
+    Optional<LocalDateTime> findEarliestPaymentDate();
+
     // Cập nhật searchPaymentsByKeyword để hỗ trợ tìm kiếm linh hoạt hơn và phân trang
     @Query("SELECT p FROM Payment p WHERE " +
             "(:userId IS NULL OR p.user.userId = :userId) AND " +
@@ -4,6 +4,7 @@ import org.example.projetc_backend.entity.Progress;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -12,7 +13,7 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ProgressRepository extends JpaRepository<Progress, Integer> {
+public interface ProgressRepository extends JpaRepository<Progress, Integer>, JpaSpecificationExecutor<Progress> {
     Optional<Progress> findByUserUserIdAndLessonLessonIdAndActivityType(Integer userId, Integer lessonId, Progress.ActivityType activityType);
     List<Progress> findByUserUserIdAndLessonLessonId(Integer userId, Integer lessonId);
     List<Progress> findByUserUserId(Integer userId);
@@ -1,20 +1,28 @@
 package org.example.projetc_backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.projetc_backend.entity.Question;
 import org.example.projetc_backend.entity.Question.QuestionType; // Bổ sung
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page; // Bổ sung
 import org.springframework.data.domain.Pageable; // Bổ sung
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query; // Bổ sung
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param; // Bổ sung
 import org.springframework.stereotype.Repository; // Thêm import này
 
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository // Thêm annotation này
 public interface QuestionRepository extends JpaRepository<Question, Integer> {
     List<Question> findByQuizQuizId(Integer quizId);
 
+    // ID các quiz có câu hỏi, dùng cho job phân tích câu hỏi hằng đêm
+    @Query("SELECT DISTINCT q.quiz.quizId FROM Question q")
+    List<Integer> findDistinctQuizIds();
+
     @Query("SELECT q FROM Question q WHERE " +
             "(:quizId IS NULL OR q.quiz.quizId = :quizId) AND " +
             "(:questionText IS NULL OR LOWER(q.questionText) LIKE LOWER(CONCAT('%', :questionText, '%'))) AND " +
@@ -24,4 +32,9 @@ public interface QuestionRepository extends JpaRepository<Question, Integer> {
             @Param("questionText") String questionText,
             @Param("questionType") QuestionType questionType,
             Pageable pageable);
+
+    // Nội dung câu hỏi, đọc dạng luồng khi dựng chỉ mục tìm kiếm
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT q.questionId, q.questionText FROM Question q")
+    Stream<Object[]> streamSearchableText();
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package org.example.projetc_backend.repository;
+
+import org.example.projetc_backend.entity.QuestionStat;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface QuestionStatRepository extends JpaRepository<QuestionStat, Integer> {
+
+    List<QuestionStat> findByQuizIdOrderByQuestionId(Integer quizId);
+
+    // Các câu hỏi khó nhất (tỉ lệ đúng thấp nhất) có đủ số lượt trả lời; xếp theo bộ đếm hiện tại như trong phản hồi
+    @Query("SELECT s FROM QuestionStat s WHERE s.attempts >= :minAttempts AND s.attempts > 0 " +
+            "ORDER BY s.correctCount * 1.0 / s.attempts ASC, s.attempts DESC")
+    List<QuestionStat> findHardest(@Param("minAttempts") long minAttempts, Pageable pageable);
+
+    // Cộng dồn bộ đếm của câu hỏi (tạo dòng nếu chưa có)
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO question_stats (question_id, quiz_id, attempts, correct_count) " +
+            "VALUES (:questionId, :quizId, :attempts, :correct) " +
+            "ON DUPLICATE KEY UPDATE attempts = attempts + :attempts, correct_count = correct_count + :correct", nativeQuery = true)
+    int addCounts(@Param("questionId") Integer questionId, @Param("quizId") Integer quizId,
+                  @Param("attempts") long attempts, @Param("correct") long correct);
+}
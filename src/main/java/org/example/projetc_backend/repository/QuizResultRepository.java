@@ -1,22 +1,45 @@
 package org.example.projetc_backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.projetc_backend.entity.QuizResult;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page; // Bổ sung
 import org.springframework.data.domain.Pageable; // Bổ sung
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query; // Bổ sung
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param; // Bổ sung
 import org.springframework.stereotype.Repository; // Thêm import này
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository // Thêm annotation này
-public interface QuizResultRepository extends JpaRepository<QuizResult, Integer> {
+public interface QuizResultRepository extends JpaRepository<QuizResult, Integer>, JpaSpecificationExecutor<QuizResult> {
     Optional<QuizResult> findByUserUserIdAndQuizQuizId(Integer userId, Integer quizId);
     List<QuizResult> findByUserUserId(Integer userId);
     List<QuizResult> findByQuizQuizId(Integer quizId);
 
+    // Số lượt hoàn thành quiz theo ngày cho bảng Daily_Metrics: [ngày, số lượt]
+    @Query("SELECT CAST(qr.completedAt AS LocalDate), COUNT(qr) FROM QuizResult qr " +
+            "WHERE qr.completedAt >= :from AND qr.completedAt < :to GROUP BY CAST(qr.completedAt AS LocalDate)")
+    List<Object[]> countCompletionsByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Số kết quả theo (quiz, điểm), đọc dạng luồng để dựng histogram điểm khi khởi động
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT qr.quiz.quizId, qr.score, COUNT(qr) FROM QuizResult qr GROUP BY qr.quiz.quizId, qr.score")
+    Stream<Object[]> streamScoreCountsByQuiz();
+
+    // [resultId, score] của một quiz, dùng để chia nhóm điểm cao/thấp khi tính độ phân biệt câu hỏi
+    @Query("SELECT qr.resultId, qr.score FROM QuizResult qr WHERE qr.quiz.quizId = :quizId")
+    List<Object[]> findScoresByQuiz(@Param("quizId") Integer quizId);
+
+    @Query("SELECT MIN(qr.completedAt) FROM QuizResult qr")
+    Optional<LocalDateTime> findEarliestCompletedAt();
+
     @Query("SELECT qr FROM QuizResult qr WHERE " +
             "(:userId IS NULL OR qr.user.userId = :userId) AND " +
             "(:quizId IS NULL OR qr.quiz.quizId = :quizId) AND " +
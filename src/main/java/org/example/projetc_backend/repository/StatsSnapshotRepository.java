@@ -0,0 +1,7 @@
+package org.example.projetc_backend.repository;
+
+import org.example.projetc_backend.entity.StatsSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StatsSnapshotRepository extends JpaRepository<StatsSnapshot, Integer> {
+}
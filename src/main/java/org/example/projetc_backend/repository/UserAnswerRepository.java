@@ -1,9 +1,15 @@
 package org.example.projetc_backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.projetc_backend.entity.UserAnswer;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserAnswerRepository extends JpaRepository<UserAnswer, Integer> {
     // Lấy tất cả câu trả lời của người dùng cho một QuizResult cụ thể
@@ -12,4 +18,10 @@ public interface UserAnswerRepository extends JpaRepository<UserAnswer, Integer>
     // Lấy câu trả lời của người dùng cho một câu hỏi cụ thể trong một QuizResult
     // (nếu bạn muốn đảm bảo mỗi câu hỏi chỉ có 1 câu trả lời trong 1 lần làm bài)
     UserAnswer findByQuizResultResultIdAndQuestionQuestionId(Integer quizResultId, Integer questionId);
+
+    // Phép chiếu gọn [resultId, questionId, isCorrect, userAnswerText, userAnswerId, submittedAt] của một quiz, đọc dạng luồng cho job phân tích câu hỏi
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT ua.quizResult.resultId, ua.question.questionId, ua.isCorrect, ua.userAnswerText, ua.userAnswerId, ua.submittedAt " +
+            "FROM UserAnswer ua WHERE ua.question.quiz.quizId = :quizId")
+    Stream<Object[]> streamAnswersByQuiz(@Param("quizId") Integer quizId);
 }
\ No newline at end of file
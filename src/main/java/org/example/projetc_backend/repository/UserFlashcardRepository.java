@@ -19,6 +19,10 @@ public interface UserFlashcardRepository extends JpaRepository<UserFlashcard, In
     List<UserFlashcard> findByUserUserId(Integer userId);
     List<UserFlashcard> findByVocabularyWordId(Integer wordId);
 
+    // Số người học theo từng từ vựng: cặp [wordId, count], dùng để xếp hạng gợi ý tự động
+    @Query("SELECT uf.vocabulary.wordId, COUNT(uf) FROM UserFlashcard uf GROUP BY uf.vocabulary.wordId")
+    List<Object[]> countLearnersByWord();
+
     // PHƯƠNG THỨC NÀY CẦN PHẢI TỒN TẠI VÀ CHÍNH XÁC
     // Đảm bảo rằng trong entity Vocabulary của bạn có mối quan hệ ánh xạ tới FlashcardSetVocabulary
     // Ví dụ trong Vocabulary.java có thể có:
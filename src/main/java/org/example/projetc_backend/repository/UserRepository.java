@@ -4,20 +4,43 @@ import org.example.projetc_backend.entity.User;
 import org.springframework.data.domain.Page; // Don't forget to import Page
 import org.springframework.data.domain.Pageable; // Don't forget to import Pageable
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param; // Don't forget to import Param
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Integer> {
+public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-    Optional<User> findByEmailAndOtpCode(String email, String otpCode);
     List<User> findByRole(User.Role role);
 
+    // Chỉ đọc cột token_version, dùng cho việc kiểm tra thu hồi JWT
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.userId = :userId")
+    Optional<Integer> findTokenVersionByUserId(@Param("userId") Integer userId);
+
+    // Kiểm tra trùng lặp theo lô cho nhập người dùng hàng loạt: trả về cặp [username, email] đã tồn tại
+    @Query("SELECT u.username, u.email FROM User u WHERE u.username IN :usernames OR u.email IN :emails")
+    List<Object[]> findUsernamesAndEmailsIn(@Param("usernames") Collection<String> usernames,
+                                            @Param("emails") Collection<String> emails);
+
+    // Phân phối vai trò người dùng: cặp [role, count]
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countUsersByRole();
+
+    // Số người dùng đăng ký theo ngày cho bảng Daily_Metrics: [ngày, số lượng]
+    @Query("SELECT CAST(u.createdAt AS LocalDate), COUNT(u) FROM User u " +
+            "WHERE u.createdAt >= :from AND u.createdAt < :to GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<Object[]> countSignupsByDay(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(u.createdAt) FROM User u")
+    Optional<LocalDateTime> findEarliestCreatedAt();
+
     @Query("SELECT u FROM User u WHERE u.username LIKE %:keyword% OR u.email LIKE %:keyword%")
     List<User> findByUsernameOrEmailContaining(String keyword);
 
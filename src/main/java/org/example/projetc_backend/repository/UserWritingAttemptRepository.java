@@ -4,6 +4,7 @@ import org.example.projetc_backend.entity.UserWritingAttempt;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -11,7 +12,7 @@ import org.springframework.stereotype.Repository;
 import java.util.List;
 
 @Repository
-public interface UserWritingAttemptRepository extends JpaRepository<UserWritingAttempt, Integer> {
+public interface UserWritingAttemptRepository extends JpaRepository<UserWritingAttempt, Integer>, JpaSpecificationExecutor<UserWritingAttempt> {
     List<UserWritingAttempt> findByUserUserId(Integer userId);
     // Đã thay đổi: Liên kết với PracticeActivity
     List<UserWritingAttempt> findByPracticeActivityActivityId(Integer practiceActivityId);
@@ -1,20 +1,28 @@
 package org.example.projetc_backend.repository;
 
+import jakarta.persistence.QueryHint;
 import org.example.projetc_backend.entity.Vocabulary;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface VocabularyRepository extends JpaRepository<Vocabulary, Integer> {
     List<Vocabulary> findByDifficultyLevel(Vocabulary.DifficultyLevel difficultyLevel);
 
+    // Phân phối độ khó cho trang thống kê: cặp [difficultyLevel, count]
+    @Query("SELECT v.difficultyLevel, COUNT(v) FROM Vocabulary v GROUP BY v.difficultyLevel")
+    List<Object[]> countByDifficultyLevelGrouped();
+
     // SỬA: Đảm bảo tìm kiếm từ vựng CHƯA BỊ XÓA MỀM khi kiểm tra trùng lặp
     Optional<Vocabulary> findByWordIgnoreCaseAndIsDeletedFalse(String word);
 
@@ -38,4 +46,14 @@ public interface VocabularyRepository extends JpaRepository<Vocabulary, Integer>
             @Param("meaning") String meaning,
             @Param("difficultyLevel") Vocabulary.DifficultyLevel difficultyLevel,
             Pageable pageable);
+
+    // Văn bản cần đánh chỉ mục của các từ vựng chưa bị xóa mềm, đọc dạng luồng khi dựng chỉ mục tìm kiếm
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT v.wordId, v.word, v.meaning, v.exampleSentence FROM Vocabulary v WHERE v.isDeleted = false")
+    Stream<Object[]> streamSearchableText();
+
+    // Dữ liệu gợi ý tự động của các từ vựng chưa bị xóa mềm: [wordId, word, meaning, difficultyLevel]
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT v.wordId, v.word, v.meaning, v.difficultyLevel FROM Vocabulary v WHERE v.isDeleted = false")
+    Stream<Object[]> streamAutocompleteEntries();
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,16 +16,24 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.Collections;
+import java.util.List;
 
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserDetailsService userDetailsService;
+    private final TokenVersionCache tokenVersionCache;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService) {
+    // Bật chế độ dựng principal trực tiếp từ claim (không truy vấn bảng Users ở mỗi request)
+    @Value("${jwt.stateless-principal.enabled:false}")
+    private boolean statelessPrincipal;
+
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService userDetailsService,
+                                   TokenVersionCache tokenVersionCache) {
         this.jwtUtil = jwtUtil;
         this.userDetailsService = userDetailsService;
+        this.tokenVersionCache = tokenVersionCache;
     }
 
     @Override
@@ -40,24 +49,45 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String header = request.getHeader("Authorization");
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
-            if (jwtUtil.validateToken(token)) {
-                String username = jwtUtil.getUsernameFromToken(token);
-                String role = jwtUtil.getRoleFromToken(token);
+            // Xác minh và parse token một lần duy nhất
+            JwtClaims claims = jwtUtil.verifyToken(token);
+            if (claims != null) {
+                String username = claims.username();
+                String role = claims.role();
 
                 if (username != null && role != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-                    UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            Collections.singletonList(new SimpleGrantedAuthority(role))
-                    );
-                    authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authentication);
+                    List<SimpleGrantedAuthority> authorities = Collections.singletonList(new SimpleGrantedAuthority(role));
+                    UserDetails userDetails = resolvePrincipal(claims, authorities);
+
+                    if (userDetails != null) {
+                        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
+                                userDetails,
+                                null,
+                                authorities
+                        );
+                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                        SecurityContextHolder.getContext().setAuthentication(authentication);
+                    }
                 }
             }
         }
 
         chain.doFilter(request, response);
     }
+
+    /**
+     * Dựng principal cho token đã xác minh.
+     * Ở chế độ stateless, token có đủ claim uid/ver được dựng principal trực tiếp (không truy vấn DB),
+     * chỉ kiểm tra phiên bản token qua TokenVersionCache; token bị thu hồi trả về null.
+     * Các trường hợp còn lại nạp người dùng qua UserDetailsService như trước.
+     */
+    private UserDetails resolvePrincipal(JwtClaims claims, List<SimpleGrantedAuthority> authorities) {
+        if (statelessPrincipal && claims.userId() != null && claims.tokenVersion() != null) {
+            if (!tokenVersionCache.isCurrent(claims.userId(), claims.tokenVersion())) {
+                return null;
+            }
+            return new UserPrincipal(claims.userId(), claims.username(), null, authorities);
+        }
+        return userDetailsService.loadUserByUsername(claims.username());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package org.example.projetc_backend.security;
+
+import java.time.Instant;
+
+/**
+ * Các claim đã được xác minh chữ ký của một JWT (bất biến).
+ * Được tạo một lần khi parse token và dùng lại cho toàn bộ request.
+ */
+public record JwtClaims(
+        Integer userId, // null với token được cấp trước khi có claim "uid"
+        String username,
+        String role,
+        Integer tokenVersion, // null với token được cấp trước khi có claim "ver"
+        Instant expiresAt
+) {}
@@ -1,13 +1,19 @@
 package org.example.projetc_backend.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.example.projetc_backend.cache.ExpiringCache;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -16,30 +22,99 @@ import java.util.function.Function;
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không hỗ trợ thuật toán SHA-256", e);
+        }
+    });
+
+    static final String USER_ID_CLAIM = "uid";
+    static final String TOKEN_VERSION_CLAIM = "ver";
 
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    private final Long expiration;
 
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
-        return Keys.hmacShaKeyFor(keyBytes);
+    // Key và parser được tạo một lần khi khởi động, không decode lại secret ở mỗi request
+    private final SecretKey signingKey;
+    private final JwtParser jwtParser;
+
+    // Cache các token đã xác minh, khóa là SHA-256 của token, hết hạn đúng thời điểm exp của token
+    private final ExpiringCache<String, JwtClaims> verifiedTokens;
+
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") Long expiration,
+                   @Value("${jwt.verified-cache.max-size:10000}") int verifiedCacheMaxSize) {
+        this.expiration = expiration;
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secret));
+        this.jwtParser = Jwts.parser().verifyWith(signingKey).build();
+        this.verifiedTokens = new ExpiringCache<>(verifiedCacheMaxSize);
     }
 
     public String generateToken(String username, String role) {
+        return generateToken(null, username, role, null);
+    }
+
+    /**
+     * Tạo token có nhúng userId và phiên bản token của người dùng,
+     * cho phép filter dựng principal trực tiếp từ claim mà không cần truy vấn DB.
+     */
+    public String generateToken(Integer userId, String username, String role, Integer tokenVersion) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
+        if (userId != null) {
+            claims.put(USER_ID_CLAIM, userId);
+        }
+        if (tokenVersion != null) {
+            claims.put(TOKEN_VERSION_CLAIM, tokenVersion);
+        }
 
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
+    /**
+     * Xác minh chữ ký và parse token đúng một lần.
+     * Token đã xác minh được lưu cache đến thời điểm hết hạn nên các request sau không phải tính lại HMAC.
+     * @param token Chuỗi JWT.
+     * @return JwtClaims bất biến, hoặc null nếu token không hợp lệ hoặc đã hết hạn.
+     */
+    public JwtClaims verifyToken(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        String key = digest(token);
+        JwtClaims cached = verifiedTokens.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        JwtClaims claims;
+        try {
+            Claims payload = getAllClaimsFromToken(token);
+            Date exp = payload.getExpiration();
+            claims = new JwtClaims(
+                    payload.get(USER_ID_CLAIM, Integer.class),
+                    payload.getSubject(),
+                    payload.get("role", String.class),
+                    payload.get(TOKEN_VERSION_CLAIM, Integer.class),
+                    exp != null ? exp.toInstant() : null
+            );
+        } catch (Exception e) {
+            return null;
+        }
+
+        if (claims.expiresAt() != null) {
+            verifiedTokens.put(key, claims, claims.expiresAt().toEpochMilli());
+        }
+        return claims;
+    }
+
     public String getUsernameFromToken(String token) {
         return getClaimFromToken(token, Claims::getSubject);
     }
@@ -54,22 +129,15 @@ public class JwtUtil {
     }
 
     private Claims getAllClaimsFromToken(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return jwtParser.parseSignedClaims(token).getPayload();
     }
 
     public boolean validateToken(String token) {
-        try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return verifyToken(token) != null;
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,99 @@
+package org.example.projetc_backend.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.projetc_backend.dto.ErrorResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter giới hạn tốc độ, chạy trước JwtAuthenticationFilter.
+ * - Nhóm "auth" (/api/auth/**): giới hạn theo IP, bảo vệ BCrypt và SMTP khỏi đăng nhập/đăng ký/quên mật khẩu dồn dập.
+ * - Nhóm "write" (POST/PUT/PATCH/DELETE trên /api/**): giới hạn theo người dùng (nếu có JWT hợp lệ) hoặc theo IP.
+ * Vượt giới hạn trả về 429 kèm header Retry-After.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final JwtUtil jwtUtil;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final RateLimiter authLimiter;
+    private final RateLimiter writeLimiter;
+
+    public RateLimitFilter(JwtUtil jwtUtil, ObjectMapper objectMapper,
+                           @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${app.rate-limit.max-buckets:100000}") int maxBuckets,
+                           @Value("${app.rate-limit.auth.capacity:10}") int authCapacity,
+                           @Value("${app.rate-limit.auth.refill-per-minute:10}") int authRefillPerMinute,
+                           @Value("${app.rate-limit.write.capacity:60}") int writeCapacity,
+                           @Value("${app.rate-limit.write.refill-per-minute:60}") int writeRefillPerMinute) {
+        this.jwtUtil = jwtUtil;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.authLimiter = new RateLimiter(authCapacity, authRefillPerMinute, maxBuckets);
+        this.writeLimiter = new RateLimiter(writeCapacity, writeRefillPerMinute, maxBuckets);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String path = request.getRequestURI();
+        long waitNanos = 0;
+        if (path.startsWith("/api/auth/")) {
+            waitNanos = authLimiter.tryAcquire("ip:" + request.getRemoteAddr());
+        } else if (path.startsWith("/api/") && isWrite(request.getMethod())) {
+            waitNanos = writeLimiter.tryAcquire(clientKey(request));
+        }
+
+        if (waitNanos > 0) {
+            reject(response, waitNanos);
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static boolean isWrite(String method) {
+        return "POST".equals(method) || "PUT".equals(method) || "PATCH".equals(method) || "DELETE".equals(method);
+    }
+
+    /**
+     * Khóa giới hạn: theo username nếu có JWT hợp lệ (token đã xác minh được cache nên rẻ), ngược lại theo IP.
+     */
+    private String clientKey(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.startsWith("Bearer ")) {
+            JwtClaims claims = jwtUtil.verifyToken(header.substring(7));
+            if (claims != null && claims.username() != null) {
+                return "user:" + claims.username();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse("Bạn đã gửi quá nhiều yêu cầu. Vui lòng thử lại sau " + retryAfterSeconds + " giây."));
+    }
+}
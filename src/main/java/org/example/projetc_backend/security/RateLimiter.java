@@ -0,0 +1,79 @@
+package org.example.projetc_backend.security;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bộ giới hạn tốc độ kiểu token bucket, không dùng khóa.
+ * Mỗi bucket chỉ là một AtomicLong lưu "thời điểm đến lý thuyết" (thuật toán GCRA):
+ * mỗi request đẩy mốc này thêm một khoảng emission interval, và bị từ chối khi mốc vượt quá
+ * thời điểm hiện tại nhiều hơn dung lượng burst. Cập nhật bằng một lệnh CAS duy nhất.
+ * Số bucket bị giới hạn; bucket đã đầy lại (không còn khác gì bucket mới) được dọn khi cần chỗ.
+ */
+public class RateLimiter {
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final int maxBuckets;
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param capacity Số request tối đa có thể dồn liền một lúc (kích thước bucket).
+     * @param refillPerMinute Số token được nạp lại mỗi phút.
+     * @param maxBuckets Số khóa (IP/người dùng) tối đa được theo dõi đồng thời.
+     */
+    public RateLimiter(int capacity, int refillPerMinute, int maxBuckets) {
+        if (capacity <= 0 || refillPerMinute <= 0 || maxBuckets <= 0) {
+            throw new IllegalArgumentException("Cấu hình giới hạn tốc độ phải là số dương.");
+        }
+        this.emissionIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Thử lấy một token cho khóa.
+     * @return 0 nếu được phép; ngược lại là số nano giây cần chờ trước khi thử lại.
+     */
+    public long tryAcquire(String key) {
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                evictIdle(now);
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+        while (true) {
+            long tat = bucket.get();
+            long start = Math.max(tat, now);
+            long waitNanos = start - now - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (bucket.compareAndSet(tat, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    private void evictIdle(long now) {
+        // Bucket có mốc đã qua là bucket đầy, xóa đi không làm thay đổi kết quả giới hạn
+        buckets.values().removeIf(b -> b.get() <= now);
+        if (buckets.size() >= maxBuckets) {
+            // Vẫn đầy (đang bị tấn công với nhiều khóa): bỏ bớt 10% để không phình bộ nhớ
+            int toRemove = Math.max(1, maxBuckets / 10);
+            Iterator<String> it = buckets.keySet().iterator();
+            while (toRemove-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+}
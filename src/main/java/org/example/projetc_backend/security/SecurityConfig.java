@@ -1,5 +1,6 @@
 package org.example.projetc_backend.security;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,6 +29,9 @@ public class SecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Autowired
+    private RateLimitFilter rateLimitFilter;
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -35,6 +39,8 @@ public class SecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authorize -> authorize
+                        // Lần dispatch ASYNC trả kết quả của request đã được kiểm tra quyền (vd. CompletableFuture của thanh toán)
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                         // Public endpoints (no authentication required)
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/quizzes/**", "/api/vocabulary/**").permitAll()
@@ -64,6 +70,11 @@ public class SecurityConfig {
                         .requestMatchers(HttpMethod.PUT, "/api/lessons/**").hasRole("ADMIN")
                         .requestMatchers(HttpMethod.DELETE, "/api/lessons/**").hasRole("ADMIN")
                         .requestMatchers("/api/stats").hasRole("ADMIN")
+                        .requestMatchers("/api/metrics/**").hasRole("ADMIN")
+                        .requestMatchers("/api/question-analytics/**").hasRole("ADMIN")
+                        .requestMatchers("/api/exports/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .requestMatchers("/api/questions/**", "/api/answers/**", "/api/learning-materials/**").hasRole("ADMIN")
                         .requestMatchers("/api/payments/paypal/complete", "/api/payments/paypal/cancel").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/flashcard-sets/**").hasAnyRole("ADMIN", "USER")
@@ -76,7 +87,9 @@ public class SecurityConfig {
                         // All other requests require authentication
                         .anyRequest().authenticated()
                 )
-                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                // Giới hạn tốc độ chạy trước khi xác thực JWT
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class);
 
         return http.build();
     }
@@ -0,0 +1,82 @@
+package org.example.projetc_backend.security;
+
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.cache.ExpiringCache;
+import org.example.projetc_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache nhỏ trong bộ nhớ lưu phiên bản token hiện hành của từng người dùng.
+ * Token mang claim "ver" khác với phiên bản trong cache bị coi là đã thu hồi
+ * (đổi vai trò, đặt lại mật khẩu hoặc xóa người dùng).
+ * Giống UserCache, phiên bản đọc từ DB chỉ được lưu nếu người dùng không bị làm mới xen giữa lúc truy vấn và lúc lưu,
+ * để token vừa bị thu hồi không còn hiệu lực thêm một TTL.
+ */
+@Component
+public class TokenVersionCache {
+
+    // Giá trị đánh dấu người dùng không còn tồn tại, tránh truy vấn lặp lại cho token của người dùng đã xóa
+    private static final int MISSING_USER = -1;
+    // Số ngăn thế hệ; userId được chia vào các ngăn cố định nên bộ nhớ không tăng theo số người dùng
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final UserRepository userRepository;
+    private final ExpiringCache<Integer, Integer> versions;
+    private final long ttlMillis;
+    // Thế hệ theo người dùng, tăng ở mỗi lần làm mới
+    private final long[] generations = new long[GENERATION_STRIPES];
+
+    public TokenVersionCache(UserRepository userRepository,
+                             @Value("${jwt.token-version-cache.max-size:50000}") int maxSize,
+                             @Value("${jwt.token-version-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.versions = new ExpiringCache<>(maxSize);
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    /**
+     * Kiểm tra phiên bản token có còn hiệu lực với người dùng hay không.
+     * Chỉ truy vấn DB khi cache chưa có (hoặc đã hết hạn) thông tin của người dùng.
+     */
+    public boolean isCurrent(Integer userId, Integer tokenVersion) {
+        if (userId == null || tokenVersion == null) {
+            return false;
+        }
+        Integer current = versions.get(userId);
+        if (current == null) {
+            long generation = generationOf(userId);
+            current = userRepository.findTokenVersionByUserId(userId).orElse(MISSING_USER);
+            synchronized (this) {
+                if (generations[stripe(userId)] == generation) {
+                    versions.put(userId, current, System.currentTimeMillis() + ttlMillis);
+                }
+            }
+        }
+        return current != MISSING_USER && current.equals(tokenVersion);
+    }
+
+    /**
+     * Làm mới thông tin phiên bản của người dùng sau khi giao dịch hiện tại commit
+     * (hoặc ngay lập tức nếu không có giao dịch), để cache không giữ giá trị chưa được ghi.
+     */
+    public void refreshAfterCommit(Integer userId) {
+        if (userId == null) {
+            return;
+        }
+        AfterCommit.run(() -> invalidate(userId));
+    }
+
+    private synchronized void invalidate(Integer userId) {
+        generations[stripe(userId)]++;
+        versions.invalidate(userId);
+    }
+
+    private synchronized long generationOf(Integer userId) {
+        return generations[stripe(userId)];
+    }
+
+    private static int stripe(Integer userId) {
+        return Math.floorMod(userId.hashCode(), GENERATION_STRIPES);
+    }
+}
@@ -0,0 +1,29 @@
+package org.example.projetc_backend.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal của người dùng đã xác thực, bổ sung userId cho Spring Security User.
+ * Cho phép dùng authentication.principal.id (hoặc .userId) trong @PreAuthorize mà không cần truy vấn lại DB.
+ * Kế thừa User nên các đoạn code đang kiểm tra instanceof User vẫn hoạt động.
+ */
+public class UserPrincipal extends User {
+
+    private final Integer id;
+
+    public UserPrincipal(Integer id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password != null ? password : "", authorities);
+        this.id = id;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Integer getUserId() {
+        return id;
+    }
+}
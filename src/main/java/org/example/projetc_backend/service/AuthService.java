@@ -1,6 +1,7 @@
 // src/main/java/org/example/projetc_backend/service/AuthService.java
 package org.example.projetc_backend.service;
 
+import org.example.projetc_backend.cache.UserCache;
 import org.example.projetc_backend.dto.LoginRequest;
 import org.example.projetc_backend.dto.LoginResponse;
 import org.example.projetc_backend.dto.RegisterRequest;
@@ -8,38 +9,53 @@ import org.example.projetc_backend.dto.UserResponse;
 import org.example.projetc_backend.entity.User;
 import org.example.projetc_backend.repository.UserRepository;
 import org.example.projetc_backend.security.JwtUtil;
+import org.example.projetc_backend.security.TokenVersionCache;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.BadCredentialsException;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalDateTime;
-import java.util.Random;
+import java.util.Optional;
 
 @Service
 public class AuthService {
 
-    private final AuthenticationManager authenticationManager;
     private final JwtUtil jwtUtil;
     private final UserService userService;
     private final UserRepository userRepository;
     private final EmailService emailService;
     private final PasswordEncoder passwordEncoder;
+    private final TokenVersionCache tokenVersionCache;
+    private final UserCache userCache;
+    private final PasswordHashingService passwordHashingService;
+    private final OtpService otpService;
+    private final TransactionTemplate transactionTemplate;
+
+    // Hash giả dùng khi không tìm thấy người dùng, để thời gian phản hồi không tiết lộ username có tồn tại hay không
+    private final String dummyPasswordHash;
 
     @Value("${app.allow-admin-registration:false}")
     private boolean allowAdminRegistration;
 
-    public AuthService(AuthenticationManager authenticationManager, JwtUtil jwtUtil, UserService userService,
-                       UserRepository userRepository, EmailService emailService, PasswordEncoder passwordEncoder) {
-        this.authenticationManager = authenticationManager;
+    public AuthService(JwtUtil jwtUtil, UserService userService,
+                       UserRepository userRepository, EmailService emailService, PasswordEncoder passwordEncoder,
+                       TokenVersionCache tokenVersionCache, UserCache userCache,
+                       PasswordHashingService passwordHashingService, OtpService otpService,
+                       PlatformTransactionManager transactionManager) {
         this.jwtUtil = jwtUtil;
         this.userService = userService;
         this.userRepository = userRepository;
         this.emailService = emailService;
         this.passwordEncoder = passwordEncoder;
+        this.tokenVersionCache = tokenVersionCache;
+        this.userCache = userCache;
+        this.passwordHashingService = passwordHashingService;
+        this.otpService = otpService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.dummyPasswordHash = passwordEncoder.encode("dummy-password-for-timing");
     }
 
     public LoginResponse login(LoginRequest request) {
@@ -47,20 +63,16 @@ public class AuthService {
             throw new IllegalArgumentException("Tên đăng nhập và mật khẩu là bắt buộc.");
         }
 
-        try {
-            authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(request.username(), request.password())
-            );
-        } catch (BadCredentialsException e) {
+        // Chỉ nạp người dùng một lần, rồi kiểm tra mật khẩu trên pool băm có giới hạn
+        Optional<User> found = userCache.findByUsername(request.username());
+        String passwordHash = found.map(User::getPassword).orElse(dummyPasswordHash);
+        boolean matches = passwordHashingService.matches(request.password(), passwordHash);
+        if (found.isEmpty() || !matches) {
             throw new BadCredentialsException("Tên đăng nhập hoặc mật khẩu không đúng.");
-        } catch (AuthenticationException e) {
-            throw new RuntimeException("Lỗi xác thực: " + e.getMessage());
         }
+        User user = found.get();
 
-        User user = userRepository.findByUsername(request.username())
-                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng: " + request.username()));
-
-        String token = jwtUtil.generateToken(user.getUsername(), user.getRole().name());
+        String token = jwtUtil.generateToken(user.getUserId(), user.getUsername(), user.getRole().name(), user.getTokenVersion());
         return new LoginResponse(token);
     }
 
@@ -112,7 +124,8 @@ public class AuthService {
                 roleToAssign // Truyền String role
         );
 
-        String token = jwtUtil.generateToken(userResponse.username(), userResponse.role().name());
+        // Người dùng mới tạo luôn có tokenVersion ban đầu là 0
+        String token = jwtUtil.generateToken(userResponse.userId(), userResponse.username(), userResponse.role().name(), 0);
         return new LoginResponse(token);
     }
 
@@ -123,46 +136,62 @@ public class AuthService {
         return userRepository.existsByUsername(username);
     }
 
+    /**
+     * Tạo OTP đặt lại mật khẩu và ghi email OTP vào outbox trong cùng một giao dịch.
+     * Email được gửi bất đồng bộ, không chặn thread xử lý request.
+     */
+    @Transactional
     public void sendOtpForPasswordReset(String email) {
         if (email == null || email.trim().isEmpty()) {
             throw new IllegalArgumentException("Email không được để trống.");
         }
 
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new IllegalArgumentException("Email không tồn tại: " + email));
-
-        String otp = generateOtp();
-        user.setOtpCode(otp);
-        user.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
-        userRepository.save(user);
+        if (!userRepository.existsByEmail(email)) {
+            throw new IllegalArgumentException("Email không tồn tại: " + email);
+        }
 
+        // OTP được lưu trong bảng riêng, không ghi lại dòng Users
+        String otp = otpService.issue(email);
         emailService.sendOtpEmail(email, otp);
     }
 
+    /**
+     * Đặt lại mật khẩu bằng OTP. Mật khẩu được băm trước, ngoài transaction (không giữ connection khi chờ pool băm);
+     * việc dùng OTP và ghi mật khẩu mới nằm trong cùng một transaction, nên lỗi khi ghi mật khẩu không làm mất OTP.
+     */
     public void resetPassword(String email, String otp, String newPassword) {
         if (email == null || email.trim().isEmpty() || otp == null || otp.trim().isEmpty() || newPassword == null || newPassword.trim().isEmpty()) {
             throw new IllegalArgumentException("Email, OTP và mật khẩu mới là bắt buộc.");
         }
 
-        User user = userRepository.findByEmailAndOtpCode(email, otp)
-                .orElseThrow(() -> new IllegalArgumentException("Email hoặc OTP không hợp lệ."));
-
-        if (user.getOtpExpiry() == null || user.getOtpExpiry().isBefore(LocalDateTime.now())) {
-            throw new IllegalArgumentException("Mã OTP đã hết hạn.");
-        }
-
+        // Kiểm tra mật khẩu trước để không tiêu hao OTP khi mật khẩu mới không hợp lệ
         if (newPassword.length() < 6) {
             throw new IllegalArgumentException("Mật khẩu mới phải có ít nhất 6 ký tự.");
         }
 
-        user.setPassword(passwordEncoder.encode(newPassword));
-        user.setOtpCode(null);
-        user.setOtpExpiry(null);
-        userRepository.save(user);
-    }
+        // Băm trước khi dùng OTP: nếu pool băm đang quá tải (ServiceBusyException) thì OTP vẫn còn để thử lại
+        String encodedPassword = passwordHashingService.encode(newPassword);
 
-    private String generateOtp() {
-        Random random = new Random();
-        return String.format("%06d", random.nextInt(1000000));
+        // OTP sai vẫn phải commit bộ đếm nhập sai, nên lỗi xác thực được trả ra khỏi callback rồi mới ném sau commit
+        IllegalArgumentException rejected = transactionTemplate.execute(status -> {
+            try {
+                otpService.verifyAndConsume(email, otp);
+            } catch (IllegalArgumentException e) {
+                return e;
+            }
+
+            User user = userRepository.findByEmail(email)
+                    .orElseThrow(() -> new IllegalArgumentException("Email hoặc OTP không hợp lệ."));
+
+            user.setPassword(encodedPassword);
+            user.setTokenVersion(user.getTokenVersion() + 1); // Thu hồi các JWT đã cấp với mật khẩu cũ
+            userRepository.save(user);
+            userCache.evictAfterCommit(user.getUserId());
+            tokenVersionCache.refreshAfterCommit(user.getUserId());
+            return null;
+        });
+        if (rejected != null) {
+            throw rejected;
+        }
     }
 }
\ No newline at end of file
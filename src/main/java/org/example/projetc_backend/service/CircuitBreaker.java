@@ -0,0 +1,84 @@
+package org.example.projetc_backend.service;
+
+/**
+ * Circuit breaker đơn giản dựa trên số lỗi liên tiếp.
+ * - CLOSED: cho phép mọi lời gọi; đủ failureThreshold lỗi liên tiếp thì chuyển sang OPEN.
+ * - OPEN: từ chối ngay trong openDurationMillis, sau đó chuyển sang HALF_OPEN.
+ * - HALF_OPEN: chỉ cho một lời gọi thử; thành công thì CLOSED, thất bại thì OPEN lại.
+ * Mọi thao tác đều rất ngắn nên được đồng bộ trên chính đối tượng.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openDurationMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMillis) {
+        if (failureThreshold < 1 || openDurationMillis < 0) {
+            throw new IllegalArgumentException("Cấu hình circuit breaker không hợp lệ.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDurationMillis;
+    }
+
+    /**
+     * @return true nếu lời gọi được phép thực hiện; người gọi phải báo lại kết quả bằng recordSuccess/recordFailure.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openDurationMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    // Lời gọi được phép nhưng không thực hiện (ví dụ bị pool từ chối): trả lại lượt thử của HALF_OPEN
+    public synchronized void release() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return Số giây còn lại trước khi cho phép gọi thử (0 nếu không ở trạng thái OPEN).
+     */
+    public synchronized long secondsUntilRetry() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        long remaining = openDurationMillis - (System.currentTimeMillis() - openedAt);
+        return Math.max(1, (remaining + 999) / 1000);
+    }
+}
@@ -1,19 +1,23 @@
 package org.example.projetc_backend.service;
 
+import org.example.projetc_backend.cache.UserCache;
 import org.example.projetc_backend.entity.User;
-import org.example.projetc_backend.repository.UserRepository;
+import org.example.projetc_backend.security.UserPrincipal;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final UserRepository userRepository;
+    private final UserCache userCache;
 
-    public CustomUserDetailsService(UserRepository userRepository) {
-        this.userRepository = userRepository;
+    public CustomUserDetailsService(UserCache userCache) {
+        this.userCache = userCache;
     }
 
     @Override
@@ -21,12 +25,14 @@ public class CustomUserDetailsService implements UserDetailsService {
         if (username == null || username.trim().isEmpty()) {
             throw new UsernameNotFoundException("Tên đăng nhập không được để trống.");
         }
-        User user = userRepository.findByUsername(username)
+        User user = userCache.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Không tìm thấy người dùng: " + username));
-        return org.springframework.security.core.userdetails.User.builder()
-                .username(user.getUsername())
-                .password(user.getPassword())
-                .roles(user.getRole().name().replace("ROLE_", "")) // Bỏ tiền tố ROLE_
-                .build();
+        // Trả về UserPrincipal để controller có thể lấy userId qua authentication.principal.id
+        return new UserPrincipal(
+                user.getUserId(),
+                user.getUsername(),
+                user.getPassword(),
+                Collections.singletonList(new SimpleGrantedAuthority(user.getRole().name()))
+        );
     }
 }
\ No newline at end of file
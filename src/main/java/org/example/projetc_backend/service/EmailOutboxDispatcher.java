@@ -0,0 +1,282 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.projetc_backend.entity.EmailOutbox;
+import org.example.projetc_backend.repository.EmailOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Gửi email từ bảng Email_Outbox trên pool thread giới hạn (emailDeliveryExecutor).
+ * Mỗi lô email được gửi qua một kết nối SMTP duy nhất; email lỗi được gửi lại theo backoff lũy thừa
+ * cho đến khi vượt quá số lần thử tối đa.
+ * Nội dung email (có thể chứa OTP) được xóa khỏi outbox ngay khi email kết thúc (SENT/FAILED),
+ * và các dòng đã kết thúc được dọn định kỳ sau thời gian lưu giữ.
+ */
+@Service
+public class EmailOutboxDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxDispatcher.class);
+    static final String REDACTED_BODY = "[Nội dung đã được xóa sau khi xử lý]";
+
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final JavaMailSender mailSender;
+    private final ThreadPoolTaskExecutor executor;
+
+    private final Counter sentCounter;
+    private final Counter retryCounter;
+    private final Counter failedCounter;
+    private final Timer batchTimer;
+
+    // Email cần gửi ngay; một tác vụ duy nhất rút hàng đợi theo từng lô để dùng chung kết nối SMTP
+    private final ConcurrentLinkedQueue<Long> immediateQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // Giá trị gauge số email PENDING được lưu tạm để mỗi lần scrape metrics không phải truy vấn DB
+    private volatile long pendingCount;
+    private volatile long pendingCountRefreshedAt;
+
+    @Value("${app.email.from:noreply@yourdomain.com}")
+    private String fromAddress;
+
+    @Value("${app.email.outbox.batch-size:50}")
+    private int batchSize;
+
+    // Số email gửi chung trên một kết nối SMTP
+    @Value("${app.email.outbox.chunk-size:10}")
+    private int chunkSize;
+
+    @Value("${app.email.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.email.outbox.backoff-seconds:30}")
+    private long backoffSeconds;
+
+    @Value("${app.email.outbox.stale-after-seconds:300}")
+    private long staleAfterSeconds;
+
+    // Số ngày giữ lại các dòng SENT/FAILED trước khi bị xóa
+    @Value("${app.email.outbox.retention-days:7}")
+    private long retentionDays;
+
+    @Value("${app.email.outbox.pending-gauge-ttl-seconds:30}")
+    private long pendingGaugeTtlSeconds;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository emailOutboxRepository, JavaMailSender mailSender,
+                                 @Qualifier("emailDeliveryExecutor") ThreadPoolTaskExecutor executor,
+                                 MeterRegistry meterRegistry) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.mailSender = mailSender;
+        this.executor = executor;
+        this.sentCounter = meterRegistry.counter("app.email.sent");
+        this.retryCounter = meterRegistry.counter("app.email.retried");
+        this.failedCounter = meterRegistry.counter("app.email.failed");
+        this.batchTimer = meterRegistry.timer("app.email.batch.send");
+        Gauge.builder("app.email.outbox.pending", this, EmailOutboxDispatcher::cachedPendingCount)
+                .register(meterRegistry);
+        Gauge.builder("app.email.executor.queue", executor,
+                        e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gửi ngay một email vừa được ghi vào outbox. Các email đến trong lúc một lô đang gửi được gom vào lô kế tiếp
+     * (tối đa chunkSize email trên một kết nối SMTP). Nếu pool đang đầy, email vẫn ở PENDING
+     * và sẽ được gửi ở lần quét định kỳ.
+     */
+    public void dispatchNow(Long emailId) {
+        immediateQueue.add(emailId);
+        if (!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::drainImmediate);
+        } catch (TaskRejectedException e) {
+            // Các email trong hàng đợi vẫn PENDING trong DB, lần quét định kỳ sẽ gửi
+            immediateQueue.clear();
+            drainScheduled.set(false);
+            logger.debug("Email delivery pool is full, email {} will be picked up by the poller", emailId);
+        }
+    }
+
+    private void drainImmediate() {
+        while (true) {
+            List<Long> chunk = new ArrayList<>(chunkSize);
+            Long emailId;
+            while (chunk.size() < chunkSize && (emailId = immediateQueue.poll()) != null) {
+                chunk.add(emailId);
+            }
+            if (chunk.isEmpty()) {
+                drainScheduled.set(false);
+                // Email được thêm ngay trước khi cờ được hạ: tiếp tục rút nếu chưa có tác vụ nào khác nhận
+                if (immediateQueue.isEmpty() || !drainScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                deliver(chunk);
+            } catch (RuntimeException e) {
+                // Email đã nhận nhưng chưa ghi kết quả sẽ được releaseStale trả về PENDING
+                logger.warn("Immediate email delivery failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Xóa định kỳ các email đã kết thúc (SENT/FAILED) quá thời gian lưu giữ.
+     */
+    @Scheduled(cron = "${app.email.outbox.purge-cron:0 15 3 * * *}")
+    public void purgeFinished() {
+        int deleted = emailOutboxRepository.deleteFinishedBefore(LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("Purged {} finished outbox emails", deleted);
+        }
+    }
+
+    private long cachedPendingCount() {
+        long now = System.currentTimeMillis();
+        if (now - pendingCountRefreshedAt >= pendingGaugeTtlSeconds * 1000) {
+            try {
+                pendingCount = emailOutboxRepository.countByStatus(EmailOutbox.Status.PENDING);
+            } catch (RuntimeException e) {
+                logger.debug("Could not refresh pending outbox count: {}", e.getMessage());
+            }
+            pendingCountRefreshedAt = now;
+        }
+        return pendingCount;
+    }
+
+    /**
+     * Quét định kỳ các email đến hạn và chia thành từng lô cho pool gửi.
+     */
+    @Scheduled(fixedDelayString = "${app.email.outbox.poll-interval-ms:5000}")
+    public void dispatchDue() {
+        LocalDateTime now = LocalDateTime.now();
+        int released = emailOutboxRepository.releaseStale(now.minusSeconds(staleAfterSeconds));
+        if (released > 0) {
+            logger.warn("Released {} outbox emails stuck in SENDING", released);
+        }
+
+        List<Long> dueIds = emailOutboxRepository.findDueIds(EmailOutbox.Status.PENDING, now, PageRequest.of(0, batchSize));
+        for (int from = 0; from < dueIds.size(); from += chunkSize) {
+            List<Long> chunk = List.copyOf(dueIds.subList(from, Math.min(from + chunkSize, dueIds.size())));
+            try {
+                executor.execute(() -> deliver(chunk));
+            } catch (TaskRejectedException e) {
+                // Pool đầy: phần còn lại vẫn PENDING, để lần quét sau xử lý
+                break;
+            }
+        }
+    }
+
+    /**
+     * Nhận xử lý và gửi một lô email qua cùng một kết nối SMTP, sau đó ghi lại kết quả từng email.
+     */
+    void deliver(List<Long> emailIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> claimedIds = new ArrayList<>();
+        for (Long emailId : emailIds) {
+            // Email đã được worker khác nhận hoặc đã gửi sẽ bị bỏ qua
+            if (emailOutboxRepository.claim(emailId, now) == 1) {
+                claimedIds.add(emailId);
+            }
+        }
+        if (claimedIds.isEmpty()) {
+            return;
+        }
+
+        List<EmailOutbox> emails = emailOutboxRepository.findAllById(claimedIds);
+        Map<SimpleMailMessage, EmailOutbox> messages = new IdentityHashMap<>();
+        for (EmailOutbox email : emails) {
+            messages.put(toMessage(email), email);
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        long start = System.nanoTime();
+        try {
+            mailSender.send(messages.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                failures = allFailed(messages, e);
+            }
+        } catch (MailException e) {
+            failures = allFailed(messages, e);
+        } finally {
+            batchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        LocalDateTime finishedAt = LocalDateTime.now();
+        for (Map.Entry<SimpleMailMessage, EmailOutbox> entry : messages.entrySet()) {
+            EmailOutbox email = entry.getValue();
+            Exception error = failures.get(entry.getKey());
+            if (error == null) {
+                email.setStatus(EmailOutbox.Status.SENT);
+                email.setSentAt(finishedAt);
+                email.setLastError(null);
+                email.setBody(REDACTED_BODY);
+                sentCounter.increment();
+            } else {
+                recordFailure(email, error, finishedAt);
+            }
+        }
+        emailOutboxRepository.saveAll(messages.values());
+    }
+
+    private void recordFailure(EmailOutbox email, Exception error, LocalDateTime now) {
+        int attempts = email.getAttempts() + 1;
+        email.setAttempts(attempts);
+        String message = error.getMessage() != null ? error.getMessage() : error.getClass().getSimpleName();
+        email.setLastError(message.length() > 500 ? message.substring(0, 500) : message);
+        if (attempts >= maxAttempts) {
+            email.setStatus(EmailOutbox.Status.FAILED);
+            email.setBody(REDACTED_BODY);
+            failedCounter.increment();
+            logger.error("Giving up on outbox email {} to {} after {} attempts: {}", email.getEmailId(), email.getRecipient(), attempts, message);
+        } else {
+            // Backoff lũy thừa: 30s, 60s, 120s, ...
+            email.setStatus(EmailOutbox.Status.PENDING);
+            email.setNextAttemptAt(now.plusSeconds(backoffSeconds << (attempts - 1)));
+            retryCounter.increment();
+            logger.warn("Outbox email {} failed (attempt {}), retrying later: {}", email.getEmailId(), attempts, message);
+        }
+    }
+
+    private SimpleMailMessage toMessage(EmailOutbox email) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(email.getRecipient());
+        message.setSubject(email.getSubject());
+        message.setText(email.getBody());
+        message.setFrom(fromAddress);
+        return message;
+    }
+
+    private static Map<Object, Exception> allFailed(Map<SimpleMailMessage, EmailOutbox> messages, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        messages.keySet().forEach(m -> failures.put(m, e));
+        return failures;
+    }
+}
@@ -1,27 +1,42 @@
 package org.example.projetc_backend.service;
 
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.entity.EmailOutbox;
+import org.example.projetc_backend.repository.EmailOutboxRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final EmailOutboxRepository emailOutboxRepository;
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
 
-    public EmailService(JavaMailSender mailSender) {
-        this.mailSender = mailSender;
+    public EmailService(EmailOutboxRepository emailOutboxRepository, EmailOutboxDispatcher emailOutboxDispatcher) {
+        this.emailOutboxRepository = emailOutboxRepository;
+        this.emailOutboxDispatcher = emailOutboxDispatcher;
     }
 
+    /**
+     * Ghi email OTP vào outbox trong cùng giao dịch với thao tác lưu OTP của người gọi.
+     * Việc gửi SMTP diễn ra bất đồng bộ trên pool riêng sau khi giao dịch commit,
+     * nên thread xử lý request không bị chặn bởi máy chủ SMTP chậm.
+     * @param toEmail Địa chỉ email người nhận.
+     * @param otp Mã OTP.
+     */
+    @Transactional
     public void sendOtpEmail(String toEmail, String otp) {
         if (toEmail == null || toEmail.trim().isEmpty() || otp == null || otp.trim().isEmpty()) {
             throw new IllegalArgumentException("Email và OTP không được để trống.");
         }
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(toEmail);
-        message.setSubject("Mã OTP để đặt lại mật khẩu của bạn");
-        message.setText("Mã OTP của bạn là: " + otp + ". Mã này có hiệu lực trong 10 phút.");
-        message.setFrom("noreply@yourdomain.com"); // Đặt email gửi đi (thường cấu hình trong application.properties)
-        mailSender.send(message);
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(toEmail);
+        email.setSubject("Mã OTP để đặt lại mật khẩu của bạn");
+        email.setBody("Mã OTP của bạn là: " + otp + ". Mã này có hiệu lực trong 10 phút.");
+        email = emailOutboxRepository.save(email);
+
+        // Gửi ngay sau khi commit thay vì đợi lần quét định kỳ; nếu pool đầy, lần quét sau sẽ xử lý
+        Long emailId = email.getEmailId();
+        AfterCommit.run(() -> emailOutboxDispatcher.dispatchNow(emailId));
     }
-}
\ No newline at end of file
+}
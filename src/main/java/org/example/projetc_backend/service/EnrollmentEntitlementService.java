@@ -0,0 +1,132 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.cache.ExpiringCache;
+import org.example.projetc_backend.repository.EnrollmentRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chỉ mục quyền học theo người dùng: tập ID bài học đã đăng ký lưu dạng bitmap (BitSet), nạp lười bằng một truy vấn
+ * chỉ đọc lesson_id thay vì tải các bản ghi Enrollment đầy đủ.
+ * - Kiểm tra "người dùng đã đăng ký bài học này chưa" và "trong các bài học này, bài nào đã sở hữu" không cần truy vấn DB
+ *   khi chỉ mục đã được nạp.
+ * - EnrollmentService cập nhật chỉ mục sau commit khi đăng ký/xóa đăng ký (kể cả cấp quyền sau thanh toán).
+ * Bitmap đã đưa vào cache không bao giờ bị sửa: mỗi thay đổi tạo bản sao mới (copy-on-write).
+ */
+@Service
+public class EnrollmentEntitlementService {
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final ExpiringCache<Integer, BitSet> entitlements;
+    private final long ttlMillis;
+    // Tăng mỗi khi có thay đổi; kết quả nạp chỉ được lưu nếu không có thay đổi nào xen giữa lúc truy vấn và lúc lưu
+    private final AtomicLong modifications = new AtomicLong();
+
+    public EnrollmentEntitlementService(EnrollmentRepository enrollmentRepository, MeterRegistry meterRegistry,
+                                        @Value("${app.entitlement-cache.max-size:20000}") int maxSize,
+                                        @Value("${app.entitlement-cache.ttl-seconds:1800}") long ttlSeconds) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.entitlements = new ExpiringCache<>(maxSize);
+        this.ttlMillis = ttlSeconds * 1000;
+        FunctionCounter.builder("app.entitlement.cache.hits", entitlements, ExpiringCache::hitCount).register(meterRegistry);
+        FunctionCounter.builder("app.entitlement.cache.misses", entitlements, ExpiringCache::missCount).register(meterRegistry);
+        Gauge.builder("app.entitlement.cache.size", entitlements, ExpiringCache::size).register(meterRegistry);
+    }
+
+    public boolean isEnrolled(Integer userId, Integer lessonId) {
+        if (userId == null || lessonId == null || lessonId < 0) {
+            return false;
+        }
+        return lessonsOf(userId).get(lessonId);
+    }
+
+    /**
+     * Lọc ra các bài học mà người dùng đã đăng ký.
+     * @param lessonIds ID các bài học cần kiểm tra.
+     * @return Các ID đã đăng ký, giữ nguyên thứ tự đầu vào và bỏ trùng lặp.
+     */
+    public Set<Integer> filterEnrolled(Integer userId, Collection<Integer> lessonIds) {
+        Set<Integer> owned = new LinkedHashSet<>();
+        if (userId == null || lessonIds == null || lessonIds.isEmpty()) {
+            return owned;
+        }
+        BitSet lessons = lessonsOf(userId);
+        for (Integer lessonId : lessonIds) {
+            if (lessonId != null && lessonId >= 0 && lessons.get(lessonId)) {
+                owned.add(lessonId);
+            }
+        }
+        return owned;
+    }
+
+    /**
+     * @return ID tất cả bài học người dùng đã đăng ký, tăng dần.
+     */
+    public List<Integer> getEnrolledLessonIds(Integer userId) {
+        if (userId == null) {
+            return List.of();
+        }
+        return lessonsOf(userId).stream().boxed().toList();
+    }
+
+    public void grantAfterCommit(Integer userId, Collection<Integer> lessonIds) {
+        if (userId == null || lessonIds == null || lessonIds.isEmpty()) {
+            return;
+        }
+        List<Integer> granted = List.copyOf(lessonIds);
+        AfterCommit.run(() -> update(userId, granted, true));
+    }
+
+    public void revokeAfterCommit(Integer userId, Integer lessonId) {
+        if (userId == null || lessonId == null) {
+            return;
+        }
+        AfterCommit.run(() -> update(userId, List.of(lessonId), false));
+    }
+
+    private BitSet lessonsOf(Integer userId) {
+        BitSet cached = entitlements.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = modifications.get();
+        BitSet loaded = new BitSet();
+        for (Integer lessonId : enrollmentRepository.findLessonIdsByUserId(userId)) {
+            if (lessonId != null && lessonId >= 0) {
+                loaded.set(lessonId);
+            }
+        }
+        synchronized (this) {
+            if (modifications.get() == stamp) {
+                entitlements.put(userId, loaded, System.currentTimeMillis() + ttlMillis);
+            }
+        }
+        return loaded;
+    }
+
+    private synchronized void update(Integer userId, List<Integer> lessonIds, boolean granted) {
+        modifications.incrementAndGet();
+        BitSet cached = entitlements.get(userId);
+        if (cached == null) {
+            return;
+        }
+        BitSet copy = (BitSet) cached.clone();
+        for (Integer lessonId : lessonIds) {
+            if (lessonId != null && lessonId >= 0) {
+                copy.set(lessonId, granted);
+            }
+        }
+        entitlements.put(userId, copy, System.currentTimeMillis() + ttlMillis);
+    }
+}
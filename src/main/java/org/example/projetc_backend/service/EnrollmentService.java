@@ -10,25 +10,37 @@ import org.example.projetc_backend.entity.User;
 import org.example.projetc_backend.repository.EnrollmentRepository;
 import org.example.projetc_backend.repository.LessonRepository;
 import org.example.projetc_backend.repository.UserRepository;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class EnrollmentService {
 
+    private static final String INSERT_SQL = "INSERT INTO enrollments (user_id, lesson_id, enrollment_date) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE enrollment_id = enrollment_id";
+
     private final EnrollmentRepository enrollmentRepository;
     private final UserRepository userRepository;
     private final LessonRepository lessonRepository;
     private final LessonService lessonService;
+    private final JdbcTemplate jdbcTemplate;
+    private final EnrollmentEntitlementService enrollmentEntitlementService;
 
     private static final Map<Lesson.Level, Integer> LEVEL_DURATIONS = new HashMap<>();
     static {
@@ -37,11 +49,14 @@ public class EnrollmentService {
         LEVEL_DURATIONS.put(Lesson.Level.ADVANCED, 12);
     }
 
-    public EnrollmentService(EnrollmentRepository enrollmentRepository, UserRepository userRepository, LessonRepository lessonRepository, LessonService lessonService) {
+    public EnrollmentService(EnrollmentRepository enrollmentRepository, UserRepository userRepository, LessonRepository lessonRepository, LessonService lessonService,
+                             JdbcTemplate jdbcTemplate, EnrollmentEntitlementService enrollmentEntitlementService) {
         this.enrollmentRepository = enrollmentRepository;
         this.userRepository = userRepository;
         this.lessonRepository = lessonRepository;
         this.lessonService = lessonService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enrollmentEntitlementService = enrollmentEntitlementService;
     }
 
     // Phương thức này CẦN ĐƯỢC THÊM VÀO EnrollmentService.java
@@ -77,11 +92,57 @@ public class EnrollmentService {
         enrollment.setLesson(lesson);
         enrollment.setEnrollmentDate(LocalDateTime.now());
 
-        enrollment = enrollmentRepository.save(enrollment);
+        try {
+            enrollment = enrollmentRepository.saveAndFlush(enrollment);
+        } catch (DataIntegrityViolationException e) {
+            // Request song song đã đăng ký trước (ràng buộc duy nhất user_id, lesson_id)
+            throw new IllegalArgumentException("Người dùng đã đăng ký bài học này rồi.");
+        }
+        enrollmentEntitlementService.grantAfterCommit(user.getUserId(), List.of(lesson.getLessonId()));
 
         return mapToEnrollmentResponse(enrollment);
     }
 
+    /**
+     * Đăng ký một người dùng vào nhiều bài học cùng lúc (dùng khi cấp quyền học cho đơn hàng đã thanh toán).
+     * Một truy vấn tìm các bài học đã đăng ký, các bài còn thiếu được chèn trong một lô JDBC.
+     * Nhờ ràng buộc duy nhất (user_id, lesson_id) và ON DUPLICATE KEY UPDATE, gọi lặp lại hoặc song song không tạo bản ghi trùng.
+     * @param userId ID người dùng.
+     * @param lessonIds ID các bài học (có thể trùng lặp).
+     * @return ID các bài học vừa được đăng ký mới.
+     */
+    @Transactional
+    public List<Integer> enrollUserInLessons(Integer userId, Collection<Integer> lessonIds) {
+        if (userId == null || lessonIds == null) {
+            throw new IllegalArgumentException("User ID và danh sách Lesson ID là bắt buộc để đăng ký.");
+        }
+        Set<Integer> requested = new LinkedHashSet<>(lessonIds);
+        requested.remove(null);
+        if (requested.isEmpty()) {
+            return List.of();
+        }
+        enrollmentEntitlementService.grantAfterCommit(userId, requested);
+
+        Set<Integer> enrolled = new HashSet<>(enrollmentRepository.findEnrolledLessonIds(userId, requested));
+        List<Integer> missing = requested.stream().filter(lessonId -> !enrolled.contains(lessonId)).toList();
+        if (missing.isEmpty()) {
+            return List.of();
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, missing, missing.size(), (ps, lessonId) -> {
+                ps.setInt(1, userId);
+                ps.setInt(2, lessonId);
+                ps.setTimestamp(3, now);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new IllegalArgumentException("Không tìm thấy người dùng hoặc bài học khi đăng ký: "
+                    + e.getMostSpecificCause().getMessage());
+        }
+        return missing;
+    }
+
     public EnrollmentResponse getEnrollmentById(Integer enrollmentId) {
         if (enrollmentId == null) {
             throw new IllegalArgumentException("Enrollment ID không được để trống.");
@@ -139,10 +200,10 @@ public class EnrollmentService {
         if (enrollmentId == null) {
             throw new IllegalArgumentException("Enrollment ID không được để trống.");
         }
-        if (!enrollmentRepository.existsById(enrollmentId)) {
-            throw new IllegalArgumentException("Không tìm thấy đăng ký với ID: " + enrollmentId);
-        }
-        enrollmentRepository.deleteById(enrollmentId);
+        Enrollment enrollment = enrollmentRepository.findById(enrollmentId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy đăng ký với ID: " + enrollmentId));
+        enrollmentRepository.delete(enrollment);
+        enrollmentEntitlementService.revokeAfterCommit(enrollment.getUser().getUserId(), enrollment.getLesson().getLessonId());
     }
 
     private LocalDateTime calculateExpiryDate(Enrollment enrollment) {
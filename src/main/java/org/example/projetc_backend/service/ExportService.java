@@ -0,0 +1,337 @@
+package org.example.projetc_backend.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.example.projetc_backend.dto.ExportCriteria;
+import org.example.projetc_backend.entity.Order;
+import org.example.projetc_backend.entity.Payment;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Xuất đơn hàng, thanh toán và ghi danh ra CSV hoặc NDJSON (tùy chọn nén gzip) cho kế toán.
+ * Dữ liệu được đọc bằng con trỏ JDBC chỉ-tiến với fetch size cố định và ghi thẳng ra luồng đầu ra từng dòng,
+ * không tạo entity hay DTO, nên bộ nhớ sử dụng không phụ thuộc số dòng xuất.
+ * (Với MySQL, fetch size chỉ có hiệu lực khi kết nối bật useCursorFetch=true; thuộc tính này được đặt qua
+ * spring.datasource.hikari.data-source-properties nên áp dụng cả khi DATABASE_URL được cấu hình riêng.)
+ * Ô văn bản trong CSV bắt đầu bằng =, +, -, @ (hoặc tab, CR) được thêm tiền tố ' để bảng tính không coi là công thức.
+ */
+@Service
+public class ExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    public enum Dataset { ORDERS, PAYMENTS, ENROLLMENTS }
+
+    private static final String ORDERS_SQL = "SELECT o.order_id, o.user_id, u.username, u.email, o.order_date, " +
+            "o.status, o.total_amount, " +
+            "(SELECT COUNT(*) FROM order_details od WHERE od.order_id = o.order_id) AS item_count " +
+            "FROM orders o JOIN users u ON u.user_id = o.user_id";
+    private static final String PAYMENTS_SQL = "SELECT p.payment_id, p.order_id, p.user_id, u.username, u.email, " +
+            "p.payment_date, p.status, p.amount, p.payment_method, p.transaction_id " +
+            "FROM payments p JOIN users u ON u.user_id = p.user_id";
+    private static final String ENROLLMENTS_SQL = "SELECT e.enrollment_id, e.user_id, u.username, u.email, " +
+            "e.lesson_id, l.title AS lesson_title, e.enrollment_date " +
+            "FROM enrollments e JOIN users u ON u.user_id = e.user_id JOIN lessons l ON l.lesson_id = e.lesson_id";
+
+    private final JdbcTemplate streamingJdbcTemplate;
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    public ExportService(DataSource dataSource, @Value("${app.export.fetch-size:1000}") int fetchSize) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    public static Format parseFormat(String format) {
+        try {
+            return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Định dạng không hợp lệ: " + format + ". Chỉ hỗ trợ csv hoặc ndjson.");
+        }
+    }
+
+    /**
+     * Kiểm tra tiêu chí trước khi bắt đầu ghi (sau khi đã ghi thì không thể trả mã lỗi HTTP được nữa).
+     * @throws IllegalArgumentException nếu tiêu chí không hợp lệ.
+     */
+    public void validate(Dataset dataset, ExportCriteria criteria) {
+        if (criteria.minDate() != null && criteria.maxDate() != null && criteria.minDate().isAfter(criteria.maxDate())) {
+            throw new IllegalArgumentException("Ngày bắt đầu không được sau ngày kết thúc.");
+        }
+        if (criteria.minAmount() != null && criteria.maxAmount() != null && criteria.minAmount().compareTo(criteria.maxAmount()) > 0) {
+            throw new IllegalArgumentException("Số tiền tối thiểu không được lớn hơn số tiền tối đa.");
+        }
+        if (criteria.status() != null && !criteria.status().isBlank()) {
+            String status = criteria.status().trim().toUpperCase(Locale.ROOT);
+            boolean valid = switch (dataset) {
+                case ORDERS -> Arrays.stream(Order.OrderStatus.values()).anyMatch(s -> s.name().equals(status));
+                case PAYMENTS -> Arrays.stream(Payment.PaymentStatus.values()).anyMatch(s -> s.name().equals(status));
+                case ENROLLMENTS -> false;
+            };
+            if (!valid) {
+                throw new IllegalArgumentException("Trạng thái không hợp lệ: " + criteria.status());
+            }
+        }
+    }
+
+    /**
+     * Ghi toàn bộ dòng thỏa tiêu chí ra luồng đầu ra.
+     * @return Số dòng đã ghi.
+     */
+    public long export(Dataset dataset, ExportCriteria criteria, Format format, boolean gzip, OutputStream out) throws IOException {
+        validate(dataset, criteria);
+        List<Object> params = new ArrayList<>();
+        String sql = buildQuery(dataset, criteria, params);
+
+        OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(jsonFactory.createGenerator(writer));
+        ResultSetExtractor<Long> extractor = rs -> {
+            try {
+                rowWriter.start(rs.getMetaData()); // Ghi tiêu đề kể cả khi không có dòng nào
+                long written = 0;
+                while (rs.next()) {
+                    rowWriter.write(rs);
+                    written++;
+                }
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        Long count;
+        try {
+            count = streamingJdbcTemplate.query(sql, extractor, params.toArray());
+        } catch (UncheckedIOException e) {
+            throw e.getCause(); // Thường là client ngắt kết nối giữa chừng
+        }
+        rowWriter.finish();
+        writer.flush();
+        if (target instanceof GZIPOutputStream gzipStream) {
+            gzipStream.finish();
+        }
+        out.flush();
+        return count != null ? count : 0;
+    }
+
+    private String buildQuery(Dataset dataset, ExportCriteria criteria, List<Object> params) {
+        String alias;
+        String dateColumn;
+        String amountColumn;
+        String idColumn;
+        StringBuilder sql = new StringBuilder();
+        switch (dataset) {
+            case ORDERS -> {
+                sql.append(ORDERS_SQL);
+                alias = "o";
+                dateColumn = "o.order_date";
+                amountColumn = "o.total_amount";
+                idColumn = "o.order_id";
+            }
+            case PAYMENTS -> {
+                sql.append(PAYMENTS_SQL);
+                alias = "p";
+                dateColumn = "p.payment_date";
+                amountColumn = "p.amount";
+                idColumn = "p.payment_id";
+            }
+            default -> {
+                sql.append(ENROLLMENTS_SQL);
+                alias = "e";
+                dateColumn = "e.enrollment_date";
+                amountColumn = null;
+                idColumn = "e.enrollment_id";
+            }
+        }
+        List<String> conditions = new ArrayList<>();
+        if (criteria.userId() != null) {
+            conditions.add(alias + ".user_id = ?");
+            params.add(criteria.userId());
+        }
+        if (criteria.status() != null && !criteria.status().isBlank() && dataset != Dataset.ENROLLMENTS) {
+            conditions.add(alias + ".status = ?");
+            params.add(criteria.status().trim().toUpperCase(Locale.ROOT));
+        }
+        if (criteria.minDate() != null) {
+            conditions.add(dateColumn + " >= ?");
+            params.add(Timestamp.valueOf(criteria.minDate()));
+        }
+        if (criteria.maxDate() != null) {
+            conditions.add(dateColumn + " <= ?");
+            params.add(Timestamp.valueOf(criteria.maxDate()));
+        }
+        if (amountColumn != null && criteria.minAmount() != null) {
+            conditions.add(amountColumn + " >= ?");
+            params.add(criteria.minAmount());
+        }
+        if (amountColumn != null && criteria.maxAmount() != null) {
+            conditions.add(amountColumn + " <= ?");
+            params.add(criteria.maxAmount());
+        }
+        if (criteria.username() != null && !criteria.username().trim().isEmpty()) {
+            conditions.add("LOWER(u.username) LIKE ?");
+            params.add("%" + criteria.username().toLowerCase() + "%");
+        }
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return sql.append(" ORDER BY ").append(idColumn).toString();
+    }
+
+    private interface RowWriter {
+        void start(ResultSetMetaData metaData) throws SQLException, IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static String[] labels(ResultSetMetaData metaData) throws SQLException {
+        String[] labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+        }
+        return labels;
+    }
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+        private int columns;
+
+        CsvRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+            String[] labels = labels(metaData);
+            columns = labels.length;
+            writer.write(String.join(",", labels));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 1; i <= columns; i++) {
+                if (i > 1) {
+                    writer.write(',');
+                }
+                Object value = rs.getObject(i);
+                if (value instanceof String text) {
+                    writeField(neutralizeFormula(text)); // Chỉ ô văn bản do người dùng nhập; số âm giữ nguyên
+                } else if (value != null) {
+                    writeField(value instanceof Timestamp ts ? ts.toLocalDateTime().toString() : value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        // Chống CSV injection: Excel/LibreOffice thực thi ô bắt đầu bằng các ký tự này như công thức
+        private static String neutralizeFormula(String value) {
+            if (value.isEmpty()) {
+                return value;
+            }
+            char first = value.charAt(0);
+            return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r'
+                    ? "'" + value
+                    : value;
+        }
+
+        // Trích dẫn theo RFC 4180 khi giá trị chứa dấu phẩy, dấu nháy kép hoặc xuống dòng
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private static final class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private String[] labels;
+
+        NdjsonRowWriter(JsonGenerator generator) {
+            this.generator = generator;
+            this.generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException {
+            labels = labels(metaData);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < labels.length; i++) {
+                Object value = rs.getObject(i + 1);
+                generator.writeFieldName(labels[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Long || value instanceof Integer) {
+                    generator.writeNumber(((Number) value).longValue());
+                } else if (value instanceof Timestamp ts) {
+                    generator.writeString(ts.toLocalDateTime().toString());
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.projetc_backend.service;
+
+/**
+ * Request có Idempotency-Key không thể xử lý với khóa này.
+ * inProgress = true khi request đầu tiên với cùng khóa vẫn đang chạy: GlobalExceptionHandler trả về 409 kèm Retry-After.
+ * inProgress = false khi khóa đã được dùng cho một request có nội dung khác: trả về 422.
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    private final boolean inProgress;
+
+    public IdempotencyConflictException(String message, boolean inProgress) {
+        super(message);
+        this.inProgress = inProgress;
+    }
+
+    public boolean isInProgress() {
+        return inProgress;
+    }
+}
@@ -0,0 +1,285 @@
+package org.example.projetc_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.projetc_backend.cache.ExpiringCache;
+import org.example.projetc_backend.entity.IdempotencyRecord;
+import org.example.projetc_backend.repository.IdempotencyRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Xử lý request có Idempotency-Key (hoặc khóa tự nhiên như paymentId của PayPal) đúng một lần.
+ * - Tầng nóng trong bộ nhớ: kết quả vừa hoàn tất (ExpiringCache) và các request đang chạy; request trùng
+ *   đến khi request đầu còn đang chạy sẽ chờ chính kết quả đó thay vì chạy lại.
+ * - Bảng Idempotency_Keys: nhận xử lý khóa bằng INSERT IGNORE và lưu kết quả dạng JSON, để request trùng
+ *   đến instance khác hoặc sau khi khởi động lại vẫn nhận được kết quả cũ.
+ * Khóa được gắn với phạm vi (endpoint) và người gọi, nên hai người dùng trùng Idempotency-Key không ảnh hưởng nhau.
+ * Mỗi khóa lưu kèm SHA-256 của nội dung request: dùng lại khóa cho một request khác nội dung bị từ chối (422)
+ * thay vì nhận kết quả của request cũ. Request trùng đang chạy ở instance khác được trả 409 ngay, không chờ.
+ * Request lỗi không được lưu: lần thử lại sẽ chạy lại từ đầu.
+ */
+@Service
+public class IdempotencyService {
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private record StoredResult(String requestHash, String body) {}
+
+    private record Running(String requestHash, CompletableFuture<String> result) {}
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+    private final ExpiringCache<String, StoredResult> completed;
+    private final Map<String, Running> inFlight = new ConcurrentHashMap<>();
+    private final Counter replayedCounter;
+    private final Counter waitedCounter;
+
+    @Value("${app.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // Thời gian tối đa một request trùng chờ request đầu tiên
+    @Value("${app.idempotency.wait-ms:10000}")
+    private long waitMillis;
+
+    // Khóa IN_PROGRESS lâu hơn ngưỡng này được coi là bị bỏ dở và có thể nhận xử lý lại
+    @Value("${app.idempotency.in-progress-timeout-seconds:120}")
+    private long inProgressTimeoutSeconds;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository, ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.idempotency.cache-size:10000}") int cacheSize) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+        this.completed = new ExpiringCache<>(cacheSize);
+        this.replayedCounter = meterRegistry.counter("app.idempotency.replayed");
+        this.waitedCounter = meterRegistry.counter("app.idempotency.waited");
+    }
+
+    /**
+     * Chạy action một lần cho mỗi khóa; request trùng nhận lại kết quả đã lưu.
+     * @param scope Phạm vi của khóa (ví dụ: "order.create").
+     * @param key Idempotency-Key; null hoặc rỗng thì action luôn được chạy.
+     * @param request Nội dung request, được băm để nhận ra khóa bị dùng lại cho request khác.
+     * @param type Kiểu kết quả, dùng để đọc lại kết quả đã lưu.
+     * @throws IdempotencyConflictException nếu khóa đã dùng cho request khác nội dung, hoặc request trùng
+     *         đang chạy ở instance khác hay quá thời gian chờ.
+     */
+    public <T> T execute(String scope, String key, Object request, TypeReference<T> type, Supplier<T> action) {
+        try {
+            return executeAsync(scope, key, request, type, () -> CompletableFuture.completedFuture(action.get()), value -> true).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    /**
+     * Phiên bản bất đồng bộ của execute() cho các endpoint trả về CompletableFuture.
+     * @param storeIf Chỉ lưu kết quả thỏa điều kiện (ví dụ: bỏ qua kết quả tạm thời "đang xử lý").
+     */
+    public <T> CompletableFuture<T> executeAsync(String scope, String key, Object request, TypeReference<T> type,
+                                                 Supplier<CompletableFuture<T>> action, Predicate<T> storeIf) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String recordKey = recordKey(scope, key);
+        String requestHash = sha256(write(request));
+        JavaType javaType = objectMapper.getTypeFactory().constructType(type);
+
+        StoredResult cached = completed.get(recordKey);
+        if (cached != null) {
+            checkSameRequest(cached.requestHash(), requestHash);
+            replayedCounter.increment();
+            return CompletableFuture.completedFuture(read(cached.body(), javaType));
+        }
+
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        Running entry = new Running(requestHash, mine);
+        Running running = inFlight.putIfAbsent(recordKey, entry);
+        if (running != null) {
+            checkSameRequest(running.requestHash(), requestHash);
+            waitedCounter.increment();
+            return running.result().thenApply(json -> this.<T>read(json, javaType))
+                    .orTimeout(waitMillis, TimeUnit.MILLISECONDS)
+                    .exceptionally(error -> {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof TimeoutException) {
+                            throw inProgress();
+                        }
+                        throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+                    });
+        }
+
+        String stored;
+        try {
+            stored = claim(recordKey, requestHash);
+        } catch (RuntimeException e) {
+            // Khóa chưa được nhận xử lý (đang thuộc về instance khác): không xóa trong DB
+            inFlight.remove(recordKey, entry);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+        if (stored != null) {
+            replayedCounter.increment();
+            inFlight.remove(recordKey, entry);
+            mine.complete(stored);
+            return CompletableFuture.completedFuture(read(stored, javaType));
+        }
+
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            abandon(recordKey, entry, e);
+            throw e;
+        }
+
+        return result.whenComplete((value, error) -> {
+            if (error != null) {
+                abandon(recordKey, entry, error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+                return;
+            }
+            String json;
+            try {
+                json = write(value);
+            } catch (RuntimeException e) {
+                abandon(recordKey, entry, e);
+                throw e;
+            }
+            try {
+                if (storeIf.test(value)) {
+                    idempotencyRecordRepository.complete(recordKey, json);
+                    completed.put(recordKey, new StoredResult(requestHash, json),
+                            System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours));
+                } else {
+                    idempotencyRecordRepository.release(recordKey);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Không lưu được kết quả idempotency {}: {}", scope, e.getMessage());
+            }
+            inFlight.remove(recordKey, entry);
+            mine.complete(json);
+        });
+    }
+
+    /**
+     * Nhận xử lý khóa trong DB.
+     * @return Kết quả đã lưu nếu khóa đã hoàn tất trước đó; null nếu request hiện tại được nhận xử lý.
+     * @throws IdempotencyConflictException nếu khóa thuộc về request khác nội dung hoặc đang chạy ở instance khác.
+     */
+    private String claim(String recordKey, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        if (idempotencyRecordRepository.claim(recordKey, requestHash, now, now.plusHours(ttlHours)) == 1) {
+            return null;
+        }
+        Optional<IdempotencyRecord> record = idempotencyRecordRepository.findById(recordKey);
+        if (record.isPresent() && record.get().getExpiresAt().isAfter(now)) {
+            checkSameRequest(record.get().getRequestHash(), requestHash);
+            if (record.get().getStatus() == IdempotencyRecord.Status.COMPLETED) {
+                String body = record.get().getResponseBody();
+                completed.put(recordKey, new StoredResult(record.get().getRequestHash(), body),
+                        record.get().getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                return body;
+            }
+        }
+        if (idempotencyRecordRepository.deleteIfStale(recordKey, now, now.minusSeconds(inProgressTimeoutSeconds)) > 0
+                && idempotencyRecordRepository.claim(recordKey, requestHash, now, now.plusHours(ttlHours)) == 1) {
+            return null;
+        }
+        // Request trùng đang chạy ở instance khác: không có kết quả để chờ trong bộ nhớ, trả 409 để client thử lại
+        throw inProgress();
+    }
+
+    private void abandon(String recordKey, Running entry, Throwable error) {
+        try {
+            idempotencyRecordRepository.release(recordKey);
+        } catch (RuntimeException e) {
+            logger.warn("Không bỏ được khóa idempotency: {}", e.getMessage());
+        }
+        inFlight.remove(recordKey, entry);
+        entry.result().completeExceptionally(error);
+    }
+
+    // Khóa lưu trước khi có cột request_hash (null) được chấp nhận như trước
+    private static void checkSameRequest(String storedHash, String requestHash) {
+        if (storedHash != null && !storedHash.equals(requestHash)) {
+            throw new IdempotencyConflictException(HEADER + " này đã được dùng cho một yêu cầu có nội dung khác.", false);
+        }
+    }
+
+    /**
+     * Dọn các khóa đã hết hạn trong DB.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.cleanup-interval-ms:3600000}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            logger.info("Đã xóa {} khóa idempotency hết hạn.", deleted);
+        }
+    }
+
+    private String recordKey(String scope, String key) {
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " không được dài quá " + MAX_KEY_LENGTH + " ký tự.");
+        }
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String caller = authentication != null ? authentication.getName() : "";
+        return scope + ":" + sha256(caller + "\n" + key);
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không tuần tự hóa được kết quả: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T read(String json, JavaType type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không đọc được kết quả đã lưu: " + e.getMessage(), e);
+        }
+    }
+
+    private IdempotencyConflictException inProgress() {
+        return new IdempotencyConflictException("Yêu cầu với " + HEADER + " này đang được xử lý, vui lòng thử lại sau.", true);
+    }
+}
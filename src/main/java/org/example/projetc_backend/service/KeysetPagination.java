@@ -0,0 +1,178 @@
+package org.example.projetc_backend.service;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Phân trang không cần OFFSET/COUNT(*) cho các API tìm kiếm; client chọn qua trường pagination của request.
+ * - OFFSET (mặc định): PageRequest như trước, có tổng số bản ghi (thêm một truy vấn COUNT(*)).
+ * - SLICE: vẫn theo số trang nhưng bỏ COUNT(*); chỉ cho biết còn trang sau hay không.
+ * - KEYSET: "seek" theo cột sắp xếp + ID, tức WHERE (cột, id) > (giá trị cuối của trang trước). DB đi thẳng tới vị trí
+ *   trên index nên trang thứ 500 nhanh như trang đầu. Vị trí trả về cho client là một cursor mờ (Base64).
+ * Ở hai chế độ sau chỉ cho phép sắp xếp theo các cột có index (khai báo khi tạo đối tượng), luôn kèm ID để thứ tự
+ * là duy nhất. Các cột này phải NOT NULL: điều kiện seek bỏ sót dòng có giá trị NULL và không thể tạo cursor từ chúng.
+ */
+public final class KeysetPagination {
+
+    public enum Mode { OFFSET, SLICE, KEYSET }
+
+    /**
+     * Một trang kết quả không có tổng số bản ghi.
+     * @param nextCursor Cursor của trang sau; null nếu hết dữ liệu hoặc không ở chế độ KEYSET.
+     */
+    public record Result<T>(List<T> content, boolean hasNext, String nextCursor) {
+        public <R> Result<R> map(Function<? super T, ? extends R> mapper) {
+            List<R> mapped = new ArrayList<>(content.size());
+            content.forEach(item -> mapped.add(mapper.apply(item)));
+            return new Result<>(mapped, hasNext, nextCursor);
+        }
+    }
+
+    private static final String SEPARATOR = "\u001F";
+
+    private final String idProperty;
+    private final Map<String, Class<?>> sortableProperties;
+
+    /**
+     * @param idProperty Thuộc tính ID (khóa chính) của entity.
+     * @param sortableProperties Các thuộc tính được phép sắp xếp (phải có index và NOT NULL, kể cả ID) và kiểu của chúng.
+     */
+    public KeysetPagination(String idProperty, Map<String, Class<?>> sortableProperties) {
+        this.idProperty = idProperty;
+        this.sortableProperties = sortableProperties;
+    }
+
+    /**
+     * Xác định chế độ phân trang; có cursor nghĩa là KEYSET.
+     * @throws IllegalArgumentException nếu pagination không hợp lệ hoặc mâu thuẫn với cursor.
+     */
+    public static Mode mode(String pagination, String cursor, Mode defaultMode) {
+        Mode mode = defaultMode;
+        if (pagination != null && !pagination.isBlank()) {
+            try {
+                mode = Mode.valueOf(pagination.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Chế độ phân trang không hợp lệ: " + pagination + ". Chỉ chấp nhận OFFSET, SLICE hoặc KEYSET.");
+            }
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            if (pagination != null && !pagination.isBlank() && mode != Mode.KEYSET) {
+                throw new IllegalArgumentException("Cursor chỉ dùng được với chế độ phân trang KEYSET.");
+            }
+            return Mode.KEYSET;
+        }
+        return mode;
+    }
+
+    /**
+     * Đọc một trang theo chế độ SLICE hoặc KEYSET, không chạy COUNT(*).
+     * @param page Số trang (chỉ dùng cho SLICE).
+     * @param cursor Cursor của trang trước (chỉ dùng cho KEYSET); rỗng nghĩa là trang đầu.
+     * @throws IllegalArgumentException nếu cột sắp xếp không được hỗ trợ hoặc cursor không hợp lệ.
+     */
+    public <T> Result<T> scroll(JpaSpecificationExecutor<T> repository, Specification<T> specification, Mode mode,
+                                String sortBy, String sortDir, int page, int size, String cursor) {
+        if (mode == Mode.OFFSET) {
+            throw new IllegalArgumentException("Chế độ OFFSET không hỗ trợ đọc theo cursor.");
+        }
+        Sort sort = sort(sortBy, sortDir);
+        ScrollPosition position = mode == Mode.SLICE
+                ? slicePosition(page, size)
+                : (cursor == null || cursor.isBlank() ? ScrollPosition.keyset() : decode(cursor, sort));
+        Window<T> window = repository.findBy(specification, query -> query.sortBy(sort).limit(size).scroll(position));
+        String nextCursor = mode == Mode.KEYSET && window.hasNext() && !window.isEmpty()
+                ? encode((KeysetScrollPosition) window.positionAt(window.size() - 1), sort)
+                : null;
+        return new Result<>(window.getContent(), window.hasNext(), nextCursor);
+    }
+
+    // Offset của Spring Data là vị trí của phần tử cuối đã đọc, nên trang p bắt đầu sau phần tử p * size - 1
+    static ScrollPosition slicePosition(int page, int size) {
+        return page == 0 ? ScrollPosition.offset() : ScrollPosition.offset((long) page * size - 1);
+    }
+
+    Sort sort(String sortBy, String sortDir) {
+        if (!sortableProperties.containsKey(sortBy)) {
+            throw new IllegalArgumentException("Chế độ SLICE/KEYSET chỉ hỗ trợ sắp xếp theo: "
+                    + String.join(", ", sortableProperties.keySet()) + ".");
+        }
+        Sort.Direction direction = "DESC".equalsIgnoreCase(sortDir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort sort = Sort.by(direction, sortBy);
+        return sortBy.equals(idProperty) ? sort : sort.and(Sort.by(direction, idProperty));
+    }
+
+    // Cursor = Base64(cách sắp xếp, giá trị các cột sắp xếp của bản ghi cuối), phân cách bằng ký tự US
+    String encode(KeysetScrollPosition position, Sort sort) {
+        StringBuilder token = new StringBuilder(fingerprint(sort));
+        for (Sort.Order order : sort) {
+            Object value = position.getKeys().get(order.getProperty());
+            if (value == null) {
+                throw new IllegalArgumentException("Có bản ghi thiếu giá trị " + order.getProperty()
+                        + ", hãy sắp xếp theo " + idProperty + " khi dùng KEYSET.");
+            }
+            token.append(SEPARATOR).append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    KeysetScrollPosition decode(String cursor, Sort sort) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8).split(SEPARATOR, -1);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+        List<Sort.Order> orders = sort.toList();
+        if (!parts[0].equals(fingerprint(sort))) {
+            throw new IllegalArgumentException("Cursor không khớp với cách sắp xếp hiện tại.");
+        }
+        if (parts.length != orders.size() + 1) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+        Map<String, Object> keys = new LinkedHashMap<>();
+        for (int i = 0; i < orders.size(); i++) {
+            String property = orders.get(i).getProperty();
+            keys.put(property, parse(sortableProperties.get(property), parts[i + 1]));
+        }
+        return ScrollPosition.forward(keys);
+    }
+
+    private static Object parse(Class<?> type, String value) {
+        try {
+            if (type == Integer.class) {
+                return Integer.valueOf(value);
+            }
+            if (type == LocalDateTime.class) {
+                return LocalDateTime.parse(value);
+            }
+            return value;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ.");
+        }
+    }
+
+    private static String fingerprint(Sort sort) {
+        StringBuilder fingerprint = new StringBuilder();
+        for (Sort.Order order : sort) {
+            if (!fingerprint.isEmpty()) {
+                fingerprint.append(',');
+            }
+            fingerprint.append(order.getProperty()).append(' ').append(order.getDirection());
+        }
+        return fingerprint.toString();
+    }
+}
@@ -14,6 +14,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // Thêm import này
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,10 +24,13 @@ public class LearningMaterialService {
 
     private final LearningMaterialRepository learningMaterialRepository;
     private final LessonRepository lessonRepository;
+    private final TextSearchIndexService textSearchIndexService;
 
-    public LearningMaterialService(LearningMaterialRepository learningMaterialRepository, LessonRepository lessonRepository) {
+    public LearningMaterialService(LearningMaterialRepository learningMaterialRepository, LessonRepository lessonRepository,
+                                   TextSearchIndexService textSearchIndexService) {
         this.learningMaterialRepository = learningMaterialRepository;
         this.lessonRepository = lessonRepository;
+        this.textSearchIndexService = textSearchIndexService;
     }
 
     /**
@@ -63,6 +69,7 @@ public class LearningMaterialService {
 
         // Lưu tài liệu mới vào cơ sở dữ liệu
         material = learningMaterialRepository.save(material);
+        textSearchIndexService.indexAfterCommit(material);
         return mapToLearningMaterialResponse(material);
     }
 
@@ -146,6 +153,7 @@ public class LearningMaterialService {
 
         // Lưu thay đổi
         material = learningMaterialRepository.save(material);
+        textSearchIndexService.indexAfterCommit(material);
         return mapToLearningMaterialResponse(material);
     }
 
@@ -164,6 +172,7 @@ public class LearningMaterialService {
             throw new IllegalArgumentException("Không tìm thấy tài liệu với ID: " + materialId);
         }
         learningMaterialRepository.deleteById(materialId);
+        textSearchIndexService.removeAfterCommit(TextSearchIndexService.Domain.LEARNING_MATERIAL, materialId);
     }
 
     /**
@@ -202,6 +211,24 @@ public class LearningMaterialService {
         return materials.map(this::mapToLearningMaterialResponse);
     }
 
+    /**
+     * Tìm kiếm toàn văn tài liệu học tập theo mô tả và transcript, xếp theo mức độ liên quan.
+     * Chỉ mục trả về ID; DB chỉ dùng để nạp các tài liệu theo ID.
+     *
+     * @param query Từ khóa tìm kiếm (không phân biệt hoa thường và dấu; từ kết thúc bằng "*" là tiền tố).
+     * @param prefix Coi từ cuối cùng là tiền tố.
+     * @param limit Số kết quả tối đa.
+     * @return Danh sách LearningMaterialResponse theo mức độ liên quan giảm dần.
+     * @throws IllegalArgumentException Nếu từ khóa trống hoặc limit không hợp lệ.
+     */
+    @Transactional(readOnly = true)
+    public List<LearningMaterialResponse> textSearchLearningMaterials(String query, boolean prefix, int limit) {
+        List<Integer> ids = textSearchIndexService.search(TextSearchIndexService.Domain.LEARNING_MATERIAL, query, prefix, limit);
+        Map<Integer, LearningMaterial> found = learningMaterialRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(LearningMaterial::getMaterialId, Function.identity()));
+        return ids.stream().map(found::get).filter(Objects::nonNull).map(this::mapToLearningMaterialResponse).toList();
+    }
+
     /**
      * Phương thức ánh xạ từ LearningMaterial Entity sang LearningMaterialResponse DTO.
      *
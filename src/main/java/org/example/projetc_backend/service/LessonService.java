@@ -1,5 +1,6 @@
 package org.example.projetc_backend.service;
 
+import org.example.projetc_backend.cache.LessonCatalogCache;
 import org.example.projetc_backend.dto.LessonRequest;
 import org.example.projetc_backend.dto.LessonResponse;
 import org.example.projetc_backend.dto.LessonSearchRequest;
@@ -9,13 +10,16 @@ import org.example.projetc_backend.repository.LessonRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -23,6 +27,9 @@ import java.util.stream.Collectors;
 public class LessonService {
 
     private final LessonRepository lessonRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final LessonCatalogCache lessonCatalogCache;
+    private final TextSearchIndexService textSearchIndexService;
 
     // Map này không được sử dụng trong các phương thức hiện có, nhưng có thể hữu ích cho tương lai.
     private static final Map<Lesson.Level, Integer> LEVEL_DURATIONS = new HashMap<>();
@@ -32,8 +39,12 @@ public class LessonService {
         LEVEL_DURATIONS.put(Lesson.Level.ADVANCED, 12); // 12 tháng
     }
 
-    public LessonService(LessonRepository lessonRepository) {
+    public LessonService(LessonRepository lessonRepository, ApplicationEventPublisher eventPublisher,
+                         LessonCatalogCache lessonCatalogCache, TextSearchIndexService textSearchIndexService) {
         this.lessonRepository = lessonRepository;
+        this.eventPublisher = eventPublisher;
+        this.lessonCatalogCache = lessonCatalogCache;
+        this.textSearchIndexService = textSearchIndexService;
     }
 
     /**
@@ -65,6 +76,9 @@ public class LessonService {
         lesson.setDeleted(false); // Mặc định không bị xóa
 
         lesson = lessonRepository.save(lesson);
+        eventPublisher.publishEvent(new StatsChangedEvent("lesson"));
+        lessonCatalogCache.invalidateAfterCommit();
+        textSearchIndexService.indexAfterCommit(lesson);
         return mapToLessonResponse(lesson);
     }
 
@@ -75,11 +89,15 @@ public class LessonService {
      * @return LessonResponse của bài học.
      * @throws IllegalArgumentException Nếu Lesson ID trống hoặc không tìm thấy bài học.
      */
-    @Transactional(readOnly = true)
     public LessonResponse getLessonById(Integer lessonId) {
         if (lessonId == null) {
             throw new IllegalArgumentException("Lesson ID không được để trống.");
         }
+        // Bài học đang hoạt động được đọc từ bản chụp danh mục; bài đã xóa mềm vẫn đọc từ DB
+        LessonResponse cached = lessonCatalogCache.findActiveLesson(lessonId, this::loadActiveLessons);
+        if (cached != null) {
+            return cached;
+        }
         Lesson lesson = lessonRepository.findById(lessonId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy bài học với ID: " + lessonId));
         return mapToLessonResponse(lesson);
@@ -87,11 +105,16 @@ public class LessonService {
 
     /**
      * Lấy tất cả các bài học đang hoạt động (chưa bị xóa mềm).
+     * Đọc từ bản chụp của LessonCatalogCache; chỉ truy vấn DB khi bản chụp đang được dựng lại.
      *
      * @return Danh sách LessonResponse của các bài học đang hoạt động.
      */
-    @Transactional(readOnly = true)
     public List<LessonResponse> getAllActiveLessons() {
+        List<LessonResponse> cached = lessonCatalogCache.getActiveLessons(this::loadActiveLessons);
+        return cached != null ? cached : loadActiveLessons();
+    }
+
+    private List<LessonResponse> loadActiveLessons() {
         return lessonRepository.findByIsDeletedFalse().stream()
                 .map(this::mapToLessonResponse)
                 .collect(Collectors.toList());
@@ -129,6 +152,9 @@ public class LessonService {
         lesson.setPrice(request.price());
 
         lesson = lessonRepository.save(lesson);
+        eventPublisher.publishEvent(new StatsChangedEvent("lesson"));
+        lessonCatalogCache.invalidateAfterCommit();
+        textSearchIndexService.indexAfterCommit(lesson);
         return mapToLessonResponse(lesson);
     }
 
@@ -152,6 +178,9 @@ public class LessonService {
 
         lesson.setDeleted(true);
         lessonRepository.save(lesson);
+        eventPublisher.publishEvent(new StatsChangedEvent("lesson"));
+        lessonCatalogCache.invalidateAfterCommit();
+        textSearchIndexService.indexAfterCommit(lesson);
     }
 
     /**
@@ -175,6 +204,9 @@ public class LessonService {
 
         lesson.setDeleted(false);
         lesson = lessonRepository.save(lesson);
+        eventPublisher.publishEvent(new StatsChangedEvent("lesson"));
+        lessonCatalogCache.invalidateAfterCommit();
+        textSearchIndexService.indexAfterCommit(lesson);
         return mapToLessonResponse(lesson);
     }
 
@@ -185,7 +217,6 @@ public class LessonService {
      * @return Trang (Page) các LessonResponse.
      * @throws IllegalArgumentException Nếu Search request trống.
      */
-    @Transactional(readOnly = true)
     public LessonPageResponse searchLessons(LessonSearchRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("Search request không được để trống.");
@@ -201,8 +232,6 @@ public class LessonService {
         if (request.sortDir() != null && request.sortDir().equalsIgnoreCase("DESC")) {
             sortDir = Sort.Direction.DESC;
         }
-        Sort sort = Sort.by(sortDir, sortBy);
-        PageRequest pageable = PageRequest.of(request.page(), request.size(), sort);
 
         Lesson.Level levelEnum = null;
         if (request.level() != null && !request.level().isBlank()) {
@@ -224,6 +253,17 @@ public class LessonService {
             }
         }
 
+        // Lọc/sắp xếp trong bộ nhớ trên bản chụp danh mục; chỉ truy vấn DB khi bản chụp đang được dựng lại
+        LessonCatalogCache.Query query = new LessonCatalogCache.Query(
+                request.title() != null && !request.title().isEmpty() ? request.title() : null,
+                levelEnum, skillEnum, request.minPrice(), request.maxPrice(),
+                request.page(), request.size(), sortBy, sortDir == Sort.Direction.DESC);
+        LessonPageResponse cached = lessonCatalogCache.search(query, this::loadActiveLessons);
+        if (cached != null) {
+            return cached;
+        }
+
+        PageRequest pageable = PageRequest.of(request.page(), request.size(), Sort.by(sortDir, sortBy));
         Page<Lesson> lessonPage = lessonRepository.searchLessons(
                 request.title(),
                 levelEnum,
@@ -246,6 +286,37 @@ public class LessonService {
         );
     }
 
+    /**
+     * Tìm kiếm toàn văn bài học theo tiêu đề và mô tả, xếp theo mức độ liên quan.
+     * Chỉ mục trả về ID; bài học được lấy từ bản chụp danh mục, chỉ đọc DB cho các ID chưa có trong bản chụp.
+     *
+     * @param query Từ khóa tìm kiếm (không phân biệt hoa thường và dấu; từ kết thúc bằng "*" là tiền tố).
+     * @param prefix Coi từ cuối cùng là tiền tố.
+     * @param limit Số kết quả tối đa.
+     * @return Danh sách LessonResponse đang hoạt động theo mức độ liên quan giảm dần.
+     * @throws IllegalArgumentException Nếu từ khóa trống hoặc limit không hợp lệ.
+     */
+    @Transactional(readOnly = true)
+    public List<LessonResponse> textSearchLessons(String query, boolean prefix, int limit) {
+        List<Integer> ids = textSearchIndexService.search(TextSearchIndexService.Domain.LESSON, query, prefix, limit);
+        Map<Integer, LessonResponse> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            LessonResponse cached = lessonCatalogCache.findActiveLesson(id, this::loadActiveLessons);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            lessonRepository.findAllById(missing).stream()
+                    .filter(lesson -> !lesson.isDeleted())
+                    .forEach(lesson -> found.put(lesson.getLessonId(), mapToLessonResponse(lesson)));
+        }
+        return ids.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
 
     /**
      * Phương thức ánh xạ từ Lesson Entity sang LessonResponse DTO.
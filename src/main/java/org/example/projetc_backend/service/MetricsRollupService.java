@@ -0,0 +1,301 @@
+package org.example.projetc_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.dto.MetricPoint;
+import org.example.projetc_backend.dto.MetricSeriesResponse;
+import org.example.projetc_backend.entity.DailyMetric;
+import org.example.projetc_backend.repository.DailyMetricRepository;
+import org.example.projetc_backend.repository.PaymentRepository;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.example.projetc_backend.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Duy trì bảng Daily_Metrics (doanh thu, lượt đăng ký, lượt hoàn thành quiz theo ngày) và phục vụ chuỗi thời gian.
+ * - Ghi nhận tăng dần: các service gọi record*() trong transaction nghiệp vụ; sau commit, giá trị được cộng vào
+ *   bộ đệm trong bộ nhớ kèm thời điểm ghi nhận và định kỳ ghi xuống bằng một câu upsert cho mỗi (metric, ngày).
+ * - Backfill: tính lại các ngày đã qua từ bảng gốc bằng GROUP BY theo từng tháng; tự chạy khi bảng trống và
+ *   hằng đêm cho vài ngày gần nhất để sửa sai lệch (ví dụ bộ đệm bị mất khi node dừng đột ngột).
+ * Mỗi dòng tính lại lưu thời điểm đọc bảng gốc (recomputed_at). Khi ghi bộ đệm (của node này hay node khác), giá trị
+ * ghi nhận trước mốc đó bị bỏ qua vì đã được đếm trong kết quả tính lại, nên backfill và cộng dồn không đếm trùng.
+ */
+@Service
+public class MetricsRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsRollupService.class);
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private record DayKey(DailyMetric.Metric metric, LocalDate day) {}
+
+    // Thời điểm ghi nhận (sau commit) là một phần của khóa để có thể so với mốc tính lại của dòng
+    private record BufferKey(DailyMetric.Metric metric, LocalDate day, LocalDateTime recordedAt) {}
+
+    private record Delta(long count, BigDecimal amount) {
+        Delta plus(Delta other) {
+            return new Delta(count + other.count, amount.add(other.amount));
+        }
+    }
+
+    private final DailyMetricRepository dailyMetricRepository;
+    private final PaymentRepository paymentRepository;
+    private final UserRepository userRepository;
+    private final QuizResultRepository quizResultRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final ConcurrentHashMap<BufferKey, Delta> buffer = new ConcurrentHashMap<>();
+
+    @Value("${app.metrics.rollup.reconcile-days:3}")
+    private int reconcileDays;
+
+    @Value("${app.metrics.rollup.max-range-days:3660}")
+    private int maxRangeDays;
+
+    public MetricsRollupService(DailyMetricRepository dailyMetricRepository, PaymentRepository paymentRepository,
+                                UserRepository userRepository, QuizResultRepository quizResultRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Qualifier("statsQueryExecutor") ThreadPoolTaskExecutor executor) {
+        this.dailyMetricRepository = dailyMetricRepository;
+        this.paymentRepository = paymentRepository;
+        this.userRepository = userRepository;
+        this.quizResultRepository = quizResultRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+    }
+
+    public void recordRevenue(LocalDateTime paymentDate, BigDecimal amount) {
+        record(DailyMetric.Metric.REVENUE, paymentDate, 1, amount != null ? amount : BigDecimal.ZERO);
+    }
+
+    public void recordSignups(LocalDateTime createdAt, long count) {
+        record(DailyMetric.Metric.SIGNUPS, createdAt, count, BigDecimal.ZERO);
+    }
+
+    public void recordQuizCompletion(LocalDateTime completedAt) {
+        record(DailyMetric.Metric.QUIZ_COMPLETIONS, completedAt, 1, BigDecimal.ZERO);
+    }
+
+    private void record(DailyMetric.Metric metric, LocalDateTime at, long count, BigDecimal amount) {
+        LocalDate day = (at != null ? at : LocalDateTime.now()).toLocalDate();
+        Delta delta = new Delta(count, amount);
+        // Chỉ cộng khi transaction nghiệp vụ commit thành công
+        AfterCommit.run(() -> buffer.merge(new BufferKey(metric, day, LocalDateTime.now()), delta, Delta::plus));
+    }
+
+    /**
+     * Ghi bộ đệm xuống DB. Mỗi khóa được lấy ra nguyên tử (remove), nên giá trị cộng thêm đồng thời không bị mất;
+     * nếu ghi một ngày lỗi, giá trị của ngày đó được trả lại bộ đệm cho lần sau và các ngày khác vẫn được ghi.
+     */
+    @Scheduled(fixedDelayString = "${app.metrics.rollup.flush-interval-ms:10000}")
+    public void flush() {
+        Map<DayKey, Map<BufferKey, Delta>> drained = new HashMap<>();
+        for (BufferKey key : buffer.keySet()) {
+            Delta delta = buffer.remove(key);
+            if (delta != null) {
+                drained.computeIfAbsent(new DayKey(key.metric(), key.day()), k -> new HashMap<>()).put(key, delta);
+            }
+        }
+        for (Map.Entry<DayKey, Map<BufferKey, Delta>> entry : drained.entrySet()) {
+            DayKey day = entry.getKey();
+            try {
+                transactionTemplate.executeWithoutResult(status -> applyDeltas(day, entry.getValue()));
+            } catch (RuntimeException e) {
+                entry.getValue().forEach((key, delta) -> buffer.merge(key, delta, Delta::plus));
+                logger.warn("Không ghi được số liệu {} ngày {}: {}", day.metric(), day.day(), e.getMessage());
+            }
+        }
+    }
+
+    private void applyDeltas(DayKey day, Map<BufferKey, Delta> deltas) {
+        LocalDateTime recomputedAt = dailyMetricRepository.findForUpdate(day.metric(), day.day())
+                .map(DailyMetric::getRecomputedAt)
+                .orElse(null);
+        Delta total = new Delta(0, BigDecimal.ZERO);
+        for (Map.Entry<BufferKey, Delta> entry : deltas.entrySet()) {
+            // Ghi nhận trước lần tính lại gần nhất đã nằm trong kết quả tính lại
+            if (recomputedAt == null || !entry.getKey().recordedAt().isBefore(recomputedAt)) {
+                total = total.plus(entry.getValue());
+            }
+        }
+        if (total.count() != 0 || total.amount().signum() != 0) {
+            dailyMetricRepository.addToDay(day.metric().name(), day.day(), total.count(), total.amount());
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Lần đầu khởi động với bảng trống: backfill toàn bộ lịch sử ở nền.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        executor.execute(() -> {
+            try {
+                if (dailyMetricRepository.count() == 0) {
+                    backfill(null, null);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Backfill số liệu theo ngày thất bại: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Hằng đêm tính lại vài ngày gần nhất (không gồm hôm nay, vì hôm nay vẫn đang được cộng dồn).
+     */
+    @Scheduled(cron = "${app.metrics.rollup.reconcile-cron:0 15 0 * * *}")
+    public void reconcileRecentDays() {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        try {
+            backfill(yesterday.minusDays(Math.max(0, reconcileDays - 1)), yesterday);
+        } catch (RuntimeException e) {
+            logger.warn("Đối soát số liệu theo ngày thất bại: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tính lại các dòng Daily_Metrics từ bảng gốc cho khoảng [from, to], theo từng tháng một transaction.
+     * Chỉ xử lý các ngày đã qua; ngày hôm nay do cơ chế cộng dồn đảm nhiệm.
+     * @param from Ngày bắt đầu; null nghĩa là từ bản ghi sớm nhất.
+     * @param to Ngày kết thúc; null hoặc từ hôm nay trở đi sẽ được cắt về hôm qua.
+     * @return Số dòng đã ghi.
+     */
+    public int backfill(LocalDate from, LocalDate to) {
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        LocalDate end = to == null || to.isAfter(yesterday) ? yesterday : to;
+        flush();
+
+        int written = 0;
+        for (DailyMetric.Metric metric : DailyMetric.Metric.values()) {
+            LocalDate start = from != null ? from : earliestDate(metric).orElse(null);
+            if (start == null || start.isAfter(end)) {
+                continue;
+            }
+            for (LocalDate monthStart = start; !monthStart.isAfter(end);
+                 monthStart = monthStart.with(TemporalAdjusters.firstDayOfNextMonth())) {
+                LocalDate windowStart = monthStart;
+                LocalDate windowEnd = monthStart.with(TemporalAdjusters.lastDayOfMonth());
+                LocalDate windowLast = windowEnd.isAfter(end) ? end : windowEnd;
+                Integer count = transactionTemplate.execute(status -> rebuildWindow(metric, windowStart, windowLast));
+                written += count != null ? count : 0;
+            }
+        }
+        logger.info("Backfill Daily_Metrics xong: {} dòng.", written);
+        return written;
+    }
+
+    private int rebuildWindow(DailyMetric.Metric metric, LocalDate from, LocalDate to) {
+        LocalDateTime fromTime = from.atStartOfDay();
+        LocalDateTime toTime = to.plusDays(1).atStartOfDay();
+        // Xóa trước để giữ khóa các dòng: flush đồng thời phải đợi transaction này commit rồi mới đọc mốc tính lại
+        dailyMetricRepository.deleteRange(metric, from, to);
+        LocalDateTime readAt = LocalDateTime.now();
+        List<Object[]> rows = switch (metric) {
+            case REVENUE -> paymentRepository.sumCompletedByDay(fromTime, toTime);
+            case SIGNUPS -> userRepository.countSignupsByDay(fromTime, toTime);
+            case QUIZ_COMPLETIONS -> quizResultRepository.countCompletionsByDay(fromTime, toTime);
+        };
+
+        List<DailyMetric> entities = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            DailyMetric entity = new DailyMetric();
+            entity.setMetric(metric);
+            entity.setMetricDate((LocalDate) row[0]);
+            entity.setEventCount(((Number) row[1]).longValue());
+            entity.setAmount(row.length > 2 && row[2] != null ? (BigDecimal) row[2] : BigDecimal.ZERO);
+            entity.setRecomputedAt(readAt);
+            entities.add(entity);
+        }
+        dailyMetricRepository.saveAll(entities);
+        return entities.size();
+    }
+
+    private Optional<LocalDate> earliestDate(DailyMetric.Metric metric) {
+        Optional<LocalDateTime> earliest = switch (metric) {
+            case REVENUE -> paymentRepository.findEarliestPaymentDate();
+            case SIGNUPS -> userRepository.findEarliestCreatedAt();
+            case QUIZ_COMPLETIONS -> quizResultRepository.findEarliestCompletedAt();
+        };
+        return earliest.map(LocalDateTime::toLocalDate);
+    }
+
+    /**
+     * Lấy chuỗi thời gian của một số liệu, gộp theo ngày/tuần (bắt đầu thứ Hai)/tháng.
+     * Các kỳ không có dữ liệu được trả về với giá trị 0.
+     * @throws IllegalArgumentException Nếu tham số không hợp lệ hoặc khoảng thời gian quá dài.
+     */
+    public MetricSeriesResponse getSeries(String metricName, LocalDate from, LocalDate to, String granularityName) {
+        if (metricName == null || from == null || to == null) {
+            throw new IllegalArgumentException("metric, from và to là bắt buộc.");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Ngày kết thúc phải sau hoặc bằng ngày bắt đầu.");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxRangeDays) {
+            throw new IllegalArgumentException("Khoảng thời gian không được vượt quá " + maxRangeDays + " ngày.");
+        }
+        DailyMetric.Metric metric;
+        Granularity granularity;
+        try {
+            metric = DailyMetric.Metric.valueOf(metricName.toUpperCase(Locale.ROOT));
+            granularity = granularityName == null ? Granularity.DAY : Granularity.valueOf(granularityName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("metric phải là REVENUE, SIGNUPS hoặc QUIZ_COMPLETIONS; granularity phải là DAY, WEEK hoặc MONTH.");
+        }
+
+        Map<LocalDate, MetricPoint> buckets = new TreeMap<>();
+        for (LocalDate period = periodStart(from, granularity); !period.isAfter(to); period = nextPeriod(period, granularity)) {
+            buckets.put(period, new MetricPoint(period, 0, BigDecimal.ZERO));
+        }
+        for (DailyMetric row : dailyMetricRepository.findByMetricAndMetricDateBetweenOrderByMetricDate(metric, from, to)) {
+            LocalDate period = periodStart(row.getMetricDate(), granularity);
+            MetricPoint point = buckets.get(period);
+            buckets.put(period, new MetricPoint(period, point.count() + row.getEventCount(), point.amount().add(row.getAmount())));
+        }
+        return new MetricSeriesResponse(metric.name(), granularity.name(), from, to, new ArrayList<>(buckets.values()));
+    }
+
+    private static LocalDate periodStart(LocalDate day, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static LocalDate nextPeriod(LocalDate period, Granularity granularity) {
+        return switch (granularity) {
+            case DAY -> period.plusDays(1);
+            case WEEK -> period.plusWeeks(1);
+            case MONTH -> period.plusMonths(1);
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package org.example.projetc_backend.service;
 
+import org.example.projetc_backend.dto.BulkOrderRequest;
 import org.example.projetc_backend.dto.OrderItemRequest;
 import org.example.projetc_backend.dto.OrderDetailResponse;
 import org.example.projetc_backend.dto.OrderRequest;
@@ -14,44 +15,74 @@ import org.example.projetc_backend.repository.OrderDetailRepository;
 import org.example.projetc_backend.repository.OrderRepository;
 import org.example.projetc_backend.repository.UserRepository;
 import org.example.projetc_backend.repository.LessonRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable; // Bổ sung import Pageable
 
 import jakarta.persistence.criteria.Predicate;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class OrderService {
 
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (user_id, order_date, total_amount, status) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ORDER_DETAIL_SQL =
+            "INSERT INTO order_details (order_id, lesson_id, quantity, price_at_purchase) VALUES (?, ?, ?, ?)";
+    private static final int ORDER_ID_CHUNK = 1000;
+
     private final OrderRepository orderRepository;
     private final OrderDetailRepository orderDetailRepository;
     private final UserRepository userRepository;
     private final LessonRepository lessonRepository;
     private final LessonService lessonService; // Để map Lesson Entity sang DTO
+    private final JdbcTemplate jdbcTemplate;
     // Đã loại bỏ EnrollmentService khỏi OrderService,
     // logic cấp quyền học sẽ được xử lý trong PaymentService sau khi thanh toán hoàn tất (hoặc EnrollmentService riêng biệt).
 
+    @Value("${app.order.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.order.bulk-max-orders:1000}")
+    private int bulkMaxOrders;
+
     public OrderService(OrderRepository orderRepository, OrderDetailRepository orderDetailRepository,
                         UserRepository userRepository, LessonRepository lessonRepository,
-                        LessonService lessonService) {
+                        LessonService lessonService, JdbcTemplate jdbcTemplate) {
         this.orderRepository = orderRepository;
         this.orderDetailRepository = orderDetailRepository;
         this.userRepository = userRepository;
         this.lessonRepository = lessonRepository;
         this.lessonService = lessonService;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
      * Tạo một đơn hàng mới từ yêu cầu của người dùng.
      * Bao gồm việc tạo các chi tiết đơn hàng và tính tổng số tiền.
+     * Các bài học được tải bằng một truy vấn duy nhất; bài học trùng lặp được gộp thành một dòng (cộng dồn số lượng).
      *
      * @param request DTO chứa User ID và danh sách các mục (bài học) trong đơn hàng.
      * @return OrderResponse của đơn hàng đã tạo.
@@ -63,52 +94,143 @@ public class OrderService {
         if (request == null || request.userId() == null || request.items() == null || request.items().isEmpty()) {
             throw new IllegalArgumentException("Yêu cầu đơn hàng phải chứa User ID và ít nhất một mục (item).");
         }
+        return createOrders(List.of(request)).get(0);
+    }
 
-        // 2. Tìm và xác thực người dùng
-        User user = userRepository.findById(request.userId())
-                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng với ID: " + request.userId()));
-
-        // 3. Khởi tạo Order và các thuộc tính ban đầu
-        Order order = new Order();
-        order.setUser(user);
-        order.setOrderDate(LocalDateTime.now());
-        order.setStatus(Order.OrderStatus.PENDING); // Mặc định là PENDING khi tạo
-
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        List<OrderDetail> orderDetails = new ArrayList<>();
-
-        // 4. Xử lý từng OrderItemRequest để tạo OrderDetail
-        for (OrderItemRequest itemRequest : request.items()) {
-            // Tìm và xác thực bài học
-            Lesson lesson = lessonRepository.findById(itemRequest.lessonId())
-                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy bài học với ID: " + itemRequest.lessonId() + " trong danh sách đặt hàng."));
-
-            BigDecimal lessonPrice = lesson.getPrice();
-            if (lessonPrice == null) {
-                throw new IllegalArgumentException("Giá của bài học ID " + itemRequest.lessonId() + " không được xác định.");
+    /**
+     * Tạo nhiều đơn hàng trong một lần gọi (ví dụ: doanh nghiệp mua khóa học cho cả lớp).
+     * Toàn bộ lô được tạo trong một transaction: nếu một đơn hàng không hợp lệ thì không đơn nào được tạo.
+     * Người dùng và bài học của cả lô được tải bằng hai truy vấn; đơn hàng và chi tiết đơn hàng được chèn theo lô JDBC.
+     *
+     * @param request DTO chứa danh sách OrderRequest.
+     * @return Danh sách OrderResponse theo đúng thứ tự yêu cầu.
+     * @throws IllegalArgumentException nếu lô rỗng, vượt quá giới hạn, hoặc một đơn hàng không hợp lệ.
+     */
+    @Transactional
+    public List<OrderResponse> createOrdersInBulk(BulkOrderRequest request) {
+        if (request == null || request.orders() == null || request.orders().isEmpty()) {
+            throw new IllegalArgumentException("Yêu cầu phải chứa ít nhất một đơn hàng.");
+        }
+        if (request.orders().size() > bulkMaxOrders) {
+            throw new IllegalArgumentException("Mỗi lần chỉ được tạo tối đa " + bulkMaxOrders + " đơn hàng.");
+        }
+        for (int i = 0; i < request.orders().size(); i++) {
+            OrderRequest order = request.orders().get(i);
+            if (order == null || order.userId() == null || order.items() == null || order.items().isEmpty()) {
+                throw new IllegalArgumentException("Đơn hàng thứ " + (i + 1) + " phải chứa User ID và ít nhất một mục (item).");
             }
+        }
+        return createOrders(request.orders());
+    }
 
-            // Tạo OrderDetail và thiết lập các thuộc tính
-            OrderDetail orderDetail = new OrderDetail();
-            orderDetail.setLesson(lesson);
-            orderDetail.setQuantity(itemRequest.quantity());
-            orderDetail.setPriceAtPurchase(lessonPrice); // Lưu giá tại thời điểm mua
-            orderDetail.setOrder(order); // Gắn Order (chưa được lưu) vào OrderDetail, quan trọng cho cascade persist
-            orderDetails.add(orderDetail);
+    private List<OrderResponse> createOrders(List<OrderRequest> requests) {
+        // 1. Tải toàn bộ người dùng và bài học cần thiết bằng một truy vấn cho mỗi loại
+        Set<Integer> userIds = requests.stream().map(OrderRequest::userId).collect(Collectors.toSet());
+        Set<Integer> lessonIds = new HashSet<>();
+        for (OrderRequest request : requests) {
+            for (OrderItemRequest item : request.items()) {
+                if (item == null || item.lessonId() == null || item.quantity() == null || item.quantity() <= 0) {
+                    throw new IllegalArgumentException("Mỗi mục trong đơn hàng phải có Lesson ID và số lượng lớn hơn 0.");
+                }
+                lessonIds.add(item.lessonId());
+            }
+        }
+        Map<Integer, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getUserId, u -> u));
+        Map<Integer, Lesson> lessons = lessonRepository.findAllById(lessonIds).stream()
+                .collect(Collectors.toMap(Lesson::getLessonId, l -> l));
+
+        // 2. Dựng Order và OrderDetail trong bộ nhớ, gộp bài học trùng lặp
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(requests.size());
+        for (OrderRequest request : requests) {
+            User user = users.get(request.userId());
+            if (user == null) {
+                throw new IllegalArgumentException("Không tìm thấy người dùng với ID: " + request.userId());
+            }
+            Map<Integer, Integer> quantities = new LinkedHashMap<>();
+            for (OrderItemRequest item : request.items()) {
+                quantities.merge(item.lessonId(), item.quantity(), Integer::sum);
+            }
 
-            // Tính toán tổng số tiền
-            totalAmount = totalAmount.add(lessonPrice.multiply(BigDecimal.valueOf(itemRequest.quantity())));
+            Order order = new Order();
+            order.setUser(user);
+            order.setOrderDate(now);
+            order.setStatus(Order.OrderStatus.PENDING); // Mặc định là PENDING khi tạo
+
+            BigDecimal totalAmount = BigDecimal.ZERO;
+            List<OrderDetail> orderDetails = new ArrayList<>(quantities.size());
+            for (Map.Entry<Integer, Integer> item : quantities.entrySet()) {
+                Lesson lesson = lessons.get(item.getKey());
+                if (lesson == null) {
+                    throw new IllegalArgumentException("Không tìm thấy bài học với ID: " + item.getKey() + " trong danh sách đặt hàng.");
+                }
+                BigDecimal lessonPrice = lesson.getPrice();
+                if (lessonPrice == null) {
+                    throw new IllegalArgumentException("Giá của bài học ID " + item.getKey() + " không được xác định.");
+                }
+                // Lưu giá tại thời điểm mua
+                orderDetails.add(new OrderDetail(order, lesson, item.getValue(), lessonPrice));
+                totalAmount = totalAmount.add(lessonPrice.multiply(BigDecimal.valueOf(item.getValue())));
+            }
+            order.setTotalAmount(totalAmount);
+            order.setOrderDetails(orderDetails);
+            orders.add(order);
         }
 
-        // 5. Gán tổng số tiền và danh sách OrderDetails vào Order
-        order.setTotalAmount(totalAmount);
-        order.setOrderDetails(orderDetails); // Gắn danh sách OrderDetail vào Order để cascade persist hoạt động
+        // 3. Chèn đơn hàng rồi chi tiết đơn hàng theo lô JDBC (khóa IDENTITY khiến Hibernate không gộp lô được)
+        List<Number> orderIds = insertReturningKeys(INSERT_ORDER_SQL, orders, (ps, order) -> {
+            ps.setInt(1, order.getUser().getUserId());
+            ps.setTimestamp(2, Timestamp.valueOf(order.getOrderDate()));
+            ps.setBigDecimal(3, order.getTotalAmount());
+            ps.setString(4, order.getStatus().name());
+        });
+        for (int i = 0; i < orders.size(); i++) {
+            orders.get(i).setOrderId(orderIds.get(i).intValue());
+        }
+        List<OrderDetail> allDetails = orders.stream()
+                .flatMap(order -> order.getOrderDetails().stream())
+                .collect(Collectors.toList());
+        List<Number> detailIds = insertReturningKeys(INSERT_ORDER_DETAIL_SQL, allDetails, (ps, detail) -> {
+            ps.setInt(1, detail.getOrder().getOrderId());
+            ps.setInt(2, detail.getLesson().getLessonId());
+            ps.setInt(3, detail.getQuantity());
+            ps.setBigDecimal(4, detail.getPriceAtPurchase());
+        });
+        for (int i = 0; i < allDetails.size(); i++) {
+            allDetails.get(i).setOrderDetailId(detailIds.get(i).intValue());
+        }
 
-        // 6. Lưu Order (và cả OrderDetails nhờ CascadeType.ALL và orphanRemoval=true trên Order entity)
-        Order savedOrder = orderRepository.save(order);
+        // 4. Trả về Response DTO (các Order ở trên không được quản lý bởi persistence context)
+        return orders.stream().map(this::mapToOrderResponse).collect(Collectors.toList());
+    }
 
-        // 7. Trả về Response DTO
-        return mapToOrderResponse(savedOrder);
+    private <T> List<Number> insertReturningKeys(String sql, List<T> rows, ParameterizedPreparedStatementSetter<T> setter) {
+        List<Number> keys = new ArrayList<>(rows.size());
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            List<T> batch = rows.subList(from, Math.min(from + batchSize, rows.size()));
+            GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            setter.setValues(ps, batch.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return batch.size();
+                        }
+                    }, keyHolder);
+            List<Map<String, Object>> generated = keyHolder.getKeyList();
+            if (generated.size() != batch.size()) {
+                throw new IllegalStateException("Số khóa sinh ra (" + generated.size() + ") không khớp số dòng đã chèn (" + batch.size() + ").");
+            }
+            for (Map<String, Object> key : generated) {
+                keys.add((Number) key.values().iterator().next());
+            }
+        }
+        return keys;
     }
 
     /**
@@ -135,9 +257,19 @@ public class OrderService {
      */
     @Transactional(readOnly = true)
     public List<OrderResponse> getAllOrders() {
-        return orderRepository.findAll().stream()
-                .map(this::mapToOrderResponse)
-                .collect(Collectors.toList());
+        return mapToOrderResponses(orderRepository.findAllByOrderByOrderIdAsc());
+    }
+
+    /**
+     * Lấy một trang đơn hàng trong hệ thống.
+     * Số truy vấn cố định cho mỗi trang: đơn hàng (kèm user, payment), đếm tổng, và chi tiết đơn hàng (kèm bài học).
+     *
+     * @param pageable Đối tượng Pageable cho phân trang và sắp xếp.
+     * @return Trang kết quả chứa OrderResponse.
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderResponse> getOrders(Pageable pageable) {
+        return mapToOrderResponsePage(orderRepository.findAllBy(pageable));
     }
 
     /**
@@ -152,11 +284,29 @@ public class OrderService {
         if (userId == null) {
             throw new IllegalArgumentException("User ID không được để trống.");
         }
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng với ID: " + userId));
-        return orderRepository.findByUser(user).stream()
-                .map(this::mapToOrderResponse)
-                .collect(Collectors.toList());
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("Không tìm thấy người dùng với ID: " + userId);
+        }
+        return mapToOrderResponses(orderRepository.findAllByUserUserIdOrderByOrderIdAsc(userId));
+    }
+
+    /**
+     * Lấy một trang đơn hàng của một người dùng cụ thể.
+     *
+     * @param userId ID của người dùng.
+     * @param pageable Đối tượng Pageable cho phân trang và sắp xếp.
+     * @return Trang kết quả chứa OrderResponse.
+     * @throws IllegalArgumentException nếu User ID null hoặc không tìm thấy người dùng.
+     */
+    @Transactional(readOnly = true)
+    public Page<OrderResponse> getOrdersByUserId(Integer userId, Pageable pageable) {
+        if (userId == null) {
+            throw new IllegalArgumentException("User ID không được để trống.");
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("Không tìm thấy người dùng với ID: " + userId);
+        }
+        return mapToOrderResponsePage(orderRepository.findAllByUserUserId(userId, pageable));
     }
 
     /**
@@ -211,9 +361,8 @@ public class OrderService {
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
 
-        // Sử dụng phương thức findAll(Specification, Pageable)
-        return orderRepository.findAll(spec, pageable)
-                .map(this::mapToOrderResponse); // Ánh xạ từng Order trong Page sang OrderResponse
+        // Sử dụng phương thức findAll(Specification, Pageable) (đã khai báo EntityGraph tải kèm user, payment)
+        return mapToOrderResponsePage(orderRepository.findAll(spec, pageable));
     }
 
     /**
@@ -259,6 +408,31 @@ public class OrderService {
 
     // --- Helper mapping methods ---
 
+    private Page<OrderResponse> mapToOrderResponsePage(Page<Order> page) {
+        return new PageImpl<>(mapToOrderResponses(page.getContent()), page.getPageable(), page.getTotalElements());
+    }
+
+    /**
+     * Ánh xạ một danh sách Order sang OrderResponse, tải chi tiết đơn hàng (kèm bài học) của cả danh sách
+     * bằng một truy vấn cho mỗi nhóm ORDER_ID_CHUNK đơn hàng thay vì lazy load từng đơn.
+     */
+    private List<OrderResponse> mapToOrderResponses(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, List<OrderDetail>> detailsByOrder = new HashMap<>();
+        List<Integer> orderIds = orders.stream().map(Order::getOrderId).collect(Collectors.toList());
+        for (int from = 0; from < orderIds.size(); from += ORDER_ID_CHUNK) {
+            List<Integer> chunk = orderIds.subList(from, Math.min(from + ORDER_ID_CHUNK, orderIds.size()));
+            for (OrderDetail detail : orderDetailRepository.findWithLessonByOrderIds(chunk)) {
+                detailsByOrder.computeIfAbsent(detail.getOrder().getOrderId(), id -> new ArrayList<>()).add(detail);
+            }
+        }
+        return orders.stream()
+                .map(order -> mapToOrderResponse(order, detailsByOrder.getOrDefault(order.getOrderId(), List.of())))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Ánh xạ Order entity sang OrderResponse DTO.
      * Bao gồm ánh xạ User và OrderDetail.
@@ -267,6 +441,10 @@ public class OrderService {
      * @return OrderResponse DTO.
      */
     private OrderResponse mapToOrderResponse(Order order) {
+        return mapToOrderResponse(order, order.getOrderDetails());
+    }
+
+    private OrderResponse mapToOrderResponse(Order order, List<OrderDetail> orderDetails) {
         UserResponse userResponse = null;
         if (order.getUser() != null) {
             // Map User entity sang UserResponse DTO để tránh lộ thông tin nhạy cảm (ví dụ: password)
@@ -284,10 +462,10 @@ public class OrderService {
 
         // Lấy OrderDetails từ Order và map sang OrderDetailResponse
         List<OrderDetailResponse> itemResponses = new ArrayList<>();
-        if (order.getOrderDetails() != null) {
+        if (orderDetails != null) {
             // Đảm bảo OrderDetails được tải (Lazy loading) nếu cần thiết
             // Nếu fetch type là LAZY, bạn có thể cần truy cập chúng để kích hoạt tải
-            itemResponses = order.getOrderDetails().stream()
+            itemResponses = orderDetails.stream()
                     .map(this::mapToOrderDetailResponse) // Gọi phương thức ánh xạ OrderDetail
                     .collect(Collectors.toList());
         }
@@ -0,0 +1,117 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.entity.PasswordResetOtp;
+import org.example.projetc_backend.repository.PasswordResetOtpRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Quản lý OTP đặt lại mật khẩu trong bảng Password_Reset_Otps (tra cứu theo email có index duy nhất).
+ * Mã được sinh bằng SecureRandom, chỉ lưu hash, so sánh theo thời gian hằng
+ * và giới hạn số lần nhập sai cho mỗi email. OTP hết hạn được dọn định kỳ.
+ */
+@Service
+public class OtpService {
+    private static final Logger logger = LoggerFactory.getLogger(OtpService.class);
+
+    private final PasswordResetOtpRepository otpRepository;
+    private final SecureRandom secureRandom = new SecureRandom();
+
+    @Value("${app.otp.ttl-minutes:10}")
+    private long ttlMinutes;
+
+    @Value("${app.otp.max-failed-attempts:5}")
+    private int maxFailedAttempts;
+
+    public OtpService(PasswordResetOtpRepository otpRepository) {
+        this.otpRepository = otpRepository;
+    }
+
+    /**
+     * Sinh OTP mới cho email, thay thế OTP cũ (nếu có) và đặt lại bộ đếm nhập sai.
+     * @param email Email người dùng.
+     * @return Mã OTP 6 chữ số (dạng rõ) để gửi cho người dùng.
+     * @throws IllegalArgumentException Nếu một yêu cầu song song cho cùng email vừa tạo OTP trước (khóa duy nhất email).
+     */
+    @Transactional
+    public String issue(String email) {
+        String otp = String.format("%06d", secureRandom.nextInt(1_000_000));
+        LocalDateTime now = LocalDateTime.now();
+
+        PasswordResetOtp entry = otpRepository.findByEmail(email).orElseGet(PasswordResetOtp::new);
+        entry.setEmail(email);
+        entry.setOtpHash(hash(otp));
+        entry.setExpiresAt(now.plusMinutes(ttlMinutes));
+        entry.setFailedAttempts(0);
+        entry.setCreatedAt(now);
+        try {
+            otpRepository.saveAndFlush(entry);
+        } catch (DataIntegrityViolationException e) {
+            // Hai yêu cầu đồng thời cùng không thấy OTP cũ và cùng chèn dòng mới
+            throw new IllegalArgumentException("Mã OTP cho email này vừa được tạo, vui lòng thử lại sau giây lát.");
+        }
+        return otp;
+    }
+
+    /**
+     * Kiểm tra OTP và hủy nó nếu đúng (mỗi OTP chỉ dùng được một lần).
+     * Lần nhập sai được ghi nhận ngay cả khi ném ngoại lệ; dòng OTP bị khóa trong lúc kiểm tra nên các lần nhập
+     * đồng thời được đếm đủ.
+     * @throws IllegalArgumentException Nếu OTP không hợp lệ, đã hết hạn hoặc đã vượt quá số lần thử.
+     */
+    @Transactional(noRollbackFor = IllegalArgumentException.class)
+    public void verifyAndConsume(String email, String otp) {
+        PasswordResetOtp entry = otpRepository.findForUpdateByEmail(email)
+                .orElseThrow(() -> new IllegalArgumentException("Email hoặc OTP không hợp lệ."));
+
+        if (entry.getExpiresAt().isBefore(LocalDateTime.now())) {
+            otpRepository.delete(entry);
+            throw new IllegalArgumentException("Mã OTP đã hết hạn.");
+        }
+
+        boolean matches = MessageDigest.isEqual(
+                entry.getOtpHash().getBytes(StandardCharsets.US_ASCII),
+                hash(otp).getBytes(StandardCharsets.US_ASCII));
+        if (!matches) {
+            int failed = entry.getFailedAttempts() + 1;
+            if (failed >= maxFailedAttempts) {
+                otpRepository.delete(entry);
+                throw new IllegalArgumentException("Nhập sai OTP quá nhiều lần. Vui lòng yêu cầu mã mới.");
+            }
+            entry.setFailedAttempts(failed);
+            otpRepository.save(entry);
+            throw new IllegalArgumentException("Email hoặc OTP không hợp lệ.");
+        }
+
+        otpRepository.delete(entry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.otp.sweep-interval-ms:60000}")
+    public void sweepExpired() {
+        int removed = otpRepository.deleteExpired(LocalDateTime.now());
+        if (removed > 0) {
+            logger.debug("Removed {} expired password reset OTPs", removed);
+        }
+    }
+
+    private static String hash(String otp) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(otp.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Không hỗ trợ thuật toán SHA-256", e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thực hiện mọi thao tác băm/kiểm tra mật khẩu trên pool passwordHashingExecutor có giới hạn.
+ * Khi pool và hàng đợi đầy (hoặc chờ quá lâu), ném ServiceBusyException để trả về 503 thay vì
+ * để công việc BCrypt chiếm toàn bộ CPU của node.
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolTaskExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchTimer;
+    private final Counter rejectedCounter;
+
+    @Value("${app.password-hashing.wait-timeout-ms:5000}")
+    private long waitTimeoutMs;
+
+    @Value("${app.password-hashing.retry-after-seconds:2}")
+    private long retryAfterSeconds;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder,
+                                  @Qualifier("passwordHashingExecutor") ThreadPoolTaskExecutor executor,
+                                  MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.executor = executor;
+        this.encodeTimer = meterRegistry.timer("app.password.hash", "operation", "encode");
+        this.matchTimer = meterRegistry.timer("app.password.hash", "operation", "matches");
+        this.rejectedCounter = meterRegistry.counter("app.password.hash.rejected");
+        Gauge.builder("app.password.hash.queue", executor, e -> e.getThreadPoolExecutor().getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("app.password.hash.active", executor, ThreadPoolTaskExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    public String encode(String rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    public boolean matches(String rawPassword, String encodedPassword) {
+        return submit(() -> matchTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * Băm nhiều mật khẩu song song trên cùng pool (dùng cho nhập người dùng hàng loạt).
+     * Số tác vụ đang chờ của một lần gọi được giới hạn bằng số thread của pool, để phần còn lại của
+     * hàng đợi vẫn dành cho đăng nhập/đăng ký thông thường.
+     * @return Danh sách mật khẩu đã băm, cùng thứ tự với đầu vào.
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        int window = Math.max(1, executor.getMaxPoolSize());
+        List<Future<String>> futures = new ArrayList<>(rawPasswords.size());
+        List<String> hashes = new ArrayList<>(rawPasswords.size());
+        for (String rawPassword : rawPasswords) {
+            Callable<String> task = () -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword));
+            while (true) {
+                if (futures.size() - hashes.size() >= window) {
+                    hashes.add(await(futures.get(hashes.size())));
+                }
+                try {
+                    futures.add(executor.submit(task));
+                    break;
+                } catch (TaskRejectedException e) {
+                    if (futures.size() == hashes.size()) {
+                        // Pool đầy bởi request khác và không còn tác vụ nào của mình để chờ
+                        rejectedCounter.increment();
+                        throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau.", retryAfterSeconds);
+                    }
+                    hashes.add(await(futures.get(hashes.size())));
+                }
+            }
+        }
+        while (hashes.size() < futures.size()) {
+            hashes.add(await(futures.get(hashes.size())));
+        }
+        return hashes;
+    }
+
+    private <T> T submit(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (TaskRejectedException e) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau.", retryAfterSeconds);
+        }
+        return await(future);
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Hệ thống đang bận, vui lòng thử lại sau.", retryAfterSeconds);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bị gián đoạn khi băm mật khẩu.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Lỗi khi băm mật khẩu.", e.getCause());
+        }
+    }
+}
@@ -1,17 +1,21 @@
 package org.example.projetc_backend.service;
 
 import com.paypal.api.payments.*;
+import com.paypal.base.Constants;
 import com.paypal.base.rest.APIContext;
 import com.paypal.base.rest.PayPalRESTException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 @Service
-public class PayPalService {
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "paypal", matchIfMissing = true)
+public class PayPalService implements PaymentGateway {
     private final APIContext apiContext;
     private final String clientId;
     private final String clientSecret;
@@ -20,12 +24,20 @@ public class PayPalService {
     public PayPalService(
             @Value("${paypal.client.id}") String clientId,
             @Value("${paypal.client.secret}") String clientSecret,
-            @Value("${paypal.mode}") String mode
+            @Value("${paypal.mode}") String mode,
+            @Value("${app.payment.gateway.connect-timeout-ms:3000}") int connectTimeoutMs,
+            @Value("${app.payment.gateway.read-timeout-ms:7000}") int readTimeoutMs
     ) {
         this.clientId = clientId;
         this.clientSecret = clientSecret;
         this.mode = mode; // <-- Gán giá trị mode vào biến instance
         this.apiContext = new APIContext(clientId, clientSecret, mode);
+        // Giới hạn thời gian chờ của HTTP client trong SDK để thread của pool cổng thanh toán không bị treo vô hạn.
+        // Không để SDK tự thử lại: mỗi lần thử lại cộng thêm một read-timeout, vượt app.payment.gateway.timeout-ms
+        // và tạo giao dịch PayPal mới sau khi client đã nhận 503 và chỗ giữ đã được trả lại.
+        this.apiContext.addConfiguration(Constants.HTTP_CONNECTION_TIMEOUT, String.valueOf(connectTimeoutMs));
+        this.apiContext.addConfiguration(Constants.HTTP_CONNECTION_READ_TIMEOUT, String.valueOf(readTimeoutMs));
+        this.apiContext.addConfiguration(Constants.HTTP_CONNECTION_RETRY, "0");
     }
 
     @PostConstruct
@@ -104,4 +116,51 @@ public class PayPalService {
         // Thực thi thanh toán
         return payment.execute(apiContext, paymentExecution);
     }
+
+    @Override
+    public GatewayPayment create(BigDecimal total, String currency, String description,
+                                 String cancelUrl, String returnUrl) {
+        try {
+            com.paypal.api.payments.Payment payment = createPayment(
+                    total.doubleValue(), currency, "paypal", "sale", description, cancelUrl, returnUrl);
+            String approvalUrl = null;
+            if (payment.getLinks() != null) {
+                for (Links link : payment.getLinks()) {
+                    if ("approval_url".equals(link.getRel())) {
+                        approvalUrl = link.getHref();
+                    }
+                }
+            }
+            return new GatewayPayment(payment.getId(), payment.getState(), approvalUrl);
+        } catch (PayPalRESTException e) {
+            throw translate("Không tạo được thanh toán PayPal", e);
+        }
+    }
+
+    @Override
+    public GatewayPayment execute(String paymentId, String payerId) {
+        try {
+            com.paypal.api.payments.Payment payment = executePayment(paymentId, payerId);
+            return new GatewayPayment(payment.getId(), payment.getState(), null);
+        } catch (PayPalRESTException e) {
+            throw translate("Không thực thi được thanh toán PayPal " + paymentId, e);
+        }
+    }
+
+    @Override
+    public GatewayPayment lookup(String paymentId) {
+        try {
+            com.paypal.api.payments.Payment payment = com.paypal.api.payments.Payment.get(apiContext, paymentId);
+            return new GatewayPayment(payment.getId(), payment.getState(), null);
+        } catch (PayPalRESTException e) {
+            throw translate("Không tra cứu được thanh toán PayPal " + paymentId, e);
+        }
+    }
+
+    // Mã 0 (lỗi mạng/hết thời gian chờ), 408, 429 và 5xx là lỗi tạm thời; 4xx còn lại là lỗi nghiệp vụ
+    private static PaymentGatewayException translate(String message, PayPalRESTException e) {
+        int code = e.getResponsecode();
+        boolean transientFailure = code == 0 || code == 408 || code == 429 || code >= 500;
+        return new PaymentGatewayException(message + ": " + e.getMessage(), transientFailure, e);
+    }
 }
\ No newline at end of file
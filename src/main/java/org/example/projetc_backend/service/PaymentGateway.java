@@ -0,0 +1,30 @@
+package org.example.projetc_backend.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Cổng thanh toán từ xa mà PaymentService sử dụng. Mặc định là PayPal (PayPalService);
+ * đặt app.payment.gateway=stub để chạy với StubPaymentGateway cục bộ khi phát triển/kiểm thử.
+ * Các phương thức là lời gọi mạng đồng bộ và không được gọi bên trong transaction DB
+ * (PaymentService gọi chúng qua PaymentGatewayClient trên pool riêng).
+ */
+public interface PaymentGateway {
+
+    /**
+     * Kết quả rút gọn của một giao dịch phía cổng thanh toán.
+     * @param id ID giao dịch phía cổng thanh toán (lưu vào Payment.transactionId).
+     * @param state Trạng thái phía cổng thanh toán (ví dụ: "created", "approved", "failed").
+     * @param approvalUrl URL để người dùng phê duyệt thanh toán (chỉ có khi vừa tạo).
+     */
+    record GatewayPayment(String id, String state, String approvalUrl) {}
+
+    GatewayPayment create(BigDecimal total, String currency, String description,
+                          String cancelUrl, String returnUrl) throws PaymentGatewayException;
+
+    GatewayPayment execute(String paymentId, String payerId) throws PaymentGatewayException;
+
+    /**
+     * Tra cứu trạng thái hiện tại của một giao dịch (dùng khi đối soát các thanh toán bị treo).
+     */
+    GatewayPayment lookup(String paymentId) throws PaymentGatewayException;
+}
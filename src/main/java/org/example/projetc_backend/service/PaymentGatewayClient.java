@@ -0,0 +1,148 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Chạy các lời gọi tới cổng thanh toán trên pool paymentGatewayExecutor có giới hạn, kèm thời gian chờ và circuit breaker,
+ * để cổng thanh toán chậm không giữ thread của Tomcat hay connection của Hikari.
+ * - submit(): đưa một tác vụ (lời gọi từ xa + các transaction ngắn trước/sau) lên pool; circuit đang mở hoặc pool đầy
+ *   thì ném ServiceBusyException (503) ngay.
+ * - call(): thực hiện lời gọi từ xa bên trong tác vụ và ghi nhận kết quả cho circuit breaker.
+ * - withTimeout(): giới hạn thời gian client phải chờ; tác vụ vẫn chạy tiếp ở nền để ghi nhận kết quả thật.
+ */
+@Service
+public class PaymentGatewayClient {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentGatewayClient.class);
+
+    private final PaymentGateway gateway;
+    private final ThreadPoolTaskExecutor executor;
+    private final CircuitBreaker circuitBreaker;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+    private final Counter rejectedCounter;
+    private final Counter timeoutCounter;
+    private final Counter failureCounter;
+
+    public PaymentGatewayClient(PaymentGateway gateway,
+                                @Qualifier("paymentGatewayExecutor") ThreadPoolTaskExecutor executor,
+                                MeterRegistry meterRegistry,
+                                @Value("${app.payment.gateway.timeout-ms:10000}") long timeoutMillis,
+                                @Value("${app.payment.gateway.retry-after-seconds:5}") long retryAfterSeconds,
+                                @Value("${app.payment.gateway.circuit.failure-threshold:5}") int failureThreshold,
+                                @Value("${app.payment.gateway.circuit.open-seconds:30}") long openSeconds) {
+        this.gateway = gateway;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openSeconds * 1000);
+        this.rejectedCounter = meterRegistry.counter("payment.gateway.rejected");
+        this.timeoutCounter = meterRegistry.counter("payment.gateway.timeouts");
+        this.failureCounter = meterRegistry.counter("payment.gateway.failures");
+        Gauge.builder("payment.gateway.circuit.open", circuitBreaker, cb -> cb.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+    }
+
+    public PaymentGateway gateway() {
+        return gateway;
+    }
+
+    /**
+     * Đưa tác vụ lên pool cổng thanh toán.
+     * @throws ServiceBusyException nếu circuit đang mở hoặc pool và hàng đợi đã đầy.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        if (!circuitBreaker.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Cổng thanh toán tạm thời không khả dụng, vui lòng thử lại sau.",
+                    Math.max(retryAfterSeconds, circuitBreaker.secondsUntilRetry()));
+        }
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (TaskRejectedException e) {
+            circuitBreaker.release();
+            rejectedCounter.increment();
+            throw new ServiceBusyException("Hệ thống thanh toán đang bận, vui lòng thử lại sau.", retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Thực hiện một lời gọi tới cổng thanh toán (trên thread của pool) và ghi nhận kết quả cho circuit breaker.
+     * Lời gọi thành công nhưng chậm hơn thời gian chờ cũng bị tính là lỗi.
+     */
+    public <T> T call(Supplier<T> remoteCall) {
+        long start = System.nanoTime();
+        try {
+            T result = remoteCall.get();
+            if (System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(timeoutMillis)) {
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess();
+            }
+            return result;
+        } catch (PaymentGatewayException e) {
+            if (e.isTransientFailure()) {
+                failureCounter.increment();
+                circuitBreaker.recordFailure();
+            } else {
+                circuitBreaker.recordSuccess(); // Cổng thanh toán vẫn phản hồi bình thường
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            failureCounter.increment();
+            circuitBreaker.recordFailure();
+            throw new PaymentGatewayException("Lỗi khi gọi cổng thanh toán: " + e.getMessage(), true, e);
+        }
+    }
+
+    /**
+     * @return true nếu thời gian đã trôi qua từ startNanos vượt quá thời gian chờ của client
+     *         (client đã nhận phản hồi hết thời gian chờ).
+     */
+    public boolean timedOut(long startNanos) {
+        return System.nanoTime() - startNanos > TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    }
+
+    /**
+     * Giới hạn thời gian chờ: hết giờ thì future hoàn tất với ServiceBusyException (503).
+     */
+    public <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future) {
+        return future.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).handle((value, error) -> {
+            if (error == null) {
+                return value;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof TimeoutException) {
+                timeoutCounter.increment();
+                throw new ServiceBusyException("Cổng thanh toán phản hồi chậm, vui lòng thử lại sau.", retryAfterSeconds);
+            }
+            throw cause instanceof RuntimeException runtime ? runtime : new CompletionException(cause);
+        });
+    }
+
+    /**
+     * Giới hạn thời gian chờ: hết giờ thì future hoàn tất với giá trị dự phòng (tác vụ vẫn tiếp tục ở nền).
+     */
+    public <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, T valueOnTimeout) {
+        return future.whenComplete((value, error) -> {
+                    if (error != null) {
+                        logger.warn("Tác vụ cổng thanh toán thất bại: {}", error.getMessage());
+                    }
+                })
+                .completeOnTimeout(valueOnTimeout, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,21 @@
+package org.example.projetc_backend.service;
+
+/**
+ * Lỗi khi gọi cổng thanh toán.
+ * transientFailure = true khi lỗi do mạng hoặc cổng thanh toán gặp sự cố (5xx, hết thời gian chờ):
+ * kết quả giao dịch khi đó chưa xác định và lỗi được tính vào circuit breaker.
+ * Lỗi nghiệp vụ (4xx, ví dụ thanh toán chưa được phê duyệt) có transientFailure = false.
+ */
+public class PaymentGatewayException extends RuntimeException {
+
+    private final boolean transientFailure;
+
+    public PaymentGatewayException(String message, boolean transientFailure, Throwable cause) {
+        super(message, cause);
+        this.transientFailure = transientFailure;
+    }
+
+    public boolean isTransientFailure() {
+        return transientFailure;
+    }
+}
@@ -0,0 +1,235 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.example.projetc_backend.dto.PaymentReconciliationResponse;
+import org.example.projetc_backend.entity.Payment;
+import org.example.projetc_backend.repository.PaymentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Đối soát định kỳ các thanh toán bị treo ở PENDING/PROCESSING (người dùng đóng tab PayPal, PayPal trả lời chậm...).
+ * - Duyệt các thanh toán cũ hơn app.payment.reconcile.stale-after-minutes theo keyset (paymentId) từng lô.
+ * - Tra cứu trạng thái trên cổng thanh toán qua PaymentGatewayClient, tối đa app.payment.reconcile.parallelism lời gọi cùng lúc.
+ * - Áp dụng kết quả bằng PaymentService.reconcilePayment, mỗi thanh toán một transaction ngắn.
+ * Ở chế độ dry-run chỉ tra cứu và ghi log/metrics, không thay đổi dữ liệu.
+ */
+@Service
+public class PaymentReconciliationService {
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciliationService.class);
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final MeterRegistry meterRegistry;
+    private final Timer runTimer;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${app.payment.reconcile.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.payment.reconcile.dry-run:false}")
+    private boolean dryRun;
+
+    @Value("${app.payment.reconcile.stale-after-minutes:30}")
+    private long staleAfterMinutes;
+
+    @Value("${app.payment.reconcile.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.payment.reconcile.parallelism:4}")
+    private int parallelism;
+
+    public PaymentReconciliationService(PaymentRepository paymentRepository, PaymentService paymentService,
+                                        PaymentGatewayClient paymentGatewayClient, MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.paymentService = paymentService;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.meterRegistry = meterRegistry;
+        this.runTimer = meterRegistry.timer("payment.reconcile.run");
+    }
+
+    @Scheduled(fixedDelayString = "${app.payment.reconcile.interval-ms:600000}",
+            initialDelayString = "${app.payment.reconcile.initial-delay-ms:60000}")
+    public void reconcileScheduled() {
+        if (!enabled || running.get()) {
+            return;
+        }
+        try {
+            PaymentReconciliationResponse result = reconcile(dryRun);
+            if (result.scanned() > 0) {
+                logger.info("Đối soát thanh toán: {}", result);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Đối soát thanh toán thất bại: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Chạy một lượt đối soát.
+     * @param dryRun true để chỉ báo cáo kết quả dự kiến mà không thay đổi dữ liệu.
+     * @return Số lượng thanh toán theo từng kết quả.
+     * @throws ServiceBusyException nếu đang có một lượt đối soát khác chạy.
+     */
+    public PaymentReconciliationResponse reconcile(boolean dryRun) {
+        if (!running.compareAndSet(false, true)) {
+            throw new ServiceBusyException("Đang có một lượt đối soát thanh toán khác chạy.", 60);
+        }
+        long start = System.nanoTime();
+        try {
+            LocalDateTime staleBefore = LocalDateTime.now().minusMinutes(staleAfterMinutes);
+            Tally tally = new Tally();
+            for (Payment.PaymentStatus status : List.of(Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING)) {
+                if (!reconcileStatus(status, staleBefore, dryRun, tally)) {
+                    break;
+                }
+            }
+            return new PaymentReconciliationResponse(dryRun, staleBefore, tally.scanned.get(), tally.completed.get(),
+                    tally.failed.get(), tally.cancelled.get(), tally.unresolved.get(), tally.skipped.get());
+        } finally {
+            runTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    // Trả về false nếu cổng thanh toán không khả dụng (circuit mở/pool đầy) và lượt đối soát nên dừng
+    private boolean reconcileStatus(Payment.PaymentStatus status, LocalDateTime staleBefore, boolean dryRun, Tally tally) {
+        int afterId = 0;
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        while (true) {
+            List<Payment> batch = paymentRepository.findByStatus(status, staleBefore, afterId, PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return true;
+            }
+            afterId = batch.get(batch.size() - 1).getPaymentId();
+
+            List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+            boolean gatewayAvailable = true;
+            for (Payment payment : batch) {
+                tally.scanned.incrementAndGet();
+                String transactionId = payment.getTransactionId();
+                if (transactionId == null) {
+                    // Chưa từng tạo được giao dịch trên cổng thanh toán: không cần tra cứu
+                    apply(payment.getPaymentId(), Payment.PaymentStatus.CANCELLED, dryRun, tally);
+                    continue;
+                }
+                if (!gatewayAvailable) {
+                    record(tally.unresolved, "unresolved", dryRun);
+                    continue;
+                }
+                permits.acquireUninterruptibly();
+                try {
+                    inFlight.add(paymentGatewayClient.submit(() -> {
+                        reconcileWithGateway(payment.getPaymentId(), transactionId, dryRun, tally);
+                        return null;
+                    }).<Void>handle((ignored, error) -> {
+                        permits.release();
+                        if (error != null) {
+                            logger.warn("Không đối soát được thanh toán {}: {}", payment.getPaymentId(), error.getMessage());
+                            record(tally.unresolved, "error", dryRun);
+                        }
+                        return null;
+                    }));
+                } catch (ServiceBusyException e) {
+                    permits.release();
+                    logger.warn("Cổng thanh toán không khả dụng, dừng đối soát: {}", e.getMessage());
+                    record(tally.unresolved, "unresolved", dryRun);
+                    gatewayAvailable = false;
+                }
+            }
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0])).join();
+            if (!gatewayAvailable) {
+                return false;
+            }
+            if (batch.size() < batchSize) {
+                return true;
+            }
+        }
+    }
+
+    private void reconcileWithGateway(Integer paymentId, String transactionId, boolean dryRun, Tally tally) {
+        Payment.PaymentStatus outcome;
+        try {
+            PaymentGateway.GatewayPayment remote = paymentGatewayClient.call(
+                    () -> paymentGatewayClient.gateway().lookup(transactionId));
+            outcome = outcomeFor(remote.state());
+        } catch (PaymentGatewayException e) {
+            if (e.isTransientFailure()) {
+                // Kết quả chưa xác định: giữ nguyên, lượt sau thử lại
+                record(tally.unresolved, "unresolved", dryRun);
+                return;
+            }
+            // Cổng thanh toán không biết giao dịch này (vd. đã hết hạn): coi như người dùng hủy
+            outcome = Payment.PaymentStatus.CANCELLED;
+        }
+        apply(paymentId, outcome, dryRun, tally);
+    }
+
+    /**
+     * Ánh xạ trạng thái phía cổng thanh toán sang trạng thái đích của thanh toán bị treo.
+     * "approved" -> COMPLETED, "failed" -> FAILED (như completePayPalPayment);
+     * còn lại ("created" = người dùng chưa phê duyệt/chưa quay lại, "canceled", "expired") -> CANCELLED (như cancelPayPalPayment).
+     */
+    static Payment.PaymentStatus outcomeFor(String gatewayState) {
+        if ("approved".equalsIgnoreCase(gatewayState)) {
+            return Payment.PaymentStatus.COMPLETED;
+        }
+        if ("failed".equalsIgnoreCase(gatewayState)) {
+            return Payment.PaymentStatus.FAILED;
+        }
+        return Payment.PaymentStatus.CANCELLED;
+    }
+
+    private void apply(Integer paymentId, Payment.PaymentStatus outcome, boolean dryRun, Tally tally) {
+        AtomicInteger counter = switch (outcome) {
+            case COMPLETED -> tally.completed;
+            case FAILED -> tally.failed;
+            default -> tally.cancelled;
+        };
+        String name = outcome.name().toLowerCase();
+        if (dryRun) {
+            logger.info("[dry-run] Thanh toán {} sẽ được chuyển sang {}", paymentId, outcome);
+            record(counter, name, true);
+            return;
+        }
+        try {
+            if (paymentService.reconcilePayment(paymentId, outcome)) {
+                record(counter, name, false);
+            } else {
+                // Đã được luồng hoàn tất/hủy của người dùng xử lý trong lúc đối soát
+                record(tally.skipped, "skipped", false);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Không cập nhật được thanh toán {} sang {}: {}", paymentId, outcome, e.getMessage());
+            record(tally.unresolved, "error", false);
+        }
+    }
+
+    private void record(AtomicInteger counter, String outcome, boolean dryRun) {
+        counter.incrementAndGet();
+        meterRegistry.counter("payment.reconcile.payments", "outcome", outcome, "dry_run", String.valueOf(dryRun)).increment();
+    }
+
+    private static final class Tally {
+        final AtomicInteger scanned = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger cancelled = new AtomicInteger();
+        final AtomicInteger unresolved = new AtomicInteger();
+        final AtomicInteger skipped = new AtomicInteger();
+    }
+}
@@ -1,7 +1,6 @@
 package org.example.projetc_backend.service;
 
-import com.paypal.api.payments.Links;
-import com.paypal.base.rest.PayPalRESTException;
+import org.example.projetc_backend.cache.UserCache;
 import org.example.projetc_backend.dto.*;
 import org.example.projetc_backend.entity.*;
 import org.example.projetc_backend.repository.OrderRepository;
@@ -16,12 +15,17 @@ import org.springframework.data.domain.Sort;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional; // Đảm bảo import này
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.math.BigDecimal;
 
@@ -34,24 +38,36 @@ public class PaymentService {
     private final UserRepository userRepository;
     private final OrderRepository orderRepository;
     private final EnrollmentService enrollmentService;
-    private final PayPalService payPalService;
+    private final PaymentGatewayClient paymentGatewayClient;
+    private final UserCache userCache;
+    private final MetricsRollupService metricsRollupService;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${app.backend.base-url}")
     private String backendBaseUrl;
 
     public PaymentService(PaymentRepository paymentRepository, UserRepository userRepository,
                           OrderRepository orderRepository, EnrollmentService enrollmentService,
-                          PayPalService payPalService) {
+                          PaymentGatewayClient paymentGatewayClient, UserCache userCache,
+                          MetricsRollupService metricsRollupService, PlatformTransactionManager transactionManager) {
         this.paymentRepository = paymentRepository;
         this.userRepository = userRepository;
         this.orderRepository = orderRepository;
         this.enrollmentService = enrollmentService;
-        this.payPalService = payPalService;
+        this.paymentGatewayClient = paymentGatewayClient;
+        this.userCache = userCache;
+        this.metricsRollupService = metricsRollupService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    @Transactional
-    public String initiatePayPalPayment(PaymentRequest request) throws PayPalRESTException {
-        // ... (logic hiện có)
+    /**
+     * Khởi tạo thanh toán PayPal cho một đơn hàng.
+     * Lời gọi PayPal không nằm trong transaction DB: một transaction ngắn giữ chỗ (tạo Payment PENDING, đơn hàng
+     * chuyển PROCESSING), lời gọi từ xa chạy trên pool của PaymentGatewayClient, rồi một transaction ngắn khác ghi
+     * transactionId. Nếu gọi PayPal lỗi hoặc client đã hết thời gian chờ, chỗ giữ được trả lại (đơn hàng về PENDING).
+     * @return Future chứa URL phê duyệt của PayPal.
+     */
+    public CompletableFuture<String> initiatePayPalPayment(PaymentRequest request) {
         Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
         if (!(principal instanceof org.springframework.security.core.userdetails.User)) {
             throw new AccessDeniedException("Người dùng chưa được xác thực hoặc kiểu đối tượng không đúng.");
@@ -59,13 +75,51 @@ public class PaymentService {
         org.springframework.security.core.userdetails.User springUser =
                 (org.springframework.security.core.userdetails.User) principal;
 
-        User currentUser = userRepository.findByUsername(springUser.getUsername())
+        User currentUser = userCache.findByUsername(springUser.getUsername())
                 .orElseThrow(() -> new AccessDeniedException("Không tìm thấy người dùng trong cơ sở dữ liệu."));
 
         if (!currentUser.getUserId().equals(request.userId())) {
             throw new AccessDeniedException("Bạn không có quyền tạo thanh toán cho người dùng khác.");
         }
 
+        Payment reserved = transactionTemplate.execute(status -> reservePayment(currentUser.getUserId(), request));
+        Integer localPaymentId = reserved.getPaymentId();
+        String description = reserved.getDescription();
+        String successCallbackUrl = backendBaseUrl + "/api/payments/paypal/complete";
+        String cancelCallbackUrl = backendBaseUrl + "/api/payments/paypal/cancel";
+
+        long start = System.nanoTime();
+        CompletableFuture<String> future;
+        try {
+            future = paymentGatewayClient.submit(() -> {
+                PaymentGateway.GatewayPayment created;
+                try {
+                    created = paymentGatewayClient.call(() -> paymentGatewayClient.gateway().create(
+                            request.amount(), "USD", description, cancelCallbackUrl, successCallbackUrl));
+                } catch (RuntimeException e) {
+                    transactionTemplate.executeWithoutResult(status -> releasePayment(localPaymentId));
+                    throw e;
+                }
+                if (paymentGatewayClient.timedOut(start) || created.approvalUrl() == null) {
+                    // Client đã nhận lỗi hết thời gian chờ (hoặc PayPal không trả URL): giao dịch PayPal này bị bỏ
+                    transactionTemplate.executeWithoutResult(status -> releasePayment(localPaymentId));
+                    if (created.approvalUrl() == null) {
+                        throw new IllegalStateException("Không tìm thấy URL phê duyệt từ PayPal.");
+                    }
+                    return created.approvalUrl();
+                }
+                transactionTemplate.executeWithoutResult(status -> paymentRepository.findById(localPaymentId)
+                        .ifPresent(payment -> payment.setTransactionId(created.id())));
+                return created.approvalUrl();
+            });
+        } catch (ServiceBusyException e) {
+            transactionTemplate.executeWithoutResult(status -> releasePayment(localPaymentId));
+            throw e;
+        }
+        return paymentGatewayClient.withTimeout(future);
+    }
+
+    private Payment reservePayment(Integer userId, PaymentRequest request) {
         Order order = orderRepository.findById(request.orderId())
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy đơn hàng với ID: " + request.orderId()));
 
@@ -74,7 +128,7 @@ public class PaymentService {
         }
 
         Payment localPayment = new Payment();
-        localPayment.setUser(currentUser);
+        localPayment.setUser(userRepository.getReferenceById(userId));
         localPayment.setOrder(order);
         localPayment.setAmount(request.amount());
         localPayment.setPaymentDate(LocalDateTime.now());
@@ -83,62 +137,166 @@ public class PaymentService {
         localPayment.setDescription("Thanh toán PayPal cho đơn hàng #" + order.getOrderId());
         localPayment.setSuccessUrl(request.successUrl());
         localPayment.setCancelUrl(request.cancelUrl());
-
-        String successCallbackUrl = backendBaseUrl + "/api/payments/paypal/complete";
-        String cancelCallbackUrl = backendBaseUrl + "/api/payments/paypal/cancel";
-
-        com.paypal.api.payments.Payment paypalPayment = payPalService.createPayment(
-                request.amount().doubleValue(), "USD", "paypal", "sale",
-                localPayment.getDescription(), cancelCallbackUrl, successCallbackUrl
-        );
-
-        localPayment.setTransactionId(paypalPayment.getId());
-        paymentRepository.save(localPayment);
+        localPayment = paymentRepository.save(localPayment);
 
         order.setStatus(Order.OrderStatus.PROCESSING);
+        order.setPayment(localPayment);
         orderRepository.save(order);
+        return localPayment;
+    }
 
-        for (Links link : paypalPayment.getLinks()) {
-            if (link.getRel().equals("approval_url")) {
-                return link.getHref();
+    // Trả lại chỗ đã giữ khi chưa có giao dịch PayPal nào được người dùng phê duyệt
+    private void releasePayment(Integer localPaymentId) {
+        paymentRepository.findById(localPaymentId).ifPresent(payment -> {
+            if (payment.getStatus() != Payment.PaymentStatus.PENDING) {
+                return;
             }
-        }
-        throw new IllegalStateException("Không tìm thấy URL phê duyệt từ PayPal.");
+            Order order = payment.getOrder();
+            order.setPayment(null);
+            if (order.getStatus() == Order.OrderStatus.PROCESSING) {
+                order.setStatus(Order.OrderStatus.PENDING);
+            }
+            paymentRepository.delete(payment);
+        });
     }
 
-    @Transactional
-    public Map<String, String> completePayPalPayment(String paymentId, String payerId) throws PayPalRESTException {
-        // ... (logic hiện có)
-        Payment localPayment = paymentRepository.findByTransactionId(paymentId)
-                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy giao dịch với ID: " + paymentId));
+    /**
+     * Hoàn tất thanh toán PayPal sau khi người dùng phê duyệt (PayPal chuyển hướng về đây).
+     * Một transaction ngắn nhận xử lý giao dịch (PENDING -> PROCESSING, chặn xử lý trùng), lời gọi execute chạy trên
+     * pool cổng thanh toán, rồi một transaction ngắn ghi kết quả. Nếu PayPal phản hồi chậm hơn thời gian chờ, người dùng
+     * được chuyển về trang thành công với status=processing; kết quả vẫn được ghi khi PayPal trả lời. Lỗi tạm thời
+     * (kết quả chưa xác định) giữ giao dịch ở PROCESSING để bộ đối soát xử lý.
+     * @return Future chứa URL chuyển hướng cuối cùng.
+     */
+    public CompletableFuture<Map<String, String>> completePayPalPayment(String paymentId, String payerId) {
+        AtomicBoolean claimedByThisCall = new AtomicBoolean();
+        Payment claimed = transactionTemplate.execute(status -> {
+            Payment localPayment = paymentRepository.findByTransactionId(paymentId)
+                    .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy giao dịch với ID: " + paymentId));
+            if (localPayment.getStatus() == Payment.PaymentStatus.PENDING
+                    && paymentRepository.updateStatusIfCurrent(localPayment.getPaymentId(),
+                    Payment.PaymentStatus.PENDING, Payment.PaymentStatus.PROCESSING) == 1) {
+                localPayment.setStatus(Payment.PaymentStatus.PROCESSING);
+                claimedByThisCall.set(true);
+            }
+            return localPayment;
+        });
+
+        if (claimed.getStatus() == Payment.PaymentStatus.COMPLETED) {
+            return CompletableFuture.completedFuture(redirect(claimed.getSuccessUrl(), "already_completed"));
+        }
+        if (claimed.getStatus() != Payment.PaymentStatus.PROCESSING) {
+            return CompletableFuture.completedFuture(redirect(claimed.getCancelUrl(), "failed"));
+        }
+        Integer localPaymentId = claimed.getPaymentId();
+        Map<String, String> processingRedirect = redirect(claimed.getSuccessUrl(), "processing");
+        if (!claimedByThisCall.get()) {
+            // Callback trùng (thử lại, tab thứ hai): lời gọi khác đang thực thi giao dịch, không gọi PayPal lần nữa
+            return CompletableFuture.completedFuture(processingRedirect);
+        }
 
-        String finalRedirectUrl;
+        CompletableFuture<Map<String, String>> future;
+        try {
+            future = paymentGatewayClient.submit(() -> {
+                PaymentGateway.GatewayPayment executed;
+                try {
+                    executed = paymentGatewayClient.call(() -> paymentGatewayClient.gateway().execute(paymentId, payerId));
+                } catch (PaymentGatewayException e) {
+                    if (e.isTransientFailure()) {
+                        logger.warn("Kết quả thanh toán {} chưa xác định, chờ đối soát: {}", paymentId, e.getMessage());
+                        return processingRedirect;
+                    }
+                    logger.warn("PayPal từ chối thực thi thanh toán {}: {}", paymentId, e.getMessage());
+                    transactionTemplate.executeWithoutResult(status -> paymentRepository.updateStatusIfCurrent(
+                            localPaymentId, Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.PENDING));
+                    return redirect(claimed.getCancelUrl(), "error");
+                }
+                return transactionTemplate.execute(status -> finalizePayment(localPaymentId, executed.state()));
+            });
+        } catch (ServiceBusyException e) {
+            transactionTemplate.executeWithoutResult(status -> paymentRepository.updateStatusIfCurrent(
+                    localPaymentId, Payment.PaymentStatus.PROCESSING, Payment.PaymentStatus.PENDING));
+            return CompletableFuture.completedFuture(redirect(claimed.getCancelUrl(), "gateway_unavailable"));
+        }
+        return paymentGatewayClient.withTimeout(future, processingRedirect);
+    }
 
+    private Map<String, String> finalizePayment(Integer localPaymentId, String gatewayState) {
+        Payment localPayment = paymentRepository.findForUpdateByPaymentId(localPaymentId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy thanh toán với ID: " + localPaymentId));
         if (localPayment.getStatus() == Payment.PaymentStatus.COMPLETED) {
-            finalRedirectUrl = UriComponentsBuilder.fromUriString(localPayment.getSuccessUrl())
-                    .queryParam("status", "already_completed").build().toUriString();
-            return Map.of("redirectUrl", finalRedirectUrl);
+            return redirect(localPayment.getSuccessUrl(), "already_completed");
         }
+        if (!isAwaitingGateway(localPayment)) {
+            // Bộ đối soát đã xử lý giao dịch này trước
+            return redirect(localPayment.getCancelUrl(), "failed");
+        }
+        boolean approved = "approved".equalsIgnoreCase(gatewayState);
+        applyGatewayOutcome(localPayment, approved);
+        return approved ? redirect(localPayment.getSuccessUrl(), "success") : redirect(localPayment.getCancelUrl(), "failed");
+    }
 
-        com.paypal.api.payments.Payment executedPayment = payPalService.executePayment(paymentId, payerId);
-        Order order = localPayment.getOrder();
+    /**
+     * Áp dụng kết quả đối soát cho một thanh toán bị treo (PaymentReconciliationService gọi, mỗi thanh toán một transaction).
+     * Dùng cùng các chuyển trạng thái với completePayPalPayment (COMPLETED/FAILED) và cancelPayPalPayment (CANCELLED).
+     * @param outcome Trạng thái đích: COMPLETED, FAILED hoặc CANCELLED.
+     * @return true nếu đã chuyển trạng thái; false nếu thanh toán không còn ở PENDING/PROCESSING.
+     */
+    @Transactional
+    public boolean reconcilePayment(Integer paymentId, Payment.PaymentStatus outcome) {
+        Payment localPayment = paymentRepository.findForUpdateByPaymentId(paymentId).orElse(null);
+        if (localPayment == null || !isAwaitingGateway(localPayment)) {
+            return false;
+        }
+        switch (outcome) {
+            case COMPLETED -> applyGatewayOutcome(localPayment, true);
+            case FAILED -> applyGatewayOutcome(localPayment, false);
+            case CANCELLED -> cancelLocalPayment(localPayment);
+            default -> throw new IllegalArgumentException("Trạng thái đối soát không hợp lệ: " + outcome);
+        }
+        return true;
+    }
+
+    private static boolean isAwaitingGateway(Payment payment) {
+        return payment.getStatus() == Payment.PaymentStatus.PENDING || payment.getStatus() == Payment.PaymentStatus.PROCESSING;
+    }
 
-        if ("approved".equalsIgnoreCase(executedPayment.getState())) {
+    private void applyGatewayOutcome(Payment localPayment, boolean approved) {
+        Order order = localPayment.getOrder();
+        if (approved) {
             localPayment.setStatus(Payment.PaymentStatus.COMPLETED);
             order.setStatus(Order.OrderStatus.COMPLETED);
             grantAccessToLessonsInOrder(order);
-            finalRedirectUrl = UriComponentsBuilder.fromUriString(localPayment.getSuccessUrl())
-                    .queryParam("status", "success").build().toUriString();
+            metricsRollupService.recordRevenue(localPayment.getPaymentDate(), localPayment.getAmount());
         } else {
             localPayment.setStatus(Payment.PaymentStatus.FAILED);
             order.setStatus(Order.OrderStatus.CANCELLED);
-            finalRedirectUrl = UriComponentsBuilder.fromUriString(localPayment.getCancelUrl())
-                    .queryParam("status", "failed").build().toUriString();
         }
+        paymentRepository.save(localPayment);
+        orderRepository.save(order);
+    }
 
+    private void cancelLocalPayment(Payment localPayment) {
+        Order order = localPayment.getOrder();
+        localPayment.setStatus(Payment.PaymentStatus.CANCELLED);
+        order.setStatus(Order.OrderStatus.PENDING);
         paymentRepository.save(localPayment);
         orderRepository.save(order);
-        return Map.of("redirectUrl", finalRedirectUrl);
+    }
+
+    /**
+     * @return true nếu redirect của completePayPalPayment là kết quả cuối cùng (thành công/thất bại/đã hoàn tất);
+     *         false với các kết quả tạm thời (processing, error, gateway_unavailable) mà lần gọi lại có thể thay đổi.
+     */
+    public static boolean isFinalRedirect(Map<String, String> redirectInfo) {
+        String status = UriComponentsBuilder.fromUriString(redirectInfo.get("redirectUrl")).build()
+                .getQueryParams().getFirst("status");
+        return "success".equals(status) || "failed".equals(status) || "already_completed".equals(status);
+    }
+
+    private static Map<String, String> redirect(String url, String status) {
+        return Map.of("redirectUrl", UriComponentsBuilder.fromUriString(url)
+                .queryParam("status", status).build().toUriString());
     }
 
     @Transactional
@@ -147,12 +305,8 @@ public class PaymentService {
         Payment localPayment = paymentRepository.findByTransactionId(token)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy giao dịch với token: " + token));
 
-        Order order = localPayment.getOrder();
-        if (localPayment.getStatus() == Payment.PaymentStatus.PENDING || localPayment.getStatus() == Payment.PaymentStatus.PROCESSING) {
-            localPayment.setStatus(Payment.PaymentStatus.CANCELLED);
-            order.setStatus(Order.OrderStatus.PENDING);
-            paymentRepository.save(localPayment);
-            orderRepository.save(order);
+        if (isAwaitingGateway(localPayment)) {
+            cancelLocalPayment(localPayment);
         }
 
         String finalRedirectUrl = UriComponentsBuilder.fromUriString(localPayment.getCancelUrl())
@@ -163,14 +317,13 @@ public class PaymentService {
     // Các phương thức khác giữ nguyên
     private void grantAccessToLessonsInOrder(Order order) {
         if (order.getOrderDetails() != null) {
-            for (OrderDetail detail : order.getOrderDetails()) {
-                Lesson lesson = detail.getLesson();
-                if (lesson != null) {
-                    enrollmentService.enrollUserInLesson(new EnrollmentRequest(
-                            order.getUser().getUserId(), lesson.getLessonId()
-                    ));
-                }
-            }
+            // Đăng ký tất cả bài học của đơn hàng trong một lô; bài học đã đăng ký trước đó được bỏ qua
+            List<Integer> lessonIds = order.getOrderDetails().stream()
+                    .map(OrderDetail::getLesson)
+                    .filter(Objects::nonNull)
+                    .map(Lesson::getLessonId)
+                    .toList();
+            enrollmentService.enrollUserInLessons(order.getUser().getUserId(), lessonIds);
         }
     }
 
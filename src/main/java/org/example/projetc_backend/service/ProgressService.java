@@ -1,5 +1,6 @@
 package org.example.projetc_backend.service;
 
+import jakarta.persistence.criteria.Predicate;
 import org.example.projetc_backend.dto.ProgressRequest;
 import org.example.projetc_backend.dto.ProgressResponse;
 import org.example.projetc_backend.dto.ProgressSearchRequest;
@@ -13,17 +14,24 @@ import org.example.projetc_backend.repository.UserRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class ProgressService {
 
+    // Cột sắp xếp có index cho phân trang SLICE/KEYSET
+    private static final KeysetPagination PAGINATION = new KeysetPagination("progressId",
+            Map.of("progressId", Integer.class, "lastUpdated", LocalDateTime.class));
+
     private final ProgressRepository progressRepository;
     private final UserRepository userRepository;
     private final LessonRepository lessonRepository;
@@ -240,8 +248,9 @@ public class ProgressService {
     /**
      * Tìm kiếm và phân trang các bản ghi tiến độ dựa trên các tiêu chí tùy chọn.
      * @param request DTO chứa các tiêu chí tìm kiếm (userId, lessonId, activityType, status, minCompletionPercentage, maxCompletionPercentage) và thông tin phân trang/sắp xếp.
+     * Chế độ SLICE/KEYSET (trường pagination hoặc cursor) bỏ COUNT(*) và chỉ sắp xếp theo progressId hoặc lastUpdated.
      * @return Trang các ProgressResponse phù hợp với tiêu chí tìm kiếm.
-     * @throws IllegalArgumentException Nếu Search request trống.
+     * @throws IllegalArgumentException Nếu Search request trống, chế độ phân trang/cột sắp xếp/cursor không hợp lệ.
      */
     @Transactional(readOnly = true)
     public ProgressPageResponse searchProgress(ProgressSearchRequest request) {
@@ -249,6 +258,15 @@ public class ProgressService {
             throw new IllegalArgumentException("Search request không được để trống.");
         }
 
+        KeysetPagination.Mode mode = KeysetPagination.mode(request.pagination(), request.cursor(), KeysetPagination.Mode.OFFSET);
+        if (mode != KeysetPagination.Mode.OFFSET) {
+            KeysetPagination.Result<ProgressResponse> result = PAGINATION.scroll(progressRepository, searchSpecification(request),
+                    mode, request.sortBy(), request.sortDir(), request.page(), request.size(), request.cursor())
+                    .map(this::mapToProgressResponse);
+            return new ProgressPageResponse(result.content(), -1, -1,
+                    mode == KeysetPagination.Mode.SLICE ? request.page() : -1, request.size(), result.hasNext(), result.nextCursor());
+        }
+
         Sort sort = Sort.by(request.sortDir().equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC, request.sortBy());
         PageRequest pageable = PageRequest.of(request.page(), request.size(), sort);
 
@@ -271,10 +289,38 @@ public class ProgressService {
                 progressPage.getTotalElements(),
                 progressPage.getTotalPages(),
                 progressPage.getNumber(),
-                progressPage.getSize()
+                progressPage.getSize(),
+                progressPage.hasNext(),
+                null
         );
     }
 
+    // Cùng điều kiện lọc với ProgressRepository.searchProgress, dùng cho phân trang SLICE/KEYSET
+    private static Specification<Progress> searchSpecification(ProgressSearchRequest request) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (request.userId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("user").get("userId"), request.userId()));
+            }
+            if (request.lessonId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("lesson").get("lessonId"), request.lessonId()));
+            }
+            if (request.activityType() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("activityType"), request.activityType()));
+            }
+            if (request.status() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("status"), request.status()));
+            }
+            if (request.minCompletionPercentage() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("completionPercentage"), request.minCompletionPercentage()));
+            }
+            if (request.maxCompletionPercentage() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("completionPercentage"), request.maxCompletionPercentage()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
     private ProgressResponse mapToProgressResponse(Progress progress) {
         return new ProgressResponse(
                 progress.getProgressId(),
@@ -0,0 +1,483 @@
+package org.example.projetc_backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.cache.ExpiringCache;
+import org.example.projetc_backend.dto.AnswerPickResponse;
+import org.example.projetc_backend.dto.QuestionAnalyticsResponse;
+import org.example.projetc_backend.entity.Answer;
+import org.example.projetc_backend.entity.AnswerPickStat;
+import org.example.projetc_backend.entity.Question;
+import org.example.projetc_backend.entity.QuestionStat;
+import org.example.projetc_backend.repository.AnswerPickStatRepository;
+import org.example.projetc_backend.repository.AnswerRepository;
+import org.example.projetc_backend.repository.QuestionRepository;
+import org.example.projetc_backend.repository.QuestionStatRepository;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.example.projetc_backend.repository.UserAnswerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Phân tích chất lượng câu hỏi: độ khó (tỉ lệ trả lời đúng) và độ phân biệt (chênh lệch tỉ lệ đúng giữa
+ * nhóm 27% bài làm điểm cao nhất và 27% điểm thấp nhất), cùng số lần chọn của từng phương án.
+ * - Bộ đếm lượt trả lời/lượt đúng/lượt chọn được cộng sau commit vào bộ đệm trong bộ nhớ và định kỳ ghi xuống
+ *   bằng upsert, nên việc nộp câu trả lời không phải tranh chấp khóa trên cùng một dòng thống kê.
+ * - Job hằng đêm tính lại toàn bộ từ User_Answers, song song theo từng quiz trên statsQueryExecutor;
+ *   mỗi quiz được ghi đè trong transaction riêng. Trang quản trị chỉ đọc các bảng đã tính sẵn.
+ * - Mỗi câu trả lời trong bộ đệm mang theo userAnswerId. Khi tính lại một quiz, những câu trả lời đã được luồng
+ *   User_Answers đếm sẽ bị bỏ khỏi bộ đệm (hoặc được đánh dấu nếu callback sau commit của nó chưa chạy tới), nên
+ *   flush sau đó không cộng chúng lần thứ hai. Flush và tính lại loại trừ nhau qua flushLock.
+ */
+@Service
+public class QuestionAnalyticsService {
+    private static final Logger logger = LoggerFactory.getLogger(QuestionAnalyticsService.class);
+    private static final double GROUP_FRACTION = 0.27;
+
+    private record QuestionDelta(Integer quizId, long attempts, long correct) {
+        QuestionDelta plus(QuestionDelta other) {
+            return new QuestionDelta(quizId, attempts + other.attempts, correct + other.correct);
+        }
+    }
+
+    private record AnswerKey(Integer answerId, Integer questionId) {}
+
+    // Câu trả lời chờ flush; questionId == null là dấu "đã được job tính lại đếm", hết hạn sau countedUntil
+    private record PendingAnswer(Integer questionId, Integer quizId, Integer answerId, boolean correct, long countedUntil) {
+        static PendingAnswer counted(long until) {
+            return new PendingAnswer(null, null, null, false, until);
+        }
+
+        boolean isCounted() {
+            return questionId == null;
+        }
+    }
+
+    // Câu trả lời nộp trong khoảng này trước khi tính lại có thể chưa kịp vào bộ đệm (callback sau commit chưa chạy)
+    private static final long RECENT_WINDOW_MILLIS = 5 * 60 * 1000L;
+
+    private final QuestionStatRepository questionStatRepository;
+    private final AnswerPickStatRepository answerPickStatRepository;
+    private final UserAnswerRepository userAnswerRepository;
+    private final QuizResultRepository quizResultRepository;
+    private final QuestionRepository questionRepository;
+    private final AnswerRepository answerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ThreadPoolTaskExecutor executor;
+    private final ConcurrentHashMap<Integer, QuestionDelta> questionBuffer = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<AnswerKey, Long> pickBuffer = new ConcurrentHashMap<>();
+    // userAnswerId -> câu trả lời đã commit nhưng chưa được gom vào questionBuffer/pickBuffer
+    private final ConcurrentHashMap<Integer, PendingAnswer> pendingAnswers = new ConcurrentHashMap<>();
+    // Flush giữ khóa ghi, mỗi lần tính lại một quiz giữ khóa đọc (các quiz vẫn tính song song với nhau)
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    // questionId -> (nội dung phương án đã chuẩn hóa -> answerId), dùng để nhận ra phương án người học đã chọn
+    private final ExpiringCache<Integer, Map<String, Integer>> answerTextCache;
+    private final long answerCacheTtlMillis;
+
+    // Số bài làm tối thiểu của một quiz để tính độ phân biệt (nhóm 27% quá nhỏ thì chỉ số không có ý nghĩa)
+    @Value("${app.question-analytics.min-results:20}")
+    private int minResults;
+
+    public QuestionAnalyticsService(QuestionStatRepository questionStatRepository,
+                                    AnswerPickStatRepository answerPickStatRepository,
+                                    UserAnswerRepository userAnswerRepository,
+                                    QuizResultRepository quizResultRepository,
+                                    QuestionRepository questionRepository,
+                                    AnswerRepository answerRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    @Qualifier("statsQueryExecutor") ThreadPoolTaskExecutor executor,
+                                    @Value("${app.question-analytics.answer-cache-size:5000}") int answerCacheSize,
+                                    @Value("${app.question-analytics.answer-cache-ttl-seconds:300}") long answerCacheTtlSeconds) {
+        this.questionStatRepository = questionStatRepository;
+        this.answerPickStatRepository = answerPickStatRepository;
+        this.userAnswerRepository = userAnswerRepository;
+        this.quizResultRepository = quizResultRepository;
+        this.questionRepository = questionRepository;
+        this.answerRepository = answerRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.executor = executor;
+        this.answerCacheTtlMillis = answerCacheTtlSeconds * 1000;
+        this.answerTextCache = new ExpiringCache<>(answerCacheSize);
+    }
+
+    /**
+     * Ghi nhận một câu trả lời vừa nộp; bộ đếm chỉ được cộng khi transaction nghiệp vụ commit thành công.
+     */
+    public void recordAnswer(Question question, Integer userAnswerId, String userAnswerText, boolean correct) {
+        if (question == null || question.getQuestionId() == null || question.getQuiz() == null || userAnswerId == null) {
+            return;
+        }
+        Integer questionId = question.getQuestionId();
+        PendingAnswer answer = new PendingAnswer(questionId, question.getQuiz().getQuizId(),
+                answerIdsByText(questionId).get(normalize(userAnswerText)), correct, 0);
+        // Nếu job tính lại đã đếm câu trả lời này thì chỉ xóa dấu, không đưa vào bộ đệm
+        AfterCommit.run(() -> pendingAnswers.compute(userAnswerId,
+                (id, existing) -> existing != null && existing.isCounted() ? null : answer));
+    }
+
+    private Map<String, Integer> answerIdsByText(Integer questionId) {
+        Map<String, Integer> cached = answerTextCache.get(questionId);
+        if (cached != null) {
+            return cached;
+        }
+        Map<String, Integer> loaded = toTextIndex(answerRepository.findByQuestionQuestionIdAndIsDeletedFalse(questionId));
+        answerTextCache.put(questionId, loaded, System.currentTimeMillis() + answerCacheTtlMillis);
+        return loaded;
+    }
+
+    private static Map<String, Integer> toTextIndex(List<Answer> answers) {
+        Map<String, Integer> index = new HashMap<>();
+        for (Answer answer : answers) {
+            index.putIfAbsent(normalize(answer.getAnswerText()), answer.getAnswerId());
+        }
+        return index;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Ghi bộ đệm xuống DB; giá trị ghi lỗi được trả lại bộ đệm cho lần sau.
+     * Nếu đang có quiz được tính lại thì bỏ qua lượt này, lần chạy sau sẽ ghi.
+     */
+    @Scheduled(fixedDelayString = "${app.question-analytics.flush-interval-ms:10000}")
+    public void flush() {
+        if (!flushLock.writeLock().tryLock()) {
+            return;
+        }
+        try {
+            drainAndWrite();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    private void flushAndWait() {
+        flushLock.writeLock().lock();
+        try {
+            drainAndWrite();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+    }
+
+    // Gom câu trả lời chờ vào bộ đếm theo câu hỏi/phương án rồi ghi bằng upsert; chỉ gọi khi giữ khóa ghi
+    private void drainAndWrite() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Integer, PendingAnswer> entry : pendingAnswers.entrySet()) {
+            PendingAnswer answer = entry.getValue();
+            if (answer.isCounted()) {
+                if (answer.countedUntil() < now) {
+                    pendingAnswers.remove(entry.getKey(), answer);
+                }
+                continue;
+            }
+            if (!pendingAnswers.remove(entry.getKey(), answer)) {
+                continue;
+            }
+            questionBuffer.merge(answer.questionId(),
+                    new QuestionDelta(answer.quizId(), 1, answer.correct() ? 1 : 0), QuestionDelta::plus);
+            if (answer.answerId() != null) {
+                pickBuffer.merge(new AnswerKey(answer.answerId(), answer.questionId()), 1L, Long::sum);
+            }
+        }
+        for (Integer questionId : questionBuffer.keySet()) {
+            QuestionDelta delta = questionBuffer.remove(questionId);
+            if (delta == null) {
+                continue;
+            }
+            try {
+                questionStatRepository.addCounts(questionId, delta.quizId(), delta.attempts(), delta.correct());
+            } catch (RuntimeException e) {
+                questionBuffer.merge(questionId, delta, QuestionDelta::plus);
+                logger.warn("Không ghi được thống kê câu hỏi {}: {}", questionId, e.getMessage());
+                return;
+            }
+        }
+        for (AnswerKey key : pickBuffer.keySet()) {
+            Long picks = pickBuffer.remove(key);
+            if (picks == null) {
+                continue;
+            }
+            try {
+                answerPickStatRepository.addPicks(key.answerId(), key.questionId(), picks);
+            } catch (RuntimeException e) {
+                pickBuffer.merge(key, picks, Long::sum);
+                logger.warn("Không ghi được lượt chọn phương án {}: {}", key.answerId(), e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushAndWait();
+    }
+
+    /**
+     * Job hằng đêm: tính lại chỉ số cho mọi quiz, song song theo quiz.
+     * Bộ đệm được ghi xuống trước để giá trị tính lại đã bao gồm các câu trả lời đang chờ.
+     * @return Số quiz đã tính lại thành công.
+     */
+    @Scheduled(cron = "${app.question-analytics.cron:0 30 2 * * *}")
+    public int recomputeAll() {
+        flushAndWait();
+        long start = System.currentTimeMillis();
+        List<Integer> quizIds = questionRepository.findDistinctQuizIds();
+        List<CompletableFuture<Boolean>> futures = quizIds.stream()
+                .map(quizId -> CompletableFuture.supplyAsync(() -> recomputeQuizSafely(quizId), executor))
+                .collect(Collectors.toList());
+        int succeeded = (int) futures.stream().map(CompletableFuture::join).filter(Boolean::booleanValue).count();
+        logger.info("Đã tính lại phân tích câu hỏi cho {}/{} quiz trong {} ms.",
+                succeeded, quizIds.size(), System.currentTimeMillis() - start);
+        return succeeded;
+    }
+
+    private boolean recomputeQuizSafely(Integer quizId) {
+        try {
+            recomputeQuiz(quizId);
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Không tính lại được phân tích câu hỏi của quiz {}: {}", quizId, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Tính lại và ghi đè thống kê của một quiz trong một transaction.
+     * Sau khi commit, các câu trả lời của quiz còn nằm trong bộ đệm bị loại bỏ vì đã được tính vào kết quả.
+     * @param quizId ID của quiz.
+     */
+    public void recomputeQuiz(Integer quizId) {
+        if (quizId == null) {
+            throw new IllegalArgumentException("Quiz ID không được để trống.");
+        }
+        flushLock.readLock().lock();
+        try {
+            // Các câu trả lời luồng đã đếm và có thể còn (hoặc sắp) nằm trong bộ đệm
+            List<Integer> countedIds = new ArrayList<>();
+            List<Integer> questionIds = transactionTemplate.execute(status -> recomputeQuizInTransaction(quizId, countedIds));
+            discardCounted(questionIds, countedIds);
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        answerTextCache.clear();
+    }
+
+    // Bộ đệm đã gom (do flush ghi lỗi) và câu trả lời chờ đều đã được luồng đếm; câu trả lời mà callback sau commit
+    // chưa chạy tới được đánh dấu để recordAnswer bỏ qua khi callback chạy
+    private void discardCounted(List<Integer> questionIds, List<Integer> countedIds) {
+        Set<Integer> questions = new HashSet<>(questionIds);
+        questionBuffer.keySet().removeIf(questions::contains);
+        pickBuffer.keySet().removeIf(key -> questions.contains(key.questionId()));
+        PendingAnswer marker = PendingAnswer.counted(System.currentTimeMillis() + RECENT_WINDOW_MILLIS);
+        for (Integer userAnswerId : countedIds) {
+            pendingAnswers.compute(userAnswerId, (id, existing) -> existing == null || existing.isCounted() ? marker : null);
+        }
+    }
+
+    private List<Integer> recomputeQuizInTransaction(Integer quizId, List<Integer> countedIds) {
+        LocalDateTime recentFrom = LocalDateTime.now().minusNanos(RECENT_WINDOW_MILLIS * 1_000_000);
+        List<Question> questions = questionRepository.findByQuizQuizId(quizId);
+        List<Integer> questionIds = questions.stream().map(Question::getQuestionId).collect(Collectors.toList());
+        Map<Integer, Map<String, Integer>> answerIndex = answerRepository.findByQuestionQuizQuizIdAndIsDeletedFalse(quizId)
+                .stream()
+                .collect(Collectors.groupingBy(a -> a.getQuestion().getQuestionId(),
+                        Collectors.collectingAndThen(Collectors.toList(), QuestionAnalyticsService::toTextIndex)));
+
+        // questionId -> (resultId -> đúng/sai); nếu một bài làm trả lời cùng câu nhiều lần, lấy lần cuối
+        Map<Integer, Map<Integer, Boolean>> outcomes = new HashMap<>();
+        Map<Integer, long[]> counts = new HashMap<>();
+        Map<AnswerKey, Long> picks = new HashMap<>();
+        try (Stream<Object[]> rows = userAnswerRepository.streamAnswersByQuiz(quizId)) {
+            rows.forEach(row -> {
+                Integer userAnswerId = (Integer) row[4];
+                LocalDateTime submittedAt = (LocalDateTime) row[5];
+                if (pendingAnswers.containsKey(userAnswerId) || (submittedAt != null && submittedAt.isAfter(recentFrom))) {
+                    countedIds.add(userAnswerId);
+                }
+                Integer resultId = (Integer) row[0];
+                Integer questionId = (Integer) row[1];
+                boolean correct = Boolean.TRUE.equals(row[2]);
+                long[] c = counts.computeIfAbsent(questionId, id -> new long[2]);
+                c[0]++;
+                if (correct) {
+                    c[1]++;
+                }
+                outcomes.computeIfAbsent(questionId, id -> new HashMap<>()).put(resultId, correct);
+                Integer answerId = answerIndex.getOrDefault(questionId, Map.of()).get(normalize((String) row[3]));
+                if (answerId != null) {
+                    picks.merge(new AnswerKey(answerId, questionId), 1L, Long::sum);
+                }
+            });
+        }
+
+        // Chia nhóm điểm cao/thấp theo điểm của bài làm
+        List<Object[]> scores = new ArrayList<>(quizResultRepository.findScoresByQuiz(quizId));
+        scores.sort(Comparator.comparingInt(row -> row[1] != null ? (Integer) row[1] : 0));
+        Map<Integer, Boolean> lowerGroup = null;
+        Map<Integer, Boolean> upperGroup = null;
+        int groupSize = (int) Math.ceil(scores.size() * GROUP_FRACTION);
+        if (scores.size() >= minResults && groupSize > 0) {
+            lowerGroup = new HashMap<>();
+            upperGroup = new HashMap<>();
+            for (int i = 0; i < groupSize; i++) {
+                lowerGroup.put((Integer) scores.get(i)[0], Boolean.TRUE);
+                upperGroup.put((Integer) scores.get(scores.size() - 1 - i)[0], Boolean.TRUE);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<QuestionStat> stats = new ArrayList<>(questions.size());
+        for (Integer questionId : questionIds) {
+            long[] c = counts.getOrDefault(questionId, new long[2]);
+            QuestionStat stat = new QuestionStat();
+            stat.setQuestionId(questionId);
+            stat.setQuizId(quizId);
+            stat.setAttempts(c[0]);
+            stat.setCorrectCount(c[1]);
+            stat.setDifficultyIndex(c[0] > 0 ? (double) c[1] / c[0] : null);
+            stat.setDiscriminationIndex(lowerGroup != null
+                    ? discrimination(outcomes.getOrDefault(questionId, Map.of()), upperGroup, lowerGroup)
+                    : null);
+            stat.setComputedAt(now);
+            stats.add(stat);
+        }
+        questionStatRepository.deleteAll(questionStatRepository.findByQuizIdOrderByQuestionId(quizId).stream()
+                .filter(s -> !questionIds.contains(s.getQuestionId()))
+                .collect(Collectors.toList()));
+        questionStatRepository.saveAll(stats);
+
+        if (!questionIds.isEmpty()) {
+            answerPickStatRepository.deleteByQuestionIds(questionIds);
+        }
+        answerPickStatRepository.saveAll(picks.entrySet().stream().map(e -> {
+            AnswerPickStat pick = new AnswerPickStat();
+            pick.setAnswerId(e.getKey().answerId());
+            pick.setQuestionId(e.getKey().questionId());
+            pick.setPickCount(e.getValue());
+            return pick;
+        }).collect(Collectors.toList()));
+        return questionIds;
+    }
+
+    // Tỉ lệ đúng nhóm cao - tỉ lệ đúng nhóm thấp, tính trên các bài làm trong nhóm có trả lời câu hỏi
+    private static Double discrimination(Map<Integer, Boolean> outcomes, Map<Integer, Boolean> upperGroup,
+                                         Map<Integer, Boolean> lowerGroup) {
+        long upperAnswered = 0, upperCorrect = 0, lowerAnswered = 0, lowerCorrect = 0;
+        for (Map.Entry<Integer, Boolean> outcome : outcomes.entrySet()) {
+            if (upperGroup.containsKey(outcome.getKey())) {
+                upperAnswered++;
+                upperCorrect += outcome.getValue() ? 1 : 0;
+            } else if (lowerGroup.containsKey(outcome.getKey())) {
+                lowerAnswered++;
+                lowerCorrect += outcome.getValue() ? 1 : 0;
+            }
+        }
+        if (upperAnswered == 0 || lowerAnswered == 0) {
+            return null;
+        }
+        return (double) upperCorrect / upperAnswered - (double) lowerCorrect / lowerAnswered;
+    }
+
+    /**
+     * Lấy phân tích của mọi câu hỏi trong một quiz (từ bảng đã tính sẵn).
+     * @param quizId ID của quiz.
+     * @return Danh sách QuestionAnalyticsResponse theo thứ tự câu hỏi, kèm lượt chọn của từng phương án.
+     */
+    public List<QuestionAnalyticsResponse> getQuizAnalytics(Integer quizId) {
+        if (quizId == null) {
+            throw new IllegalArgumentException("Quiz ID không được để trống.");
+        }
+        List<Question> questions = questionRepository.findByQuizQuizId(quizId);
+        if (questions.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, QuestionStat> stats = questionStatRepository.findByQuizIdOrderByQuestionId(quizId).stream()
+                .collect(Collectors.toMap(QuestionStat::getQuestionId, s -> s));
+        List<Integer> questionIds = questions.stream().map(Question::getQuestionId).collect(Collectors.toList());
+        Map<Integer, Long> picks = answerPickStatRepository.findByQuestionIdIn(questionIds).stream()
+                .collect(Collectors.toMap(AnswerPickStat::getAnswerId, AnswerPickStat::getPickCount));
+        Map<Integer, List<Answer>> answers = answerRepository.findByQuestionQuizQuizIdAndIsDeletedFalse(quizId).stream()
+                .collect(Collectors.groupingBy(a -> a.getQuestion().getQuestionId()));
+
+        return questions.stream()
+                .sorted(Comparator.comparing(Question::getQuestionId))
+                .map(q -> toResponse(q, stats.get(q.getQuestionId()), answers.getOrDefault(q.getQuestionId(), List.of()), picks))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Lấy các câu hỏi khó nhất (tỉ lệ đúng thấp nhất) trên toàn hệ thống.
+     * @param limit Số câu hỏi tối đa (1..100).
+     * @param minAttempts Số lượt trả lời tối thiểu để được xếp hạng.
+     */
+    public List<QuestionAnalyticsResponse> getHardestQuestions(int limit, long minAttempts) {
+        if (limit < 1 || limit > 100) {
+            throw new IllegalArgumentException("Số lượng phải từ 1 đến 100.");
+        }
+        if (minAttempts < 0) {
+            throw new IllegalArgumentException("Số lượt trả lời tối thiểu không được nhỏ hơn 0.");
+        }
+        List<QuestionStat> stats = questionStatRepository.findHardest(minAttempts, PageRequest.of(0, limit));
+        Map<Integer, Question> questions = questionRepository.findAllById(
+                        stats.stream().map(QuestionStat::getQuestionId).collect(Collectors.toList())).stream()
+                .collect(Collectors.toMap(Question::getQuestionId, q -> q));
+        return stats.stream()
+                .filter(s -> questions.containsKey(s.getQuestionId()))
+                .map(s -> toResponse(questions.get(s.getQuestionId()), s, List.of(), Map.of()))
+                .collect(Collectors.toList());
+    }
+
+    private QuestionAnalyticsResponse toResponse(Question question, QuestionStat stat, List<Answer> answers,
+                                                 Map<Integer, Long> picks) {
+        long attempts = stat != null ? stat.getAttempts() : 0;
+        long correctCount = stat != null ? stat.getCorrectCount() : 0;
+        // Độ khó luôn suy ra từ chính bộ đếm được trả về: giá trị lưu lúc tính hằng đêm bị cũ khi flush cộng thêm lượt trả lời
+        Double difficulty = attempts > 0 ? (double) correctCount / attempts : null;
+        List<AnswerPickResponse> answerPicks = answers.stream()
+                .sorted(Comparator.comparing(Answer::getAnswerId))
+                .map(a -> {
+                    long count = picks.getOrDefault(a.getAnswerId(), 0L);
+                    return new AnswerPickResponse(a.getAnswerId(), a.getAnswerText(), a.isCorrect(), count,
+                            attempts > 0 ? (double) count / attempts : null);
+                })
+                .collect(Collectors.toList());
+        return new QuestionAnalyticsResponse(
+                question.getQuestionId(),
+                question.getQuiz() != null ? question.getQuiz().getQuizId() : null,
+                question.getQuestionText(),
+                attempts,
+                correctCount,
+                difficulty,
+                stat != null ? stat.getDiscriminationIndex() : null,
+                stat != null ? stat.getComputedAt() : null,
+                answerPicks
+        );
+    }
+}
@@ -15,10 +15,14 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,12 +31,17 @@ public class QuestionService {
     private final QuestionRepository questionRepository;
     private final QuizRepository quizRepository;
     private final AnswerRepository answerRepository; // MỚI: Khai báo AnswerRepository
+    private final ApplicationEventPublisher eventPublisher;
+    private final TextSearchIndexService textSearchIndexService;
 
     // Cập nhật constructor để tiêm AnswerRepository
-    public QuestionService(QuestionRepository questionRepository, QuizRepository quizRepository, AnswerRepository answerRepository) {
+    public QuestionService(QuestionRepository questionRepository, QuizRepository quizRepository, AnswerRepository answerRepository,
+                           ApplicationEventPublisher eventPublisher, TextSearchIndexService textSearchIndexService) {
         this.questionRepository = questionRepository;
         this.quizRepository = quizRepository;
         this.answerRepository = answerRepository; // Tiêm AnswerRepository
+        this.eventPublisher = eventPublisher;
+        this.textSearchIndexService = textSearchIndexService;
     }
 
     /**
@@ -63,6 +72,8 @@ public class QuestionService {
         question.setCorrectAnswerText(request.correctAnswerText() != null ? request.correctAnswerText().trim() : null);
 
         question = questionRepository.save(question);
+        eventPublisher.publishEvent(new StatsChangedEvent("question"));
+        textSearchIndexService.indexAfterCommit(question);
 
         return mapToQuestionResponse(question); // Vẫn dùng mapToQuestionResponse để trả về DTO đầy đủ
     }
@@ -145,6 +156,24 @@ public class QuestionService {
         );
     }
 
+    /**
+     * Tìm kiếm toàn văn câu hỏi theo nội dung, xếp theo mức độ liên quan.
+     * Chỉ mục trả về ID; DB chỉ dùng để nạp các câu hỏi theo ID.
+     *
+     * @param query Từ khóa tìm kiếm (không phân biệt hoa thường và dấu; từ kết thúc bằng "*" là tiền tố).
+     * @param prefix Coi từ cuối cùng là tiền tố.
+     * @param limit Số kết quả tối đa.
+     * @return Danh sách QuestionResponse theo mức độ liên quan giảm dần.
+     * @throws IllegalArgumentException Nếu từ khóa trống hoặc limit không hợp lệ.
+     */
+    @Transactional(readOnly = true)
+    public List<QuestionResponse> textSearchQuestions(String query, boolean prefix, int limit) {
+        List<Integer> ids = textSearchIndexService.search(TextSearchIndexService.Domain.QUESTION, query, prefix, limit);
+        Map<Integer, Question> found = questionRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Question::getQuestionId, Function.identity()));
+        return ids.stream().map(found::get).filter(Objects::nonNull).map(this::mapToQuestionResponse).toList();
+    }
+
 
     /**
      * Cập nhật thông tin của một câu hỏi hiện có.
@@ -177,6 +206,8 @@ public class QuestionService {
         question.setCorrectAnswerText(request.correctAnswerText() != null ? request.correctAnswerText().trim() : null);
 
         question = questionRepository.save(question);
+        eventPublisher.publishEvent(new StatsChangedEvent("question"));
+        textSearchIndexService.indexAfterCommit(question);
 
         return mapToQuestionResponse(question);
     }
@@ -198,6 +229,8 @@ public class QuestionService {
         }
 
         questionRepository.deleteById(questionId);
+        eventPublisher.publishEvent(new StatsChangedEvent("question"));
+        textSearchIndexService.removeAfterCommit(TextSearchIndexService.Domain.QUESTION, questionId);
     }
 
     /**
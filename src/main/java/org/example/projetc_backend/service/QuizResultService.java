@@ -1,5 +1,6 @@
 package org.example.projetc_backend.service;
 
+import jakarta.persistence.criteria.Predicate;
 import org.example.projetc_backend.dto.QuizResultRequest;
 import org.example.projetc_backend.dto.QuizResultResponse;
 import org.example.projetc_backend.dto.QuizResultSearchRequest;
@@ -13,24 +14,41 @@ import org.example.projetc_backend.repository.UserRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
 public class QuizResultService {
 
+    // Cột sắp xếp có index cho phân trang SLICE/KEYSET
+    // completed_at cho phép NULL (không có migration siết lại) nên không dùng làm cột seek: chỉ phân trang theo ID
+    private static final KeysetPagination PAGINATION = new KeysetPagination("resultId",
+            Map.of("resultId", Integer.class));
+
     private final QuizResultRepository quizResultRepository;
     private final UserRepository userRepository;
     private final QuizRepository quizRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricsRollupService metricsRollupService;
+    private final QuizScoreHistogramService quizScoreHistogramService;
 
-    public QuizResultService(QuizResultRepository quizResultRepository, UserRepository userRepository, QuizRepository quizRepository) {
+    public QuizResultService(QuizResultRepository quizResultRepository, UserRepository userRepository, QuizRepository quizRepository,
+                             ApplicationEventPublisher eventPublisher, MetricsRollupService metricsRollupService,
+                             QuizScoreHistogramService quizScoreHistogramService) {
         this.quizResultRepository = quizResultRepository;
         this.userRepository = userRepository;
         this.quizRepository = quizRepository;
+        this.eventPublisher = eventPublisher;
+        this.metricsRollupService = metricsRollupService;
+        this.quizScoreHistogramService = quizScoreHistogramService;
     }
 
     /**
@@ -62,6 +80,9 @@ public class QuizResultService {
         quizResult.setDurationSeconds(request.durationSeconds());
 
         quizResult = quizResultRepository.save(quizResult);
+        eventPublisher.publishEvent(new StatsChangedEvent("quizResult"));
+        metricsRollupService.recordQuizCompletion(quizResult.getCompletedAt());
+        quizScoreHistogramService.recordAdded(quiz.getQuizId(), quizResult.getScore());
         return mapToQuizResultResponse(quizResult);
     }
 
@@ -90,6 +111,7 @@ public class QuizResultService {
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy kết quả bài kiểm tra với ID: " + resultId));
 
         // Cập nhật các trường được phép thay đổi
+        Integer previousScore = quizResult.getScore();
         quizResult.setScore(request.score());
         quizResult.setDurationSeconds(request.durationSeconds());
         // Không cho phép thay đổi userId và quizId khi cập nhật kết quả đã tồn tại
@@ -98,6 +120,8 @@ public class QuizResultService {
 
         // Lưu thay đổi vào cơ sở dữ liệu
         quizResult = quizResultRepository.save(quizResult);
+        eventPublisher.publishEvent(new StatsChangedEvent("quizResult"));
+        quizScoreHistogramService.recordChanged(quizResult.getQuiz().getQuizId(), previousScore, quizResult.getScore());
         return mapToQuizResultResponse(quizResult);
     }
 
@@ -172,8 +196,9 @@ public class QuizResultService {
      * Tìm kiếm và phân trang kết quả bài kiểm tra dựa trên các tiêu chí tùy chọn.
      *
      * @param request DTO chứa các tiêu chí tìm kiếm (userId, quizId, minScore, maxScore) và thông tin phân trang/sắp xếp.
+     * Chế độ SLICE/KEYSET (trường pagination hoặc cursor) bỏ COUNT(*) và chỉ sắp xếp theo resultId.
      * @return Trang các QuizResultResponse phù hợp với tiêu chí tìm kiếm.
-     * @throws IllegalArgumentException Nếu Search request trống.
+     * @throws IllegalArgumentException Nếu Search request trống, chế độ phân trang/cột sắp xếp/cursor không hợp lệ.
      */
     @Transactional(readOnly = true)
     public QuizResultPageResponse searchQuizResults(QuizResultSearchRequest request) {
@@ -181,6 +206,15 @@ public class QuizResultService {
             throw new IllegalArgumentException("Search request không được để trống.");
         }
 
+        KeysetPagination.Mode mode = KeysetPagination.mode(request.pagination(), request.cursor(), KeysetPagination.Mode.OFFSET);
+        if (mode != KeysetPagination.Mode.OFFSET) {
+            KeysetPagination.Result<QuizResultResponse> result = PAGINATION.scroll(quizResultRepository, searchSpecification(request),
+                    mode, request.sortBy(), request.sortDir(), request.page(), request.size(), request.cursor())
+                    .map(this::mapToQuizResultResponse);
+            return new QuizResultPageResponse(result.content(), -1, -1,
+                    mode == KeysetPagination.Mode.SLICE ? request.page() : -1, request.size(), result.hasNext(), result.nextCursor());
+        }
+
         // SỬA LỖI: Sử dụng accessor methods cho các trường của Record DTO
         Sort sort = Sort.by(request.sortDir().equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC, request.sortBy());
         PageRequest pageable = PageRequest.of(request.page(), request.size(), sort);
@@ -202,10 +236,32 @@ public class QuizResultService {
                 resultPage.getTotalElements(),
                 resultPage.getTotalPages(),
                 resultPage.getNumber(),
-                resultPage.getSize()
+                resultPage.getSize(),
+                resultPage.hasNext(),
+                null
         );
     }
 
+    // Cùng điều kiện lọc với QuizResultRepository.searchQuizResults, dùng cho phân trang SLICE/KEYSET
+    private static Specification<QuizResult> searchSpecification(QuizResultSearchRequest request) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (request.userId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("user").get("userId"), request.userId()));
+            }
+            if (request.quizId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("quiz").get("quizId"), request.quizId()));
+            }
+            if (request.minScore() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("score"), request.minScore()));
+            }
+            if (request.maxScore() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("score"), request.maxScore()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
     /**
      * Xóa một kết quả bài kiểm tra khỏi cơ sở dữ liệu.
      *
@@ -217,10 +273,11 @@ public class QuizResultService {
         if (resultId == null) {
             throw new IllegalArgumentException("Result ID không được để trống.");
         }
-        if (!quizResultRepository.existsById(resultId)) {
-            throw new IllegalArgumentException("Không tìm thấy kết quả bài kiểm tra với ID: " + resultId);
-        }
-        quizResultRepository.deleteById(resultId);
+        QuizResult quizResult = quizResultRepository.findById(resultId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy kết quả bài kiểm tra với ID: " + resultId));
+        quizResultRepository.delete(quizResult);
+        eventPublisher.publishEvent(new StatsChangedEvent("quizResult"));
+        quizScoreHistogramService.recordRemoved(quizResult.getQuiz().getQuizId(), quizResult.getScore());
     }
 
     /**
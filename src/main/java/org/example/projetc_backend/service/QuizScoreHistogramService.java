@@ -0,0 +1,238 @@
+package org.example.projetc_backend.service;
+
+import jakarta.annotation.PostConstruct;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.dto.QuizScoreDistributionResponse;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Giữ histogram điểm của từng quiz trong bộ nhớ để trả lời phân vị, trung bình và trung vị
+ * mà không phải tải mọi QuizResult.
+ * - Cập nhật tăng dần (sau commit) từ QuizResultService khi lưu/cập nhật/xóa kết quả.
+ * - Dựng lại khi khởi động bằng một truy vấn GROUP BY (quiz, điểm) đọc dạng luồng. Nếu lỗi (ví dụ DB chưa sẵn sàng),
+ *   thử lại định kỳ; trong lúc chưa dựng xong, getDistribution ném ServiceBusyException (503) thay vì trả về
+ *   phân vị sai từ histogram thiếu dữ liệu.
+ * Mỗi histogram dùng cây Fenwick theo điểm, nên cập nhật và truy vấn chỉ tốn O(log số mức điểm).
+ */
+@Service
+public class QuizScoreHistogramService {
+    private static final Logger logger = LoggerFactory.getLogger(QuizScoreHistogramService.class);
+
+    private final QuizResultRepository quizResultRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private volatile Map<Integer, ScoreHistogram> histograms = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    // Điểm lớn hơn ngưỡng này được gộp vào mức cao nhất để giới hạn bộ nhớ của mỗi histogram
+    @Value("${app.quiz-histogram.max-score:10000}")
+    private int maxScore;
+
+    public QuizScoreHistogramService(QuizResultRepository quizResultRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.quizResultRepository = quizResultRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Dựng lại toàn bộ histogram từ DB; chạy trước khi ứng dụng nhận request.
+     */
+    @PostConstruct
+    public synchronized void rebuild() {
+        try {
+            Map<Integer, ScoreHistogram> rebuilt = new ConcurrentHashMap<>();
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = quizResultRepository.streamScoreCountsByQuiz()) {
+                    rows.forEach(row -> {
+                        if (row[0] != null && row[1] != null) {
+                            rebuilt.computeIfAbsent((Integer) row[0], id -> new ScoreHistogram())
+                                    .add(clamp((Integer) row[1]), ((Number) row[2]).longValue());
+                        }
+                    });
+                }
+            });
+            histograms = rebuilt;
+            ready = true;
+            logger.info("Đã dựng histogram điểm cho {} quiz.", rebuilt.size());
+        } catch (RuntimeException e) {
+            logger.warn("Không dựng được histogram điểm quiz, sẽ thử lại: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Thử dựng lại sau mỗi retry-ms nếu lần dựng khi khởi động chưa thành công.
+     */
+    @Scheduled(fixedDelayString = "${app.quiz-histogram.retry-ms:30000}",
+            initialDelayString = "${app.quiz-histogram.retry-ms:30000}")
+    public void retryRebuild() {
+        if (!ready) {
+            rebuild();
+        }
+    }
+
+    public void recordAdded(Integer quizId, Integer score) {
+        if (quizId == null || score == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            // Trước khi dựng xong, kết quả đã commit sẽ được đọc từ DB khi dựng lại
+            if (ready) {
+                histograms.computeIfAbsent(quizId, id -> new ScoreHistogram()).add(clamp(score), 1);
+            }
+        });
+    }
+
+    public void recordChanged(Integer quizId, Integer oldScore, Integer newScore) {
+        if (quizId == null || Objects.equals(oldScore, newScore)) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            if (!ready) {
+                return;
+            }
+            ScoreHistogram histogram = histograms.computeIfAbsent(quizId, id -> new ScoreHistogram());
+            if (oldScore != null) {
+                histogram.add(clamp(oldScore), -1);
+            }
+            if (newScore != null) {
+                histogram.add(clamp(newScore), 1);
+            }
+        });
+    }
+
+    public void recordRemoved(Integer quizId, Integer score) {
+        if (quizId == null || score == null) {
+            return;
+        }
+        AfterCommit.run(() -> {
+            ScoreHistogram histogram = histograms.get(quizId);
+            if (histogram != null) {
+                histogram.add(clamp(score), -1);
+            }
+        });
+    }
+
+    public void evictQuiz(Integer quizId) {
+        if (quizId != null) {
+            AfterCommit.run(() -> histograms.remove(quizId));
+        }
+    }
+
+    /**
+     * Lấy phân phối điểm của một quiz.
+     * @param quizId ID của quiz.
+     * @param score Điểm cần xếp hạng (tùy chọn); percentileRank là tỉ lệ % kết quả có điểm thấp hơn điểm này.
+     * @return QuizScoreDistributionResponse; totalResults = 0 nếu quiz chưa có kết quả nào.
+     * @throws ServiceBusyException nếu histogram chưa được dựng từ DB lần nào.
+     */
+    public QuizScoreDistributionResponse getDistribution(Integer quizId, Integer score) {
+        if (quizId == null) {
+            throw new IllegalArgumentException("Quiz ID không được để trống.");
+        }
+        if (score != null && score < 0) {
+            throw new IllegalArgumentException("Điểm số không được nhỏ hơn 0.");
+        }
+        if (!ready) {
+            throw new ServiceBusyException("Phân phối điểm quiz đang được dựng, vui lòng thử lại sau.", 5);
+        }
+        ScoreHistogram histogram = histograms.get(quizId);
+        if (histogram == null) {
+            return new QuizScoreDistributionResponse(quizId, 0, null, null, score, score != null ? 0.0 : null);
+        }
+        return histogram.describe(quizId, score != null ? clamp(score) : null, score);
+    }
+
+    private int clamp(int score) {
+        return Math.max(0, Math.min(score, maxScore));
+    }
+
+    /**
+     * Histogram điểm của một quiz: cây Fenwick trên số lượng theo từng mức điểm, kèm tổng số và tổng điểm.
+     * Các thao tác được đồng bộ trên chính đối tượng; mỗi thao tác rất ngắn.
+     */
+    static final class ScoreHistogram {
+        private long[] tree = new long[128]; // chỉ số 1..n ứng với điểm 0..n-1
+        private long total;
+        private long sum;
+
+        synchronized void add(int score, long count) {
+            ensureCapacity(score + 1);
+            for (int i = score + 1; i < tree.length; i += i & -i) {
+                tree[i] += count;
+            }
+            total += count;
+            sum += (long) score * count;
+        }
+
+        synchronized QuizScoreDistributionResponse describe(Integer quizId, Integer clampedScore, Integer requestedScore) {
+            if (total <= 0) {
+                return new QuizScoreDistributionResponse(quizId, 0, null, null, requestedScore, requestedScore != null ? 0.0 : null);
+            }
+            double mean = (double) sum / total;
+            double median = total % 2 == 1
+                    ? kth((total + 1) / 2)
+                    : (kth(total / 2) + kth(total / 2 + 1)) / 2.0;
+            Double percentileRank = null;
+            if (clampedScore != null) {
+                long below = countBelow(clampedScore);
+                percentileRank = Math.round(below * 10000.0 / total) / 100.0;
+            }
+            return new QuizScoreDistributionResponse(quizId, total, mean, median, requestedScore, percentileRank);
+        }
+
+        // Số kết quả có điểm < score
+        private long countBelow(int score) {
+            long count = 0;
+            for (int i = Math.min(score, tree.length - 1); i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+
+        // Điểm của kết quả thứ k (1-based) theo thứ tự tăng dần
+        private int kth(long k) {
+            int position = 0;
+            for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1) {
+                int next = position + step;
+                if (next < tree.length && tree[next] < k) {
+                    position = next;
+                    k -= tree[next];
+                }
+            }
+            return position; // vị trí 1-based position+1 ứng với điểm position
+        }
+
+        private void ensureCapacity(int size) {
+            if (size < tree.length) {
+                return;
+            }
+            int newLength = tree.length;
+            while (newLength <= size) {
+                newLength <<= 1;
+            }
+            // Dựng lại cây với kích thước mới từ số lượng của từng mức điểm
+            long[] counts = new long[tree.length - 1];
+            for (int score = 0; score < counts.length; score++) {
+                counts[score] = countBelow(score + 1) - countBelow(score);
+            }
+            tree = new long[newLength];
+            for (int score = 0; score < counts.length; score++) {
+                for (int i = score + 1; i < tree.length && counts[score] != 0; i += i & -i) {
+                    tree[i] += counts[score];
+                }
+            }
+        }
+    }
+}
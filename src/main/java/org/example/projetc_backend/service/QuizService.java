@@ -13,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,10 +27,15 @@ public class QuizService {
     private static final Logger logger = LoggerFactory.getLogger(QuizService.class);
     private final QuizRepository quizRepository;
     private final LessonRepository lessonRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final QuizScoreHistogramService quizScoreHistogramService;
 
-    public QuizService(QuizRepository quizRepository, LessonRepository lessonRepository) {
+    public QuizService(QuizRepository quizRepository, LessonRepository lessonRepository,
+                       ApplicationEventPublisher eventPublisher, QuizScoreHistogramService quizScoreHistogramService) {
         this.quizRepository = quizRepository;
         this.lessonRepository = lessonRepository;
+        this.eventPublisher = eventPublisher;
+        this.quizScoreHistogramService = quizScoreHistogramService;
     }
 
     /**
@@ -62,6 +68,7 @@ public class QuizService {
         quiz.setCreatedAt(LocalDateTime.now());
 
         quiz = quizRepository.save(quiz);
+        eventPublisher.publishEvent(new StatsChangedEvent("quiz"));
 
         return mapToQuizResponse(quiz);
     }
@@ -186,6 +193,7 @@ public class QuizService {
         quiz.setQuizType(request.quizType());
 
         quiz = quizRepository.save(quiz);
+        eventPublisher.publishEvent(new StatsChangedEvent("quiz"));
 
         return mapToQuizResponse(quiz);
     }
@@ -205,6 +213,8 @@ public class QuizService {
             throw new IllegalArgumentException("Không tìm thấy bài kiểm tra với ID: " + quizId);
         }
         quizRepository.deleteById(quizId);
+        eventPublisher.publishEvent(new StatsChangedEvent("quiz"));
+        quizScoreHistogramService.evictQuiz(quizId);
     }
 
     /**
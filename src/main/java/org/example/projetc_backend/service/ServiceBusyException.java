@@ -0,0 +1,19 @@
+package org.example.projetc_backend.service;
+
+/**
+ * Ném ra khi một tài nguyên giới hạn (ví dụ: pool băm mật khẩu) đang quá tải.
+ * GlobalExceptionHandler chuyển ngoại lệ này thành HTTP 503 kèm header Retry-After.
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
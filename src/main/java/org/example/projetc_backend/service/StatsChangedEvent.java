@@ -0,0 +1,8 @@
+package org.example.projetc_backend.service;
+
+/**
+ * Sự kiện miền phát ra khi dữ liệu ảnh hưởng đến trang thống kê thay đổi
+ * (người dùng, từ vựng, bài học, quiz, câu hỏi, kết quả quiz).
+ * @param source Tên loại dữ liệu đã thay đổi, ví dụ "user" hoặc "quizResult".
+ */
+public record StatsChangedEvent(String source) {}
@@ -0,0 +1,103 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.repository.LessonRepository;
+import org.example.projetc_backend.repository.QuestionRepository;
+import org.example.projetc_backend.repository.QuizRepository;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.example.projetc_backend.repository.UserRepository;
+import org.example.projetc_backend.repository.VocabularyRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Tính số liệu thống kê hệ thống bằng các truy vấn COUNT/GROUP BY thay vì tải toàn bộ entity.
+ * Các truy vấn độc lập được chạy song song trên pool statsQueryExecutor.
+ */
+@Service
+public class StatsService {
+
+    private final UserRepository userRepository;
+    private final VocabularyRepository vocabularyRepository;
+    private final LessonRepository lessonRepository;
+    private final QuizRepository quizRepository;
+    private final QuestionRepository questionRepository;
+    private final QuizResultRepository quizResultRepository;
+    private final ThreadPoolTaskExecutor executor;
+
+    public StatsService(UserRepository userRepository, VocabularyRepository vocabularyRepository,
+                        LessonRepository lessonRepository, QuizRepository quizRepository,
+                        QuestionRepository questionRepository, QuizResultRepository quizResultRepository,
+                        @Qualifier("statsQueryExecutor") ThreadPoolTaskExecutor executor) {
+        this.userRepository = userRepository;
+        this.vocabularyRepository = vocabularyRepository;
+        this.lessonRepository = lessonRepository;
+        this.quizRepository = quizRepository;
+        this.questionRepository = questionRepository;
+        this.quizResultRepository = quizResultRepository;
+        this.executor = executor;
+    }
+
+    /**
+     * Lấy các số liệu thống kê tổng hợp, cùng cấu trúc với phản hồi cũ của /api/stats:
+     * các số đếm cơ bản và các phân phối theo vai trò, độ khó từ vựng, cấp độ và kỹ năng bài học.
+     * @return Map chứa các số liệu thống kê.
+     */
+    public Map<String, Object> getStats() {
+        CompletableFuture<Long> userCount = async(userRepository::count);
+        CompletableFuture<Long> vocabularyCount = async(vocabularyRepository::count);
+        CompletableFuture<Long> lessonCount = async(lessonRepository::count);
+        CompletableFuture<Long> quizCount = async(quizRepository::count);
+        CompletableFuture<Long> questionCount = async(questionRepository::count);
+        CompletableFuture<Long> quizResultCount = async(quizResultRepository::count);
+        CompletableFuture<Map<String, Long>> userRoles = async(() -> toDistribution(userRepository.countUsersByRole()));
+        CompletableFuture<Map<String, Long>> vocabularyDifficulties =
+                async(() -> toDistribution(vocabularyRepository.countByDifficultyLevelGrouped()));
+        CompletableFuture<Map<String, Long>> lessonLevels = async(() -> toDistribution(lessonRepository.countByLevelGrouped()));
+        CompletableFuture<Map<String, Long>> lessonSkills = async(() -> toDistribution(lessonRepository.countBySkillGrouped()));
+
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("userCount", userCount.join());
+            stats.put("vocabularyCount", vocabularyCount.join());
+            stats.put("lessonCount", lessonCount.join());
+            stats.put("quizCount", quizCount.join());
+            stats.put("questionCount", questionCount.join());
+            stats.put("quizResultCount", quizResultCount.join());
+            stats.put("userRoleDistribution", userRoles.join());
+            stats.put("vocabularyDifficultyDistribution", vocabularyDifficulties.join());
+            stats.put("lessonLevelDistribution", lessonLevels.join());
+            stats.put("lessonSkillDistribution", lessonSkills.join());
+            return stats;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(query, executor);
+    }
+
+    /**
+     * Chuyển kết quả GROUP BY dạng [enum, count] thành Map tên enum -> số lượng (bỏ qua giá trị null).
+     */
+    private static Map<String, Long> toDistribution(List<Object[]> rows) {
+        Map<String, Long> distribution = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                distribution.put(((Enum<?>) row[0]).name(), ((Number) row[1]).longValue());
+            }
+        }
+        return distribution;
+    }
+}
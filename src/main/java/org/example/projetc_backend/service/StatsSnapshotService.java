@@ -0,0 +1,159 @@
+package org.example.projetc_backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.example.projetc_backend.entity.StatsSnapshot;
+import org.example.projetc_backend.repository.StatsSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Giữ bản chụp số liệu thống kê trong bộ nhớ để mỗi lần đọc /api/stats chỉ tốn O(1).
+ * Bản chụp được tính lại:
+ * - khi có StatsChangedEvent (sau commit), gom lại và xử lý ở lần kiểm tra kế tiếp (app.stats.snapshot.dirty-check-ms);
+ * - định kỳ (app.stats.snapshot.refresh-interval-ms) để bắt các thay đổi không đi qua service.
+ * Mỗi lần tính lại được lưu vào bảng Stats_Snapshots để instance mới khởi động dùng ngay.
+ */
+@Service
+public class StatsSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(StatsSnapshotService.class);
+
+    /**
+     * Bản chụp đã dựng sẵn phản hồi: số liệu kèm "computedAt", ETag (weak) và thời điểm tính.
+     */
+    public record Snapshot(Map<String, Object> body, String etag, Instant computedAt) {}
+
+    private final StatsService statsService;
+    private final StatsSnapshotRepository snapshotRepository;
+    private final ObjectMapper objectMapper;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private volatile Snapshot current;
+
+    public StatsSnapshotService(StatsService statsService, StatsSnapshotRepository snapshotRepository,
+                                ObjectMapper objectMapper) {
+        this.statsService = statsService;
+        this.snapshotRepository = snapshotRepository;
+        this.objectMapper = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    }
+
+    /**
+     * Lấy bản chụp hiện tại; chỉ tính đồng bộ nếu chưa từng có bản chụp nào.
+     */
+    public Snapshot getSnapshot() {
+        Snapshot snapshot = current;
+        return snapshot != null ? snapshot : refresh();
+    }
+
+    /**
+     * Khởi động: dùng bản chụp đã lưu (nếu có), rồi đánh dấu cần tính lại để bản chụp sớm được cập nhật.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadPersistedSnapshot() {
+        try {
+            snapshotRepository.findById(StatsSnapshot.SINGLETON_ID).ifPresent(saved -> {
+                try {
+                    Map<String, Object> stats = objectMapper.readValue(saved.getPayload(), new TypeReference<Map<String, Object>>() {});
+                    current = toSnapshot(stats, saved.getEtag(), saved.getComputedAt().toInstant(ZoneOffset.UTC));
+                } catch (JsonProcessingException e) {
+                    logger.warn("Không đọc được bản chụp thống kê đã lưu: {}", e.getMessage());
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Không tải được bản chụp thống kê đã lưu: {}", e.getMessage());
+        }
+        dirty.set(true);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatsChanged(StatsChangedEvent event) {
+        dirty.set(true);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.snapshot.dirty-check-ms:5000}")
+    public void refreshIfDirty() {
+        if (dirty.getAndSet(false)) {
+            refreshQuietly();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.snapshot.refresh-interval-ms:300000}",
+            initialDelayString = "${app.stats.snapshot.refresh-interval-ms:300000}")
+    public void scheduledRefresh() {
+        refreshQuietly();
+    }
+
+    /**
+     * Tính lại số liệu bằng StatsService, thay bản chụp trong bộ nhớ và lưu vào DB.
+     */
+    public synchronized Snapshot refresh() {
+        Map<String, Object> stats = statsService.getStats();
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(stats);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Không thể tuần tự hóa số liệu thống kê.", e);
+        }
+        Instant now = Instant.now();
+        Snapshot snapshot = toSnapshot(stats, etagOf(payload), now);
+        current = snapshot;
+
+        StatsSnapshot entity = new StatsSnapshot();
+        entity.setSnapshotId(StatsSnapshot.SINGLETON_ID);
+        entity.setPayload(payload);
+        entity.setEtag(snapshot.etag());
+        entity.setComputedAt(LocalDateTime.ofInstant(now, ZoneOffset.UTC));
+        try {
+            snapshotRepository.save(entity);
+        } catch (RuntimeException e) {
+            // Bản chụp trong bộ nhớ vẫn dùng được; chỉ mất khả năng khởi động nhanh
+            logger.warn("Không lưu được bản chụp thống kê: {}", e.getMessage());
+        }
+        return snapshot;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            dirty.set(true);
+            logger.warn("Làm mới bản chụp thống kê thất bại, giữ bản chụp cũ: {}", e.getMessage());
+        }
+    }
+
+    private static Snapshot toSnapshot(Map<String, Object> stats, String etag, Instant computedAt) {
+        Map<String, Object> body = new HashMap<>(stats);
+        body.put("computedAt", computedAt.toString());
+        return new Snapshot(Collections.unmodifiableMap(body), etag, computedAt);
+    }
+
+    /**
+     * ETag yếu chỉ phụ thuộc nội dung số liệu (không gồm computedAt), nên giữ nguyên khi dữ liệu không đổi.
+     */
+    private static String etagOf(String payload) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(payload.getBytes(StandardCharsets.UTF_8));
+            return "W/\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 không khả dụng.", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.projetc_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cổng thanh toán giả lập chạy cục bộ (app.payment.gateway=stub), không gọi ra mạng.
+ * URL phê duyệt trỏ thẳng về returnUrl kèm paymentId/PayerID nên có thể đi hết luồng thanh toán mà không cần PayPal.
+ * app.payment.stub.delay-ms giả lập độ trễ của cổng thanh toán; payerId "FAIL" cho kết quả thất bại.
+ * Trạng thái giao dịch chỉ được giữ trong bộ nhớ, đủ cho lookup() khi đối soát.
+ */
+@Service
+@ConditionalOnProperty(name = "app.payment.gateway", havingValue = "stub")
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final Map<String, String> states = new ConcurrentHashMap<>();
+
+    @Value("${app.payment.stub.delay-ms:0}")
+    private long delayMs;
+
+    @Override
+    public GatewayPayment create(BigDecimal total, String currency, String description,
+                                 String cancelUrl, String returnUrl) {
+        simulateLatency();
+        String id = "STUB-" + UUID.randomUUID();
+        String approvalUrl = UriComponentsBuilder.fromUriString(returnUrl)
+                .queryParam("paymentId", id)
+                .queryParam("PayerID", "STUBPAYER")
+                .build().toUriString();
+        states.put(id, "created");
+        return new GatewayPayment(id, "created", approvalUrl);
+    }
+
+    @Override
+    public GatewayPayment execute(String paymentId, String payerId) {
+        simulateLatency();
+        String state = "FAIL".equals(payerId) ? "failed" : "approved";
+        states.put(paymentId, state);
+        return new GatewayPayment(paymentId, state, null);
+    }
+
+    @Override
+    public GatewayPayment lookup(String paymentId) {
+        simulateLatency();
+        String state = states.get(paymentId);
+        if (state == null) {
+            throw new PaymentGatewayException("Không tìm thấy giao dịch giả lập: " + paymentId, false, null);
+        }
+        return new GatewayPayment(paymentId, state, null);
+    }
+
+    private void simulateLatency() {
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Bị ngắt khi chờ cổng thanh toán giả lập.", true, e);
+        }
+    }
+}
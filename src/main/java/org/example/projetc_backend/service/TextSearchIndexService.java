@@ -0,0 +1,230 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.cache.InvertedIndex;
+import org.example.projetc_backend.entity.LearningMaterial;
+import org.example.projetc_backend.entity.Lesson;
+import org.example.projetc_backend.entity.Question;
+import org.example.projetc_backend.entity.Vocabulary;
+import org.example.projetc_backend.repository.LearningMaterialRepository;
+import org.example.projetc_backend.repository.LessonRepository;
+import org.example.projetc_backend.repository.QuestionRepository;
+import org.example.projetc_backend.repository.VocabularyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Chỉ mục tìm kiếm toàn văn (InvertedIndex) cho bài học, từ vựng, câu hỏi và tài liệu học tập, thay cho các truy vấn
+ * LIKE '%...%' không dùng được index của DB.
+ * - Dựng khi khởi động (đọc dạng luồng chỉ các cột văn bản) và dựng lại định kỳ để tự sửa các thay đổi không đi qua
+ *   service (ví dụ: xóa quiz kéo theo xóa câu hỏi trong DB).
+ * - Cập nhật tăng dần sau commit từ các service ghi dữ liệu. Trong lúc dựng lại, các thay đổi này được ghi nhật ký
+ *   và phát lại lên chỉ mục mới trước khi thay thế, nên không thay đổi nào bị mất.
+ * Chỉ mục chỉ trả về ID đã xếp hạng; service gọi tự nạp bản ghi từ DB theo ID.
+ */
+@Service
+public class TextSearchIndexService {
+    private static final Logger logger = LoggerFactory.getLogger(TextSearchIndexService.class);
+
+    public static final int MAX_LIMIT = 100;
+    private static final int MAX_QUERY_LENGTH = 200;
+
+    public enum Domain { LESSON, VOCABULARY, QUESTION, LEARNING_MATERIAL }
+
+    /**
+     * Chỉ mục của một miền dữ liệu; index == null cho đến khi dựng xong lần đầu.
+     * journal != null trong lúc đang dựng lại. Mọi truy cập journal và việc thay index được đồng bộ trên holder.
+     */
+    private static final class Holder {
+        private volatile InvertedIndex index;
+        private List<Consumer<InvertedIndex>> journal;
+    }
+
+    private final LessonRepository lessonRepository;
+    private final VocabularyRepository vocabularyRepository;
+    private final QuestionRepository questionRepository;
+    private final LearningMaterialRepository learningMaterialRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<Domain, Holder> holders = new EnumMap<>(Domain.class);
+    private final int maxExpansions;
+
+    public TextSearchIndexService(LessonRepository lessonRepository, VocabularyRepository vocabularyRepository,
+                                  QuestionRepository questionRepository, LearningMaterialRepository learningMaterialRepository,
+                                  PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                  @Value("${app.search-index.max-expansions:256}") int maxExpansions) {
+        this.lessonRepository = lessonRepository;
+        this.vocabularyRepository = vocabularyRepository;
+        this.questionRepository = questionRepository;
+        this.learningMaterialRepository = learningMaterialRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxExpansions = maxExpansions;
+        for (Domain domain : Domain.values()) {
+            Holder holder = new Holder();
+            holders.put(domain, holder);
+            Gauge.builder("app.search.index.documents", holder, h -> h.index != null ? h.index.size() : 0)
+                    .tag("domain", domain.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Dựng lại chỉ mục của mọi miền từ DB; chạy trước khi ứng dụng nhận request và sau đó theo định kỳ.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.search-index.rebuild-interval-ms:21600000}",
+            initialDelayString = "${app.search-index.rebuild-interval-ms:21600000}")
+    public void rebuildAll() {
+        rebuild(Domain.LESSON, lessonRepository::streamSearchableText,
+                row -> lessonFields((String) row[1], (String) row[2]));
+        rebuild(Domain.VOCABULARY, vocabularyRepository::streamSearchableText,
+                row -> vocabularyFields((String) row[1], (String) row[2], (String) row[3]));
+        rebuild(Domain.QUESTION, questionRepository::streamSearchableText,
+                row -> questionFields((String) row[1]));
+        rebuild(Domain.LEARNING_MATERIAL, learningMaterialRepository::streamSearchableText,
+                row -> learningMaterialFields((String) row[1], (String) row[2]));
+    }
+
+    private void rebuild(Domain domain, Supplier<Stream<Object[]>> rows,
+                         Function<Object[], InvertedIndex.Field[]> fields) {
+        Holder holder = holders.get(domain);
+        synchronized (holder) {
+            if (holder.journal != null) {
+                return; // Đang dựng lại
+            }
+            holder.journal = new ArrayList<>();
+        }
+        try {
+            InvertedIndex rebuilt = new InvertedIndex(maxExpansions);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> stream = rows.get()) {
+                    stream.forEach(row -> rebuilt.put((Integer) row[0], fields.apply(row)));
+                }
+            });
+            synchronized (holder) {
+                holder.journal.forEach(change -> change.accept(rebuilt));
+                holder.index = rebuilt;
+            }
+            logger.info("Đã dựng chỉ mục tìm kiếm {}: {} tài liệu, {} từ.", domain, rebuilt.size(), rebuilt.termCount());
+        } catch (RuntimeException e) {
+            logger.warn("Không dựng được chỉ mục tìm kiếm {}: {}", domain, e.getMessage());
+        } finally {
+            synchronized (holder) {
+                holder.journal = null;
+            }
+        }
+    }
+
+    public void indexAfterCommit(Lesson lesson) {
+        if (lesson.isDeleted()) {
+            removeAfterCommit(Domain.LESSON, lesson.getLessonId());
+        } else {
+            putAfterCommit(Domain.LESSON, lesson.getLessonId(), lessonFields(lesson.getTitle(), lesson.getDescription()));
+        }
+    }
+
+    public void indexAfterCommit(Vocabulary vocabulary) {
+        if (vocabulary.isDeleted()) {
+            removeAfterCommit(Domain.VOCABULARY, vocabulary.getWordId());
+        } else {
+            putAfterCommit(Domain.VOCABULARY, vocabulary.getWordId(),
+                    vocabularyFields(vocabulary.getWord(), vocabulary.getMeaning(), vocabulary.getExampleSentence()));
+        }
+    }
+
+    public void indexAfterCommit(Question question) {
+        putAfterCommit(Domain.QUESTION, question.getQuestionId(), questionFields(question.getQuestionText()));
+    }
+
+    public void indexAfterCommit(LearningMaterial material) {
+        putAfterCommit(Domain.LEARNING_MATERIAL, material.getMaterialId(),
+                learningMaterialFields(material.getDescription(), material.getTranscriptText()));
+    }
+
+    public void removeAfterCommit(Domain domain, Integer id) {
+        if (id != null) {
+            AfterCommit.run(() -> apply(domain, index -> index.remove(id)));
+        }
+    }
+
+    private void putAfterCommit(Domain domain, Integer id, InvertedIndex.Field[] fields) {
+        if (id != null) {
+            AfterCommit.run(() -> apply(domain, index -> index.put(id, fields)));
+        }
+    }
+
+    private void apply(Domain domain, Consumer<InvertedIndex> change) {
+        Holder holder = holders.get(domain);
+        synchronized (holder) {
+            if (holder.index != null) {
+                change.accept(holder.index);
+            }
+            if (holder.journal != null) {
+                holder.journal.add(change);
+            }
+        }
+    }
+
+    /**
+     * Tìm kiếm toàn văn trong một miền.
+     * @param query Chuỗi tìm kiếm; không phân biệt hoa thường và dấu, từ kết thúc bằng "*" là tiền tố.
+     * @param prefix Coi từ cuối cùng là tiền tố (tìm trong lúc gõ).
+     * @param limit Số kết quả tối đa (1..MAX_LIMIT).
+     * @return ID theo mức độ liên quan giảm dần.
+     * @throws IllegalArgumentException nếu truy vấn rỗng hoặc limit không hợp lệ.
+     * @throws ServiceBusyException nếu chỉ mục chưa được dựng.
+     */
+    public List<Integer> search(Domain domain, String query, boolean prefix, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Từ khóa tìm kiếm không được để trống.");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new IllegalArgumentException("Từ khóa tìm kiếm không được dài quá " + MAX_QUERY_LENGTH + " ký tự.");
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Số kết quả phải từ 1 đến " + MAX_LIMIT + ".");
+        }
+        InvertedIndex index = holders.get(domain).index;
+        if (index == null) {
+            throw new ServiceBusyException("Chỉ mục tìm kiếm đang được dựng, vui lòng thử lại sau.", 30);
+        }
+        return index.search(query, prefix, limit).stream().map(InvertedIndex.Hit::id).toList();
+    }
+
+    // Trọng số trường: tiêu đề/từ khớp quan trọng hơn phần mô tả
+    private static InvertedIndex.Field[] lessonFields(String title, String description) {
+        return new InvertedIndex.Field[] {
+                new InvertedIndex.Field(title, 3), new InvertedIndex.Field(description, 1)};
+    }
+
+    private static InvertedIndex.Field[] vocabularyFields(String word, String meaning, String exampleSentence) {
+        return new InvertedIndex.Field[] {
+                new InvertedIndex.Field(word, 3), new InvertedIndex.Field(meaning, 2), new InvertedIndex.Field(exampleSentence, 1)};
+    }
+
+    private static InvertedIndex.Field[] questionFields(String questionText) {
+        return new InvertedIndex.Field[] {new InvertedIndex.Field(questionText, 1)};
+    }
+
+    private static InvertedIndex.Field[] learningMaterialFields(String description, String transcriptText) {
+        return new InvertedIndex.Field[] {
+                new InvertedIndex.Field(description, 2), new InvertedIndex.Field(transcriptText, 1)};
+    }
+}
@@ -21,11 +21,14 @@ public class UserAnswerService {
     private final UserAnswerRepository userAnswerRepository;
     private final QuizResultRepository quizResultRepository; // Cần để liên kết với QuizResult
     private final QuestionRepository questionRepository;     // Cần để liên kết với Question
+    private final QuestionAnalyticsService questionAnalyticsService; // Bộ đếm theo câu hỏi/phương án cho phân tích câu hỏi
 
-    public UserAnswerService(UserAnswerRepository userAnswerRepository, QuizResultRepository quizResultRepository, QuestionRepository questionRepository) {
+    public UserAnswerService(UserAnswerRepository userAnswerRepository, QuizResultRepository quizResultRepository, QuestionRepository questionRepository,
+                             QuestionAnalyticsService questionAnalyticsService) {
         this.userAnswerRepository = userAnswerRepository;
         this.quizResultRepository = quizResultRepository;
         this.questionRepository = questionRepository;
+        this.questionAnalyticsService = questionAnalyticsService;
     }
 
     /**
@@ -61,6 +64,7 @@ public class UserAnswerService {
         userAnswer.setSubmittedAt(LocalDateTime.now());
 
         userAnswer = userAnswerRepository.save(userAnswer);
+        questionAnalyticsService.recordAnswer(question, userAnswer.getUserAnswerId(), userAnswer.getUserAnswerText(), userAnswer.isCorrect());
         return mapToUserAnswerResponse(userAnswer);
     }
 
@@ -0,0 +1,436 @@
+package org.example.projetc_backend.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.projetc_backend.dto.UserImportResponse;
+import org.example.projetc_backend.dto.UserImportRowResult;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Nhập người dùng hàng loạt từ CSV hoặc JSON (mảng đối tượng), đọc dạng luồng và xử lý theo lô:
+ * - Kiểm tra trùng lặp bằng một truy vấn cho mỗi lô (thay vì hai truy vấn exists* cho mỗi dòng).
+ * - Băm mật khẩu song song trên pool passwordHashingExecutor.
+ * - Chèn bằng JDBC batch (Hibernate không gom batch được với khóa IDENTITY).
+ * Mỗi dòng đều có kết quả riêng; lỗi của một dòng không làm hỏng cả lần nhập.
+ * Nếu pool băm mật khẩu quá tải giữa chừng, các dòng đã chèn được giữ nguyên, các dòng còn lại được báo FAILED
+ * để nhập lại sau, và báo cáo một phần vẫn được trả về.
+ */
+@Service
+public class UserImportService {
+
+    public static final String STATUS_CREATED = "CREATED";
+    public static final String STATUS_DUPLICATE = "DUPLICATE";
+    public static final String STATUS_INVALID = "INVALID";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private static final String RETRY_LATER_MESSAGE = "Hệ thống đang bận nên dòng này chưa được xử lý, vui lòng nhập lại sau.";
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[^\\s@]+@[^\\s@]+\\.[^\\s@]+$");
+
+    private static final String INSERT_SQL = "INSERT INTO users " +
+            "(username, email, password_hash, full_name, created_at, role, token_version) VALUES (?, ?, ?, ?, ?, ?, 0)";
+
+    private final UserRepository userRepository;
+    private final PasswordHashingService passwordHashingService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricsRollupService metricsRollupService;
+
+    @Value("${app.user-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.user-import.max-rows:50000}")
+    private int maxRows;
+
+    public UserImportService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                             JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                             ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                             MetricsRollupService metricsRollupService) {
+        this.userRepository = userRepository;
+        this.passwordHashingService = passwordHashingService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.metricsRollupService = metricsRollupService;
+    }
+
+    /**
+     * Nhập người dùng từ luồng dữ liệu.
+     * CSV cần dòng tiêu đề gồm ít nhất: username,email,password (tùy chọn: fullName,role).
+     * JSON là một mảng các đối tượng với cùng tên trường.
+     * @param input Luồng dữ liệu (UTF-8).
+     * @param contentType Content-Type của request, dùng để chọn định dạng.
+     * @return Tổng hợp kết quả và kết quả từng dòng.
+     * @throws IllegalArgumentException Nếu định dạng dữ liệu không hợp lệ.
+     */
+    public UserImportResponse importUsers(InputStream input, String contentType) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Dữ liệu nhập không được để trống.");
+        }
+        ImportSession session = new ImportSession();
+        if (contentType != null && contentType.toLowerCase(Locale.ROOT).contains("csv")) {
+            readCsv(input, session);
+        } else {
+            readJson(input, session);
+        }
+        session.flush();
+
+        int created = 0, duplicates = 0, invalid = 0, failed = 0;
+        for (UserImportRowResult result : session.results) {
+            switch (result.status()) {
+                case STATUS_CREATED -> created++;
+                case STATUS_DUPLICATE -> duplicates++;
+                case STATUS_INVALID -> invalid++;
+                default -> failed++;
+            }
+        }
+        if (created > 0) {
+            eventPublisher.publishEvent(new StatsChangedEvent("user"));
+            metricsRollupService.recordSignups(LocalDateTime.now(), created);
+        }
+        return new UserImportResponse(session.results.size(), created, duplicates, invalid, failed, session.results);
+    }
+
+    private void readCsv(InputStream input, ImportSession session) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new IllegalArgumentException("Tệp CSV trống.");
+        }
+        if (headerLine.startsWith("\uFEFF")) {
+            headerLine = headerLine.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> headers = splitCsvLine(headerLine);
+        for (int i = 0; i < headers.size(); i++) {
+            columns.put(headers.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.containsKey("username") || !columns.containsKey("email") || !columns.containsKey("password")) {
+            throw new IllegalArgumentException("Tiêu đề CSV phải có các cột username, email, password.");
+        }
+
+        String line;
+        int rowNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> values = splitCsvLine(line);
+            session.add(new ImportRow(++rowNumber,
+                    column(values, columns.get("username")),
+                    column(values, columns.get("email")),
+                    column(values, columns.get("password")),
+                    column(values, columns.getOrDefault("fullname", columns.get("full_name"))),
+                    column(values, columns.get("role"))));
+        }
+    }
+
+    private void readJson(InputStream input, ImportSession session) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Dữ liệu JSON phải là một mảng các người dùng.");
+            }
+            int rowNumber = 0;
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode node = parser.readValueAsTree();
+                session.add(new ImportRow(++rowNumber,
+                        text(node, "username"),
+                        text(node, "email"),
+                        text(node, "password"),
+                        text(node, "fullName"),
+                        text(node, "role")));
+            }
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Dữ liệu JSON không hợp lệ: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Xử lý một lô: kiểm tra hợp lệ, loại trùng (trong tệp và trong DB), băm mật khẩu rồi chèn theo batch.
+     * Tên đăng nhập/email chỉ được ghi nhận là "đã gặp" khi dòng qua mọi kiểm tra, để một dòng bị loại
+     * (ví dụ email đã tồn tại) không khiến dòng hợp lệ phía sau bị báo trùng trong dữ liệu nhập.
+     */
+    private List<UserImportRowResult> processChunk(List<ImportRow> rows, ImportSession session) {
+        UserImportRowResult[] results = new UserImportRowResult[rows.size()];
+        Set<String> seenUsernames = session.seenUsernames;
+        Set<String> seenEmails = session.seenEmails;
+        List<Integer> validRows = new ArrayList<>(rows.size());
+        List<Integer> candidates = new ArrayList<>(rows.size());
+        User.Role[] roles = new User.Role[rows.size()];
+
+        for (int i = 0; i < rows.size(); i++) {
+            ImportRow row = rows.get(i);
+            String error = validate(row);
+            if (error == null) {
+                try {
+                    roles[i] = parseRole(row.role());
+                } catch (IllegalArgumentException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                results[i] = result(row, STATUS_INVALID, error);
+            } else {
+                validRows.add(i);
+            }
+        }
+
+        Set<String> existingUsernames = new HashSet<>();
+        Set<String> existingEmails = new HashSet<>();
+        if (!validRows.isEmpty()) {
+            // Một truy vấn cho cả lô
+            Set<String> usernames = new HashSet<>();
+            Set<String> emails = new HashSet<>();
+            for (int i : validRows) {
+                usernames.add(rows.get(i).username());
+                emails.add(rows.get(i).email());
+            }
+            for (Object[] pair : userRepository.findUsernamesAndEmailsIn(usernames, emails)) {
+                existingUsernames.add(((String) pair[0]).toLowerCase(Locale.ROOT));
+                existingEmails.add(((String) pair[1]).toLowerCase(Locale.ROOT));
+            }
+        }
+
+        for (int i : validRows) {
+            ImportRow row = rows.get(i);
+            String username = row.username().toLowerCase(Locale.ROOT);
+            String email = row.email().toLowerCase(Locale.ROOT);
+            if (seenUsernames.contains(username)) {
+                results[i] = result(row, STATUS_DUPLICATE, "Tên đăng nhập bị lặp lại trong dữ liệu nhập.");
+            } else if (seenEmails.contains(email)) {
+                results[i] = result(row, STATUS_DUPLICATE, "Email bị lặp lại trong dữ liệu nhập.");
+            } else if (existingUsernames.contains(username)) {
+                results[i] = result(row, STATUS_DUPLICATE, "Tên đăng nhập đã tồn tại: " + row.username());
+            } else if (existingEmails.contains(email)) {
+                results[i] = result(row, STATUS_DUPLICATE, "Email đã tồn tại: " + row.email());
+            } else {
+                seenUsernames.add(username);
+                seenEmails.add(email);
+                candidates.add(i);
+            }
+        }
+
+        if (!candidates.isEmpty()) {
+            List<String> passwords = new ArrayList<>(candidates.size());
+            for (int i : candidates) {
+                passwords.add(rows.get(i).password());
+            }
+            List<String> hashes;
+            try {
+                hashes = passwordHashingService.encodeAll(passwords);
+            } catch (ServiceBusyException e) {
+                // Không băm được: các dòng hợp lệ của lô này và mọi lô sau được báo FAILED thay vì trả 503 cho cả lần nhập
+                session.busy = true;
+                for (int i : candidates) {
+                    results[i] = result(rows.get(i), STATUS_FAILED, RETRY_LATER_MESSAGE);
+                }
+                return List.of(results);
+            }
+            List<PendingInsert> inserts = new ArrayList<>(candidates.size());
+            for (int k = 0; k < candidates.size(); k++) {
+                int i = candidates.get(k);
+                inserts.add(new PendingInsert(i, rows.get(i), hashes.get(k), roles[i]));
+            }
+            insert(inserts, results);
+        }
+        return List.of(results);
+    }
+
+    private void insert(List<PendingInsert> inserts, UserImportRowResult[] results) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, inserts, inserts.size(), (ps, insert) -> bind(ps, insert, now)));
+            for (PendingInsert insert : inserts) {
+                results[insert.index()] = result(insert.row(), STATUS_CREATED, null);
+            }
+        } catch (DataIntegrityViolationException e) {
+            // Có bản ghi trùng được tạo đồng thời sau khi kiểm tra: chèn lại từng dòng để biết dòng nào lỗi
+            for (PendingInsert insert : inserts) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, insert, now));
+                    results[insert.index()] = result(insert.row(), STATUS_CREATED, null);
+                } catch (DataIntegrityViolationException rowError) {
+                    results[insert.index()] = result(insert.row(), STATUS_DUPLICATE, "Tên đăng nhập hoặc email đã tồn tại.");
+                } catch (RuntimeException rowError) {
+                    results[insert.index()] = result(insert.row(), STATUS_FAILED, rowError.getMessage());
+                }
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, PendingInsert insert, Timestamp now) throws SQLException {
+        ps.setString(1, insert.row().username());
+        ps.setString(2, insert.row().email());
+        ps.setString(3, insert.passwordHash());
+        ps.setString(4, insert.row().fullName());
+        ps.setTimestamp(5, now);
+        ps.setString(6, insert.role().name());
+    }
+
+    private static String validate(ImportRow row) {
+        if (row.username() == null || row.username().isEmpty()) {
+            return "Tên đăng nhập là bắt buộc.";
+        }
+        if (row.username().length() > 50) {
+            return "Tên đăng nhập không được vượt quá 50 ký tự.";
+        }
+        if (row.email() == null || row.email().isEmpty()) {
+            return "Email là bắt buộc.";
+        }
+        if (row.email().length() > 100 || !EMAIL_PATTERN.matcher(row.email()).matches()) {
+            return "Email không hợp lệ: " + row.email();
+        }
+        if (row.password() == null || row.password().length() < 6) {
+            return "Mật khẩu phải có ít nhất 6 ký tự.";
+        }
+        if (row.fullName() != null && row.fullName().length() > 100) {
+            return "Họ tên không được vượt quá 100 ký tự.";
+        }
+        return null;
+    }
+
+    private static User.Role parseRole(String role) {
+        if (role == null || role.isEmpty()) {
+            return User.Role.ROLE_USER;
+        }
+        String normalized = role.toUpperCase(Locale.ROOT);
+        try {
+            return User.Role.valueOf(normalized.startsWith("ROLE_") ? normalized : "ROLE_" + normalized);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Vai trò không hợp lệ: " + role + ". Chỉ chấp nhận 'ROLE_ADMIN' hoặc 'ROLE_USER'.");
+        }
+    }
+
+    private static UserImportRowResult result(ImportRow row, String status, String message) {
+        return new UserImportRowResult(row.rowNumber(), row.username(), row.email(), status, message);
+    }
+
+    private static String column(List<String> values, Integer index) {
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        return trimToNull(values.get(index));
+    }
+
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : trimToNull(value.asText());
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * Tách một dòng CSV, hỗ trợ trường đặt trong dấu nháy kép và "" để thoát dấu nháy.
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record ImportRow(int rowNumber, String username, String email, String password, String fullName, String role) {}
+
+    private record PendingInsert(int index, ImportRow row, String passwordHash, User.Role role) {}
+
+    /**
+     * Trạng thái của một lần nhập: lô đang gom, tập username/email đã gặp và kết quả tích lũy.
+     */
+    private class ImportSession {
+        private final List<ImportRow> pending = new ArrayList<>(chunkSize);
+        private final Set<String> seenUsernames = new HashSet<>();
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<UserImportRowResult> results = new ArrayList<>();
+        private int rowCount;
+        // Pool băm mật khẩu đã quá tải trong lần nhập này; các dòng còn lại không được xử lý nữa
+        private boolean busy;
+
+        void add(ImportRow row) {
+            if (++rowCount > maxRows) {
+                // Không xử lý các dòng vượt giới hạn, nhưng vẫn báo kết quả cho từng dòng
+                results.add(result(row, STATUS_INVALID, "Vượt quá giới hạn " + maxRows + " dòng cho mỗi lần nhập."));
+                return;
+            }
+            pending.add(row);
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (busy) {
+                for (ImportRow row : pending) {
+                    results.add(result(row, STATUS_FAILED, RETRY_LATER_MESSAGE));
+                }
+            } else {
+                results.addAll(processChunk(pending, this));
+            }
+            pending.clear();
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.projetc_backend.service;
 
+import jakarta.persistence.criteria.Predicate;
+import org.example.projetc_backend.dto.CursorPageResponse;
 import org.example.projetc_backend.dto.UserListeningAttemptRequest;
 import org.example.projetc_backend.dto.UserListeningAttemptResponse;
 import org.example.projetc_backend.dto.UserListeningAttemptSearchRequest;
@@ -14,11 +16,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -32,6 +37,9 @@ public class UserListeningAttemptService {
 
     // MỚI: Khai báo và khởi tạo Logger
     private static final Logger logger = LoggerFactory.getLogger(UserListeningAttemptService.class);
+    // Cột sắp xếp có index cho phân trang SLICE/KEYSET
+    private static final KeysetPagination PAGINATION = new KeysetPagination("attemptId",
+            Map.of("attemptId", Integer.class, "attemptDate", LocalDateTime.class));
 
     private final UserListeningAttemptRepository userListeningAttemptRepository;
     private final UserRepository userRepository;
@@ -198,6 +206,42 @@ public class UserListeningAttemptService {
         return attemptsPage.map(this::mapToUserListeningAttemptResponse);
     }
 
+    /**
+     * Tìm kiếm các lần thử nghe không dùng OFFSET/COUNT(*): KEYSET (mặc định, theo cursor) hoặc SLICE (theo số trang).
+     * Chỉ sắp xếp theo attemptDate (mặc định, giảm dần) hoặc attemptId.
+     * @param searchRequest DTO chứa các tiêu chí tìm kiếm, cursor và thông tin phân trang.
+     * @return Trang kết quả kèm cursor của trang sau.
+     * @throws IllegalArgumentException nếu chế độ phân trang, cột sắp xếp hoặc cursor không hợp lệ.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<UserListeningAttemptResponse> scrollListeningAttempts(UserListeningAttemptSearchRequest searchRequest) {
+        KeysetPagination.Mode mode = KeysetPagination.mode(searchRequest.pagination(), searchRequest.cursor(), KeysetPagination.Mode.KEYSET);
+        String sortBy = searchRequest.sortBy() == null || searchRequest.sortBy().isBlank() ? "attemptDate" : searchRequest.sortBy();
+        String sortDir = searchRequest.sortDir() == null || searchRequest.sortDir().isBlank() ? "DESC" : searchRequest.sortDir();
+
+        Specification<UserListeningAttempt> specification = (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (searchRequest.userId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("user").get("userId"), searchRequest.userId()));
+            }
+            if (searchRequest.practiceActivityId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("practiceActivity").get("activityId"), searchRequest.practiceActivityId()));
+            }
+            if (searchRequest.minAccuracyScore() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("accuracyScore"), searchRequest.minAccuracyScore()));
+            }
+            if (searchRequest.maxAccuracyScore() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("accuracyScore"), searchRequest.maxAccuracyScore()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+
+        KeysetPagination.Result<UserListeningAttemptResponse> result = PAGINATION.scroll(userListeningAttemptRepository, specification, mode,
+                sortBy, sortDir, searchRequest.page(), searchRequest.size(), searchRequest.cursor())
+                .map(this::mapToUserListeningAttemptResponse);
+        return new CursorPageResponse<>(result.content(), searchRequest.size(), result.hasNext(), result.nextCursor());
+    }
+
 
     /**
      * Xóa một lần thử nghe của người dùng.
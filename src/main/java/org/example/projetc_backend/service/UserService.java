@@ -1,31 +1,56 @@
 package org.example.projetc_backend.service;
 
+import jakarta.persistence.criteria.Predicate;
 import org.example.projetc_backend.dto.UserUpdateRequest;
 import org.example.projetc_backend.dto.UserResponse;
 import org.example.projetc_backend.dto.UserSearchRequest; // <-- Import mới
 import org.example.projetc_backend.dto.UserPageResponse;   // <-- Import mới
+import org.example.projetc_backend.cache.UserCache;
 import org.example.projetc_backend.entity.User;
 import org.example.projetc_backend.repository.UserRepository;
+import org.example.projetc_backend.security.TokenVersionCache;
 import org.springframework.data.domain.Page; // <-- Import mới
 import org.springframework.data.domain.PageRequest; // <-- Import mới
 import org.springframework.data.domain.Sort; // <-- Import mới
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
 
+    // Cột sắp xếp có index cho phân trang SLICE/KEYSET
+    // created_at cho phép NULL (không có migration siết lại) nên không dùng làm cột seek
+    private static final KeysetPagination PAGINATION = new KeysetPagination("userId",
+            Map.of("userId", Integer.class, "username", String.class));
+
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    private final TokenVersionCache tokenVersionCache;
+    private final UserCache userCache;
+    private final PasswordHashingService passwordHashingService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MetricsRollupService metricsRollupService;
+
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       TokenVersionCache tokenVersionCache, UserCache userCache,
+                       PasswordHashingService passwordHashingService, ApplicationEventPublisher eventPublisher,
+                       MetricsRollupService metricsRollupService) {
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
+        this.metricsRollupService = metricsRollupService;
         this.passwordEncoder = passwordEncoder;
+        this.tokenVersionCache = tokenVersionCache;
+        this.userCache = userCache;
+        this.passwordHashingService = passwordHashingService;
     }
 
     @Transactional(readOnly = true)
@@ -40,7 +65,7 @@ public class UserService {
         if (username == null || username.trim().isEmpty()) {
             throw new IllegalArgumentException("Username không được để trống.");
         }
-        return userRepository.findByUsername(username);
+        return userCache.findByUsername(username);
     }
 
     @Transactional(readOnly = true)
@@ -56,7 +81,7 @@ public class UserService {
         if (userId == null) {
             throw new IllegalArgumentException("User ID không được để trống.");
         }
-        return userRepository.findById(userId);
+        return userCache.findById(userId);
     }
 
     @Transactional
@@ -78,7 +103,7 @@ public class UserService {
         User user = new User();
         user.setUsername(username);
         user.setEmail(email);
-        user.setPassword(passwordEncoder.encode(password));
+        user.setPassword(passwordHashingService.encode(password));
         user.setFullName(fullName);
         user.setAvatarUrl(avatarUrl);
 
@@ -90,6 +115,8 @@ public class UserService {
         }
 
         user = userRepository.save(user);
+        eventPublisher.publishEvent(new StatsChangedEvent("user"));
+        metricsRollupService.recordSignups(user.getCreatedAt(), 1);
 
         return mapToUserResponse(user);
     }
@@ -102,6 +129,7 @@ public class UserService {
 
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy người dùng với ID: " + userId));
+        boolean revokeTokens = false;
 
         if (request.username() != null && !request.username().trim().isEmpty()) {
             if (userRepository.findByUsername(request.username())
@@ -109,6 +137,7 @@ public class UserService {
                     .isPresent()) {
                 throw new IllegalArgumentException("Username đã tồn tại: " + request.username());
             }
+            revokeTokens |= !request.username().trim().equals(user.getUsername());
             user.setUsername(request.username().trim());
         }
 
@@ -123,7 +152,8 @@ public class UserService {
 
         // Cập nhật password nếu được cung cấp (đã mã hóa)
         if (request.password() != null && !request.password().trim().isEmpty()) {
-            user.setPassword(passwordEncoder.encode(request.password().trim()));
+            user.setPassword(passwordHashingService.encode(request.password().trim()));
+            revokeTokens = true;
         }
 
         if (request.fullName() != null) {
@@ -135,10 +165,21 @@ public class UserService {
 
         // Cập nhật vai trò (đã là User.Role trong DTO)
         if (request.role() != null) { // Vì role là enum, không cần kiểm tra .trim().isEmpty()
+            revokeTokens |= request.role() != user.getRole();
             user.setRole(request.role());
         }
 
+        // Đổi tên đăng nhập, mật khẩu hoặc vai trò sẽ thu hồi các JWT đã cấp
+        if (revokeTokens) {
+            user.setTokenVersion(user.getTokenVersion() + 1);
+        }
+
         user = userRepository.save(user);
+        userCache.evictAfterCommit(userId);
+        if (revokeTokens) {
+            tokenVersionCache.refreshAfterCommit(userId);
+        }
+        eventPublisher.publishEvent(new StatsChangedEvent("user"));
 
         return mapToUserResponse(user);
     }
@@ -152,6 +193,9 @@ public class UserService {
             throw new IllegalArgumentException("Không tìm thấy người dùng với ID: " + userId);
         }
         userRepository.deleteById(userId);
+        eventPublisher.publishEvent(new StatsChangedEvent("user"));
+        userCache.evictAfterCommit(userId);
+        tokenVersionCache.refreshAfterCommit(userId);
     }
 
 
@@ -159,8 +203,9 @@ public class UserService {
     /**
      * Tìm kiếm và phân trang người dùng dựa trên các tiêu chí tùy chọn.
      * @param request DTO chứa các tiêu chí tìm kiếm (username, email, fullName, role) và thông tin phân trang/sắp xếp.
+     * Chế độ SLICE/KEYSET (trường pagination hoặc cursor) bỏ COUNT(*) và chỉ sắp xếp theo userId hoặc username.
      * @return Trang các UserResponse phù hợp với tiêu chí tìm kiếm.
-     * @throws IllegalArgumentException Nếu Search request trống.
+     * @throws IllegalArgumentException Nếu Search request trống, chế độ phân trang/cột sắp xếp/cursor không hợp lệ.
      */
     @Transactional(readOnly = true)
     public UserPageResponse searchUsers(UserSearchRequest request) {
@@ -168,6 +213,15 @@ public class UserService {
             throw new IllegalArgumentException("Search request không được để trống.");
         }
 
+        KeysetPagination.Mode mode = KeysetPagination.mode(request.pagination(), request.cursor(), KeysetPagination.Mode.OFFSET);
+        if (mode != KeysetPagination.Mode.OFFSET) {
+            KeysetPagination.Result<UserResponse> result = PAGINATION.scroll(userRepository, searchSpecification(request),
+                    mode, request.sortBy(), request.sortDir(), request.page(), request.size(), request.cursor())
+                    .map(this::mapToUserResponse);
+            return new UserPageResponse(result.content(), -1, -1,
+                    mode == KeysetPagination.Mode.SLICE ? request.page() : -1, request.size(), result.hasNext(), result.nextCursor());
+        }
+
         Sort sort = Sort.by(request.sortDir().equalsIgnoreCase("DESC") ? Sort.Direction.DESC : Sort.Direction.ASC, request.sortBy());
         PageRequest pageable = PageRequest.of(request.page(), request.size(), sort);
 
@@ -188,10 +242,32 @@ public class UserService {
                 userPage.getTotalElements(),
                 userPage.getTotalPages(),
                 userPage.getNumber(),
-                userPage.getSize()
+                userPage.getSize(),
+                userPage.hasNext(),
+                null
         );
     }
 
+    // Cùng điều kiện lọc với UserRepository.searchUsers, dùng cho phân trang SLICE/KEYSET
+    private static Specification<User> searchSpecification(UserSearchRequest request) {
+        return (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (request.username() != null) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("username")), "%" + request.username().toLowerCase() + "%"));
+            }
+            if (request.email() != null) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("email")), "%" + request.email().toLowerCase() + "%"));
+            }
+            if (request.fullName() != null) {
+                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("fullName")), "%" + request.fullName().toLowerCase() + "%"));
+            }
+            if (request.role() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("role"), request.role()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
 
     private UserResponse mapToUserResponse(User user) {
         return new UserResponse(
@@ -1,5 +1,7 @@
 package org.example.projetc_backend.service;
 
+import jakarta.persistence.criteria.Predicate;
+import org.example.projetc_backend.dto.CursorPageResponse;
 import org.example.projetc_backend.dto.UserSpeakingAttemptRequest;
 import org.example.projetc_backend.dto.UserSpeakingAttemptResponse;
 import org.example.projetc_backend.dto.UserSpeakingAttemptSearchRequest;
@@ -13,11 +15,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -28,6 +33,9 @@ import org.slf4j.LoggerFactory;
 public class UserSpeakingAttemptService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserSpeakingAttemptService.class);
+    // Cột sắp xếp có index cho phân trang SLICE/KEYSET
+    private static final KeysetPagination PAGINATION = new KeysetPagination("attemptId",
+            Map.of("attemptId", Integer.class, "attemptDate", LocalDateTime.class));
 
     private final UserSpeakingAttemptRepository userSpeakingAttemptRepository;
     private final UserRepository userRepository;
@@ -200,6 +208,42 @@ public class UserSpeakingAttemptService {
         return attemptsPage.map(this::mapToUserSpeakingAttemptResponse);
     }
 
+    /**
+     * Tìm kiếm các lần thử nói không dùng OFFSET/COUNT(*): KEYSET (mặc định, theo cursor) hoặc SLICE (theo số trang).
+     * Chỉ sắp xếp theo attemptDate (mặc định, giảm dần) hoặc attemptId.
+     * @param searchRequest DTO chứa các tiêu chí tìm kiếm, cursor và thông tin phân trang.
+     * @return Trang kết quả kèm cursor của trang sau.
+     * @throws IllegalArgumentException nếu chế độ phân trang, cột sắp xếp hoặc cursor không hợp lệ.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<UserSpeakingAttemptResponse> scrollSpeakingAttempts(UserSpeakingAttemptSearchRequest searchRequest) {
+        KeysetPagination.Mode mode = KeysetPagination.mode(searchRequest.pagination(), searchRequest.cursor(), KeysetPagination.Mode.KEYSET);
+        String sortBy = searchRequest.sortBy() == null || searchRequest.sortBy().isBlank() ? "attemptDate" : searchRequest.sortBy();
+        String sortDir = searchRequest.sortDir() == null || searchRequest.sortDir().isBlank() ? "DESC" : searchRequest.sortDir();
+
+        Specification<UserSpeakingAttempt> specification = (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (searchRequest.userId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("user").get("userId"), searchRequest.userId()));
+            }
+            if (searchRequest.practiceActivityId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("practiceActivity").get("activityId"), searchRequest.practiceActivityId()));
+            }
+            if (searchRequest.minOverallScore() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("overallScore"), searchRequest.minOverallScore()));
+            }
+            if (searchRequest.maxOverallScore() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("overallScore"), searchRequest.maxOverallScore()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+
+        KeysetPagination.Result<UserSpeakingAttemptResponse> result = PAGINATION.scroll(userSpeakingAttemptRepository, specification, mode,
+                sortBy, sortDir, searchRequest.page(), searchRequest.size(), searchRequest.cursor())
+                .map(this::mapToUserSpeakingAttemptResponse);
+        return new CursorPageResponse<>(result.content(), searchRequest.size(), result.hasNext(), result.nextCursor());
+    }
+
     public void deleteSpeakingAttempt(Integer attemptId) {
         if (attemptId == null) {
             throw new IllegalArgumentException("Attempt ID không được để trống.");
@@ -1,5 +1,7 @@
 package org.example.projetc_backend.service;
 
+import jakarta.persistence.criteria.Predicate;
+import org.example.projetc_backend.dto.CursorPageResponse;
 import org.example.projetc_backend.dto.UserWritingAttemptRequest;
 import org.example.projetc_backend.dto.UserWritingAttemptResponse;
 import org.example.projetc_backend.dto.UserWritingAttemptSearchRequest;
@@ -14,11 +16,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.Arrays;
@@ -33,6 +38,9 @@ import org.slf4j.LoggerFactory;
 public class UserWritingAttemptService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserWritingAttemptService.class);
+    // Cột sắp xếp có index cho phân trang SLICE/KEYSET
+    private static final KeysetPagination PAGINATION = new KeysetPagination("attemptId",
+            Map.of("attemptId", Integer.class, "attemptDate", LocalDateTime.class));
 
     private final UserWritingAttemptRepository userWritingAttemptRepository;
     private final UserRepository userRepository;
@@ -187,6 +195,42 @@ public class UserWritingAttemptService {
         return attemptsPage.map(this::mapToUserWritingAttemptResponse);
     }
 
+    /**
+     * Tìm kiếm các lần thử viết không dùng OFFSET/COUNT(*): KEYSET (mặc định, theo cursor) hoặc SLICE (theo số trang).
+     * Chỉ sắp xếp theo attemptDate (mặc định, giảm dần) hoặc attemptId.
+     * @param searchRequest DTO chứa các tiêu chí tìm kiếm, cursor và thông tin phân trang.
+     * @return Trang kết quả kèm cursor của trang sau.
+     * @throws IllegalArgumentException nếu chế độ phân trang, cột sắp xếp hoặc cursor không hợp lệ.
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<UserWritingAttemptResponse> scrollWritingAttempts(UserWritingAttemptSearchRequest searchRequest) {
+        KeysetPagination.Mode mode = KeysetPagination.mode(searchRequest.pagination(), searchRequest.cursor(), KeysetPagination.Mode.KEYSET);
+        String sortBy = searchRequest.sortBy() == null || searchRequest.sortBy().isBlank() ? "attemptDate" : searchRequest.sortBy();
+        String sortDir = searchRequest.sortDir() == null || searchRequest.sortDir().isBlank() ? "DESC" : searchRequest.sortDir();
+
+        Specification<UserWritingAttempt> specification = (root, query, criteriaBuilder) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (searchRequest.userId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("user").get("userId"), searchRequest.userId()));
+            }
+            if (searchRequest.practiceActivityId() != null) {
+                predicates.add(criteriaBuilder.equal(root.get("practiceActivity").get("activityId"), searchRequest.practiceActivityId()));
+            }
+            if (searchRequest.minOverallScore() != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("overallScore"), searchRequest.minOverallScore()));
+            }
+            if (searchRequest.maxOverallScore() != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("overallScore"), searchRequest.maxOverallScore()));
+            }
+            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
+        };
+
+        KeysetPagination.Result<UserWritingAttemptResponse> result = PAGINATION.scroll(userWritingAttemptRepository, specification, mode,
+                sortBy, sortDir, searchRequest.page(), searchRequest.size(), searchRequest.cursor())
+                .map(this::mapToUserWritingAttemptResponse);
+        return new CursorPageResponse<>(result.content(), searchRequest.size(), result.hasNext(), result.nextCursor());
+    }
+
     public void deleteWritingAttempt(Integer attemptId) {
         if (attemptId == null) {
             throw new IllegalArgumentException("Attempt ID không được để trống.");
@@ -0,0 +1,328 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.example.projetc_backend.cache.AfterCommit;
+import org.example.projetc_backend.cache.PrefixIndex;
+import org.example.projetc_backend.dto.VocabularySuggestionResponse;
+import org.example.projetc_backend.entity.Vocabulary;
+import org.example.projetc_backend.repository.UserFlashcardRepository;
+import org.example.projetc_backend.repository.VocabularyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Gợi ý tự động cho ô tra từ điển, phục vụ hoàn toàn trong bộ nhớ (không truy vấn DB theo từng phím gõ).
+ * - Khóa gợi ý: từ vựng và nghĩa đã chuẩn hóa (bỏ dấu, chữ thường), kèm phần đuôi bắt đầu từ mỗi từ trong cụm
+ *   để "gio" khớp "cái giỏ". Khóa được đặt trong PrefixIndex; mỗi truy vấn là O(log n + scanLimit).
+ * - Xếp hạng theo độ khó (dễ trước) hoặc theo độ phổ biến (số người học có từ này trong flashcard).
+ * - Bản chụp bất biến, thay thế copy-on-write. Thay đổi sau commit từ VocabularyService (tạo, cập nhật, xóa mềm) chỉ
+ *   được ghi vào bảng từ vựng trong bộ nhớ và đánh dấu "bẩn"; một job nền gom mọi thay đổi trong debounce-ms rồi dựng
+ *   và thay bản chụp một lần, nên nhập hàng loạt không dựng lại chỉ mục cho từng từ.
+ * - Số người học được làm mới khi dựng lại định kỳ từ DB. Trước khi lần dựng đầu tiên thành công, suggest() ném
+ *   ServiceBusyException (503) thay vì trả về danh sách rỗng như thể không có từ nào khớp.
+ */
+@Service
+public class VocabularyAutocompleteService {
+    private static final Logger logger = LoggerFactory.getLogger(VocabularyAutocompleteService.class);
+
+    private static final int MAX_KEY_LENGTH = 64;
+    private static final int MAX_SUFFIXES_PER_FIELD = 8;
+
+    public enum RankBy { DIFFICULTY, FREQUENCY }
+
+    // keys: khóa gợi ý đã chuẩn hóa, tính một lần khi tạo Entry để các lần dựng lại không phải chuẩn hóa lại
+    private record Entry(Integer wordId, String word, String meaning, Vocabulary.DifficultyLevel difficultyLevel,
+                         long learners, String[] keys) {
+
+        Entry(Integer wordId, String word, String meaning, Vocabulary.DifficultyLevel difficultyLevel, long learners) {
+            this(wordId, word, meaning, difficultyLevel, learners, keysOf(word, meaning));
+        }
+    }
+
+    private record Snapshot(Map<Integer, Entry> entries, Entry[] owners, PrefixIndex byDifficulty, PrefixIndex byFrequency) {}
+
+    private static final Comparator<Entry> BY_DIFFICULTY = Comparator
+            .comparing(Entry::difficultyLevel, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Comparator.comparingLong(Entry::learners).reversed())
+            .thenComparingInt(entry -> entry.word().length())
+            .thenComparing(entry -> entry.word().toLowerCase(Locale.ROOT))
+            .thenComparing(Entry::wordId);
+
+    private static final Comparator<Entry> BY_FREQUENCY = Comparator.comparingLong(Entry::learners).reversed()
+            .thenComparing(Entry::difficultyLevel, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(entry -> entry.word().length())
+            .thenComparing(entry -> entry.word().toLowerCase(Locale.ROOT))
+            .thenComparing(Entry::wordId);
+
+    private final VocabularyRepository vocabularyRepository;
+    private final UserFlashcardRepository userFlashcardRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Timer suggestTimer;
+    private final int maxResults;
+    private final int scanLimit;
+    private final Object writeLock = new Object();
+    private volatile Snapshot snapshot;
+    private volatile boolean ready;
+    // Bảng từ vựng hiện hành (được bảo vệ bởi writeLock); bản chụp được dựng lại từ đây khi dirty
+    private Map<Integer, Entry> entries = new HashMap<>();
+    private boolean dirty;
+    private long copiedGeneration;
+    private long installedGeneration;
+    // Thay đổi xảy ra trong lúc dựng lại từ DB, được áp lại lên dữ liệu vừa nạp; null khi không dựng lại
+    private List<Consumer<Map<Integer, Entry>>> changesDuringRebuild;
+    // Thời điểm sớm nhất thử lại lần dựng đầu tiên nếu lần trước lỗi (ví dụ DB chưa sẵn sàng khi khởi động)
+    private volatile long nextInitialAttemptAt;
+
+    @Value("${app.vocabulary-autocomplete.initial-retry-ms:30000}")
+    private long initialRetryMillis;
+
+    public VocabularyAutocompleteService(VocabularyRepository vocabularyRepository,
+                                         UserFlashcardRepository userFlashcardRepository,
+                                         PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                                         @Value("${app.vocabulary-autocomplete.max-results:20}") int maxResults,
+                                         @Value("${app.vocabulary-autocomplete.scan-limit:256}") int scanLimit) {
+        this.vocabularyRepository = vocabularyRepository;
+        this.userFlashcardRepository = userFlashcardRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxResults = maxResults;
+        this.scanLimit = scanLimit;
+        this.snapshot = build(Map.of());
+        this.suggestTimer = Timer.builder("app.vocabulary.autocomplete")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("app.vocabulary.autocomplete.entries", this, service -> service.snapshot.owners().length)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Dựng lại toàn bộ từ DB (kèm số người học); chạy khi khởi động và theo định kỳ.
+     */
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${app.vocabulary-autocomplete.refresh-interval-ms:3600000}",
+            initialDelayString = "${app.vocabulary-autocomplete.refresh-interval-ms:3600000}")
+    public void rebuild() {
+        synchronized (writeLock) {
+            if (changesDuringRebuild != null) {
+                return;
+            }
+            changesDuringRebuild = new ArrayList<>();
+        }
+        try {
+            Map<Integer, Entry> entries = readOnlyTransaction.execute(status -> {
+                Map<Integer, Long> learners = new HashMap<>();
+                for (Object[] row : userFlashcardRepository.countLearnersByWord()) {
+                    learners.put((Integer) row[0], ((Number) row[1]).longValue());
+                }
+                Map<Integer, Entry> loaded = new HashMap<>();
+                try (Stream<Object[]> rows = vocabularyRepository.streamAutocompleteEntries()) {
+                    rows.forEach(row -> {
+                        Integer wordId = (Integer) row[0];
+                        loaded.put(wordId, new Entry(wordId, (String) row[1], (String) row[2],
+                                (Vocabulary.DifficultyLevel) row[3], learners.getOrDefault(wordId, 0L)));
+                    });
+                }
+                return loaded;
+            });
+            synchronized (writeLock) {
+                changesDuringRebuild.forEach(change -> change.accept(entries));
+                this.entries = entries;
+                dirty = true;
+            }
+            publishChanges();
+            ready = true;
+            logger.info("Đã dựng chỉ mục gợi ý cho {} từ vựng.", entries.size());
+        } catch (RuntimeException e) {
+            nextInitialAttemptAt = System.currentTimeMillis() + initialRetryMillis;
+            logger.warn("Không dựng được chỉ mục gợi ý từ vựng: {}", e.getMessage());
+        } finally {
+            synchronized (writeLock) {
+                changesDuringRebuild = null;
+            }
+        }
+    }
+
+    /**
+     * Dựng và thay bản chụp nếu có thay đổi chưa áp dụng; chạy định kỳ mỗi debounce-ms.
+     * Khi lần dựng đầu tiên chưa thành công, thử lại việc nạp từ DB sau mỗi initial-retry-ms.
+     */
+    @Scheduled(fixedDelayString = "${app.vocabulary-autocomplete.debounce-ms:500}")
+    public void publishChanges() {
+        if (!ready && nextInitialAttemptAt != 0 && System.currentTimeMillis() >= nextInitialAttemptAt) {
+            nextInitialAttemptAt = 0;
+            rebuild();
+            return;
+        }
+        Map<Integer, Entry> current;
+        long generation;
+        synchronized (writeLock) {
+            if (!dirty) {
+                return;
+            }
+            current = Map.copyOf(entries);
+            dirty = false;
+            generation = ++copiedGeneration;
+        }
+        Snapshot rebuilt = build(current);
+        synchronized (writeLock) {
+            // Job định kỳ và lần dựng lại từ DB có thể cùng dựng; không để bản chụp cũ hơn ghi đè bản mới hơn
+            if (generation > installedGeneration) {
+                snapshot = rebuilt;
+                installedGeneration = generation;
+            }
+        }
+    }
+
+    /**
+     * Cập nhật gợi ý sau khi giao dịch hiện tại commit: từ vựng đã xóa mềm bị bỏ, còn lại được thêm/thay thế.
+     */
+    public void indexAfterCommit(Vocabulary vocabulary) {
+        Integer wordId = vocabulary.getWordId();
+        if (wordId == null) {
+            return;
+        }
+        if (vocabulary.isDeleted()) {
+            AfterCommit.run(() -> modify(entries -> entries.remove(wordId)));
+            return;
+        }
+        String word = vocabulary.getWord();
+        String meaning = vocabulary.getMeaning();
+        Vocabulary.DifficultyLevel difficultyLevel = vocabulary.getDifficultyLevel();
+        AfterCommit.run(() -> modify(entries -> {
+            Entry previous = entries.get(wordId);
+            entries.put(wordId, new Entry(wordId, word, meaning, difficultyLevel, previous != null ? previous.learners() : 0));
+        }));
+    }
+
+    private void modify(Consumer<Map<Integer, Entry>> change) {
+        synchronized (writeLock) {
+            change.accept(entries);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+            dirty = true;
+        }
+    }
+
+    /**
+     * Gợi ý từ vựng theo tiền tố của từ hoặc nghĩa (không phân biệt hoa thường và dấu).
+     * Từ vựng có từ/nghĩa trùng khớp hoàn toàn với truy vấn đứng đầu, sau đó theo thứ hạng đã chọn.
+     * @param query Chuỗi người dùng đang gõ; rỗng thì trả về danh sách rỗng.
+     * @param limit Số gợi ý tối đa (1..max-results).
+     * @param rankBy DIFFICULTY (dễ trước) hoặc FREQUENCY (nhiều người học trước).
+     * @throws IllegalArgumentException nếu limit không hợp lệ.
+     * @throws ServiceBusyException nếu chỉ mục chưa được dựng lần nào.
+     */
+    public List<VocabularySuggestionResponse> suggest(String query, int limit, RankBy rankBy) {
+        if (limit < 1 || limit > maxResults) {
+            throw new IllegalArgumentException("Số gợi ý phải từ 1 đến " + maxResults + ".");
+        }
+        if (!ready) {
+            throw new ServiceBusyException("Chỉ mục gợi ý từ vựng đang được dựng, vui lòng thử lại sau.", 5);
+        }
+        long start = System.nanoTime();
+        String prefix = query != null ? PrefixIndex.normalize(query) : "";
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+        if (prefix.length() > MAX_KEY_LENGTH) {
+            prefix = prefix.substring(0, MAX_KEY_LENGTH);
+        }
+        Snapshot current = snapshot;
+        PrefixIndex index = rankBy == RankBy.FREQUENCY ? current.byFrequency() : current.byDifficulty();
+        int[] owners = index.search(prefix, limit);
+        List<VocabularySuggestionResponse> suggestions = new ArrayList<>(owners.length);
+        for (int owner : owners) {
+            Entry entry = current.owners()[owner];
+            suggestions.add(new VocabularySuggestionResponse(entry.wordId(), entry.word(), entry.meaning(), entry.difficultyLevel()));
+        }
+        suggestTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return suggestions;
+    }
+
+    private Snapshot build(Map<Integer, Entry> entries) {
+        Entry[] owners = entries.values().stream()
+                .sorted(Comparator.comparing(Entry::wordId))
+                .toArray(Entry[]::new);
+
+        List<String> keyList = new ArrayList<>();
+        List<Integer> ownerList = new ArrayList<>();
+        for (int owner = 0; owner < owners.length; owner++) {
+            for (String key : owners[owner].keys()) {
+                keyList.add(key);
+                ownerList.add(owner);
+            }
+        }
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+        String[] keys = new String[order.length];
+        int[] keyOwners = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            keyOwners[i] = ownerList.get(order[i]);
+        }
+
+        return new Snapshot(Map.copyOf(entries), owners,
+                new PrefixIndex(keys, keyOwners, rank(owners, BY_DIFFICULTY), maxResults, scanLimit),
+                new PrefixIndex(keys, keyOwners, rank(owners, BY_FREQUENCY), maxResults, scanLimit));
+    }
+
+    private static String[] keysOf(String word, String meaning) {
+        Set<String> keys = new LinkedHashSet<>();
+        addKeys(keys, word);
+        addKeys(keys, meaning);
+        return keys.toArray(String[]::new);
+    }
+
+    // Khóa của một trường: cả cụm đã chuẩn hóa và phần đuôi bắt đầu từ mỗi từ tiếp theo
+    private static void addKeys(Set<String> keys, String text) {
+        String normalized = text != null ? PrefixIndex.normalize(text) : "";
+        int start = 0;
+        for (int count = 0; count < MAX_SUFFIXES_PER_FIELD && start < normalized.length(); count++) {
+            String key = normalized.substring(start);
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+            int space = normalized.indexOf(' ', start);
+            if (space < 0) {
+                break;
+            }
+            start = space + 1;
+        }
+    }
+
+    private static int[] rank(Entry[] owners, Comparator<Entry> comparator) {
+        Integer[] order = new Integer[owners.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> comparator.compare(owners[a], owners[b]));
+        int[] rank = new int[owners.length];
+        for (int position = 0; position < order.length; position++) {
+            rank[order[position]] = position;
+        }
+        return rank;
+    }
+}
@@ -3,26 +3,39 @@ package org.example.projetc_backend.service;
 import org.example.projetc_backend.dto.VocabularyRequest;
 import org.example.projetc_backend.dto.VocabularyResponse;
 import org.example.projetc_backend.dto.VocabularySearchRequest;
+import org.example.projetc_backend.dto.VocabularySuggestionResponse;
 import org.example.projetc_backend.entity.Vocabulary;
 import org.example.projetc_backend.repository.VocabularyRepository;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class VocabularyService {
 
     private final VocabularyRepository vocabularyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TextSearchIndexService textSearchIndexService;
+    private final VocabularyAutocompleteService vocabularyAutocompleteService;
 
-    public VocabularyService(VocabularyRepository vocabularyRepository) {
+    public VocabularyService(VocabularyRepository vocabularyRepository, ApplicationEventPublisher eventPublisher,
+                             TextSearchIndexService textSearchIndexService,
+                             VocabularyAutocompleteService vocabularyAutocompleteService) {
         this.vocabularyRepository = vocabularyRepository;
+        this.eventPublisher = eventPublisher;
+        this.textSearchIndexService = textSearchIndexService;
+        this.vocabularyAutocompleteService = vocabularyAutocompleteService;
     }
 
     @Transactional
@@ -53,6 +66,9 @@ public class VocabularyService {
         // createdAt sẽ được tự động điền bởi @CreationTimestamp trong Entity, không cần set ở đây
 
         vocabulary = vocabularyRepository.save(vocabulary);
+        eventPublisher.publishEvent(new StatsChangedEvent("vocabulary"));
+        textSearchIndexService.indexAfterCommit(vocabulary);
+        vocabularyAutocompleteService.indexAfterCommit(vocabulary);
         return mapToVocabularyResponse(vocabulary);
     }
 
@@ -119,6 +135,9 @@ public class VocabularyService {
         // updatedAt sẽ được tự động điền bởi @UpdateTimestamp trong Entity
 
         vocabulary = vocabularyRepository.save(vocabulary);
+        eventPublisher.publishEvent(new StatsChangedEvent("vocabulary"));
+        textSearchIndexService.indexAfterCommit(vocabulary);
+        vocabularyAutocompleteService.indexAfterCommit(vocabulary);
         return mapToVocabularyResponse(vocabulary);
     }
 
@@ -137,6 +156,9 @@ public class VocabularyService {
 
         vocabulary.setDeleted(true); // Đánh dấu là đã xóa mềm
         vocabularyRepository.save(vocabulary); // Lưu lại trạng thái đã xóa mềm
+        eventPublisher.publishEvent(new StatsChangedEvent("vocabulary"));
+        textSearchIndexService.indexAfterCommit(vocabulary);
+        vocabularyAutocompleteService.indexAfterCommit(vocabulary);
     }
 
     @Transactional(readOnly = true)
@@ -158,6 +180,35 @@ public class VocabularyService {
         return vocabularyPage.map(this::mapToVocabularyResponse);
     }
 
+    /**
+     * Tìm kiếm toàn văn từ vựng theo từ, nghĩa và câu ví dụ, xếp theo mức độ liên quan.
+     * Chỉ mục trả về ID; DB chỉ dùng để nạp các từ vựng theo ID.
+     */
+    @Transactional(readOnly = true)
+    public List<VocabularyResponse> textSearchVocabulary(String query, boolean prefix, int limit) {
+        List<Integer> ids = textSearchIndexService.search(TextSearchIndexService.Domain.VOCABULARY, query, prefix, limit);
+        Map<Integer, Vocabulary> found = vocabularyRepository.findAllById(ids).stream()
+                .filter(v -> !v.isDeleted())
+                .collect(Collectors.toMap(Vocabulary::getWordId, Function.identity()));
+        return ids.stream().map(found::get).filter(Objects::nonNull).map(this::mapToVocabularyResponse).toList();
+    }
+
+    /**
+     * Gợi ý từ vựng trong lúc gõ, phục vụ từ chỉ mục tiền tố trong bộ nhớ (không truy vấn DB).
+     * rankBy: "difficulty" (mặc định, dễ trước) hoặc "frequency" (nhiều người học trước).
+     */
+    public List<VocabularySuggestionResponse> autocomplete(String query, int limit, String rankBy) {
+        VocabularyAutocompleteService.RankBy rank;
+        try {
+            rank = rankBy == null || rankBy.isBlank()
+                    ? VocabularyAutocompleteService.RankBy.DIFFICULTY
+                    : VocabularyAutocompleteService.RankBy.valueOf(rankBy.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("rankBy phải là 'difficulty' hoặc 'frequency'.");
+        }
+        return vocabularyAutocompleteService.suggest(query, limit, rank);
+    }
+
     private VocabularyResponse mapToVocabularyResponse(Vocabulary vocabulary) {
         return new VocabularyResponse(
                 vocabulary.getWordId(),
@@ -0,0 +1,95 @@
+package org.example.projetc_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringCacheTest {
+
+    @Test
+    void entryIsServedUntilItsOwnExpiry() throws InterruptedException {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        long now = System.currentTimeMillis();
+        cache.put("short", "a", now + 50);
+        cache.put("long", "b", now + 60_000);
+
+        assertEquals("a", cache.get("short"));
+        Thread.sleep(100);
+        assertNull(cache.get("short"));
+        assertEquals("b", cache.get("long"));
+        // Phần tử hết hạn bị xóa ngay khi đọc
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void alreadyExpiredOrNullValuesAreNotStored() {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(10);
+        cache.put("past", "a", System.currentTimeMillis() - 1);
+        cache.put("null", null, System.currentTimeMillis() + 60_000);
+
+        assertEquals(0, cache.size());
+        assertNull(cache.get("past"));
+    }
+
+    @Test
+    void sizeStaysBoundedAtCapacity() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(20);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        for (int i = 0; i < 20; i++) {
+            cache.put(i, i, expiresAt);
+        }
+        assertEquals(20, cache.size());
+        assertEquals(0, cache.evictionCount());
+
+        // Không có phần tử hết hạn: loại bỏ khoảng 10% rồi mới thêm
+        cache.put(20, 20, expiresAt);
+        assertEquals(19, cache.size());
+        assertEquals(2, cache.evictionCount());
+        assertEquals(20, cache.get(20));
+
+        for (int i = 21; i < 200; i++) {
+            cache.put(i, i, expiresAt);
+            assertTrue(cache.size() <= 20, "size=" + cache.size());
+        }
+    }
+
+    @Test
+    void expiredEntriesAreEvictedBeforeLiveOnes() throws InterruptedException {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(4);
+        long now = System.currentTimeMillis();
+        cache.put(0, 0, now + 50);
+        cache.put(1, 1, now + 50);
+        cache.put(2, 2, now + 60_000);
+        cache.put(3, 3, now + 60_000);
+        Thread.sleep(100);
+
+        cache.put(4, 4, now + 60_000);
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.get(2));
+        assertEquals(3, cache.get(3));
+        assertEquals(4, cache.get(4));
+    }
+
+    @Test
+    void overwritingAnExistingKeyAtCapacityDoesNotEvict() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(2);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        cache.put(0, 0, expiresAt);
+        cache.put(1, 1, expiresAt);
+        cache.put(1, 10, expiresAt);
+
+        assertEquals(2, cache.size());
+        assertEquals(0, cache.evictionCount());
+        assertEquals(10, cache.get(1));
+    }
+
+    @Test
+    void rejectsNonPositiveMaxSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<String, String>(0));
+    }
+}
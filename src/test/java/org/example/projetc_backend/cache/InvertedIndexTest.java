@@ -0,0 +1,93 @@
+package org.example.projetc_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    @Test
+    void tokenizeLowercasesKeepsAccentsAndTruncates() {
+        assertEquals(List.of("listen", "to", "tiếng", "việt", "2024"), InvertedIndex.tokenize("Listen, to TIẾNG-Việt (2024)!"));
+        assertEquals(List.of(), InvertedIndex.tokenize(" ... "));
+        assertEquals(40, InvertedIndex.tokenize("a".repeat(55)).get(0).length());
+        // Dạng tổ hợp được chuẩn hóa về NFC
+        assertEquals(List.of("cá"), InvertedIndex.tokenize("CÁ"));
+    }
+
+    @Test
+    void everyQueryTermMustMatch() {
+        InvertedIndex index = new InvertedIndex(10);
+        index.put(1, field("listen to music"));
+        index.put(2, field("listen carefully"));
+        index.put(3, field("music theory"));
+
+        assertEquals(List.of(1), ids(index.search("listen music", false, 10)));
+        // Tài liệu ngắn hơn xếp trước (chuẩn hóa độ dài của BM25)
+        assertEquals(List.of(3, 1), ids(index.search("music", false, 10)));
+        assertEquals(List.of(), ids(index.search("listen theory", false, 10)));
+    }
+
+    @Test
+    void exactTermRanksAbovePrefixExpansion() {
+        InvertedIndex index = new InvertedIndex(10);
+        index.put(1, field("listening"));
+        index.put(2, field("listen"));
+        index.put(3, field("list"));
+
+        assertEquals(List.of(3, 1, 2), ids(index.search("list*", false, 10)));
+        // Từ cuối là tiền tố khi gõ dở: "listen" khớp trọn vẹn nên đứng trước "listening"
+        assertEquals(List.of(2, 1), ids(index.search("listen", true, 10)));
+        assertEquals(List.of(2), ids(index.search("listen", false, 10)));
+        assertEquals(List.of(), ids(index.search("liste", false, 10)));
+    }
+
+    @Test
+    void foldedQueryMatchesAccentedTextAndAccentedQueryPrefersExactAccent() {
+        InvertedIndex index = new InvertedIndex(10);
+        index.put(1, field("ca"));
+        index.put(2, field("cá"));
+
+        List<InvertedIndex.Hit> folded = index.search("ca", false, 10);
+        assertEquals(List.of(1, 2), ids(folded));
+        assertEquals(folded.get(0).score(), folded.get(1).score(), 1e-9);
+        assertEquals(List.of(2, 1), ids(index.search("Cá", false, 10)));
+    }
+
+    @Test
+    void accentBonusIsAppliedOncePerDocumentEvenWithSeveralAccentedExpansions() {
+        InvertedIndex index = new InvertedIndex(10);
+        // Tài liệu 1 khớp hai từ mở rộng có dấu ("cá", "cáo"); tài liệu 2 có cùng từ bỏ dấu nhưng không khớp dấu
+        index.put(1, field("cá cáo"));
+        index.put(2, field("ca cao"));
+
+        List<InvertedIndex.Hit> hits = index.search("cá*", false, 10);
+        assertEquals(List.of(1, 2), ids(hits));
+        assertEquals(1.5, hits.get(0).score() / hits.get(1).score(), 1e-9);
+    }
+
+    @Test
+    void removedAndReplacedDocumentsLeaveNoPostings() {
+        InvertedIndex index = new InvertedIndex(10);
+        index.put(1, field("apple"));
+        index.put(2, field("apricot"));
+        index.put(1, field("banana"));
+        index.remove(2);
+
+        assertEquals(1, index.size());
+        assertTrue(index.search("ap*", false, 10).isEmpty());
+        assertEquals(List.of(1), ids(index.search("banana", false, 10)));
+        assertEquals(1, index.termCount());
+    }
+
+    private static InvertedIndex.Field field(String text) {
+        return new InvertedIndex.Field(text, 1.0);
+    }
+
+    private static List<Integer> ids(List<InvertedIndex.Hit> hits) {
+        return hits.stream().map(InvertedIndex.Hit::id).toList();
+    }
+}
@@ -0,0 +1,170 @@
+package org.example.projetc_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixIndexTest {
+
+    @Test
+    void exactMatchComesFirstThenRankOrder() {
+        // owner 0: "catalog" (rank 0), owner 1: "cat" (rank 2), owner 2: "category" (rank 1)
+        PrefixIndex index = index(new String[][]{{"catalog"}, {"cat"}, {"category"}}, new int[]{0, 2, 1}, 10, 100);
+
+        assertArrayEquals(new int[]{1, 0, 2}, index.search("cat", 3));
+        assertArrayEquals(new int[]{1, 0}, index.search("cat", 2));
+        assertArrayEquals(new int[]{0}, index.search("cata", 5));
+        assertArrayEquals(new int[]{2}, index.search("categ", 5));
+    }
+
+    @Test
+    void ownerWithSeveralMatchingKeysIsReturnedOnce() {
+        PrefixIndex index = index(new String[][]{{"gio", "cai gio"}, {"giong"}, {"gio hang", "hang"}}, new int[]{1, 0, 2}, 10, 100);
+
+        // owner 0 khớp hoàn toàn ("gio") nên đứng đầu và chỉ xuất hiện một lần dù có hai khóa bắt đầu bằng "gio"
+        assertArrayEquals(new int[]{0, 1, 2}, index.search("gio", 10));
+        assertArrayEquals(new int[]{2}, index.search("hang", 10));
+    }
+
+    @Test
+    void noMatchOrNonPositiveLimitReturnsNothing() {
+        PrefixIndex index = index(new String[][]{{"apple"}, {"apricot"}}, new int[]{0, 1}, 2, 100);
+
+        assertEquals(0, index.search("b", 5).length);
+        assertEquals(0, index.search("ap", 0).length);
+        assertEquals(2, index.search("ap", 50).length, "limit bị chặn bởi maxResults");
+    }
+
+    @Test
+    void scannedAndHeavyPrefixesMatchBruteForce() {
+        Random random = new Random(42);
+        int ownerCount = 120;
+        String[][] keysByOwner = new String[ownerCount][];
+        Set<String> used = new LinkedHashSet<>();
+        for (int owner = 0; owner < ownerCount; owner++) {
+            List<String> keys = new ArrayList<>();
+            for (int k = 0; k < 1 + random.nextInt(4); k++) {
+                String key = randomKey(random);
+                if (used.add(key)) {
+                    keys.add(key);
+                }
+            }
+            keysByOwner[owner] = keys.toArray(String[]::new);
+        }
+        List<Integer> permutation = new ArrayList<>();
+        for (int i = 0; i < ownerCount; i++) {
+            permutation.add(i);
+        }
+        Collections.shuffle(permutation, random);
+        int[] rank = permutation.stream().mapToInt(Integer::intValue).toArray();
+        int maxResults = 5;
+        int scanLimit = 8;
+        PrefixIndex index = index(keysByOwner, rank, maxResults, scanLimit);
+
+        int heavyChecked = 0;
+        for (String prefix : allPrefixes(3)) {
+            int[] expected = bruteForce(keysByOwner, rank, prefix, maxResults);
+            assertArrayEquals(expected, index.search(prefix, maxResults), "prefix=" + prefix);
+            if (matchingKeys(keysByOwner, prefix) > scanLimit) {
+                heavyChecked++;
+            }
+        }
+        // Đảm bảo dữ liệu thực sự đi qua nhánh tiền tố nặng (top-k tính sẵn)
+        assertTrue(heavyChecked > 0);
+    }
+
+    @Test
+    void normalizeFoldsAccentsCaseAndSeparators() {
+        assertEquals("cai gio", PrefixIndex.normalize("  Cái --Giỏ! "));
+        assertEquals("duong pho", PrefixIndex.normalize("Đường phố"));
+    }
+
+    private static PrefixIndex index(String[][] keysByOwner, int[] rank, int maxResults, int scanLimit) {
+        TreeMap<String, List<Integer>> sorted = new TreeMap<>();
+        for (int owner = 0; owner < keysByOwner.length; owner++) {
+            for (String key : keysByOwner[owner]) {
+                sorted.computeIfAbsent(key, k -> new ArrayList<>()).add(owner);
+            }
+        }
+        List<String> keys = new ArrayList<>();
+        List<Integer> owners = new ArrayList<>();
+        sorted.forEach((key, keyOwners) -> keyOwners.forEach(owner -> {
+            keys.add(key);
+            owners.add(owner);
+        }));
+        return new PrefixIndex(keys.toArray(String[]::new), owners.stream().mapToInt(Integer::intValue).toArray(),
+                rank, maxResults, scanLimit);
+    }
+
+    // Owner có khóa trùng khớp hoàn toàn trước, sau đó các owner có khóa bắt đầu bằng prefix theo rank tăng dần
+    private static int[] bruteForce(String[][] keysByOwner, int[] rank, String prefix, int limit) {
+        List<Integer> exact = new ArrayList<>();
+        List<Integer> matching = new ArrayList<>();
+        for (int owner = 0; owner < keysByOwner.length; owner++) {
+            if (Arrays.asList(keysByOwner[owner]).contains(prefix)) {
+                exact.add(owner);
+            }
+            for (String key : keysByOwner[owner]) {
+                if (key.startsWith(prefix)) {
+                    matching.add(owner);
+                    break;
+                }
+            }
+        }
+        Comparator<Integer> byRank = Comparator.comparingInt(owner -> rank[owner]);
+        exact.sort(byRank);
+        matching.sort(byRank);
+        Set<Integer> result = new LinkedHashSet<>(exact);
+        result.addAll(matching);
+        return result.stream().limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int matchingKeys(String[][] keysByOwner, String prefix) {
+        int count = 0;
+        for (String[] keys : keysByOwner) {
+            for (String key : keys) {
+                if (key.startsWith(prefix)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 1 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            key.append((char) ('a' + random.nextInt(3)));
+        }
+        return key.toString();
+    }
+
+    private static List<String> allPrefixes(int maxLength) {
+        List<String> prefixes = new ArrayList<>(List.of(""));
+        List<String> result = new ArrayList<>();
+        for (int length = 1; length <= maxLength; length++) {
+            List<String> next = new ArrayList<>();
+            for (String prefix : prefixes) {
+                for (char c = 'a'; c <= 'c'; c++) {
+                    next.add(prefix + c);
+                }
+            }
+            result.addAll(next);
+            prefixes = next;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.projetc_backend.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TextFoldingTest {
+
+    @Test
+    void foldRemovesAccentsAndLowercases() {
+        assertEquals("tieng viet", TextFolding.fold("Tiếng Việt"));
+        assertEquals("duong pho", TextFolding.fold("Đường phố"));
+        // Dạng tổ hợp (NFD) và dạng dựng sẵn (NFC) cho cùng kết quả
+        assertEquals(TextFolding.fold("cá"), TextFolding.fold("cá"));
+    }
+
+    @Test
+    void foldKeepsPunctuationAndHandlesNull() {
+        assertEquals("cai gio!", TextFolding.fold("Cái Giỏ!"));
+        assertEquals("", TextFolding.fold(null));
+    }
+}
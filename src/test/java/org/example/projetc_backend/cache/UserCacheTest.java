@@ -0,0 +1,84 @@
+package org.example.projetc_backend.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserCacheTest {
+
+    private UserRepository userRepository;
+    private UserCache userCache;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        userCache = new UserCache(userRepository, new SimpleMeterRegistry(), 100, 300);
+    }
+
+    @Test
+    void loadedUserIsCachedUntilEvicted() {
+        when(userRepository.findById(1)).thenReturn(Optional.of(user("old-hash")), Optional.of(user("new-hash")));
+
+        assertEquals("old-hash", userCache.findById(1).orElseThrow().getPassword());
+        assertEquals("old-hash", userCache.findByUsername("alice").orElseThrow().getPassword());
+        verify(userRepository, times(1)).findById(1);
+
+        // Không có giao dịch nên evict chạy ngay
+        userCache.evictAfterCommit(1);
+        assertEquals("new-hash", userCache.findById(1).orElseThrow().getPassword());
+    }
+
+    @Test
+    void rowReadBeforeAConcurrentWriteIsNotStoredAfterEvict() {
+        // Request đọc nhận bản ghi cũ, nhưng giao dịch ghi commit và evict trước khi request đọc kịp lưu vào cache
+        when(userRepository.findById(1)).thenAnswer(invocation -> {
+            userCache.evictAfterCommit(1);
+            return Optional.of(user("old-hash"));
+        }).thenReturn(Optional.of(user("new-hash")));
+
+        assertEquals("old-hash", userCache.findById(1).orElseThrow().getPassword());
+        assertEquals("new-hash", userCache.findById(1).orElseThrow().getPassword());
+        assertEquals("new-hash", userCache.findById(1).orElseThrow().getPassword());
+        verify(userRepository, times(2)).findById(1);
+    }
+
+    @Test
+    void usernameLookupRacingAnEvictIsNotStored() {
+        when(userRepository.findByUsername("alice")).thenAnswer(invocation -> {
+            userCache.evictAfterCommit(1);
+            return Optional.of(user("old-hash"));
+        }).thenReturn(Optional.of(user("new-hash")));
+
+        assertEquals("old-hash", userCache.findByUsername("alice").orElseThrow().getPassword());
+        assertEquals("new-hash", userCache.findByUsername("alice").orElseThrow().getPassword());
+        assertEquals("new-hash", userCache.findById(1).orElseThrow().getPassword());
+        verify(userRepository, times(2)).findByUsername("alice");
+    }
+
+    @Test
+    void returnedUsersAreCopies() {
+        when(userRepository.findById(1)).thenReturn(Optional.of(user("hash")));
+        userCache.findById(1).orElseThrow().setPassword("changed");
+
+        assertEquals("hash", userCache.findById(1).orElseThrow().getPassword());
+    }
+
+    private static User user(String passwordHash) {
+        User user = new User();
+        user.setUserId(1);
+        user.setUsername("alice");
+        user.setEmail("alice@example.com");
+        user.setPassword(passwordHash);
+        return user;
+    }
+}
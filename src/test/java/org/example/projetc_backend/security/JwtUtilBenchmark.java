@@ -0,0 +1,82 @@
+package org.example.projetc_backend.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark xác minh JWT: cache token đã xác minh so với parse + kiểm tra HMAC ở mỗi request
+ * (không chạy cùng test; JMH không có trong dependency của dự án).
+ * Chạy: mvn -q test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ *       java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.example.projetc_backend.security.JwtUtilBenchmark [số luồng]
+ * Ba kịch bản trên cùng tập token: verifyToken trúng cache, verifyToken luôn trượt cache (cache 1 phần tử,
+ * gồm cả chi phí put/dọn cache) và parse trực tiếp không qua cache như trước khi có cache.
+ */
+public class JwtUtilBenchmark {
+
+    private static final int WARMUP_SECONDS = 2;
+    private static final int MEASURE_SECONDS = 5;
+    private static final int TOKENS = 1024;
+    private static final String SECRET = JwtUtilTest.SECRET;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        run("cache hit", threads, new JwtUtil(SECRET, 3_600_000L, TOKENS * 2),
+                (jwtUtil, token) -> jwtUtil.verifyToken(token).userId());
+        run("cache miss", threads, new JwtUtil(SECRET, 3_600_000L, 1),
+                (jwtUtil, token) -> jwtUtil.verifyToken(token).userId());
+        run("no cache", threads, new JwtUtil(SECRET, 3_600_000L, 1),
+                (jwtUtil, token) -> jwtUtil.getClaimFromToken(token, Claims::getSubject).length());
+    }
+
+    private interface Operation {
+        long apply(JwtUtil jwtUtil, String token);
+    }
+
+    private static void run(String name, int threads, JwtUtil jwtUtil, Operation operation) throws InterruptedException {
+        String[] tokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = jwtUtil.generateToken(i, "user" + i, "ROLE_USER", 0);
+        }
+        measure(jwtUtil, tokens, threads, operation, WARMUP_SECONDS);
+        long ops = measure(jwtUtil, tokens, threads, operation, MEASURE_SECONDS);
+        System.out.printf("%-10s threads=%d  %,.0f ops/s  %.1f ns/op/thread%n", name, threads,
+                ops / (double) MEASURE_SECONDS, TimeUnit.SECONDS.toNanos(MEASURE_SECONDS) * threads / (double) ops);
+    }
+
+    private static long measure(JwtUtil jwtUtil, String[] tokens, int threads, Operation operation, int seconds)
+            throws InterruptedException {
+        LongAdder total = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long[] sink = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long count = 0;
+                long acc = 0;
+                while ((count & 63) != 0 || System.nanoTime() < deadline) {
+                    acc += operation.apply(jwtUtil, tokens[(int) ((count + thread * 97L) % TOKENS)]);
+                    count++;
+                }
+                sink[thread] = acc;
+                total.add(count);
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+        return total.sum();
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.projetc_backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JwtUtilTest {
+
+    // 32 byte ngẫu nhiên cố định (HS256 cần tối thiểu 256 bit)
+    static final String SECRET = Base64.getEncoder().encodeToString("0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.US_ASCII));
+
+    @Test
+    void verifiedClaimsAreCachedUntilTokenExpiry() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 100);
+        String token = jwtUtil.generateToken(7, "alice", "ROLE_USER", 3);
+
+        JwtClaims first = jwtUtil.verifyToken(token);
+        assertNotNull(first);
+        assertEquals(7, first.userId());
+        assertEquals("alice", first.username());
+        assertEquals("ROLE_USER", first.role());
+        assertEquals(3, first.tokenVersion());
+        // Lần sau lấy từ cache: cùng một đối tượng, không parse lại
+        assertSame(first, jwtUtil.verifyToken(token));
+    }
+
+    @Test
+    void tamperedTokenIsRejectedWhileTheOriginalIsCached() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 100);
+        String token = jwtUtil.generateToken(7, "alice", "ROLE_USER", 3);
+        String admin = jwtUtil.generateToken(7, "alice", "ROLE_ADMIN", 3);
+        assertNotNull(jwtUtil.verifyToken(token));
+
+        String[] parts = token.split("\\.");
+        String[] adminParts = admin.split("\\.");
+        // Payload của token khác nhưng giữ chữ ký của token đã cache
+        assertNull(jwtUtil.verifyToken(parts[0] + "." + adminParts[1] + "." + parts[2]));
+        // Chữ ký bị sửa một ký tự
+        char[] signature = parts[2].toCharArray();
+        signature[10] = signature[10] == 'A' ? 'B' : 'A';
+        assertNull(jwtUtil.verifyToken(parts[0] + "." + parts[1] + "." + new String(signature)));
+        // Token ký bằng khóa khác
+        String otherSecret = Base64.getEncoder().encodeToString("fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.US_ASCII));
+        JwtUtil other = new JwtUtil(otherSecret, 60_000L, 100);
+        assertNull(jwtUtil.verifyToken(other.generateToken(7, "alice", "ROLE_USER", 3)));
+
+        assertNotNull(jwtUtil.verifyToken(token));
+        assertFalse(jwtUtil.validateToken(token + "x"));
+    }
+
+    @Test
+    void cachedTokenIsRejectedOnceExpired() throws InterruptedException {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 1_500L, 100);
+        String token = jwtUtil.generateToken(7, "alice", "ROLE_USER", 3);
+        JwtClaims claims = jwtUtil.verifyToken(token);
+        assertNotNull(claims);
+        assertSame(claims, jwtUtil.verifyToken(token));
+
+        Thread.sleep(Math.max(0, claims.expiresAt().toEpochMilli() - System.currentTimeMillis()) + 100);
+        assertNull(jwtUtil.verifyToken(token));
+        assertFalse(jwtUtil.validateToken(token));
+    }
+
+    @Test
+    void evictedTokensAreVerifiedAgain() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 2);
+        String[] tokens = new String[5];
+        JwtClaims[] claims = new JwtClaims[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = jwtUtil.generateToken(i, "user" + i, "ROLE_USER", 0);
+            claims[i] = jwtUtil.verifyToken(tokens[i]);
+        }
+        // Cache chỉ giữ tối đa 2 token; các token bị loại được parse lại và vẫn hợp lệ
+        int cached = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            JwtClaims again = jwtUtil.verifyToken(tokens[i]);
+            assertEquals(claims[i], again);
+            if (again == claims[i]) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= 2, "cached=" + cached);
+    }
+
+    @Test
+    void blankOrMalformedTokenIsRejected() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 60_000L, 100);
+        assertNull(jwtUtil.verifyToken(null));
+        assertNull(jwtUtil.verifyToken(" "));
+        assertNull(jwtUtil.verifyToken("not.a.jwt"));
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.projetc_backend.security;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Benchmark thông lượng RateLimiter.tryAcquire (không chạy cùng test; JMH không có trong dependency của dự án).
+ * Chạy: mvn -q test-compile
+ *       java -cp target/classes:target/test-classes org.example.projetc_backend.security.RateLimiterBenchmark [số luồng]
+ * Hai kịch bản: mọi luồng cùng một khóa (tranh chấp CAS tối đa) và mỗi luồng một tập khóa riêng.
+ */
+public class RateLimiterBenchmark {
+
+    private static final int WARMUP_SECONDS = 2;
+    private static final int MEASURE_SECONDS = 5;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        run("shared key", threads, (limiter, thread, i) -> limiter.tryAcquire("ip:shared"));
+        run("distinct keys", threads, (limiter, thread, i) -> limiter.tryAcquire("ip:" + thread + ":" + (i & 1023)));
+    }
+
+    private interface Operation {
+        long apply(RateLimiter limiter, int thread, long iteration);
+    }
+
+    private static void run(String name, int threads, Operation operation) throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1_000_000, 1_000_000, 100_000);
+        measure(limiter, threads, operation, WARMUP_SECONDS);
+        long ops = measure(limiter, threads, operation, MEASURE_SECONDS);
+        System.out.printf("%-14s threads=%d  %,.0f ops/s  %.1f ns/op/thread%n", name, threads,
+                ops / (double) MEASURE_SECONDS, TimeUnit.SECONDS.toNanos(MEASURE_SECONDS) * threads / (double) ops);
+    }
+
+    private static long measure(RateLimiter limiter, int threads, Operation operation, int seconds)
+            throws InterruptedException {
+        LongAdder total = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long[] sink = new long[threads];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                long count = 0;
+                long acc = 0;
+                while ((count & 1023) != 0 || System.nanoTime() < deadline) {
+                    acc += operation.apply(limiter, thread, count);
+                    count++;
+                }
+                sink[thread] = acc;
+                total.add(count);
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        pool.awaitTermination(seconds + 30L, TimeUnit.SECONDS);
+        return total.sum();
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.projetc_backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    @Test
+    void allowsBurstUpToCapacityThenRejectsWithWait() {
+        RateLimiter limiter = new RateLimiter(3, 60, 100);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("ip:1"));
+        }
+        long waitNanos = limiter.tryAcquire("ip:1");
+        assertTrue(waitNanos > 0 && waitNanos <= TimeUnit.SECONDS.toNanos(1), "wait=" + waitNanos);
+    }
+
+    @Test
+    void keysHaveIndependentBuckets() {
+        RateLimiter limiter = new RateLimiter(1, 60, 100);
+        assertEquals(0, limiter.tryAcquire("ip:1"));
+        assertTrue(limiter.tryAcquire("ip:1") > 0);
+        assertEquals(0, limiter.tryAcquire("ip:2"));
+    }
+
+    @Test
+    void bucketCountStaysBounded() {
+        RateLimiter limiter = new RateLimiter(1, 1, 10);
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("ip:" + i);
+        }
+        assertTrue(limiter.size() <= 10, "size=" + limiter.size());
+    }
+
+    @Test
+    void concurrentCallersNeverExceedCapacity() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(50, 1, 100);
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < 8; t++) {
+            pool.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (limiter.tryAcquire("user:a") == 0) {
+                        allowed.incrementAndGet();
+                    }
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(50, allowed.get());
+    }
+
+    @Test
+    void rejectsNonPositiveConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 10, 10));
+    }
+}
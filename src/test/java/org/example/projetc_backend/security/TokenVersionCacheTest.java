@@ -0,0 +1,59 @@
+package org.example.projetc_backend.security;
+
+import org.example.projetc_backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TokenVersionCacheTest {
+
+    @Test
+    void versionIsCachedUntilRefreshed() {
+        UserRepository userRepository = mock(UserRepository.class);
+        TokenVersionCache cache = new TokenVersionCache(userRepository, 100, 300);
+        when(userRepository.findTokenVersionByUserId(1)).thenReturn(Optional.of(0), Optional.of(1));
+
+        assertTrue(cache.isCurrent(1, 0));
+        assertTrue(cache.isCurrent(1, 0));
+        verify(userRepository, times(1)).findTokenVersionByUserId(1);
+
+        // Không có giao dịch nên làm mới chạy ngay
+        cache.refreshAfterCommit(1);
+        assertFalse(cache.isCurrent(1, 0));
+        assertTrue(cache.isCurrent(1, 1));
+    }
+
+    @Test
+    void versionReadBeforeARevocationCommitsIsNotCached() {
+        UserRepository userRepository = mock(UserRepository.class);
+        TokenVersionCache cache = new TokenVersionCache(userRepository, 100, 300);
+        // Đọc phiên bản cũ, nhưng đăng xuất/đặt lại mật khẩu commit và làm mới cache trước khi kịp lưu
+        when(userRepository.findTokenVersionByUserId(1)).thenAnswer(invocation -> {
+            cache.refreshAfterCommit(1);
+            return Optional.of(0);
+        }).thenReturn(Optional.of(1));
+
+        assertTrue(cache.isCurrent(1, 0));
+        assertFalse(cache.isCurrent(1, 0));
+        assertFalse(cache.isCurrent(1, 0));
+        verify(userRepository, times(2)).findTokenVersionByUserId(1);
+    }
+
+    @Test
+    void missingUserOrVersionIsNeverCurrent() {
+        UserRepository userRepository = mock(UserRepository.class);
+        TokenVersionCache cache = new TokenVersionCache(userRepository, 100, 300);
+        when(userRepository.findTokenVersionByUserId(2)).thenReturn(Optional.empty());
+
+        assertFalse(cache.isCurrent(2, 0));
+        assertFalse(cache.isCurrent(null, 0));
+        assertFalse(cache.isCurrent(1, null));
+    }
+}
@@ -0,0 +1,139 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.cache.UserCache;
+import org.example.projetc_backend.entity.PasswordResetOtp;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.PasswordResetOtpRepository;
+import org.example.projetc_backend.repository.UserRepository;
+import org.example.projetc_backend.security.JwtUtil;
+import org.example.projetc_backend.security.TokenVersionCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đặt lại mật khẩu trên H2: dùng OTP và ghi mật khẩu mới nằm trong một transaction, lần nhập sai vẫn được commit,
+ * và hai yêu cầu OTP đồng thời cho cùng email trả lỗi 4xx thay vì lỗi khóa duy nhất.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:auth;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuthServiceTest {
+
+    private static final String EMAIL = "learner@example.com";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordResetOtpRepository otpRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private OtpService otpService;
+    private AuthService authService;
+
+    @BeforeEach
+    void setUp() {
+        otpRepository.deleteAll();
+        userRepository.deleteAll();
+        otpService = newOtpService(otpRepository);
+
+        PasswordHashingService hashingService = mock(PasswordHashingService.class);
+        when(hashingService.encode(anyString())).thenReturn("new-hash");
+        authService = new AuthService(mock(JwtUtil.class), mock(UserService.class), userRepository,
+                mock(EmailService.class), mock(PasswordEncoder.class), mock(TokenVersionCache.class),
+                mock(UserCache.class), hashingService, otpService, transactionManager);
+    }
+
+    @Test
+    void resetPasswordConsumesTheOtpAndRevokesTokens() {
+        User user = newUser(EMAIL);
+        String otp = otpService.issue(EMAIL);
+
+        authService.resetPassword(EMAIL, otp, "secret123");
+
+        User updated = userRepository.findById(user.getUserId()).orElseThrow();
+        assertEquals("new-hash", updated.getPassword());
+        assertEquals(1, updated.getTokenVersion());
+        assertTrue(otpRepository.findByEmail(EMAIL).isEmpty());
+    }
+
+    @Test
+    void wrongOtpStillCommitsTheFailedAttempt() {
+        newUser(EMAIL);
+        otpService.issue(EMAIL);
+
+        assertThrows(IllegalArgumentException.class, () -> authService.resetPassword(EMAIL, "not-it", "secret123"));
+
+        assertEquals(1, otpRepository.findByEmail(EMAIL).orElseThrow().getFailedAttempts());
+        assertEquals("hash", userRepository.findByEmail(EMAIL).orElseThrow().getPassword());
+    }
+
+    @Test
+    void otpIsNotConsumedWhenThePasswordCannotBeWritten() {
+        // Có OTP nhưng không có người dùng: bước ghi mật khẩu thất bại sau khi OTP đã được kiểm tra
+        String otp = otpService.issue(EMAIL);
+
+        assertThrows(IllegalArgumentException.class, () -> authService.resetPassword(EMAIL, otp, "secret123"));
+
+        assertTrue(otpRepository.findByEmail(EMAIL).isPresent());
+    }
+
+    @Test
+    void concurrentIssueForTheSameEmailIsRejectedAsABadRequest() {
+        otpService.issue(EMAIL);
+        // Giả lập yêu cầu song song: đọc trước khi dòng của yêu cầu kia commit nên không thấy OTP cũ
+        PasswordResetOtpRepository racingRepository = mock(PasswordResetOtpRepository.class, delegatesTo(otpRepository));
+        doReturn(Optional.empty()).when(racingRepository).findByEmail(EMAIL);
+        OtpService racingOtpService = newOtpService(racingRepository);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> racingOtpService.issue(EMAIL));
+
+        assertTrue(error.getMessage().contains("vừa được tạo"));
+        PasswordResetOtp stored = otpRepository.findByEmail(EMAIL).orElseThrow();
+        assertEquals(0, stored.getFailedAttempts());
+    }
+
+    private static OtpService newOtpService(PasswordResetOtpRepository repository) {
+        OtpService service = new OtpService(repository);
+        ReflectionTestUtils.setField(service, "ttlMinutes", 10L);
+        ReflectionTestUtils.setField(service, "maxFailedAttempts", 5);
+        return service;
+    }
+
+    private User newUser(String email) {
+        User user = new User();
+        user.setUsername("learner");
+        user.setEmail(email);
+        user.setPassword("hash");
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.projetc_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsWhileOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60_000);
+
+        breaker.recordFailure();
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.secondsUntilRetry() > 0);
+    }
+
+    @Test
+    void successResetsTheConsecutiveFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(2, 60_000);
+
+        breaker.recordFailure();
+        breaker.recordSuccess();
+        breaker.recordFailure();
+
+        // Hai lỗi không liên tiếp: vẫn CLOSED
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.secondsUntilRetry());
+    }
+
+    @Test
+    void halfOpenAllowsASingleProbeAndClosesOnSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Hết thời gian mở: lời gọi đầu tiên là lời gọi thử, các lời gọi khác bị từ chối cho tới khi có kết quả
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void failedProbeReopensTheCircuit() {
+        CircuitBreaker breaker = new CircuitBreaker(5, 0);
+        for (int i = 0; i < 5; i++) {
+            breaker.recordFailure();
+        }
+        assertTrue(breaker.tryAcquire());
+
+        // Ở HALF_OPEN chỉ cần một lỗi là mở lại, không chờ đủ ngưỡng
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void releasedProbeCanBeTakenAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.recordFailure();
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        // Lời gọi thử bị pool từ chối: trả lại lượt thử
+        breaker.release();
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new CircuitBreaker(1, -1));
+    }
+}
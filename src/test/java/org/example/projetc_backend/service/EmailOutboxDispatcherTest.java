@@ -0,0 +1,258 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.projetc_backend.entity.EmailOutbox;
+import org.example.projetc_backend.repository.EmailOutboxRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chạy outbox trên H2 với máy chủ SMTP giả lập trong tiến trình (StubMailSender).
+ * Pool gửi được thay bằng executor đợi tác vụ chạy xong để kết quả mỗi lần quét có thể kiểm tra ngay.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "app.email.outbox.chunk-size=2",
+        "app.email.outbox.max-attempts=3",
+        "app.email.outbox.backoff-seconds=30"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({EmailOutboxDispatcher.class, EmailService.class, EmailOutboxDispatcherTest.StubSmtp.class})
+// Mỗi lệnh repository tự commit như khi chạy thật (claim là UPDATE có điều kiện trong giao dịch riêng)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class EmailOutboxDispatcherTest {
+
+    @Autowired
+    private EmailOutboxDispatcher dispatcher;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailOutboxRepository emailOutboxRepository;
+
+    @Autowired
+    private StubMailSender mailSender;
+
+    @BeforeEach
+    void setUp() {
+        emailOutboxRepository.deleteAll();
+        mailSender.reset();
+    }
+
+    @Test
+    void pendingRowsAreSentInChunksOverOneConnectionEach() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(pending("user" + i + "@example.com").getEmailId());
+        }
+
+        dispatcher.dispatchDue();
+
+        // chunk-size = 2: ba lần gửi (2 + 2 + 1), mỗi lần một kết nối SMTP
+        assertEquals(List.of(2, 2, 1), mailSender.batches.stream().map(List::size).toList());
+        for (Long id : ids) {
+            EmailOutbox email = emailOutboxRepository.findById(id).orElseThrow();
+            assertEquals(EmailOutbox.Status.SENT, email.getStatus());
+            assertEquals(EmailOutboxDispatcher.REDACTED_BODY, email.getBody());
+        }
+
+        dispatcher.dispatchDue();
+        assertEquals(3, mailSender.batches.size(), "Email đã gửi không được gửi lại");
+    }
+
+    @Test
+    void transientFailureIsRetriedAfterBackoff() {
+        Long id = pending("alice@example.com").getEmailId();
+        mailSender.down = true;
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchDue();
+
+        EmailOutbox failed = emailOutboxRepository.findById(id).orElseThrow();
+        assertEquals(EmailOutbox.Status.PENDING, failed.getStatus());
+        assertEquals(1, failed.getAttempts());
+        assertEquals("Connection refused", failed.getLastError());
+        assertTrue(!failed.getNextAttemptAt().isBefore(before.plusSeconds(30)), "next=" + failed.getNextAttemptAt());
+        assertFalse(failed.getBody().equals(EmailOutboxDispatcher.REDACTED_BODY), "Nội dung còn cần cho lần gửi lại");
+
+        // Chưa đến hạn: lần quét ngay sau đó không gửi lại
+        mailSender.down = false;
+        dispatcher.dispatchDue();
+        assertEquals(1, mailSender.batches.size());
+
+        makeDue(id);
+        dispatcher.dispatchDue();
+        EmailOutbox sent = emailOutboxRepository.findById(id).orElseThrow();
+        assertEquals(EmailOutbox.Status.SENT, sent.getStatus());
+        assertEquals(1, sent.getAttempts());
+        assertNull(sent.getLastError());
+        assertEquals(2, mailSender.batches.size());
+    }
+
+    @Test
+    void backoffDoublesAndRowFailsAfterMaxAttempts() {
+        Long id = pending("bounce@example.com").getEmailId();
+        mailSender.failingRecipients.add("bounce@example.com");
+        Long other = pending("ok@example.com").getEmailId();
+
+        List<Duration> delays = new ArrayList<>();
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            LocalDateTime before = LocalDateTime.now();
+            dispatcher.dispatchDue();
+            EmailOutbox email = emailOutboxRepository.findById(id).orElseThrow();
+            assertEquals(attempt, email.getAttempts());
+            if (attempt < 3) {
+                assertEquals(EmailOutbox.Status.PENDING, email.getStatus());
+                delays.add(Duration.between(before, email.getNextAttemptAt()));
+                makeDue(id);
+            }
+        }
+
+        // Backoff lũy thừa: 30s rồi 60s
+        assertTrue(delays.get(0).getSeconds() >= 29 && delays.get(0).getSeconds() <= 30, "delay=" + delays.get(0));
+        assertTrue(delays.get(1).getSeconds() >= 59 && delays.get(1).getSeconds() <= 60, "delay=" + delays.get(1));
+
+        EmailOutbox failed = emailOutboxRepository.findById(id).orElseThrow();
+        assertEquals(EmailOutbox.Status.FAILED, failed.getStatus());
+        assertEquals("550 mailbox unavailable", failed.getLastError());
+        assertEquals(EmailOutboxDispatcher.REDACTED_BODY, failed.getBody());
+        // Email khác trong cùng lô không bị ảnh hưởng bởi người nhận lỗi
+        assertEquals(EmailOutbox.Status.SENT, emailOutboxRepository.findById(other).orElseThrow().getStatus());
+
+        int sends = mailSender.batches.size();
+        makeDue(id);
+        dispatcher.dispatchDue();
+        assertEquals(sends, mailSender.batches.size(), "Email FAILED không được gửi lại");
+    }
+
+    @Test
+    void otpIsDeliveredRightAfterCommitAndRedactedFromTheOutbox() {
+        emailService.sendOtpEmail("carol@example.com", "482913");
+
+        assertEquals(1, mailSender.batches.size());
+        SimpleMailMessage message = mailSender.batches.get(0).get(0);
+        assertEquals("carol@example.com", message.getTo()[0]);
+        assertTrue(message.getText().contains("482913"));
+
+        EmailOutbox stored = emailOutboxRepository.findAll().get(0);
+        assertEquals(EmailOutbox.Status.SENT, stored.getStatus());
+        assertEquals(EmailOutboxDispatcher.REDACTED_BODY, stored.getBody());
+        assertFalse(stored.getBody().contains("482913"));
+    }
+
+    private EmailOutbox pending(String recipient) {
+        EmailOutbox email = new EmailOutbox();
+        email.setRecipient(recipient);
+        email.setSubject("Mã OTP");
+        email.setBody("Mã OTP của bạn là: 123456.");
+        return emailOutboxRepository.save(email);
+    }
+
+    // Giả lập thời gian backoff đã trôi qua
+    private void makeDue(Long id) {
+        EmailOutbox email = emailOutboxRepository.findById(id).orElseThrow();
+        email.setNextAttemptAt(LocalDateTime.now().minusSeconds(1));
+        emailOutboxRepository.save(email);
+    }
+
+    @TestConfiguration
+    static class StubSmtp {
+
+        @Bean
+        StubMailSender stubMailSender() {
+            return new StubMailSender();
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean(name = "emailDeliveryExecutor")
+        ThreadPoolTaskExecutor emailDeliveryExecutor() {
+            // Chạy trên thread riêng như pool thật (không dùng lại giao dịch của thread gọi) nhưng đợi xong mới trả về
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+                @Override
+                public void execute(Runnable task) {
+                    Thread worker = new Thread(task, "email-test");
+                    worker.start();
+                    try {
+                        worker.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            };
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    /**
+     * Máy chủ SMTP giả lập: ghi lại từng lô được gửi; có thể làm mất kết nối
+     * hoặc từ chối một số người nhận (MailSendException kèm danh sách email lỗi, như JavaMailSenderImpl).
+     */
+    static class StubMailSender extends JavaMailSenderImpl {
+        final List<List<SimpleMailMessage>> batches = new CopyOnWriteArrayList<>();
+        final Set<String> failingRecipients = new HashSet<>();
+        volatile boolean down;
+
+        void reset() {
+            batches.clear();
+            failingRecipients.clear();
+            down = false;
+        }
+
+        @Override
+        public void send(SimpleMailMessage... messages) {
+            batches.add(List.of(messages));
+            if (down) {
+                throw new MailSendException("Connection refused");
+            }
+            Map<Object, Exception> failed = new IdentityHashMap<>();
+            for (SimpleMailMessage message : messages) {
+                if (failingRecipients.contains(message.getTo()[0])) {
+                    failed.put(message, new Exception("550 mailbox unavailable"));
+                }
+            }
+            if (!failed.isEmpty()) {
+                throw new MailSendException(failed);
+            }
+        }
+    }
+}
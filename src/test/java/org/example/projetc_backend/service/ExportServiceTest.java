@@ -0,0 +1,92 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.dto.ExportCriteria;
+import org.example.projetc_backend.entity.Order;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.OrderRepository;
+import org.example.projetc_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * CSV xuất ra không được để ô văn bản do người dùng nhập bị bảng tính hiểu là công thức.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ExportServiceTest {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private ExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        exportService = new ExportService(dataSource, 100);
+    }
+
+    @Test
+    void csvPrefixesCellsThatStartWithAFormulaCharacter() throws IOException {
+        order("=HYPERLINK(\"http://evil\",\"x\")", "+1@example.com", new BigDecimal("-5.00"));
+        order("@SUM(A1)", "-cmd@example.com", new BigDecimal("12.50"));
+        order("plain", "plain@example.com", new BigDecimal("1.00"));
+
+        String[] lines = exportCsv().split("\r\n");
+
+        assertEquals(4, lines.length);
+        // Trường có dấu nháy kép vẫn được trích dẫn theo RFC 4180 sau khi thêm tiền tố
+        assertTrue(lines[1].contains(",\"'=HYPERLINK(\"\"http://evil\"\",\"\"x\"\")\",'+1@example.com,"), lines[1]);
+        // Số âm không phải ô văn bản nên giữ nguyên
+        assertTrue(lines[1].contains(",-5.00,"), lines[1]);
+        assertTrue(lines[2].contains(",'@SUM(A1),'-cmd@example.com,"), lines[2]);
+        assertTrue(lines[3].contains(",plain,plain@example.com,"), lines[3]);
+    }
+
+    private String exportCsv() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(ExportService.Dataset.ORDERS, new ExportCriteria(null, null, null, null, null, null, null),
+                ExportService.Format.CSV, false, out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void order(String username, String email, BigDecimal amount) {
+        User user = new User();
+        user.setUsername(username);
+        user.setEmail(email);
+        user.setPassword("hash");
+        user = userRepository.save(user);
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(amount);
+        order.setStatus(Order.OrderStatus.PENDING);
+        orderRepository.saveAndFlush(order);
+    }
+}
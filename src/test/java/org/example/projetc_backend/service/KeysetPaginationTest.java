@@ -0,0 +1,108 @@
+package org.example.projetc_backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.OffsetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetPaginationTest {
+
+    private final KeysetPagination pagination = new KeysetPagination("id",
+            Map.of("id", Integer.class, "name", String.class, "updatedAt", LocalDateTime.class));
+
+    @Test
+    void cursorRoundTripKeepsTypedKeys() {
+        Sort sort = pagination.sort("updatedAt", "DESC");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("updatedAt", LocalDateTime.of(2024, 5, 1, 10, 30, 15, 123_000_000));
+        keys.put("id", 42);
+
+        String cursor = pagination.encode(ScrollPosition.forward(keys), sort);
+        KeysetScrollPosition decoded = pagination.decode(cursor, sort);
+
+        assertEquals(keys, decoded.getKeys());
+        assertTrue(decoded.scrollsForward());
+        assertTrue(cursor.matches("[A-Za-z0-9_-]+"), "Cursor an toàn cho URL: " + cursor);
+    }
+
+    @Test
+    void stringKeysSurviveRoundTrip() {
+        Sort sort = pagination.sort("name", "ASC");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("name", "Nguyễn Văn A, b=c");
+        keys.put("id", 7);
+
+        assertEquals(keys, pagination.decode(pagination.encode(ScrollPosition.forward(keys), sort), sort).getKeys());
+    }
+
+    @Test
+    void sortAlwaysEndsWithIdAndRejectsUnknownColumns() {
+        assertEquals(Sort.by(Sort.Direction.DESC, "name").and(Sort.by(Sort.Direction.DESC, "id")), pagination.sort("name", "desc"));
+        assertEquals(Sort.by(Sort.Direction.ASC, "id"), pagination.sort("id", null));
+        assertThrows(IllegalArgumentException.class, () -> pagination.sort("createdAt", "ASC"));
+    }
+
+    @Test
+    void cursorFromAnotherSortIsRejected() {
+        Sort byName = pagination.sort("name", "ASC");
+        String cursor = pagination.encode(ScrollPosition.forward(Map.of("name", "alice", "id", 1)), byName);
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> pagination.decode(cursor, pagination.sort("name", "DESC")));
+        assertEquals("Cursor không khớp với cách sắp xếp hiện tại.", error.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> pagination.decode(cursor, pagination.sort("id", "ASC")));
+    }
+
+    @Test
+    void malformedCursorsAreRejected() {
+        Sort sort = pagination.sort("id", "ASC");
+        // Không phải Base64
+        assertThrows(IllegalArgumentException.class, () -> pagination.decode("%%%", sort));
+        // Sai số phần
+        assertThrows(IllegalArgumentException.class, () -> pagination.decode(token("id ASC"), sort));
+        assertThrows(IllegalArgumentException.class, () -> pagination.decode(token("id ASC\u001F1\u001F2"), sort));
+        // Giá trị không đúng kiểu
+        assertThrows(IllegalArgumentException.class, () -> pagination.decode(token("id ASC\u001Fabc"), sort));
+        assertThrows(IllegalArgumentException.class, () -> pagination.decode(
+                token("updatedAt ASC,id ASC\u001Fyesterday\u001F1"), pagination.sort("updatedAt", "ASC")));
+    }
+
+    @Test
+    void recordWithoutSortValueCannotBeEncoded() {
+        Sort sort = pagination.sort("name", "ASC");
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("id", 3);
+        assertThrows(IllegalArgumentException.class, () -> pagination.encode(ScrollPosition.forward(keys), sort));
+    }
+
+    @Test
+    void slicePositionPointsAtLastRowOfPreviousPage() {
+        assertTrue(KeysetPagination.slicePosition(0, 20).isInitial());
+        assertEquals(19, ((OffsetScrollPosition) KeysetPagination.slicePosition(1, 20)).getOffset());
+        assertEquals(59, ((OffsetScrollPosition) KeysetPagination.slicePosition(3, 20)).getOffset());
+    }
+
+    @Test
+    void modeFollowsPaginationAndCursor() {
+        assertEquals(KeysetPagination.Mode.OFFSET, KeysetPagination.mode(null, null, KeysetPagination.Mode.OFFSET));
+        assertEquals(KeysetPagination.Mode.SLICE, KeysetPagination.mode(" slice ", null, KeysetPagination.Mode.OFFSET));
+        assertEquals(KeysetPagination.Mode.KEYSET, KeysetPagination.mode(null, "abc", KeysetPagination.Mode.OFFSET));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.mode("SLICE", "abc", KeysetPagination.Mode.OFFSET));
+        assertThrows(IllegalArgumentException.class, () -> KeysetPagination.mode("PAGES", null, KeysetPagination.Mode.OFFSET));
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
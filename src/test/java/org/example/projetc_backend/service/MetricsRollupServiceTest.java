@@ -0,0 +1,133 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.entity.DailyMetric;
+import org.example.projetc_backend.repository.DailyMetricRepository;
+import org.example.projetc_backend.repository.PaymentRepository;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.example.projetc_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Cộng dồn và tính lại (backfill) không được đếm trùng, kể cả khi giá trị còn nằm trong bộ đệm của node khác
+ * lúc job tính lại chạy. Hai instance MetricsRollupService dùng chung DB H2 đóng vai hai node.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:metrics;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MetricsRollupServiceTest {
+
+    @Autowired
+    private DailyMetricRepository dailyMetricRepository;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QuizResultRepository quizResultRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final LocalDate yesterday = LocalDate.now().minusDays(1);
+    private MetricsRollupService nodeA;
+    private MetricsRollupService nodeB;
+    private int nextUserId;
+
+    @BeforeEach
+    void setUp() {
+        dailyMetricRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM users");
+        nodeA = newNode();
+        nodeB = newNode();
+    }
+
+    @Test
+    void deltaBufferedOnAnotherNodeBeforeTheRecomputeIsNotCountedTwice() {
+        signUp(nodeA, yesterday.atTime(23, 50));
+        signUp(nodeB, yesterday.atTime(23, 55));
+
+        // Node B tính lại hôm qua trong khi giá trị của node A vẫn nằm trong bộ đệm
+        nodeB.backfill(yesterday, yesterday);
+        assertEquals(2, signupsOn(yesterday));
+
+        nodeA.flush();
+        assertEquals(2, signupsOn(yesterday));
+    }
+
+    @Test
+    void deltaRecordedAfterTheRecomputeIsAdded() {
+        signUp(nodeA, yesterday.atTime(10, 0));
+        nodeA.backfill(yesterday, yesterday);
+
+        // Sự kiện muộn của hôm qua, ghi nhận sau lần tính lại
+        signUp(nodeB, yesterday.atTime(23, 59));
+        nodeB.flush();
+        assertEquals(2, signupsOn(yesterday));
+
+        // Tính lại lần nữa cho cùng kết quả
+        nodeA.backfill(yesterday, yesterday);
+        assertEquals(2, signupsOn(yesterday));
+    }
+
+    @Test
+    void incrementsAreFlushedPerDay() {
+        LocalDateTime today = LocalDateTime.now();
+        signUp(nodeA, today);
+        signUp(nodeA, today);
+        signUp(nodeA, yesterday.atTime(8, 0));
+
+        nodeA.flush();
+        assertEquals(2, signupsOn(today.toLocalDate()));
+        assertEquals(1, signupsOn(yesterday));
+
+        nodeA.flush();
+        assertEquals(2, signupsOn(today.toLocalDate()));
+    }
+
+    private MetricsRollupService newNode() {
+        return new MetricsRollupService(dailyMetricRepository, paymentRepository, userRepository, quizResultRepository,
+                transactionManager, null);
+    }
+
+    // Người dùng được lưu (commit) rồi mới ghi nhận, như UserService.register ngoài transaction
+    private void signUp(MetricsRollupService node, LocalDateTime createdAt) {
+        int userId = ++nextUserId;
+        jdbcTemplate.update("INSERT INTO users (user_id, username, email, password_hash, role, token_version, created_at) " +
+                "VALUES (?, ?, ?, 'x', 'ROLE_USER', 0, ?)", userId, "user" + userId, "user" + userId + "@example.com", createdAt);
+        node.recordSignups(createdAt, 1);
+    }
+
+    private long signupsOn(LocalDate day) {
+        List<DailyMetric> rows = dailyMetricRepository.findByMetricAndMetricDateBetweenOrderByMetricDate(
+                DailyMetric.Metric.SIGNUPS, day, day);
+        return rows.isEmpty() ? 0 : rows.get(0).getEventCount();
+    }
+}
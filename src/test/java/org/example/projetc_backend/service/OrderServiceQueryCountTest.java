@@ -0,0 +1,119 @@
+package org.example.projetc_backend.service;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.projetc_backend.dto.OrderResponse;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Giữ cố định số câu lệnh SQL cho mỗi trang đơn hàng (đơn hàng kèm user/payment, đếm tổng, chi tiết kèm bài học),
+ * bất kể kích thước trang hay số dòng chi tiết. Đếm bằng Hibernate Statistics trên H2.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:orders;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderService.class)
+class OrderServiceQueryCountTest {
+
+    private static final int ORDERS = 40;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private LessonService lessonService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("INSERT INTO users (user_id, username, email, password_hash, role, token_version) VALUES " +
+                "(1, 'alice', 'alice@example.com', 'x', 'ROLE_USER', 0), (2, 'bob', 'bob@example.com', 'x', 'ROLE_USER', 0)");
+        for (int lessonId = 1; lessonId <= ITEMS_PER_ORDER; lessonId++) {
+            jdbcTemplate.update("INSERT INTO lessons (lesson_id, title, level, skill, price, created_at, is_deleted) " +
+                    "VALUES (?, ?, 'BEGINNER', 'READING', 10, NOW(), FALSE)", lessonId, "Lesson " + lessonId);
+        }
+        int detailId = 0;
+        for (int orderId = 1; orderId <= ORDERS; orderId++) {
+            jdbcTemplate.update("INSERT INTO orders (order_id, user_id, order_date, total_amount, status) " +
+                    "VALUES (?, ?, NOW(), 30, 'PENDING')", orderId, orderId % 2 + 1);
+            for (int lessonId = 1; lessonId <= ITEMS_PER_ORDER; lessonId++) {
+                jdbcTemplate.update("INSERT INTO order_details (order_detail_id, order_id, lesson_id, quantity, price_at_purchase) " +
+                        "VALUES (?, ?, ?, 1, 10)", ++detailId, orderId, lessonId);
+            }
+        }
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void orderPageUsesThreeStatementsWhateverThePageSize() {
+        for (int size : new int[]{5, 20}) {
+            Page<OrderResponse> page = countStatements(3,
+                    () -> orderService.getOrders(PageRequest.of(0, size, Sort.by("orderId"))));
+            assertEquals(size, page.getContent().size());
+            assertEquals(ORDERS, page.getTotalElements());
+            page.getContent().forEach(order -> assertEquals(ITEMS_PER_ORDER, order.items().size()));
+        }
+    }
+
+    @Test
+    void searchPageUsesThreeStatements() {
+        Page<OrderResponse> page = countStatements(3, () -> orderService.searchOrders(
+                null, null, null, null, null, null, "ali", PageRequest.of(1, 10, Sort.by("orderId"))));
+        assertEquals(10, page.getContent().size());
+        assertEquals(ORDERS / 2, page.getTotalElements());
+        page.getContent().forEach(order -> assertEquals("alice", order.user().username()));
+    }
+
+    @Test
+    void userPageAddsOnlyTheUserExistenceCheck() {
+        Page<OrderResponse> page = countStatements(4,
+                () -> orderService.getOrdersByUserId(2, PageRequest.of(0, 15, Sort.by("orderId"))));
+        assertEquals(15, page.getContent().size());
+        assertEquals(ORDERS / 2, page.getTotalElements());
+    }
+
+    // Xóa persistence context để mọi dữ liệu phải đọc từ DB, rồi đếm số câu lệnh của lần gọi
+    private <T> T countStatements(long expected, Supplier<T> call) {
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+        T result = call.get();
+        assertEquals(expected, statistics.getPrepareStatementCount(), "Số câu lệnh SQL");
+        return result;
+    }
+}
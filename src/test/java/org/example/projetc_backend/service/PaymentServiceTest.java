@@ -0,0 +1,287 @@
+package org.example.projetc_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.projetc_backend.cache.UserCache;
+import org.example.projetc_backend.dto.PaymentRequest;
+import org.example.projetc_backend.entity.Order;
+import org.example.projetc_backend.entity.Payment;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.OrderRepository;
+import org.example.projetc_backend.repository.PaymentRepository;
+import org.example.projetc_backend.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Đi hết luồng khởi tạo/hoàn tất thanh toán trên H2 qua StubPaymentGateway và PaymentGatewayClient thật
+ * (pool riêng, thời gian chờ ngắn, ngưỡng circuit breaker nhỏ).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:payments;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+// Các transaction ngắn của PaymentService phải commit thật để thread của pool cổng thanh toán thấy dữ liệu
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentServiceTest {
+
+    private static final long TIMEOUT_MS = 300;
+    private static final int FAILURE_THRESHOLD = 2;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private ScriptedGateway gateway;
+    private ThreadPoolTaskExecutor executor;
+    private PaymentService paymentService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM payments");
+        jdbcTemplate.update("DELETE FROM orders");
+        jdbcTemplate.update("DELETE FROM users");
+
+        user = new User();
+        user.setUsername("buyer");
+        user.setEmail("buyer@example.com");
+        user.setPassword("hash");
+        user = userRepository.save(user);
+
+        gateway = new ScriptedGateway();
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(4);
+        executor.setQueueCapacity(4);
+        executor.initialize();
+        PaymentGatewayClient client = new PaymentGatewayClient(gateway, executor, new SimpleMeterRegistry(),
+                TIMEOUT_MS, 5, FAILURE_THRESHOLD, 60);
+
+        UserCache userCache = mock(UserCache.class);
+        when(userCache.findByUsername(anyString())).thenReturn(Optional.of(user));
+        paymentService = new PaymentService(paymentRepository, userRepository, orderRepository,
+                mock(EnrollmentService.class), client, userCache, mock(MetricsRollupService.class), transactionManager);
+        ReflectionTestUtils.setField(paymentService, "backendBaseUrl", "http://localhost:8080");
+
+        org.springframework.security.core.userdetails.User principal =
+                new org.springframework.security.core.userdetails.User("buyer", "hash", List.of());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        executor.shutdown();
+    }
+
+    @Test
+    void initiateAndCompleteApprovesThePayment() {
+        Order order = newOrder();
+
+        String approvalUrl = paymentService.initiatePayPalPayment(request(order)).join();
+        String gatewayPaymentId = queryParam(approvalUrl, "paymentId");
+        assertEquals(gatewayPaymentId, paymentRepository.findByTransactionId(gatewayPaymentId).orElseThrow().getTransactionId());
+        assertEquals(Order.OrderStatus.PROCESSING, orderStatus(order));
+
+        Map<String, String> redirect = paymentService.completePayPalPayment(gatewayPaymentId, "STUBPAYER").join();
+
+        assertEquals("success", queryParam(redirect.get("redirectUrl"), "status"));
+        assertEquals(Payment.PaymentStatus.COMPLETED, paymentRepository.findByTransactionId(gatewayPaymentId).orElseThrow().getStatus());
+        assertEquals(Order.OrderStatus.COMPLETED, orderStatus(order));
+        assertEquals(1, gateway.executeCalls.get());
+    }
+
+    @Test
+    void slowCreateTimesOutAndReleasesTheReservation() throws InterruptedException {
+        Order order = newOrder();
+        gateway.setDelayMs(TIMEOUT_MS * 3);
+
+        CompletableFuture<String> future = paymentService.initiatePayPalPayment(request(order));
+        CompletionException error = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(ServiceBusyException.class, error.getCause());
+
+        // PayPal trả lời sau khi client đã nhận 503: giao dịch bị bỏ, đơn hàng được trả về PENDING
+        drainPool();
+        assertEquals(0, paymentRepository.count());
+        assertEquals(Order.OrderStatus.PENDING, orderStatus(order));
+    }
+
+    @Test
+    void breakerOpensAfterRepeatedFailuresAndRejectsWithoutCallingTheGateway() {
+        Order order = newOrder();
+        gateway.failCreate = true;
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            CompletionException error = assertThrows(CompletionException.class,
+                    () -> paymentService.initiatePayPalPayment(request(order)).join());
+            assertInstanceOf(PaymentGatewayException.class, error.getCause());
+            assertEquals(Order.OrderStatus.PENDING, orderStatus(order));
+        }
+        assertEquals(FAILURE_THRESHOLD, gateway.createCalls.get());
+
+        // Circuit đã mở: từ chối ngay với 503, không gọi cổng thanh toán và không để lại chỗ giữ
+        gateway.failCreate = false;
+        ServiceBusyException busy = assertThrows(ServiceBusyException.class,
+                () -> paymentService.initiatePayPalPayment(request(order)));
+        assertTrue(busy.getRetryAfterSeconds() > 0);
+        assertEquals(FAILURE_THRESHOLD, gateway.createCalls.get());
+        assertEquals(0, paymentRepository.count());
+        assertEquals(Order.OrderStatus.PENDING, orderStatus(order));
+    }
+
+    @Test
+    void duplicateCallbackDoesNotExecuteThePaymentTwice() throws InterruptedException {
+        Order order = newOrder();
+        String gatewayPaymentId = queryParam(paymentService.initiatePayPalPayment(request(order)).join(), "paymentId");
+        gateway.executeGate = new CountDownLatch(1);
+
+        CompletableFuture<Map<String, String>> first = paymentService.completePayPalPayment(gatewayPaymentId, "STUBPAYER");
+        assertTrue(gateway.executeStarted.await(5, TimeUnit.SECONDS));
+
+        // Callback thứ hai đến khi lời gọi đầu còn đang thực thi: trả về processing, không gọi PayPal lần nữa
+        Map<String, String> second = paymentService.completePayPalPayment(gatewayPaymentId, "STUBPAYER").join();
+        assertEquals("processing", queryParam(second.get("redirectUrl"), "status"));
+        assertFalse(first.isDone());
+
+        gateway.executeGate.countDown();
+        assertEquals("success", queryParam(first.join().get("redirectUrl"), "status"));
+        assertEquals(1, gateway.executeCalls.get());
+        assertEquals(Payment.PaymentStatus.COMPLETED, paymentRepository.findByTransactionId(gatewayPaymentId).orElseThrow().getStatus());
+    }
+
+    @Test
+    void slowExecuteRedirectsToProcessingAndStillRecordsTheResult() throws InterruptedException {
+        Order order = newOrder();
+        String gatewayPaymentId = queryParam(paymentService.initiatePayPalPayment(request(order)).join(), "paymentId");
+        gateway.setDelayMs(TIMEOUT_MS * 3);
+
+        Map<String, String> redirect = paymentService.completePayPalPayment(gatewayPaymentId, "STUBPAYER").join();
+        assertEquals("processing", queryParam(redirect.get("redirectUrl"), "status"));
+
+        drainPool();
+        assertEquals(Payment.PaymentStatus.COMPLETED, paymentRepository.findByTransactionId(gatewayPaymentId).orElseThrow().getStatus());
+        assertEquals(Order.OrderStatus.COMPLETED, orderStatus(order));
+    }
+
+    private Order newOrder() {
+        Order order = new Order();
+        order.setUser(user);
+        order.setOrderDate(LocalDateTime.now());
+        order.setTotalAmount(new BigDecimal("19.99"));
+        order.setStatus(Order.OrderStatus.PENDING);
+        return orderRepository.save(order);
+    }
+
+    private PaymentRequest request(Order order) {
+        return new PaymentRequest(user.getUserId(), order.getOrderId(), new BigDecimal("19.99"), "PayPal", null,
+                "http://localhost:4200/cancel", "http://localhost:4200/success");
+    }
+
+    private Order.OrderStatus orderStatus(Order order) {
+        return orderRepository.findById(order.getOrderId()).orElseThrow().getStatus();
+    }
+
+    // Chờ các tác vụ còn chạy ở nền trên pool cổng thanh toán (sau khi client đã nhận phản hồi hết thời gian chờ)
+    private void drainPool() throws InterruptedException {
+        executor.getThreadPoolExecutor().shutdown();
+        assertTrue(executor.getThreadPoolExecutor().awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static String queryParam(String url, String name) {
+        String value = UriComponentsBuilder.fromUriString(url).build().getQueryParams().getFirst(name);
+        assertNotNull(value);
+        return value;
+    }
+
+    /**
+     * StubPaymentGateway có thể lỗi tạm thời khi tạo giao dịch và giữ lời gọi execute lại cho tới khi test cho phép.
+     */
+    static class ScriptedGateway extends StubPaymentGateway {
+        final AtomicInteger createCalls = new AtomicInteger();
+        final AtomicInteger executeCalls = new AtomicInteger();
+        final CountDownLatch executeStarted = new CountDownLatch(1);
+        volatile boolean failCreate;
+        volatile CountDownLatch executeGate;
+
+        void setDelayMs(long delayMs) {
+            ReflectionTestUtils.setField(this, StubPaymentGateway.class, "delayMs", delayMs, long.class);
+        }
+
+        @Override
+        public GatewayPayment create(BigDecimal total, String currency, String description,
+                                     String cancelUrl, String returnUrl) {
+            createCalls.incrementAndGet();
+            if (failCreate) {
+                throw new PaymentGatewayException("Cổng thanh toán giả lập không phản hồi.", true, null);
+            }
+            return super.create(total, currency, description, cancelUrl, returnUrl);
+        }
+
+        @Override
+        public GatewayPayment execute(String paymentId, String payerId) {
+            executeCalls.incrementAndGet();
+            executeStarted.countDown();
+            CountDownLatch gate = executeGate;
+            if (gate != null) {
+                try {
+                    gate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return super.execute(paymentId, payerId);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.dto.QuestionAnalyticsResponse;
+import org.example.projetc_backend.entity.Question;
+import org.example.projetc_backend.entity.QuestionStat;
+import org.example.projetc_backend.repository.AnswerPickStatRepository;
+import org.example.projetc_backend.repository.AnswerRepository;
+import org.example.projetc_backend.repository.QuestionRepository;
+import org.example.projetc_backend.repository.QuestionStatRepository;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.example.projetc_backend.repository.UserAnswerRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Độ khó trong phản hồi và thứ tự "câu hỏi khó nhất" phải khớp với bộ đếm attempts/correctCount được trả về,
+ * kể cả khi flush đã cộng thêm lượt trả lời sau lần tính hằng đêm (difficultyIndex lưu trong bảng đã cũ).
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:question_stats;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class QuestionAnalyticsServiceTest {
+
+    @Autowired
+    private QuestionStatRepository questionStatRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final QuestionRepository questionRepository = mock(QuestionRepository.class);
+    private QuestionAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new QuestionAnalyticsService(questionStatRepository, mock(AnswerPickStatRepository.class),
+                mock(UserAnswerRepository.class), mock(QuizResultRepository.class), questionRepository,
+                mock(AnswerRepository.class), transactionManager, mock(ThreadPoolTaskExecutor.class), 100, 300);
+        when(questionRepository.findAllById(anyIterable()))
+                .thenReturn(List.of(question(1), question(2), question(3)));
+    }
+
+    @Test
+    void difficultyIsDerivedFromTheReturnedCountersNotTheStoredIndex() {
+        // Lần tính hằng đêm: 9/10 đúng; sau đó flush cộng thêm 10 lượt sai
+        questionStatRepository.save(stat(1, 20, 9, 0.9));
+
+        QuestionAnalyticsResponse response = service.getHardestQuestions(10, 0).get(0);
+
+        assertEquals(20, response.attempts());
+        assertEquals(9, response.correctCount());
+        assertEquals(0.45, response.difficultyIndex(), 1e-9);
+    }
+
+    @Test
+    void hardestQuestionsAreRankedByCurrentCounters() {
+        questionStatRepository.save(stat(1, 10, 5, 0.1));   // Chỉ số lưu cũ: 0.1, hiện tại 0.5
+        questionStatRepository.save(stat(2, 10, 2, null));  // Chưa được tính hằng đêm
+        questionStatRepository.save(stat(3, 0, 0, null));   // Chưa có lượt trả lời: không xếp hạng
+
+        List<QuestionAnalyticsResponse> hardest = service.getHardestQuestions(10, 0);
+
+        assertEquals(List.of(2, 1), hardest.stream().map(QuestionAnalyticsResponse::questionId).toList());
+        assertEquals(0.2, hardest.get(0).difficultyIndex(), 1e-9);
+        assertNull(hardest.get(0).discriminationIndex());
+    }
+
+    private static QuestionStat stat(int questionId, long attempts, long correct, Double storedDifficulty) {
+        QuestionStat stat = new QuestionStat();
+        stat.setQuestionId(questionId);
+        stat.setQuizId(1);
+        stat.setAttempts(attempts);
+        stat.setCorrectCount(correct);
+        stat.setDifficultyIndex(storedDifficulty);
+        return stat;
+    }
+
+    private static Question question(int questionId) {
+        Question question = new Question();
+        question.setQuestionId(questionId);
+        question.setQuestionText("Câu hỏi " + questionId);
+        return question;
+    }
+}
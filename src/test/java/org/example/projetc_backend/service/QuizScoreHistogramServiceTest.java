@@ -0,0 +1,132 @@
+package org.example.projetc_backend.service;
+
+import org.example.projetc_backend.dto.QuizScoreDistributionResponse;
+import org.example.projetc_backend.repository.QuizResultRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QuizScoreHistogramServiceTest {
+
+    @Test
+    void medianMeanAndPercentileRank() {
+        QuizScoreHistogramService.ScoreHistogram histogram = new QuizScoreHistogramService.ScoreHistogram();
+        for (int score : new int[]{10, 20, 20, 30, 50}) {
+            histogram.add(score, 1);
+        }
+
+        QuizScoreDistributionResponse response = histogram.describe(1, 20, 20);
+        assertEquals(5, response.totalResults());
+        assertEquals(26.0, response.mean(), 1e-9);
+        assertEquals(20.0, response.median(), 1e-9);
+        // Một kết quả (10) thấp hơn 20
+        assertEquals(20.0, response.percentileRank(), 1e-9);
+
+        histogram.add(40, 1);
+        // Số lượng chẵn: trung bình hai phần tử giữa (20, 30)
+        assertEquals(25.0, histogram.describe(1, null, null).median(), 1e-9);
+        assertEquals(100.0, histogram.describe(1, 51, 51).percentileRank(), 1e-9);
+        assertEquals(0.0, histogram.describe(1, 0, 0).percentileRank(), 1e-9);
+    }
+
+    @Test
+    void removingResultsUpdatesEveryStatistic() {
+        QuizScoreHistogramService.ScoreHistogram histogram = new QuizScoreHistogramService.ScoreHistogram();
+        histogram.add(5, 2);
+        histogram.add(7, 1);
+        histogram.add(5, -1);
+
+        QuizScoreDistributionResponse response = histogram.describe(1, 7, 7);
+        assertEquals(2, response.totalResults());
+        assertEquals(6.0, response.median(), 1e-9);
+        assertEquals(50.0, response.percentileRank(), 1e-9);
+
+        histogram.add(5, -1);
+        histogram.add(7, -1);
+        QuizScoreDistributionResponse empty = histogram.describe(1, 7, 7);
+        assertEquals(0, empty.totalResults());
+        assertNull(empty.median());
+    }
+
+    @Test
+    void growingBeyondInitialCapacityKeepsExistingCounts() {
+        QuizScoreHistogramService.ScoreHistogram histogram = new QuizScoreHistogramService.ScoreHistogram();
+        histogram.add(3, 2);
+        histogram.add(127, 1);
+        // Vượt quá 128 mức điểm ban đầu, cây phải được dựng lại hai lần
+        histogram.add(300, 1);
+        histogram.add(1000, 1);
+
+        QuizScoreDistributionResponse response = histogram.describe(1, 300, 300);
+        assertEquals(5, response.totalResults());
+        assertEquals(127.0, response.median(), 1e-9);
+        assertEquals(60.0, response.percentileRank(), 1e-9);
+        assertEquals(80.0, histogram.describe(1, 1000, 1000).percentileRank(), 1e-9);
+    }
+
+    @Test
+    void matchesSortedListOnRandomData() {
+        Random random = new Random(7);
+        QuizScoreHistogramService.ScoreHistogram histogram = new QuizScoreHistogramService.ScoreHistogram();
+        List<Integer> scores = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (!scores.isEmpty() && random.nextInt(4) == 0) {
+                int removed = scores.remove(random.nextInt(scores.size()));
+                histogram.add(removed, -1);
+            } else {
+                int score = random.nextInt(500);
+                scores.add(score);
+                histogram.add(score, 1);
+            }
+            if (i % 50 == 0 && !scores.isEmpty()) {
+                List<Integer> sorted = new ArrayList<>(scores);
+                Collections.sort(sorted);
+                int n = sorted.size();
+                double median = n % 2 == 1 ? sorted.get(n / 2) : (sorted.get(n / 2 - 1) + sorted.get(n / 2)) / 2.0;
+                int probe = random.nextInt(520);
+                long below = sorted.stream().filter(s -> s < probe).count();
+
+                QuizScoreDistributionResponse response = histogram.describe(1, probe, probe);
+                assertEquals(n, response.totalResults());
+                assertEquals(median, response.median(), 1e-9);
+                assertEquals(Math.round(below * 10000.0 / n) / 100.0, response.percentileRank(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void reportsBusyUntilTheRebuildSucceedsThenRetries() {
+        QuizResultRepository repository = mock(QuizResultRepository.class);
+        QuizScoreHistogramService service = new QuizScoreHistogramService(repository, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "maxScore", 10000);
+        when(repository.streamScoreCountsByQuiz())
+                .thenThrow(new DataAccessResourceFailureException("DB chưa sẵn sàng"))
+                .thenReturn(Stream.<Object[]>of(new Object[]{1, 80, 3L}, new Object[]{1, 40, 1L}));
+
+        service.rebuild();
+        assertThrows(ServiceBusyException.class, () -> service.getDistribution(1, 50));
+        // Kết quả mới trước khi dựng xong không được cộng vào histogram thiếu dữ liệu (DB sẽ có khi dựng lại)
+        service.recordAdded(1, 10);
+
+        service.retryRebuild();
+        QuizScoreDistributionResponse response = service.getDistribution(1, 50);
+        assertEquals(4, response.totalResults());
+        assertEquals(25.0, response.percentileRank(), 1e-9);
+
+        service.recordAdded(1, 10);
+        assertEquals(5, service.getDistribution(1, null).totalResults());
+    }
+}
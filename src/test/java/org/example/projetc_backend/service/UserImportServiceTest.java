@@ -0,0 +1,125 @@
+package org.example.projetc_backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.projetc_backend.dto.UserImportResponse;
+import org.example.projetc_backend.dto.UserImportRowResult;
+import org.example.projetc_backend.entity.User;
+import org.example.projetc_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Loại trùng khi nhập người dùng: một dòng bị loại không được chặn dòng hợp lệ phía sau có cùng tên đăng nhập/email,
+ * kể cả khi hai dòng nằm ở hai lô khác nhau.
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user_import;MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;IGNORE_UNKNOWN_SETTINGS=TRUE",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository.deleteAll();
+        User existing = new User();
+        existing.setUsername("taken");
+        existing.setEmail("taken@example.com");
+        existing.setPassword("hash");
+        userRepository.save(existing);
+
+        PasswordHashingService hashingService = mock(PasswordHashingService.class);
+        when(hashingService.encodeAll(anyList())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).stream()
+                .map(password -> "hash-" + password)
+                .toList());
+        importService = new UserImportService(userRepository, hashingService, jdbcTemplate, transactionManager,
+                new ObjectMapper(), mock(ApplicationEventPublisher.class), mock(MetricsRollupService.class));
+        ReflectionTestUtils.setField(importService, "chunkSize", 2);
+        ReflectionTestUtils.setField(importService, "maxRows", 100);
+    }
+
+    @Test
+    void rowRejectedForAnExistingEmailDoesNotBlockALaterRowWithTheSameUsername() throws IOException {
+        UserImportResponse response = importCsv("""
+                username,email,password
+                alice,taken@example.com,secret1
+                alice,alice@example.com,secret1
+                """);
+
+        assertEquals(List.of("DUPLICATE", "CREATED"), statuses(response));
+        assertTrue(userRepository.existsByEmail("alice@example.com"));
+    }
+
+    @Test
+    void rowRejectedForAnExistingUsernameDoesNotBlockALaterRowWithTheSameEmail() throws IOException {
+        // Hai dòng nằm ở hai lô khác nhau (chunk-size=2)
+        UserImportResponse response = importCsv("""
+                username,email,password
+                taken,bob@example.com,secret1
+                carol,carol@example.com,secret1
+                bob,bob@example.com,secret1
+                """);
+
+        assertEquals(List.of("DUPLICATE", "CREATED", "CREATED"), statuses(response));
+        assertTrue(userRepository.existsByUsername("bob"));
+    }
+
+    @Test
+    void duplicatesOfAnAcceptedRowAreStillRejected() throws IOException {
+        UserImportResponse response = importCsv("""
+                username,email,password
+                dave,dave@example.com,secret1
+                dave,other@example.com,secret1
+                erin,DAVE@example.com,secret1
+                """);
+
+        assertEquals(List.of("CREATED", "DUPLICATE", "DUPLICATE"), statuses(response));
+        assertEquals("Tên đăng nhập bị lặp lại trong dữ liệu nhập.", response.rows().get(1).message());
+        assertEquals("Email bị lặp lại trong dữ liệu nhập.", response.rows().get(2).message());
+    }
+
+    private UserImportResponse importCsv(String csv) throws IOException {
+        return importService.importUsers(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), "text/csv");
+    }
+
+    private static List<String> statuses(UserImportResponse response) {
+        return response.rows().stream().map(UserImportRowResult::status).toList();
+    }
+}